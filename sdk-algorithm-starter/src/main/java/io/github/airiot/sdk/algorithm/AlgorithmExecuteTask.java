@@ -19,9 +19,8 @@ package io.github.airiot.sdk.algorithm;
 
 import com.google.gson.Gson;
 import com.google.protobuf.ByteString;
-import io.github.airiot.sdk.algorithm.grpc.algorithm.RunRequest;
 import io.github.airiot.sdk.algorithm.grpc.algorithm.RunResult;
-import io.grpc.ClientCall;
+import io.github.airiot.sdk.grpc.StreamWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -33,13 +32,13 @@ public class AlgorithmExecuteTask implements Runnable {
 
     private static final Gson GSON = new Gson();
 
-    private final ClientCall<RunResult, RunRequest> call;
+    private final StreamWriter<RunResult> writer;
     private final String requestId;
     private final Request request;
     private final Callable<Object> task;
 
-    public AlgorithmExecuteTask(ClientCall<RunResult, RunRequest> call, String requestId, Request request, Callable<Object> task) {
-        this.call = call;
+    public AlgorithmExecuteTask(StreamWriter<RunResult> writer, String requestId, Request request, Callable<Object> task) {
+        this.writer = writer;
         this.requestId = requestId;
         this.request = request;
         this.task = task;
@@ -51,13 +50,13 @@ public class AlgorithmExecuteTask implements Runnable {
             logger.info("开始执行算法: requestId={}, projectId={}, function={}, params={}", requestId, request.getProjectID(), request.getFunction(), request.getInput());
             Object result = this.task.call();
             logger.info("算法执行结果: requestId={}, result: {}", requestId, result);
-            this.call.sendMessage(RunResult.newBuilder()
+            this.writer.write(RunResult.newBuilder()
                     .setRequest(requestId)
                     .setMessage(ByteString.copyFromUtf8(GSON.toJson(new Response(200, null, result))))
                     .build());
         } catch (Exception e) {
             logger.error("算法执行异常: requestId={}, projectId={}, function={}, params={}", requestId, request.getProjectID(), request.getFunction(), request.getInput(), e);
-            this.call.sendMessage(RunResult.newBuilder()
+            this.writer.write(RunResult.newBuilder()
                     .setRequest(requestId)
                     .setMessage(ByteString.copyFromUtf8(GSON.toJson(new Response(400, e.getMessage()))))
                     .build());
@@ -23,6 +23,8 @@ import com.google.gson.JsonSyntaxException;
 import com.google.protobuf.ByteString;
 import io.github.airiot.sdk.algorithm.grpc.algorithm.RunRequest;
 import io.github.airiot.sdk.algorithm.grpc.algorithm.RunResult;
+import io.github.airiot.sdk.grpc.StreamFlowControl;
+import io.github.airiot.sdk.grpc.StreamWriter;
 import io.grpc.ClientCall;
 import io.grpc.Metadata;
 import io.grpc.Status;
@@ -32,6 +34,7 @@ import org.springframework.util.StringUtils;
 
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadPoolExecutor;
 
 public class AlgorithmHandler extends ClientCall.Listener<RunRequest> {
@@ -40,12 +43,17 @@ public class AlgorithmHandler extends ClientCall.Listener<RunRequest> {
 
     private final Gson gson = new Gson();
     private final ClientCall<RunResult, RunRequest> call;
+    private final StreamWriter<RunResult> writer;
+    private final StreamFlowControl flowControl;
     private final AlgorithmApp app;
     private final Map<String, AlgorithmFunctionDefinition> functions;
     private final ThreadPoolExecutor executor;
 
-    public AlgorithmHandler(ClientCall<RunResult, RunRequest> call, AlgorithmApp app, Map<String, AlgorithmFunctionDefinition> functions, ThreadPoolExecutor executor) {
+    public AlgorithmHandler(ClientCall<RunResult, RunRequest> call, StreamFlowControl flowControl, AlgorithmApp app,
+                            Map<String, AlgorithmFunctionDefinition> functions, ThreadPoolExecutor executor) {
         this.call = call;
+        this.writer = new StreamWriter<>(call, this.logger);
+        this.flowControl = flowControl;
         this.app = app;
         this.functions = functions;
         this.executor = executor;
@@ -128,6 +136,23 @@ public class AlgorithmHandler extends ClientCall.Listener<RunRequest> {
 
     @Override
     public void onMessage(RunRequest request) {
+        boolean submitted = false;
+        try {
+            submitted = this.handle(request);
+        } finally {
+            // 提交到线程池的请求在执行完成后再接收下一个请求
+            if (!submitted) {
+                this.flowControl.release();
+            }
+        }
+    }
+
+    /**
+     * 处理请求
+     *
+     * @return 如果已提交到线程池执行则返回 {@code true}
+     */
+    private boolean handle(RunRequest request) {
         String requestId = request.getRequest();
         String requestData = request.getData().toStringUtf8();
 
@@ -136,11 +161,11 @@ public class AlgorithmHandler extends ClientCall.Listener<RunRequest> {
         Response response = this.validateRequest(request);
         if (response != null) {
             logger.warn("接收到请求: requestId={}, 请求内容校验失败, {}", requestId, response.getError());
-            this.call.sendMessage(RunResult.newBuilder()
+            this.writer.write(RunResult.newBuilder()
                     .setRequest(requestId)
                     .setMessage(ByteString.copyFromUtf8(gson.toJson(response)))
                     .build());
-            return;
+            return false;
         }
 
         Request req = null;
@@ -148,23 +173,43 @@ public class AlgorithmHandler extends ClientCall.Listener<RunRequest> {
             req = gson.fromJson(requestData, Request.class);
         } catch (JsonSyntaxException e) {
             logger.warn("接收到请求: requestId={}, 解析请求内容失败", requestId, e);
-            this.call.sendMessage(RunResult.newBuilder()
+            this.writer.write(RunResult.newBuilder()
                     .setRequest(requestId)
                     .setMessage(ByteString.copyFromUtf8(gson.toJson(new Response(400, "解析请求内容失败, " + e.getMessage()))))
                     .build());
-            return;
+            return false;
         }
 
-        this.executor.execute(new AlgorithmExecuteTask(this.call, requestId, req, this.createTask(requestId, req)));
+        AlgorithmExecuteTask task = new AlgorithmExecuteTask(this.writer, requestId, req, this.createTask(requestId, req));
+        try {
+            this.executor.execute(() -> {
+                try {
+                    task.run();
+                } finally {
+                    this.flowControl.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            logger.warn("接收到请求: requestId={}, 算法执行线程池已满, 拒绝执行", requestId);
+            this.writer.write(RunResult.newBuilder()
+                    .setRequest(requestId)
+                    .setMessage(ByteString.copyFromUtf8(gson.toJson(new Response(503, "算法服务繁忙, 请稍后重试"))))
+                    .build());
+            return false;
+        }
+        return true;
     }
 
     @Override
     public void onClose(Status status, Metadata trailers) {
         logger.warn("算法程序已关闭");
+        this.writer.close();
     }
 
     @Override
     public void onReady() {
         logger.info("算法程序已就绪");
+        this.writer.onReady();
+        this.flowControl.onReady();
     }
 }
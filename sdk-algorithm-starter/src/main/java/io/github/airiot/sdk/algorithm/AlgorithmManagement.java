@@ -23,6 +23,8 @@ import io.github.airiot.sdk.algorithm.annotation.AnnotationUtils;
 import io.github.airiot.sdk.algorithm.configuration.AlgorithmProperties;
 import io.github.airiot.sdk.algorithm.grpc.algorithm.Error;
 import io.github.airiot.sdk.algorithm.grpc.algorithm.*;
+import io.github.airiot.sdk.grpc.StreamFlowControl;
+import io.github.airiot.sdk.grpc.StreamWriter;
 import io.grpc.*;
 import org.apache.commons.codec.binary.Hex;
 import org.slf4j.Logger;
@@ -53,6 +55,10 @@ public class AlgorithmManagement implements SmartLifecycle {
     private final Channel channel;
 
     private final ThreadPoolExecutor executor;
+    /**
+     * 最多同时处理的算法执行请求数量
+     */
+    private final int runWindow;
 
     private final String serviceId;
 
@@ -79,6 +85,7 @@ public class AlgorithmManagement implements SmartLifecycle {
         int maxThreads = properties.getMaxThreads() <= 0 ? Runtime.getRuntime().availableProcessors() : properties.getMaxThreads();
         int coreThreads = maxThreads / 2 + 1;
         this.executor = new ThreadPoolExecutor(coreThreads, maxThreads, 15, TimeUnit.MINUTES, new ArrayBlockingQueue<>(coreThreads));
+        this.runWindow = properties.getRunWindow() > 0 ? properties.getRunWindow() : maxThreads + coreThreads;
 
         this.channel = channel;
         this.functions = AnnotationUtils.scanFunctions(algorithmApp);
@@ -184,18 +191,20 @@ public class AlgorithmManagement implements SmartLifecycle {
                         CallOptions.DEFAULT.withWaitForReady()
                 );
 
-                this.schemaHandler = new SchemaHandler(schemaCall, this.app);
+                StreamFlowControl schemaFlow = new StreamFlowControl(schemaCall, this.properties.getSchemaWindow());
+                this.schemaHandler = new SchemaHandler(schemaCall, schemaFlow, this.app);
                 schemaCall.start(schemaHandler, this.createMetadata());
-                schemaCall.request(Integer.MAX_VALUE);
+                schemaFlow.start();
 
                 ClientCall<RunResult, RunRequest> call = channel.newCall(
                         AlgorithmServiceGrpc.getRunStreamMethod(),
                         CallOptions.DEFAULT.withWaitForReady()
                 );
 
-                this.handler = new AlgorithmHandler(call, this.app, this.functions, this.executor);
+                StreamFlowControl runFlow = new StreamFlowControl(call, this.runWindow);
+                this.handler = new AlgorithmHandler(call, runFlow, this.app, this.functions, this.executor);
                 call.start(handler, this.createMetadata());
-                call.request(Integer.MAX_VALUE);
+                runFlow.start();
 
                 logger.info("注册算法: 成功, id={}, name={}, serviceId={}", id, name, serviceId);
 
@@ -293,10 +302,14 @@ public class AlgorithmManagement implements SmartLifecycle {
 
         private final Gson gson = new Gson();
         private final ClientCall<SchemaResult, SchemaRequest> call;
+        private final StreamWriter<SchemaResult> writer;
+        private final StreamFlowControl flowControl;
         private final AlgorithmApp app;
 
-        public SchemaHandler(ClientCall<SchemaResult, SchemaRequest> call, AlgorithmApp app) {
+        public SchemaHandler(ClientCall<SchemaResult, SchemaRequest> call, StreamFlowControl flowControl, AlgorithmApp app) {
             this.call = call;
+            this.writer = new StreamWriter<>(call, this.logger);
+            this.flowControl = flowControl;
             this.app = app;
         }
 
@@ -306,6 +319,14 @@ public class AlgorithmManagement implements SmartLifecycle {
 
         @Override
         public void onMessage(SchemaRequest request) {
+            try {
+                this.handle(request);
+            } finally {
+                this.flowControl.release();
+            }
+        }
+
+        private void handle(SchemaRequest request) {
             String requestId = request.getRequest();
 
             Response response;
@@ -317,7 +338,7 @@ public class AlgorithmManagement implements SmartLifecycle {
                 response = new Response(400, e.getMessage());
             }
 
-            this.call.sendMessage(SchemaResult.newBuilder()
+            this.writer.write(SchemaResult.newBuilder()
                     .setRequest(requestId)
                     .setMessage(ByteString.copyFromUtf8(gson.toJson(response)))
                     .build());
@@ -326,11 +347,14 @@ public class AlgorithmManagement implements SmartLifecycle {
         @Override
         public void onClose(Status status, Metadata trailers) {
             logger.warn("算法程序 schema stream 已关闭");
+            this.writer.close();
         }
 
         @Override
         public void onReady() {
             logger.info("算法程序 schema stream 已就绪");
+            this.writer.onReady();
+            this.flowControl.onReady();
         }
     }
 }
@@ -50,6 +50,15 @@ public class AlgorithmProperties {
      * 如果为 0, 则取当前机器的CPU核数
      */
     private int maxThreads = 0;
+    /**
+     * 最多同时处理的算法执行请求数量, 达到上限后执行完成一个请求才会从算法服务接收下一个.
+     * 如果为 0, 则为线程池可以容纳的任务数量, 即最大线程数量与等待队列长度之和
+     */
+    private int runWindow = 0;
+    /**
+     * 最多同时处理的 schema 请求数量
+     */
+    private int schemaWindow = 1;
     /**
      * 重连的间隔时间
      */
@@ -94,6 +103,22 @@ public class AlgorithmProperties {
         this.maxThreads = maxThreads;
     }
 
+    public int getRunWindow() {
+        return runWindow;
+    }
+
+    public void setRunWindow(int runWindow) {
+        this.runWindow = runWindow;
+    }
+
+    public int getSchemaWindow() {
+        return schemaWindow;
+    }
+
+    public void setSchemaWindow(int schemaWindow) {
+        this.schemaWindow = schemaWindow;
+    }
+
     public Duration getReconnectInterval() {
         return reconnectInterval;
     }
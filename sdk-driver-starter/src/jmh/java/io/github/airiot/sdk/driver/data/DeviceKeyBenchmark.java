@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.github.airiot.sdk.driver.data;
+
+import io.github.airiot.sdk.driver.DeviceRegistry;
+import io.github.airiot.sdk.driver.GlobalContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 上报数据时使用 {@link String#format(String, Object...)} 生成 topic 与使用 {@link DeviceKeyCache} 缓存的性能对比
+ * <br>
+ * 运行时添加 {@code -prof gc} 参数可查看每次生成 topic 分配的内存
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class DeviceKeyBenchmark {
+
+    /**
+     * 设备数量
+     */
+    @Param({"100", "10000"})
+    private int devices;
+
+    private final String projectId = "project1";
+    private DeviceKeyCache<String> topics;
+    private DeviceKeyCache<byte[]> keys;
+    private String[] deviceIds;
+    private int index;
+
+    @Setup
+    public void setup() {
+        DeviceRegistry.Builder builder = DeviceRegistry.builder().table("table1", null);
+        this.deviceIds = new String[devices];
+        for (int i = 0; i < devices; i++) {
+            this.deviceIds[i] = "device-" + i;
+            builder.device("table1", this.deviceIds[i], "instance1", null);
+        }
+        GlobalContext context = new GlobalContext();
+        context.update(builder.build());
+
+        this.topics = new DeviceKeyCache<>(context, (tableId, deviceId) -> "data/" + projectId + "/" + tableId + "/" + deviceId);
+        this.keys = new DeviceKeyCache<>(context,
+                (tableId, deviceId) -> (projectId + "/" + tableId + "/" + deviceId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String nextDevice() {
+        String deviceId = this.deviceIds[this.index];
+        this.index = this.index + 1 == this.deviceIds.length ? 0 : this.index + 1;
+        return deviceId;
+    }
+
+    @Benchmark
+    public String formatTopic() {
+        return String.format("data/%s/%s/%s", this.projectId, "table1", this.nextDevice());
+    }
+
+    @Benchmark
+    public String cachedTopic() {
+        return this.topics.get("table1", this.nextDevice());
+    }
+
+    @Benchmark
+    public byte[] formatKeyBytes() {
+        return String.format("%s/%s/%s", this.projectId, "table1", this.nextDevice()).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] cachedKeyBytes() {
+        return this.keys.get("table1", this.nextDevice());
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.airiot.sdk.driver.data;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import io.github.airiot.sdk.driver.model.Field;
+import io.github.airiot.sdk.driver.model.FieldType;
+import io.github.airiot.sdk.driver.model.Point;
+import io.github.airiot.sdk.driver.model.Tag;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link PointJsonEncoder} 与 {@link PointSerializationAdapter} 的编码性能对比
+ * <br>
+ * 运行时添加 {@code -prof gc} 参数可查看每次编码分配的内存
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class PointEncodeBenchmark {
+
+    /**
+     * 每条数据中的数据点数量
+     */
+    @Param({"5", "50"})
+    private int tags;
+
+    private final Gson gson = new GsonBuilder()
+            .registerTypeAdapterFactory(PointSerializationAdapter.newFactory())
+            .create();
+    private final PointJsonEncoder encoder = new PointJsonEncoder();
+    private Point point;
+
+    @Setup
+    public void setup() {
+        List<Field<? extends Tag>> fields = new ArrayList<>(tags);
+        Map<String, FieldType> fieldTypes = new LinkedHashMap<>();
+        for (int i = 0; i < tags; i++) {
+            String id = "tag" + i;
+            Tag tag = new Tag(id, id, null, null, null, null);
+            switch (i % 4) {
+                case 0:
+                    fields.add(new Field<>(tag, i * 1000 + 7));
+                    fieldTypes.put(id, FieldType.INTEGER);
+                    break;
+                case 1:
+                    fields.add(new Field<>(tag, i * 12.345));
+                    fieldTypes.put(id, FieldType.FLOAT);
+                    break;
+                case 2:
+                    fields.add(new Field<>(tag, i % 3 == 0));
+                    fieldTypes.put(id, FieldType.BOOLEAN);
+                    break;
+                default:
+                    fields.add(new Field<>(tag, "value-" + i));
+                    fieldTypes.put(id, FieldType.STRING);
+                    break;
+            }
+        }
+        this.point = new Point("device-001", "table1", System.currentTimeMillis(), fields, fieldTypes);
+    }
+
+    @Benchmark
+    public byte[] gsonAdapter() {
+        return gson.toJson(point).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] pointJsonEncoder() {
+        return encoder.encode(point);
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.github.airiot.sdk.driver.data;
+
+import ch.qos.logback.classic.Level;
+import io.github.airiot.sdk.driver.GlobalContext;
+import io.github.airiot.sdk.driver.configuration.properties.DriverAppProperties;
+import io.github.airiot.sdk.driver.configuration.properties.DriverDataProperties;
+import io.github.airiot.sdk.driver.data.handlers.TagValueCache;
+import io.github.airiot.sdk.driver.data.warning.Warning;
+import io.github.airiot.sdk.driver.data.warning.WarningRecovery;
+import io.github.airiot.sdk.driver.model.Field;
+import io.github.airiot.sdk.driver.model.Point;
+import io.github.airiot.sdk.driver.model.Tag;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 不同日志级别下 {@link AbstractDataSender#writePoint(Point)} 的开销, 其中一个数据点的值为 {@code NaN}, 数据处理后会被丢弃
+ * <br>
+ * 日志级别为 {@code ERROR} 时不创建日志上下文, 也不计算被丢弃的数据点. 运行时添加 {@code -prof gc} 参数可查看每条数据分配的内存
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class WritePointLoggingBenchmark {
+
+    /**
+     * 数据上报相关日志的级别
+     */
+    @Param({"ERROR", "WARN"})
+    private String level;
+
+    /**
+     * 是否跟踪设备
+     */
+    @Param({"false", "true"})
+    private boolean traced;
+
+    private BenchmarkDataSender sender;
+    private List<Field<? extends Tag>> fields;
+
+    static class BenchmarkDataSender extends AbstractDataSender {
+
+        private Blackhole blackhole;
+
+        BenchmarkDataSender(DriverDataProperties properties) {
+            super(properties, appProperties(), new GlobalContext(),
+                    new DefaultDataHandlerChain(new TagValueCache(), Collections.emptyList()), null);
+        }
+
+        static DriverAppProperties appProperties() {
+            DriverAppProperties properties = new DriverAppProperties();
+            properties.setProjectId("project1");
+            properties.setId("driver1");
+            properties.setInstanceId("instance1");
+            properties.setName("driver1");
+            return properties;
+        }
+
+        @Override
+        public void doWritePoint(Point point) {
+            this.blackhole.consume(point);
+        }
+
+        @Override
+        public void doWriteLog(String tableId, String deviceId, String level, String message) {
+        }
+
+        @Override
+        public void sendWarning(Warning warning) {
+        }
+
+        @Override
+        public void recoverWarning(String tableId, String deviceId, WarningRecovery recovery) {
+        }
+
+        @Override
+        public void start() {
+        }
+
+        @Override
+        public void stop() {
+        }
+
+        @Override
+        public boolean isRunning() {
+            return true;
+        }
+    }
+
+    @Setup
+    public void setup(Blackhole blackhole) throws Exception {
+        ((ch.qos.logback.classic.Logger) org.slf4j.LoggerFactory.getLogger("io.github.airiot")).setLevel(Level.toLevel(level));
+
+        DriverDataProperties properties = new DriverDataProperties();
+        if (traced) {
+            properties.getTrace().getDevices().add("device1");
+            properties.getTrace().setSampling(100);
+        }
+        this.sender = new BenchmarkDataSender(properties);
+        this.sender.blackhole = blackhole;
+        this.sender.afterPropertiesSet();
+
+        this.fields = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            this.fields.add(new Field<>(new Tag("tag" + i, "tag" + i, null, null, 2, null), i == 0 ? Double.NaN : i * 1.2345));
+        }
+    }
+
+    @Benchmark
+    public void writePoint() {
+        this.sender.writePoint(new Point("device1", "table1", System.currentTimeMillis(), this.fields, null));
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.github.airiot.sdk.driver.data.handlers;
+
+import io.github.airiot.sdk.driver.model.Tag;
+import io.github.airiot.sdk.driver.model.TagValue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ConvertValueHandler} 和 {@link RoundAndScaleValueHandler} 默认计算模式与 {@link java.math.BigDecimal} 精确计算模式的性能对比
+ * <br>
+ * 与处理链一样, 使用 {@link io.github.airiot.sdk.driver.data.DataHandler#compileTag(String, String, Tag)} 预先计算的信息处理数据
+ * <br>
+ * 运行时添加 {@code -prof gc} 参数可查看每次计算分配的内存
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ValueHandlerBenchmark {
+
+    /**
+     * 是否使用 BigDecimal 精确计算
+     */
+    @Param({"false", "true"})
+    private boolean exact;
+
+    private ConvertValueHandler convertHandler;
+    private RoundAndScaleValueHandler roundAndScaleHandler;
+    private Tag convertTag;
+    private Tag roundAndScaleTag;
+    private Object convertCompiled;
+    private Object roundAndScaleCompiled;
+    private final double[] values = new double[1024];
+    private int index;
+
+    @Setup
+    public void setup() {
+        this.convertHandler = new ConvertValueHandler(16, exact);
+        this.roundAndScaleHandler = new RoundAndScaleValueHandler(exact);
+        this.convertTag = new Tag("tag1", "tag1", new TagValue(-50d, 50d, -5000d, 5000d), null, null, null);
+        this.roundAndScaleTag = new Tag("tag2", "tag2", null, null, 2, 0.001);
+        this.convertCompiled = this.convertHandler.compileTag("table1", "device1", this.convertTag);
+        this.roundAndScaleCompiled = this.roundAndScaleHandler.compileTag("table1", "device1", this.roundAndScaleTag);
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (i * 7919) % 10000 - 5000 + (i % 3) * 0.25;
+        }
+    }
+
+    private double next() {
+        return values[index++ & (values.length - 1)];
+    }
+
+    @Benchmark
+    public Map<String, Object> convert() {
+        return convertHandler.handle("table1", "device1", convertTag, next(), convertCompiled);
+    }
+
+    @Benchmark
+    public Map<String, Object> roundAndScale() {
+        return roundAndScaleHandler.handle("table1", "device1", roundAndScaleTag, next(), roundAndScaleCompiled);
+    }
+}
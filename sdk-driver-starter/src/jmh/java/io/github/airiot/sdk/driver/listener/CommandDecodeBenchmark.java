@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.github.airiot.sdk.driver.listener;
+
+import com.google.gson.Gson;
+import com.google.protobuf.ByteString;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 指令内容反序列化: 每次创建 {@link Gson} 并转换为字符串后解析与使用 {@link CommandDecoder} 解析的耗时对比
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CommandDecodeBenchmark {
+
+    public static class Command {
+        private String name;
+        private Map<String, Object> params;
+    }
+
+    /**
+     * 指令中的参数数量
+     */
+    @Param({"4", "500"})
+    private int params;
+
+    private ByteString payload;
+    private CommandDecoder decoder;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        StringBuilder sb = new StringBuilder("{\"name\":\"设置转速\",\"params\":{");
+        for (int i = 0; i < params; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("\"param").append(i).append("\":").append(i * 1.5);
+        }
+        this.payload = ByteString.copyFromUtf8(sb.append("}}").toString());
+        this.decoder = new CommandDecoder(new Gson(), Command.class);
+    }
+
+    @Benchmark
+    public Object legacy() {
+        return new Gson().fromJson(payload.toStringUtf8(), Command.class);
+    }
+
+    @Benchmark
+    public Object decoder() {
+        return decoder.decode(payload);
+    }
+}
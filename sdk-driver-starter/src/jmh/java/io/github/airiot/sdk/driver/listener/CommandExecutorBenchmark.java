@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.github.airiot.sdk.driver.listener;
+
+import io.github.airiot.sdk.driver.VirtualThreads;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 指令执行时阻塞 (模拟等待现场总线响应), 使用固定数量的平台线程与使用虚拟线程执行指令的吞吐量对比
+ * <br>
+ * 每次调用提交 {@code commands} 个指令并等待全部执行完成. 虚拟线程需要在 JDK 21 及以上版本运行, 否则与平台线程相同
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CommandExecutorBenchmark {
+
+    /**
+     * 是否使用虚拟线程
+     */
+    @Param({"false", "true"})
+    private boolean virtual;
+
+    /**
+     * 每个指令阻塞的时间, 单位: 毫秒
+     */
+    @Param({"1", "10"})
+    private long blockMillis;
+
+    /**
+     * 每次调用提交的指令数量
+     */
+    private final int commands = 1000;
+
+    private CommandExecutor executor;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        int threads = virtual ? 256 : Runtime.getRuntime().availableProcessors();
+        this.executor = new CommandExecutor(threads, commands, false,
+                VirtualThreads.threadFactory("CommandExecutor-", virtual));
+        this.executor.start();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        this.executor.stop();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(1000)
+    public void run() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(commands);
+        for (int i = 0; i < commands; i++) {
+            while (!this.executor.submit(CommandExecutor.Priority.RUN, null, () -> {
+                try {
+                    Thread.sleep(blockMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                done.countDown();
+            })) {
+                Thread.yield();
+            }
+        }
+        done.await();
+    }
+}
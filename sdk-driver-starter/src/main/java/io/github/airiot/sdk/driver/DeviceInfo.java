@@ -22,9 +22,14 @@ import io.github.airiot.sdk.driver.model.Tag;
 
 import java.util.Collections;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
 /**
  * 设备基础信息
+ * <br>
+ * 驱动可以缓存设备信息以避免重复查找. 驱动重新加载配置后, 已缓存的设备信息会被标记为已过期,
+ * 此时需要通过 {@link GlobalContext#getDeviceOrNull(String, String)} 重新获取.
  */
 public class DeviceInfo<T extends Tag> {
 
@@ -48,6 +53,18 @@ public class DeviceInfo<T extends Tag> {
      * <b>注: 如果驱动实例、模型或设备中配置的数据点标识相同时只会保留一份, 并且按照 “设备 &gt; 模型 &gt; 驱动实例” 的优先级进行覆盖 </b>
      */
     private final Map<String, T> tags;
+    /**
+     * 驱动重新加载配置后, 该设备信息是否已过期
+     */
+    private volatile boolean expired = false;
+    /**
+     * 设备配置的指纹, 用于在重新加载配置时判断设备配置是否变化. {@code 0} 表示未知
+     */
+    private final long fingerprint;
+    /**
+     * 附加数据, 首次使用时创建
+     */
+    private volatile Map<Object, Object> attachments;
 
     public String getId() {
         return id;
@@ -65,17 +82,69 @@ public class DeviceInfo<T extends Tag> {
         return tags;
     }
 
+    /**
+     * 判断设备信息是否已过期. 驱动重新加载配置后, 之前获取到的设备信息均已过期
+     *
+     * @return 如果已过期则返回 {@code true}
+     */
+    public boolean isExpired() {
+        return expired;
+    }
+
+    void expire() {
+        this.expired = true;
+    }
+
+    long getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * 获取设备的附加数据, 如果不存在则创建.
+     * <br>
+     * 附加数据与设备信息的生命周期相同: 重新加载配置后, 配置未变化的设备会保留附加数据, 有变化或已删除的设备的附加数据随之失效.
+     * 用于缓存由设备信息计算得到的数据, 例如: 上报数据时使用的 topic.
+     *
+     * @param key             附加数据的标识, 按 {@link Object#equals(Object)} 比较
+     * @param mappingFunction 创建附加数据的函数, 返回值不能为 {@code null}
+     * @return 附加数据
+     */
+    @SuppressWarnings("unchecked")
+    public <V> V computeAttachmentIfAbsent(Object key, Function<? super DeviceInfo<T>, ? extends V> mappingFunction) {
+        Map<Object, Object> attachments = this.attachments;
+        if (attachments == null) {
+            synchronized (this) {
+                attachments = this.attachments;
+                if (attachments == null) {
+                    attachments = new ConcurrentHashMap<>(4);
+                    this.attachments = attachments;
+                }
+            }
+        }
+        Object value = attachments.get(key);
+        if (value == null) {
+            value = attachments.computeIfAbsent(key, k -> mappingFunction.apply(this));
+        }
+        return (V) value;
+    }
+
     public DeviceInfo(String id, String tableId, String driverInstanceId) {
         this.id = id;
         this.tableId = tableId;
         this.driverInstanceId = driverInstanceId;
         this.tags = Collections.emptyMap();
+        this.fingerprint = 0;
     }
 
     public DeviceInfo(String id, String tableId, String driverInstanceId, Map<String, T> tags) {
+        this(id, tableId, driverInstanceId, tags, 0);
+    }
+
+    DeviceInfo(String id, String tableId, String driverInstanceId, Map<String, T> tags, long fingerprint) {
         this.id = id;
         this.tableId = tableId;
         this.driverInstanceId = driverInstanceId;
         this.tags = tags == null ? Collections.emptyMap() : tags;
+        this.fingerprint = fingerprint;
     }
 }
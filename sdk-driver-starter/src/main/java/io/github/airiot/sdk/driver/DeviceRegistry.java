@@ -0,0 +1,413 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.github.airiot.sdk.driver;
+
+import com.alibaba.fastjson2.JSON;
+import io.github.airiot.sdk.driver.model.Tag;
+import org.springframework.util.CollectionUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * 设备信息注册表
+ * <br>
+ * 按 (工作表, 设备) 索引设备信息, 查询时不创建新对象. 同一模型下未单独配置数据点的设备共享同一个数据点集合,
+ * 配置了数据点的设备只额外保存自身配置的数据点.
+ * <br>
+ * 注册表创建后不可修改, 驱动重新加载配置时会创建新的注册表. 新注册表会与旧注册表比较, 配置未变化的设备继续使用旧的设备信息,
+ * 新增、删除或配置有变化的设备的旧设备信息会被标记为已过期, 见 {@link DeviceInfo#isExpired()} 和 {@link DriverConfigDelta}.
+ */
+public final class DeviceRegistry {
+
+    public static final DeviceRegistry EMPTY = new DeviceRegistry(Collections.emptyMap(), Collections.emptyMap(), Collections.emptyMap(),
+            0, 0, Collections.emptyMap());
+
+    /**
+     * tableId -> deviceId -> DeviceInfo
+     */
+    private final Map<String, Map<String, DeviceInfo<? extends Tag>>> tables;
+    /**
+     * deviceId -> DeviceInfo. 只包含设备标识在所有模型表中唯一的设备
+     */
+    private final Map<String, DeviceInfo<? extends Tag>> devices;
+    /**
+     * 在多个模型表中存在的设备标识. deviceId -> tableIds
+     */
+    private final Map<String, List<String>> duplicates;
+    private final int size;
+    /**
+     * 驱动实例配置的指纹. {@code 0} 表示未知
+     */
+    private final long instanceFingerprint;
+    /**
+     * 各模型配置的指纹. tableId -> fingerprint
+     */
+    private final Map<String, Long> tableFingerprints;
+
+    private DeviceRegistry(Map<String, Map<String, DeviceInfo<? extends Tag>>> tables,
+                           Map<String, DeviceInfo<? extends Tag>> devices,
+                           Map<String, List<String>> duplicates, int size,
+                           long instanceFingerprint, Map<String, Long> tableFingerprints) {
+        this.tables = tables;
+        this.devices = devices;
+        this.duplicates = duplicates;
+        this.size = size;
+        this.instanceFingerprint = instanceFingerprint;
+        this.tableFingerprints = tableFingerprints;
+    }
+
+    /**
+     * 获取设备信息
+     *
+     * @param tableId  设备所属模型表标识
+     * @param deviceId 设备ID
+     * @return 设备信息. 如果设备不存在则返回 {@code null}
+     */
+    public DeviceInfo<? extends Tag> get(String tableId, String deviceId) {
+        Map<String, DeviceInfo<? extends Tag>> devices = this.tables.get(tableId);
+        return devices == null ? null : devices.get(deviceId);
+    }
+
+    /**
+     * 根据设备标识查找设备信息
+     *
+     * @param deviceId 设备标识
+     * @return 设备信息. 如果设备不存在则返回 {@code null}
+     * @throws IllegalStateException 如果该设备标识在多个模型表中同时存在, 则会抛出该异常
+     */
+    public DeviceInfo<? extends Tag> get(String deviceId) {
+        DeviceInfo<? extends Tag> info = this.devices.get(deviceId);
+        if (info == null && this.duplicates.containsKey(deviceId)) {
+            throw new IllegalStateException("在多个模型表中找到相同设备标识. deviceId =" + deviceId + ", tables = " + String.join(",", this.duplicates.get(deviceId)));
+        }
+        return info;
+    }
+
+    /**
+     * 获取模型表下的全部设备
+     *
+     * @param tableId 模型表标识
+     * @return 设备信息. deviceId -> DeviceInfo
+     */
+    public Map<String, DeviceInfo<? extends Tag>> getDevices(String tableId) {
+        Map<String, DeviceInfo<? extends Tag>> devices = this.tables.get(tableId);
+        return devices == null ? Collections.emptyMap() : Collections.unmodifiableMap(devices);
+    }
+
+    /**
+     * 获取设备数量
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 将注册表中的全部设备信息标记为已过期
+     */
+    void expire() {
+        for (Map<String, DeviceInfo<? extends Tag>> devices : this.tables.values()) {
+            for (DeviceInfo<? extends Tag> info : devices.values()) {
+                info.expire();
+            }
+        }
+    }
+
+    /**
+     * 与旧注册表比较, 计算配置的变化. 配置未变化的设备会替换为旧注册表中的设备信息, 以便驱动已缓存的设备信息继续有效.
+     * <br>
+     * 只能在注册表发布之前调用.
+     * <br>
+     * 设备配置的指纹一致且所属模型的配置未变化时, 认为设备未变化. 指纹未知时逐个比较数据点的配置.
+     *
+     * @param previous 旧注册表
+     * @param expired  需要标记为过期的旧设备信息
+     * @return 配置的变化
+     */
+    DriverConfigDelta reuse(DeviceRegistry previous, List<DeviceInfo<? extends Tag>> expired) {
+        boolean full = previous == EMPTY || previous.instanceFingerprint != this.instanceFingerprint;
+        DriverConfigDelta delta = new DriverConfigDelta(full);
+        if (full) {
+            for (Map.Entry<String, Map<String, DeviceInfo<? extends Tag>>> table : this.tables.entrySet()) {
+                delta.addTable(table.getKey());
+                table.getValue().values().forEach(delta::addDevice);
+            }
+            previous.tables.values().forEach(devices -> expired.addAll(devices.values()));
+            return delta;
+        }
+
+        for (Map.Entry<String, Map<String, DeviceInfo<? extends Tag>>> table : previous.tables.entrySet()) {
+            if (!this.tables.containsKey(table.getKey())) {
+                delta.removeTable(table.getKey());
+                table.getValue().values().forEach(delta::removeDevice);
+                expired.addAll(table.getValue().values());
+            }
+        }
+
+        TagComparator comparator = new TagComparator();
+        for (Map.Entry<String, Map<String, DeviceInfo<? extends Tag>>> table : this.tables.entrySet()) {
+            String tableId = table.getKey();
+            Map<String, DeviceInfo<? extends Tag>> previousDevices = previous.tables.get(tableId);
+            if (previousDevices == null) {
+                delta.addTable(tableId);
+                table.getValue().values().forEach(delta::addDevice);
+                continue;
+            }
+
+            boolean tableChanged = !Objects.equals(previous.tableFingerprints.get(tableId), this.tableFingerprints.get(tableId));
+            if (tableChanged) {
+                delta.changeTable(tableId);
+            }
+
+            for (Map.Entry<String, DeviceInfo<? extends Tag>> device : table.getValue().entrySet()) {
+                DeviceInfo<? extends Tag> info = device.getValue();
+                DeviceInfo<? extends Tag> previousInfo = previousDevices.get(device.getKey());
+                if (previousInfo == null) {
+                    delta.addDevice(info);
+                    continue;
+                }
+
+                boolean changed = tableChanged || info.getFingerprint() != previousInfo.getFingerprint()
+                        || !Objects.equals(info.getDriverInstanceId(), previousInfo.getDriverInstanceId());
+                if (changed || info.getFingerprint() == 0) {
+                    Set<String> tagIds = comparator.diff(previousInfo.getTags(), info.getTags());
+                    if (changed || !tagIds.isEmpty()) {
+                        delta.changeDevice(info, tagIds);
+                        expired.add(previousInfo);
+                        continue;
+                    }
+                }
+
+                // 配置未变化, 继续使用旧的设备信息
+                device.setValue(previousInfo);
+                if (this.devices.get(device.getKey()) == info) {
+                    this.devices.put(device.getKey(), previousInfo);
+                }
+            }
+
+            for (Map.Entry<String, DeviceInfo<? extends Tag>> device : previousDevices.entrySet()) {
+                if (!table.getValue().containsKey(device.getKey())) {
+                    delta.removeDevice(device.getValue());
+                    expired.add(device.getValue());
+                }
+            }
+        }
+        return delta;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static final class Builder {
+
+        private Map<String, Tag> driverInstanceTags = Collections.emptyMap();
+        private long instanceFingerprint;
+        private final Map<String, Long> tableFingerprints = new HashMap<>();
+        /**
+         * 各模型表的数据点集合, 由该模型下的设备共享. tableId -> tags
+         */
+        private final Map<String, Map<String, Tag>> tableTags = new HashMap<>();
+        private final Map<String, Map<String, DeviceInfo<? extends Tag>>> tables = new LinkedHashMap<>();
+        private final Map<String, List<String>> deviceTables = new HashMap<>();
+        private int size;
+
+        private Builder() {
+        }
+
+        /**
+         * 设置驱动实例上配置的数据点, 必须在 {@link #table(String, Collection)} 之前调用
+         *
+         * @param tags 数据点列表
+         */
+        public Builder driverInstanceTags(Collection<? extends Tag> tags) {
+            return this.driverInstanceTags(tags, 0);
+        }
+
+        /**
+         * 设置驱动实例上配置的数据点, 必须在 {@link #table(String, Collection)} 之前调用
+         *
+         * @param tags        数据点列表
+         * @param fingerprint 驱动实例配置的指纹, 配置相同时指纹必须相同. {@code 0} 表示未知
+         */
+        public Builder driverInstanceTags(Collection<? extends Tag> tags, long fingerprint) {
+            this.driverInstanceTags = toImmutableMap(Collections.emptyMap(), tags);
+            this.instanceFingerprint = fingerprint;
+            return this;
+        }
+
+        /**
+         * 设置模型上配置的数据点, 必须在添加该模型下的设备之前调用
+         *
+         * @param tableId 模型表标识
+         * @param tags    数据点列表. 与驱动实例上配置的数据点合并, 标识相同时以模型上的为准
+         */
+        public Builder table(String tableId, Collection<? extends Tag> tags) {
+            return this.table(tableId, tags, 0);
+        }
+
+        /**
+         * 设置模型上配置的数据点, 必须在添加该模型下的设备之前调用
+         *
+         * @param tableId     模型表标识
+         * @param tags        数据点列表. 与驱动实例上配置的数据点合并, 标识相同时以模型上的为准
+         * @param fingerprint 模型配置的指纹 (不包括设备), 配置相同时指纹必须相同. {@code 0} 表示未知
+         */
+        public Builder table(String tableId, Collection<? extends Tag> tags, long fingerprint) {
+            this.tableTags.put(tableId, toImmutableMap(this.driverInstanceTags, tags));
+            if (fingerprint != 0) {
+                this.tableFingerprints.put(tableId, fingerprint);
+            }
+            return this;
+        }
+
+        /**
+         * 添加设备
+         *
+         * @param tableId          设备所属模型表标识
+         * @param deviceId         设备ID
+         * @param driverInstanceId 设备所属驱动实例ID
+         * @param tags             设备上配置的数据点. 与模型上配置的数据点合并, 标识相同时以设备上的为准
+         */
+        public Builder device(String tableId, String deviceId, String driverInstanceId, Collection<? extends Tag> tags) {
+            return this.device(tableId, deviceId, driverInstanceId, tags, 0);
+        }
+
+        /**
+         * 添加设备
+         *
+         * @param tableId          设备所属模型表标识
+         * @param deviceId         设备ID
+         * @param driverInstanceId 设备所属驱动实例ID
+         * @param tags             设备上配置的数据点. 与模型上配置的数据点合并, 标识相同时以设备上的为准
+         * @param fingerprint      设备配置的指纹, 配置相同时指纹必须相同. {@code 0} 表示未知
+         */
+        public Builder device(String tableId, String deviceId, String driverInstanceId, Collection<? extends Tag> tags, long fingerprint) {
+            Map<String, Tag> base = this.tableTags.getOrDefault(tableId, this.driverInstanceTags);
+            Map<String, Tag> deviceTags;
+            if (CollectionUtils.isEmpty(tags)) {
+                deviceTags = base;
+            } else if (base.isEmpty()) {
+                deviceTags = toImmutableMap(Collections.emptyMap(), tags);
+            } else {
+                Map<String, Tag> overrides = new HashMap<>((int) (tags.size() / 0.75f) + 1);
+                for (Tag tag : tags) {
+                    overrides.put(tag.getId(), tag);
+                }
+                deviceTags = new TagOverlayMap<>(base, overrides);
+            }
+            return this.device(new DeviceInfo<>(deviceId, tableId, driverInstanceId, deviceTags, fingerprint));
+        }
+
+        /**
+         * 添加设备
+         *
+         * @param info 设备信息
+         */
+        public Builder device(DeviceInfo<? extends Tag> info) {
+            DeviceInfo<? extends Tag> previous = this.tables
+                    .computeIfAbsent(info.getTableId(), k -> new HashMap<>())
+                    .put(info.getId(), info);
+            if (previous == null) {
+                this.size++;
+                this.deviceTables.computeIfAbsent(info.getId(), k -> new ArrayList<>(1)).add(info.getTableId());
+            }
+            return this;
+        }
+
+        public DeviceRegistry build() {
+            Map<String, DeviceInfo<? extends Tag>> devices = new HashMap<>((int) (this.size / 0.75f) + 1);
+            Map<String, List<String>> duplicates = new HashMap<>();
+            for (Map.Entry<String, List<String>> entry : this.deviceTables.entrySet()) {
+                String deviceId = entry.getKey();
+                List<String> tableIds = entry.getValue();
+                if (tableIds.size() == 1) {
+                    devices.put(deviceId, this.tables.get(tableIds.get(0)).get(deviceId));
+                } else {
+                    duplicates.put(deviceId, tableIds);
+                }
+            }
+            return new DeviceRegistry(this.tables, devices, duplicates, this.size,
+                    this.instanceFingerprint, this.tableFingerprints);
+        }
+
+        private static Map<String, Tag> toImmutableMap(Map<String, Tag> base, Collection<? extends Tag> tags) {
+            if (CollectionUtils.isEmpty(tags)) {
+                return base;
+            }
+            Map<String, Tag> merged = new HashMap<>(base);
+            for (Tag tag : tags) {
+                merged.put(tag.getId(), tag);
+            }
+            return Collections.unmodifiableMap(merged);
+        }
+    }
+
+    /**
+     * 比较新旧数据点配置. 数据点未实现 {@code equals}, 因此比较序列化后的结果.
+     * 同一个数据点对象通常被多个设备共享, 序列化结果会被缓存.
+     */
+    private static final class TagComparator {
+
+        private final Map<Tag, String> serialized = new IdentityHashMap<>();
+
+        Set<String> diff(Map<String, ? extends Tag> previous, Map<String, ? extends Tag> current) {
+            if (previous == current) {
+                return Collections.emptySet();
+            }
+
+            Set<String> tagIds = new LinkedHashSet<>();
+            for (Map.Entry<String, ? extends Tag> entry : current.entrySet()) {
+                Tag previousTag = previous.get(entry.getKey());
+                if (previousTag == null || !this.equals(previousTag, entry.getValue())) {
+                    tagIds.add(entry.getKey());
+                }
+            }
+            for (String tagId : previous.keySet()) {
+                if (!current.containsKey(tagId)) {
+                    tagIds.add(tagId);
+                }
+            }
+            return tagIds;
+        }
+
+        private boolean equals(Tag previous, Tag current) {
+            if (previous == current) {
+                return true;
+            }
+            if (previous.getClass() != current.getClass()) {
+                return false;
+            }
+            return this.serialize(previous).equals(this.serialize(current));
+        }
+
+        private String serialize(Tag tag) {
+            return this.serialized.computeIfAbsent(tag, JSON::toJSONString);
+        }
+    }
+}
@@ -102,6 +102,23 @@ public interface DriverApp<DriverConfig, Command, Tag> {
      */
     void start(DriverConfig config);
 
+    /**
+     * 重新加载驱动配置
+     * <br>
+     * 驱动已启动后再次收到启动请求 (例如: 修改了模型或设备配置, 或者与平台重新连接成功) 时, 会调用该方法而不是 {@link #start(Object)}.
+     * 驱动可以根据配置的变化只处理新增、删除或有变化的设备, 而不必重新初始化所有设备.
+     * <br>
+     * 默认调用 {@link #start(Object)} 重新启动驱动.
+     * <br>
+     * 注: 配置的变化只根据驱动实例、模型和设备的原始配置计算. 如果 {@link DriverConfigDelta#isFull()} 为 {@code true}, 应按照 {@link #start(Object)} 处理.
+     *
+     * @param config 驱动实例, 模型及资产信息
+     * @param delta  相对于上一次配置的变化
+     */
+    default void reload(DriverConfig config, DriverConfigDelta delta) {
+        this.start(config);
+    }
+
     /**
      * 停止驱动
      * <br>
@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.airiot.sdk.driver;
+
+import io.github.airiot.sdk.driver.model.Tag;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 驱动重新加载配置时, 新配置相对于上一次配置的变化
+ * <br>
+ * 未变化的设备会继续使用之前的 {@link DeviceInfo}, 其数据点的缓存 (例如: 最新有效值) 也会保留.
+ * 新增、删除或有变化的设备以及有变化的数据点的缓存会被清除.
+ * <br>
+ * 如果是首次启动或驱动实例的配置发生变化, 则 {@link #isFull()} 为 {@code true}, 此时所有设备均视为新增.
+ *
+ * @see DriverApp#reload(Object, DriverConfigDelta)
+ */
+public final class DriverConfigDelta {
+
+    private final boolean full;
+    private final Set<String> addedTables = new LinkedHashSet<>();
+    private final Set<String> removedTables = new LinkedHashSet<>();
+    private final Set<String> changedTables = new LinkedHashSet<>();
+    private final List<DeviceInfo<? extends Tag>> addedDevices = new ArrayList<>();
+    private final List<DeviceInfo<? extends Tag>> removedDevices = new ArrayList<>();
+    private final List<DeviceInfo<? extends Tag>> changedDevices = new ArrayList<>();
+    /**
+     * 有变化的设备中新增、删除或修改的数据点. tableId -> deviceId -> tagIds
+     */
+    private final Map<String, Map<String, Set<String>>> changedTags = new HashMap<>();
+
+    DriverConfigDelta(boolean full) {
+        this.full = full;
+    }
+
+    /**
+     * 是否为全量加载, 即首次启动或驱动实例的配置发生变化
+     */
+    public boolean isFull() {
+        return full;
+    }
+
+    /**
+     * 配置是否无变化
+     */
+    public boolean isEmpty() {
+        return !full && addedTables.isEmpty() && removedTables.isEmpty() && changedTables.isEmpty()
+                && addedDevices.isEmpty() && removedDevices.isEmpty() && changedDevices.isEmpty();
+    }
+
+    /**
+     * 新增的模型表标识
+     */
+    public Set<String> getAddedTables() {
+        return Collections.unmodifiableSet(addedTables);
+    }
+
+    /**
+     * 删除的模型表标识
+     */
+    public Set<String> getRemovedTables() {
+        return Collections.unmodifiableSet(removedTables);
+    }
+
+    /**
+     * 模型上的配置有变化的模型表标识. 该模型下的所有设备均视为有变化
+     */
+    public Set<String> getChangedTables() {
+        return Collections.unmodifiableSet(changedTables);
+    }
+
+    /**
+     * 新增的设备
+     */
+    public List<DeviceInfo<? extends Tag>> getAddedDevices() {
+        return Collections.unmodifiableList(addedDevices);
+    }
+
+    /**
+     * 删除的设备. 返回的是上一次配置中的设备信息, 已被标记为过期
+     */
+    public List<DeviceInfo<? extends Tag>> getRemovedDevices() {
+        return Collections.unmodifiableList(removedDevices);
+    }
+
+    /**
+     * 配置有变化的设备. 返回的是新配置中的设备信息
+     */
+    public List<DeviceInfo<? extends Tag>> getChangedDevices() {
+        return Collections.unmodifiableList(changedDevices);
+    }
+
+    /**
+     * 获取有变化的设备中新增、删除或修改的数据点
+     *
+     * @param tableId  模型表标识
+     * @param deviceId 设备标识
+     * @return 数据点标识. 如果设备没有变化或者数据点均未变化, 则返回空集合
+     */
+    public Set<String> getChangedTags(String tableId, String deviceId) {
+        Map<String, Set<String>> devices = changedTags.get(tableId);
+        if (devices == null) {
+            return Collections.emptySet();
+        }
+        Set<String> tagIds = devices.get(deviceId);
+        return tagIds == null ? Collections.emptySet() : Collections.unmodifiableSet(tagIds);
+    }
+
+    void addTable(String tableId) {
+        this.addedTables.add(tableId);
+    }
+
+    void removeTable(String tableId) {
+        this.removedTables.add(tableId);
+    }
+
+    void changeTable(String tableId) {
+        this.changedTables.add(tableId);
+    }
+
+    void addDevice(DeviceInfo<? extends Tag> info) {
+        this.addedDevices.add(info);
+    }
+
+    void removeDevice(DeviceInfo<? extends Tag> info) {
+        this.removedDevices.add(info);
+    }
+
+    void changeDevice(DeviceInfo<? extends Tag> info, Set<String> tagIds) {
+        this.changedDevices.add(info);
+        if (!tagIds.isEmpty()) {
+            this.changedTags.computeIfAbsent(info.getTableId(), k -> new HashMap<>()).put(info.getId(), tagIds);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "DriverConfigDelta{" +
+                "full=" + full +
+                ", addedTables=" + addedTables +
+                ", removedTables=" + removedTables +
+                ", changedTables=" + changedTables +
+                ", addedDevices=" + addedDevices.size() +
+                ", removedDevices=" + removedDevices.size() +
+                ", changedDevices=" + changedDevices.size() +
+                '}';
+    }
+}
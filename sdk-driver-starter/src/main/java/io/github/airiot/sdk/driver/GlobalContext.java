@@ -17,7 +17,6 @@
 
 package io.github.airiot.sdk.driver;
 
-import com.google.common.collect.Maps;
 import io.github.airiot.sdk.driver.model.Field;
 import io.github.airiot.sdk.driver.model.FieldType;
 import io.github.airiot.sdk.driver.model.Point;
@@ -30,7 +29,6 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicReference;
-import java.util.stream.Collectors;
 
 /**
  * 全局上下文, 保存一些常用信息
@@ -38,9 +36,9 @@ import java.util.stream.Collectors;
 public final class GlobalContext {
 
     /**
-     * deviceId: {tableId: DeviceInfo}
+     * 设备信息注册表
      */
-    private final AtomicReference<Map<String, Map<String, DeviceInfo<? extends Tag>>>> devices = new AtomicReference<>(Collections.emptyMap());
+    private final AtomicReference<DeviceRegistry> devices = new AtomicReference<>(DeviceRegistry.EMPTY);
 
     private static String VERSION = null;
 
@@ -70,15 +68,51 @@ public final class GlobalContext {
             return;
         }
 
-        Map<String, Map<String, DeviceInfo<? extends Tag>>> devices = Maps.newHashMapWithExpectedSize(deviceInfos.size());
-        for (Map.Entry<String, List<DeviceInfo<? extends Tag>>> entry : deviceInfos.entrySet()) {
-            devices.put(entry.getKey(), entry.getValue().stream()
-                    .collect(Collectors.toMap(
-                            DeviceInfo::getTableId,
-                            dev -> dev
-                    )));
+        DeviceRegistry.Builder builder = DeviceRegistry.builder();
+        for (List<DeviceInfo<? extends Tag>> infos : deviceInfos.values()) {
+            for (DeviceInfo<? extends Tag> info : infos) {
+                builder.device(info);
+            }
+        }
+        this.set(builder.build());
+    }
+
+    /**
+     * 替换设备信息注册表. 原注册表中的设备信息均被标记为已过期
+     *
+     * @param registry 设备信息注册表
+     */
+    public void set(DeviceRegistry registry) {
+        DeviceRegistry previous = this.devices.getAndSet(registry == null ? DeviceRegistry.EMPTY : registry);
+        if (previous != null && previous != registry) {
+            previous.expire();
+        }
+    }
+
+    /**
+     * 使用新的设备信息注册表更新设备信息. 与 {@link #set(DeviceRegistry)} 不同, 配置未变化的设备会继续使用原来的设备信息,
+     * 只有新增、删除或配置有变化的设备的原设备信息会被标记为已过期
+     *
+     * @param registry 新的设备信息注册表, 必须是未发布过的注册表
+     * @return 配置的变化
+     */
+    public synchronized DriverConfigDelta update(DeviceRegistry registry) {
+        List<DeviceInfo<? extends Tag>> expired = new ArrayList<>();
+        DriverConfigDelta delta = registry.reuse(this.devices.get(), expired);
+        this.devices.set(registry);
+        for (DeviceInfo<? extends Tag> info : expired) {
+            info.expire();
         }
-        this.devices.set(devices);
+        return delta;
+    }
+
+    /**
+     * 获取设备信息注册表
+     *
+     * @return 当前的设备信息注册表
+     */
+    public DeviceRegistry getDevices() {
+        return this.devices.get();
     }
 
     /**
@@ -89,17 +123,19 @@ public final class GlobalContext {
      * @throws IllegalStateException 如果该设备标识在多个模型表中同时存在, 则会抛出该异常
      */
     public Optional<DeviceInfo<? extends Tag>> getDevice(String deviceId) {
-        Assert.hasText(deviceId, "the device id is empty");
-        if (!this.devices.get().containsKey(deviceId)) {
-            return Optional.empty();
-        }
-
-        Map<String, DeviceInfo<? extends Tag>> infos = this.devices.get().get(deviceId);
-        if (infos.size() != 1) {
-            throw new IllegalStateException("在多个模型表中找到相同设备标识. deviceId =" + deviceId + ", tables = " + String.join(",", infos.keySet()));
-        }
+        return Optional.ofNullable(this.getDeviceOrNull(deviceId));
+    }
 
-        return infos.values().stream().findFirst();
+    /**
+     * 根据设备标识查找设备信息.
+     *
+     * @param deviceId 设备标识
+     * @return 设备信息. 如果未找到设备则返回 {@code null}
+     * @throws IllegalStateException 如果该设备标识在多个模型表中同时存在, 则会抛出该异常
+     */
+    public DeviceInfo<? extends Tag> getDeviceOrNull(String deviceId) {
+        Assert.hasText(deviceId, "the device id is empty");
+        return this.devices.get().get(deviceId);
     }
 
     /**
@@ -111,11 +147,7 @@ public final class GlobalContext {
      * @throws IllegalArgumentException 如果设备ID为 {@code null} 或空字符串
      */
     public Optional<DeviceInfo<? extends Tag>> getDevice(String tableId, String deviceId) {
-        Assert.hasText(deviceId, "the device id is empty");
-        if (!this.devices.get().containsKey(deviceId)) {
-            return Optional.empty();
-        }
-        return Optional.ofNullable(this.devices.get().get(deviceId).get(tableId));
+        return Optional.ofNullable(this.getDeviceOrNull(tableId, deviceId));
     }
 
     /**
@@ -127,7 +159,8 @@ public final class GlobalContext {
      * @throws IllegalArgumentException 如果设备ID为 {@code null} 或空字符串
      */
     public DeviceInfo<? extends Tag> getDeviceOrNull(String tableId, String deviceId) {
-        return this.getDevice(tableId, deviceId).orElse(null);
+        Assert.hasText(deviceId, "the device id is empty");
+        return this.devices.get().get(tableId, deviceId);
     }
 
     /**
@@ -143,11 +176,28 @@ public final class GlobalContext {
             throw new IllegalArgumentException("数据点信息不能为空");
         }
 
-        DeviceInfo<? extends Tag> info = this.getDevice(tableId, deviceId)
-                .orElseThrow(() -> new IllegalStateException("未在表 '" + tableId + "' 中找到设备 '" + deviceId + "'"));
+        DeviceInfo<? extends Tag> info = this.getDeviceOrNull(tableId, deviceId);
+        if (info == null) {
+            throw new IllegalStateException("未在表 '" + tableId + "' 中找到设备 '" + deviceId + "'");
+        }
+        return this.createFields(info, tagValues);
+    }
+
+    /**
+     * 根据数据点标识填充 {@code Field} 字段
+     *
+     * @param info      设备信息
+     * @param tagValues 数据点的值
+     * @return 字段信息列表
+     */
+    public List<Field<? extends Tag>> createFields(DeviceInfo<? extends Tag> info, Map<String, Object> tagValues) {
+        if (CollectionUtils.isEmpty(tagValues)) {
+            throw new IllegalArgumentException("数据点信息不能为空");
+        }
+
         Map<String, ? extends Tag> tags = info.getTags();
         if (CollectionUtils.isEmpty(tags)) {
-            throw new IllegalStateException("未找到设备上的数据点信息: " + deviceId);
+            throw new IllegalStateException("未找到设备上的数据点信息: " + info.getId());
         }
 
         List<Field<? extends Tag>> fields = new ArrayList<>(tagValues.size());
@@ -202,11 +252,33 @@ public final class GlobalContext {
         }
 
         if (!StringUtils.hasText(tableId)) {
-            DeviceInfo<? extends Tag> info = this.getDevice(deviceId)
-                    .orElseThrow(() -> new IllegalStateException("未提供 tableId, 未找到设备 '" + deviceId + "'"));
+            DeviceInfo<? extends Tag> info = this.getDeviceOrNull(deviceId);
+            if (info == null) {
+                throw new IllegalStateException("未提供 tableId, 未找到设备 '" + deviceId + "'");
+            }
             tableId = info.getTableId();
         }
 
         return new Point(deviceId, childDeviceId, tableId, time, fields, fieldTypes);
     }
+
+    /**
+     * 使用已获取到的设备信息创建 {@link Point} 对象, 不再查找设备信息
+     *
+     * @param info          设备信息
+     * @param childDeviceId 子设备ID
+     * @param time          数据产生的时间
+     * @param tagValues     数据点的值. <br> key: 数据点ID(tagId). <br> value: 数据点的值.
+     * @param fieldTypes    数据点的数据类型
+     * @return Point 对象
+     * @see DeviceInfo#isExpired()
+     */
+    public Point createPoint(DeviceInfo<? extends Tag> info, String childDeviceId, long time,
+                             Map<String, Object> tagValues, Map<String, FieldType> fieldTypes) {
+        List<Field<? extends Tag>> fields = this.createFields(info, tagValues);
+        if (fields.isEmpty()) {
+            throw new IllegalArgumentException("未定义的数据点: " + tagValues.keySet());
+        }
+        return new Point(info.getId(), childDeviceId, info.getTableId(), time, fields, fieldTypes);
+    }
 }
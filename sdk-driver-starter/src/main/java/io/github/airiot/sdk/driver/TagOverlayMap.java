@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.github.airiot.sdk.driver;
+
+import io.github.airiot.sdk.driver.model.Tag;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * 设备的数据点集合
+ * <br>
+ * 由多个设备共享的模型数据点集合 {@code base} 和设备自身配置的数据点 {@code overrides} 组成,
+ * 相同标识的数据点以 {@code overrides} 中的为准. 每个设备只需要保存自身配置的数据点.
+ * <br>
+ * 该集合不可修改.
+ *
+ * @param <T> 数据点类型
+ */
+final class TagOverlayMap<T extends Tag> extends AbstractMap<String, T> {
+
+    private final Map<String, T> base;
+    private final Map<String, T> overrides;
+    private final int size;
+
+    TagOverlayMap(Map<String, T> base, Map<String, T> overrides) {
+        this.base = base;
+        this.overrides = overrides;
+        int size = base.size();
+        for (String key : overrides.keySet()) {
+            if (!base.containsKey(key)) {
+                size++;
+            }
+        }
+        this.size = size;
+    }
+
+    @Override
+    public T get(Object key) {
+        T value = this.overrides.get(key);
+        return value != null ? value : this.base.get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return this.overrides.containsKey(key) || this.base.containsKey(key);
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    @Override
+    public Set<Entry<String, T>> entrySet() {
+        return new AbstractSet<Entry<String, T>>() {
+            @Override
+            public Iterator<Entry<String, T>> iterator() {
+                return new OverlayIterator();
+            }
+
+            @Override
+            public int size() {
+                return TagOverlayMap.this.size;
+            }
+        };
+    }
+
+    /**
+     * 先遍历 {@code overrides}, 再遍历 {@code base} 中未被覆盖的数据点
+     */
+    private final class OverlayIterator implements Iterator<Entry<String, T>> {
+        private final Iterator<Entry<String, T>> overrideIterator = overrides.entrySet().iterator();
+        private final Iterator<Entry<String, T>> baseIterator = base.entrySet().iterator();
+        private Entry<String, T> next;
+
+        @Override
+        public boolean hasNext() {
+            if (this.next != null) {
+                return true;
+            }
+            if (this.overrideIterator.hasNext()) {
+                this.next = this.overrideIterator.next();
+                return true;
+            }
+            while (this.baseIterator.hasNext()) {
+                Entry<String, T> entry = this.baseIterator.next();
+                if (!overrides.containsKey(entry.getKey())) {
+                    this.next = entry;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public Entry<String, T> next() {
+            if (!this.hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Entry<String, T> entry = this.next;
+            this.next = null;
+            return entry;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.github.airiot.sdk.driver;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 虚拟线程工具
+ * <br>
+ * SDK 以 JDK 8 编译, 因此通过反射调用 {@code Thread.ofVirtual()}. 运行在 JDK 21 以下版本时不支持虚拟线程, 使用平台线程代替.
+ * <br>
+ * 创建的虚拟线程会继承创建线程的 {@link InheritableThreadLocal}, 因此日志上下文 ({@code LoggerContexts}) 可以正常传递.
+ */
+public final class VirtualThreads {
+
+    /**
+     * {@code Thread.ofVirtual()} 方法. 如果不支持虚拟线程则为 {@code null}
+     */
+    private static final Method OF_VIRTUAL;
+    private static final Method NAME;
+    private static final Method INHERIT_INHERITABLE_THREAD_LOCALS;
+    private static final Method FACTORY;
+
+    static {
+        Method ofVirtual = null;
+        Method name = null;
+        Method inherit = null;
+        Method factory = null;
+        try {
+            // JDK 19 和 20 中虚拟线程为预览功能, 不使用
+            if (javaVersion() < 21) {
+                throw new ClassNotFoundException("java.lang.Thread$Builder");
+            }
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+            name = builderClass.getMethod("name", String.class, long.class);
+            inherit = builderClass.getMethod("inheritInheritableThreadLocals", boolean.class);
+            factory = builderClass.getMethod("factory");
+        } catch (ReflectiveOperationException | LinkageError e) {
+            ofVirtual = null;
+        }
+        OF_VIRTUAL = ofVirtual;
+        NAME = name;
+        INHERIT_INHERITABLE_THREAD_LOCALS = inherit;
+        FACTORY = factory;
+    }
+
+    private VirtualThreads() {
+    }
+
+    private static int javaVersion() {
+        String version = System.getProperty("java.specification.version", "1.8");
+        try {
+            return version.startsWith("1.") ? Integer.parseInt(version.substring(2)) : Integer.parseInt(version);
+        } catch (NumberFormatException e) {
+            return 8;
+        }
+    }
+
+    /**
+     * 当前运行环境是否支持虚拟线程
+     */
+    public static boolean isSupported() {
+        return OF_VIRTUAL != null;
+    }
+
+    /**
+     * 创建线程工厂
+     *
+     * @param namePrefix 线程名称前缀, 线程名称为前缀加序号 (从 0 开始)
+     * @param virtual    是否创建虚拟线程. 如果当前运行环境不支持虚拟线程, 则创建平台线程
+     * @return 线程工厂. 创建的平台线程均为守护线程
+     */
+    public static ThreadFactory threadFactory(String namePrefix, boolean virtual) {
+        if (virtual && isSupported()) {
+            try {
+                Object builder = OF_VIRTUAL.invoke(null);
+                builder = NAME.invoke(builder, namePrefix, 0L);
+                builder = INHERIT_INHERITABLE_THREAD_LOCALS.invoke(builder, true);
+                return (ThreadFactory) FACTORY.invoke(builder);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("创建虚拟线程工厂失败", e);
+            }
+        }
+
+        AtomicInteger index = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable);
+            thread.setDaemon(true);
+            thread.setName(namePrefix + index.getAndIncrement());
+            return thread;
+        };
+    }
+}
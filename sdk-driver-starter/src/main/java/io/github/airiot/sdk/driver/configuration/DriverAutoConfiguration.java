@@ -35,6 +35,7 @@ import io.github.airiot.sdk.driver.data.impl.MQTTDataSender;
 import io.github.airiot.sdk.driver.grpc.driver.DriverServiceGrpc;
 import io.github.airiot.sdk.driver.listener.DriverEventListener;
 import io.github.airiot.sdk.driver.listener.GrpcDriverEventListener;
+import io.github.airiot.sdk.driver.model.Deadband;
 import io.github.airiot.sdk.logger.LoggerContexts;
 import io.github.airiot.sdk.logger.LoggerFactory;
 import io.grpc.Channel;
@@ -50,6 +51,7 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.core.annotation.Order;
 
 import javax.annotation.PostConstruct;
+import java.time.Duration;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -61,15 +63,23 @@ import java.util.stream.Collectors;
 public class DriverAutoConfiguration {
 
     @Bean
-    public TagValueCache tagValueCache() {
-        return new TagValueCache();
+    public TagValueCache tagValueCache(DriverDataProperties driverDataProperties) {
+        DriverDataProperties.LatestValue latestValue = driverDataProperties.getLatestValue();
+        return new TagValueCache(latestValue.getMaxSize(), latestValue.getTtl());
     }
 
     @Bean
     @ConditionalOnMissingBean(DataHandlerChain.class)
-    public DataHandlerChain dataHandlerChain(TagValueCache tagValueCache, ObjectProvider<DataHandler> handlers) {
+    public DataHandlerChain dataHandlerChain(TagValueCache tagValueCache, ObjectProvider<DataHandler> handlers,
+                                             DriverDataProperties driverDataProperties) {
         List<DataHandler> dataHandlers = handlers.stream().collect(Collectors.toList());
-        return new DefaultDataHandlerChain(tagValueCache, dataHandlers);
+        DefaultDataHandlerChain chain = new DefaultDataHandlerChain(tagValueCache, dataHandlers, true, driverDataProperties.isExactDecimal());
+        chain.setMetricsEnabled(driverDataProperties.isHandlerMetrics());
+        DriverDataProperties.ReportOnChange reportOnChange = driverDataProperties.getReportOnChange();
+        Duration maxSilentInterval = reportOnChange.getMaxSilentInterval();
+        chain.setReportOnChange(new Deadband(reportOnChange.isEnabled(), reportOnChange.getAbsolute(), reportOnChange.getPercent(),
+                maxSilentInterval == null ? 0L : maxSilentInterval.getSeconds()));
+        return chain;
     }
 
     @Bean
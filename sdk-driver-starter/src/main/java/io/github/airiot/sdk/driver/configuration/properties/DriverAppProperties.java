@@ -73,6 +73,13 @@ public class DriverAppProperties implements InitializingBean, EnvironmentAware {
     private String instanceId;
 
     private String distributed = "";
+    /**
+     * 是否使用虚拟线程执行平台下发的指令及异步上报数据. 默认: false
+     * <br>
+     * 仅在 JDK 21 及以上版本生效, 低版本 JDK 中仍使用平台线程.
+     * 驱动实现中在 {@code synchronized} 代码块内执行阻塞 I/O 时, 虚拟线程会占用载体线程, 此时建议改用 {@link java.util.concurrent.locks.ReentrantLock}
+     */
+    private boolean virtualThreads = false;
 
     public String getProjectId() {
         return projectId;
@@ -114,6 +121,14 @@ public class DriverAppProperties implements InitializingBean, EnvironmentAware {
         this.distributed = distributed;
     }
 
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    public void setVirtualThreads(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+
     @Override
     public String toString() {
         return "DriverAppProperties{" +
@@ -122,6 +137,7 @@ public class DriverAppProperties implements InitializingBean, EnvironmentAware {
                 ", name='" + name + '\'' +
                 ", instanceId='" + instanceId + '\'' +
                 ", distributed='" + distributed + '\'' +
+                ", virtualThreads=" + virtualThreads +
                 '}';
     }
 
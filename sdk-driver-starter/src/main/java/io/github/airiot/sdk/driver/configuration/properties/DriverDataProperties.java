@@ -20,7 +20,15 @@ package io.github.airiot.sdk.driver.configuration.properties;
 
 import io.github.airiot.sdk.driver.data.DataSenderException;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.NestedConfigurationProperty;
 import org.springframework.boot.logging.LogLevel;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
 
 
 /**
@@ -39,7 +47,56 @@ public class DriverDataProperties {
      * 只有 {@link #policy} 为 {@link DataHandlePolicyOnConnectLost#LOG} 时有效
      */
     private LogLevel logLevel = LogLevel.ERROR;
-
+    /**
+     * 上报数据的编码方式, 默认为 {@code json}. 内置的编码方式有 {@code json} 和 {@code cbor}
+     * <br>
+     * 可以通过 {@link io.github.airiot.sdk.driver.data.codec.PointCodec} 扩展其它编码方式
+     */
+    private String codec = "json";
+    /**
+     * 是否统计每个数据点的数据处理耗时, 默认不统计
+     * <br>
+     * 开启后可以通过 {@link io.github.airiot.sdk.driver.data.DefaultDataHandlerChain#getTagMetrics()} 获取统计信息
+     */
+    private boolean handlerMetrics = false;
+    /**
+     * 数值转换, 小数位数和缩放比例处理是否使用 {@link java.math.BigDecimal} 精确计算
+     * <br>
+     * 默认使用 {@code double} 计算, 性能更好. 如果对计算结果的精度有严格要求, 可以设置为 {@code true}
+     */
+    private boolean exactDecimal = false;
+    /**
+     * 异步上报数据相关配置
+     */
+    @NestedConfigurationProperty
+    private Async async = new Async();
+    /**
+     * 连接断开时, 数据缓存到本地磁盘相关配置
+     * <br>
+     * 只有 {@link #policy} 为 {@link DataHandlePolicyOnConnectLost#BUFFER} 时有效
+     */
+    @NestedConfigurationProperty
+    private Buffer buffer = new Buffer();
+    /**
+     * 数据点最新有效值缓存相关配置
+     */
+    @NestedConfigurationProperty
+    private LatestValue latestValue = new LatestValue();
+    /**
+     * 变化上报相关配置
+     */
+    @NestedConfigurationProperty
+    private ReportOnChange reportOnChange = new ReportOnChange();
+    /**
+     * 按时间窗口聚合上报相关配置
+     */
+    @NestedConfigurationProperty
+    private Aggregation aggregation = new Aggregation();
+    /**
+     * 上报数据诊断跟踪相关配置
+     */
+    @NestedConfigurationProperty
+    private Trace trace = new Trace();
 
     public DataHandlePolicyOnConnectLost getPolicy() {
         return policy;
@@ -57,6 +114,629 @@ public class DriverDataProperties {
         this.logLevel = logLevel;
     }
 
+    public String getCodec() {
+        return codec;
+    }
+
+    public void setCodec(String codec) {
+        this.codec = codec;
+    }
+
+    public boolean isHandlerMetrics() {
+        return handlerMetrics;
+    }
+
+    public void setHandlerMetrics(boolean handlerMetrics) {
+        this.handlerMetrics = handlerMetrics;
+    }
+
+    public boolean isExactDecimal() {
+        return exactDecimal;
+    }
+
+    public void setExactDecimal(boolean exactDecimal) {
+        this.exactDecimal = exactDecimal;
+    }
+
+    public Async getAsync() {
+        return async;
+    }
+
+    public void setAsync(Async async) {
+        this.async = async;
+    }
+
+    public Buffer getBuffer() {
+        return buffer;
+    }
+
+    public void setBuffer(Buffer buffer) {
+        this.buffer = buffer;
+    }
+
+    public LatestValue getLatestValue() {
+        return latestValue;
+    }
+
+    public void setLatestValue(LatestValue latestValue) {
+        this.latestValue = latestValue;
+    }
+
+    public ReportOnChange getReportOnChange() {
+        return reportOnChange;
+    }
+
+    public void setReportOnChange(ReportOnChange reportOnChange) {
+        this.reportOnChange = reportOnChange;
+    }
+
+    public Aggregation getAggregation() {
+        return aggregation;
+    }
+
+    public void setAggregation(Aggregation aggregation) {
+        this.aggregation = aggregation;
+    }
+
+    public Trace getTrace() {
+        return trace;
+    }
+
+    public void setTrace(Trace trace) {
+        this.trace = trace;
+    }
+
+    /**
+     * 异步上报数据配置
+     * <br>
+     * 开启后, {@code writePoint} 只将数据放入队列中即返回. 由后台线程执行数据处理、编码并批量发送.
+     * <br>
+     * 队列按设备编号分片, 同一设备的数据始终由同一个线程处理, 保证同一设备的数据按写入顺序发送.
+     */
+    public static class Async {
+        /**
+         * 是否开启异步上报. 默认: false
+         */
+        private boolean enabled = false;
+        /**
+         * 分片数量, 每个分片对应一个队列及一个处理线程
+         * <br>
+         * 如果小于或等于 {@code 0} 则为 CPU 核数
+         */
+        private int shards = 0;
+        /**
+         * 每个分片的队列容量. 默认: 10000
+         */
+        private int queueCapacity = 10000;
+        /**
+         * 每批次最多发送的数据数量. 默认: 100
+         */
+        private int batchSize = 100;
+        /**
+         * 队列已满时的处理策略. 默认: {@link BackPressurePolicy#BLOCK}
+         */
+        private BackPressurePolicy backPressure = BackPressurePolicy.BLOCK;
+        /**
+         * 停止时等待队列中剩余数据发送完成的最长时间. 默认: 5s
+         */
+        private Duration shutdownTimeout = Duration.ofSeconds(5);
+        /**
+         * 输出队列状态(各分片队列深度及发送统计)到日志的间隔
+         * <br>
+         * 如果为 {@code null} 或小于等于 {@code 0} 则不输出. 默认: 不输出
+         */
+        private Duration metricsInterval = Duration.ZERO;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getShards() {
+            return shards;
+        }
+
+        public void setShards(int shards) {
+            this.shards = shards;
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public BackPressurePolicy getBackPressure() {
+            return backPressure;
+        }
+
+        public void setBackPressure(BackPressurePolicy backPressure) {
+            this.backPressure = backPressure;
+        }
+
+        public Duration getShutdownTimeout() {
+            return shutdownTimeout;
+        }
+
+        public void setShutdownTimeout(Duration shutdownTimeout) {
+            this.shutdownTimeout = shutdownTimeout;
+        }
+
+        public Duration getMetricsInterval() {
+            return metricsInterval;
+        }
+
+        public void setMetricsInterval(Duration metricsInterval) {
+            this.metricsInterval = metricsInterval;
+        }
+
+        @Override
+        public String toString() {
+            return "Async{" +
+                    "enabled=" + enabled +
+                    ", shards=" + shards +
+                    ", queueCapacity=" + queueCapacity +
+                    ", batchSize=" + batchSize +
+                    ", backPressure=" + backPressure +
+                    ", shutdownTimeout=" + shutdownTimeout +
+                    ", metricsInterval=" + metricsInterval +
+                    '}';
+        }
+    }
+
+    /**
+     * 连接断开时, 数据缓存到本地磁盘的配置
+     * <br>
+     * 数据按写入顺序追加到多个固定大小的段文件中, 连接恢复后按写入顺序重新发送.
+     */
+    public static class Buffer {
+        /**
+         * 缓存文件存储目录. 默认: ./data/point-buffer
+         */
+        private String dir = "./data/point-buffer";
+        /**
+         * 每个段文件的大小. 默认: 16MB
+         */
+        private DataSize segmentSize = DataSize.ofMegabytes(16);
+        /**
+         * 缓存文件最大总大小. 超过后会删除最早的段文件. 默认: 512MB
+         */
+        private DataSize maxSize = DataSize.ofMegabytes(512);
+        /**
+         * 缓存数据的保留时间. 超过该时间的数据不再发送
+         * <br>
+         * 如果为 {@code null} 或小于等于 {@code 0} 则不限制. 默认: 24h
+         */
+        private Duration retention = Duration.ofHours(24);
+        /**
+         * 连接恢复后, 每秒最多重新发送的数据数量. 默认: 1000
+         */
+        private double replayRate = 1000;
+        /**
+         * 每批次重新发送的数据数量. 默认: 100
+         */
+        private int replayBatchSize = 100;
+
+        public String getDir() {
+            return dir;
+        }
+
+        public void setDir(String dir) {
+            this.dir = dir;
+        }
+
+        public DataSize getSegmentSize() {
+            return segmentSize;
+        }
+
+        public void setSegmentSize(DataSize segmentSize) {
+            this.segmentSize = segmentSize;
+        }
+
+        public DataSize getMaxSize() {
+            return maxSize;
+        }
+
+        public void setMaxSize(DataSize maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        public Duration getRetention() {
+            return retention;
+        }
+
+        public void setRetention(Duration retention) {
+            this.retention = retention;
+        }
+
+        public double getReplayRate() {
+            return replayRate;
+        }
+
+        public void setReplayRate(double replayRate) {
+            this.replayRate = replayRate;
+        }
+
+        public int getReplayBatchSize() {
+            return replayBatchSize;
+        }
+
+        public void setReplayBatchSize(int replayBatchSize) {
+            this.replayBatchSize = replayBatchSize;
+        }
+
+        @Override
+        public String toString() {
+            return "Buffer{" +
+                    "dir='" + dir + '\'' +
+                    ", segmentSize=" + segmentSize +
+                    ", maxSize=" + maxSize +
+                    ", retention=" + retention +
+                    ", replayRate=" + replayRate +
+                    ", replayBatchSize=" + replayBatchSize +
+                    '}';
+        }
+    }
+
+    /**
+     * 数据点最新有效值缓存配置
+     * <br>
+     * 有效范围的 {@code latest} 动作以及 {@code rate} 和 {@code delta} 条件需要使用数据点的最新有效值
+     */
+    public static class LatestValue {
+        /**
+         * 最多缓存的数据点数量. 超过后会清除最早更新的数据点. 如果小于等于 {@code 0} 则不限制. 默认: 0
+         */
+        private int maxSize = 0;
+        /**
+         * 缓存值的有效时间. 超过有效时间的值视为不存在
+         * <br>
+         * 如果为 {@code null} 或小于等于 {@code 0} 则不限制. 默认: 不限制
+         */
+        private Duration ttl;
+
+        public int getMaxSize() {
+            return maxSize;
+        }
+
+        public void setMaxSize(int maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        public void setTtl(Duration ttl) {
+            this.ttl = ttl;
+        }
+
+        @Override
+        public String toString() {
+            return "LatestValue{" +
+                    "maxSize=" + maxSize +
+                    ", ttl=" + ttl +
+                    '}';
+        }
+    }
+
+    /**
+     * 变化上报配置, 即数据点的值未变化时不重复上报
+     * <br>
+     * 这里的配置为所有数据点的默认值, 可以通过数据点的 {@link io.github.airiot.sdk.driver.model.Tag#getDeadband()} 单独配置.
+     * 变化上报在所有数据处理功能之后执行, 按处理后的值判断是否变化.
+     *
+     * @see io.github.airiot.sdk.driver.model.Deadband
+     */
+    public static class ReportOnChange {
+        /**
+         * 是否默认开启变化上报. 默认: false
+         */
+        private boolean enabled = false;
+        /**
+         * 默认的绝对死区. 默认: 0, 即值有任何变化都上报
+         */
+        private double absolute = 0;
+        /**
+         * 默认的百分比死区. 默认: 0, 即不按百分比判断
+         */
+        private double percent = 0;
+        /**
+         * 默认的最长不上报时间. 超过该时间后, 即使值未变化也会上报一次.
+         * <br>
+         * 如果为 {@code null} 或小于等于 {@code 0} 则不限制. 默认: 5 分钟
+         */
+        private Duration maxSilentInterval = Duration.ofMinutes(5);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public double getAbsolute() {
+            return absolute;
+        }
+
+        public void setAbsolute(double absolute) {
+            this.absolute = absolute;
+        }
+
+        public double getPercent() {
+            return percent;
+        }
+
+        public void setPercent(double percent) {
+            this.percent = percent;
+        }
+
+        public Duration getMaxSilentInterval() {
+            return maxSilentInterval;
+        }
+
+        public void setMaxSilentInterval(Duration maxSilentInterval) {
+            this.maxSilentInterval = maxSilentInterval;
+        }
+
+        @Override
+        public String toString() {
+            return "ReportOnChange{" +
+                    "enabled=" + enabled +
+                    ", absolute=" + absolute +
+                    ", percent=" + percent +
+                    ", maxSilentInterval=" + maxSilentInterval +
+                    '}';
+        }
+    }
+
+    /**
+     * 按时间窗口聚合上报配置
+     * <br>
+     * 开启后, 数据处理后的值不再立即上报, 而是按设备和时间窗口汇总, 每个窗口结束时每个设备只上报一条数据.
+     * 适用于采集频率远高于平台所需精度的场景. 上报数据的时间为窗口的开始时间.
+     * <br>
+     * 窗口按数据的采集时间划分, 采集时间为 0 时使用当前时间. 窗口从收到第一条数据开始, 经过窗口长度后结束;
+     * 采集时间超出当前窗口的数据会立即结束当前窗口, 早于当前窗口的迟到数据不再聚合, 直接上报.
+     * <br>
+     * 窗口长度和聚合方式的优先级为: {@link #tags} > {@link #tables} > 默认值
+     */
+    public static class Aggregation {
+        /**
+         * 是否开启聚合上报. 默认: false
+         */
+        private boolean enabled = false;
+        /**
+         * 默认的窗口长度. 如果为 {@code null} 或小于等于 {@code 0} 则未单独配置的数据点不聚合. 默认: 1s
+         */
+        private Duration window = Duration.ofSeconds(1);
+        /**
+         * 默认的聚合方式. 默认: {@link AggregateFunction#AVG}
+         */
+        private AggregateFunction function = AggregateFunction.AVG;
+        /**
+         * 检查窗口是否结束的时间间隔, 即窗口结束后最多延迟该时间上报. 默认: 100ms
+         */
+        private Duration tick = Duration.ofMillis(100);
+        /**
+         * 按模型配置. key 为模型表标识
+         */
+        private Map<String, AggregationRule> tables = new HashMap<>();
+        /**
+         * 按数据点配置. key 为数据点标识
+         */
+        private Map<String, AggregationRule> tags = new HashMap<>();
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Duration getWindow() {
+            return window;
+        }
+
+        public void setWindow(Duration window) {
+            this.window = window;
+        }
+
+        public AggregateFunction getFunction() {
+            return function;
+        }
+
+        public void setFunction(AggregateFunction function) {
+            this.function = function;
+        }
+
+        public Duration getTick() {
+            return tick;
+        }
+
+        public void setTick(Duration tick) {
+            this.tick = tick;
+        }
+
+        public Map<String, AggregationRule> getTables() {
+            return tables;
+        }
+
+        public void setTables(Map<String, AggregationRule> tables) {
+            this.tables = tables;
+        }
+
+        public Map<String, AggregationRule> getTags() {
+            return tags;
+        }
+
+        public void setTags(Map<String, AggregationRule> tags) {
+            this.tags = tags;
+        }
+
+        @Override
+        public String toString() {
+            return "Aggregation{" +
+                    "enabled=" + enabled +
+                    ", window=" + window +
+                    ", function=" + function +
+                    ", tick=" + tick +
+                    ", tables=" + tables +
+                    ", tags=" + tags +
+                    '}';
+        }
+    }
+
+    /**
+     * 模型或数据点的聚合配置. 未配置的项使用上一级的配置
+     */
+    public static class AggregationRule {
+        /**
+         * 窗口长度. 如果小于等于 {@code 0} 则不聚合
+         */
+        private Duration window;
+        /**
+         * 聚合方式
+         */
+        private AggregateFunction function;
+
+        public AggregationRule() {
+        }
+
+        public AggregationRule(Duration window, AggregateFunction function) {
+            this.window = window;
+            this.function = function;
+        }
+
+        public Duration getWindow() {
+            return window;
+        }
+
+        public void setWindow(Duration window) {
+            this.window = window;
+        }
+
+        public AggregateFunction getFunction() {
+            return function;
+        }
+
+        public void setFunction(AggregateFunction function) {
+            this.function = function;
+        }
+
+        @Override
+        public String toString() {
+            return "AggregationRule{" +
+                    "window=" + window +
+                    ", function=" + function +
+                    '}';
+        }
+    }
+
+    /**
+     * 上报数据诊断跟踪配置
+     * <br>
+     * 数据处理后数据点数量变化时, 默认只在日志中记录变化的数量. 对于开启跟踪的设备, 会记录具体被丢弃或新增的数据点及其值.
+     * 也可以在运行时通过 {@link io.github.airiot.sdk.driver.data.AbstractDataSender#getPointTracer()} 开启或关闭设备的跟踪.
+     *
+     * @see io.github.airiot.sdk.driver.data.PointTracer
+     */
+    public static class Trace {
+        /**
+         * 需要跟踪的设备标识
+         */
+        private Set<String> devices = new LinkedHashSet<>();
+        /**
+         * 采样间隔, 即每 {@code sampling} 条数据跟踪一次. 默认: 1, 即跟踪每一条数据
+         */
+        private int sampling = 1;
+
+        public Set<String> getDevices() {
+            return devices;
+        }
+
+        public void setDevices(Set<String> devices) {
+            this.devices = devices;
+        }
+
+        public int getSampling() {
+            return sampling;
+        }
+
+        public void setSampling(int sampling) {
+            this.sampling = sampling;
+        }
+
+        @Override
+        public String toString() {
+            return "Trace{" +
+                    "devices=" + devices +
+                    ", sampling=" + sampling +
+                    '}';
+        }
+    }
+
+    /**
+     * 聚合方式. 非数值类型的数据点始终上报窗口内的最后一个值
+     */
+    public enum AggregateFunction {
+        /**
+         * 平均值
+         */
+        AVG,
+        /**
+         * 最小值
+         */
+        MIN,
+        /**
+         * 最大值
+         */
+        MAX,
+        /**
+         * 最后一个值
+         */
+        LAST,
+        /**
+         * 窗口内的数据数量
+         */
+        COUNT;
+    }
+
+    /**
+     * 异步上报时, 队列已满的处理策略
+     */
+    public enum BackPressurePolicy {
+        /**
+         * 阻塞调用线程, 直到队列有空闲位置
+         */
+        BLOCK,
+        /**
+         * 丢弃队列中最早的数据
+         */
+        DROP_OLDEST,
+        /**
+         * 溢出的数据交由连接断开时的数据处理策略处理
+         *
+         * @see DriverDataProperties#getPolicy()
+         */
+        SPILL;
+    }
+
 
     /**
      * 连接断开时的数据处理策略
@@ -73,6 +753,12 @@ public class DriverDataProperties {
         /**
          * 丢弃
          */
-        DISCARD;
+        DISCARD,
+        /**
+         * 缓存到本地磁盘, 连接恢复后重新发送
+         *
+         * @see Buffer
+         */
+        BUFFER;
     }
 }
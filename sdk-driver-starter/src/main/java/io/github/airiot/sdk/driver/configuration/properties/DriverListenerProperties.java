@@ -19,6 +19,7 @@ package io.github.airiot.sdk.driver.configuration.properties;
 
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.NestedConfigurationProperty;
 
 import java.time.Duration;
 
@@ -29,6 +30,11 @@ import java.time.Duration;
 @ConfigurationProperties(prefix = "driver-grpc")
 public class DriverListenerProperties {
 
+    /**
+     * 使用虚拟线程时默认的指令处理线程数
+     */
+    public static final int DEFAULT_VIRTUAL_RUN_THREADS = 256;
+
     private String host = "driver";
     private int port = 9224;
     /**
@@ -40,16 +46,27 @@ public class DriverListenerProperties {
     private Duration keepalive = Duration.ofSeconds(30);
     private Duration reconnectInterval = Duration.ofSeconds(15);
     /**
-     * 指令处理线程池最大线程数.
+     * 指令处理线程数.
      * <br>
-     * 如果为 0 则为 CPU 核心数
+     * 如果为 0 则为 CPU 核心数. 使用虚拟线程时 (见 {@link DriverAppProperties#isVirtualThreads()}) 则为 {@link #DEFAULT_VIRTUAL_RUN_THREADS}
      */
     private int runMaxThreads = 0;
     /**
-     * 指令处理线程池队列大小
+     * 等待执行的指令的最大数量. 超过后直接向平台返回繁忙结果 (code = 503)
      */
     private int runQueueSize = 32;
-    
+    /**
+     * 同一设备的指令是否串行执行. 默认: true
+     * <br>
+     * 开启后, 对同一设备的执行指令和写数据点按接收顺序逐个执行. 批量执行指令不受影响
+     */
+    private boolean runSerialByDevice = true;
+    /**
+     * 各个 gRPC 流的接收窗口配置
+     */
+    @NestedConfigurationProperty
+    private FlowControl flowControl = new FlowControl();
+
     public String getHost() {
         return host;
     }
@@ -105,4 +122,112 @@ public class DriverListenerProperties {
     public void setRunQueueSize(int runQueueSize) {
         this.runQueueSize = runQueueSize;
     }
+
+    public boolean isRunSerialByDevice() {
+        return runSerialByDevice;
+    }
+
+    public void setRunSerialByDevice(boolean runSerialByDevice) {
+        this.runSerialByDevice = runSerialByDevice;
+    }
+
+    public FlowControl getFlowControl() {
+        return flowControl;
+    }
+
+    public void setFlowControl(FlowControl flowControl) {
+        this.flowControl = flowControl;
+    }
+
+    /**
+     * gRPC 流的接收窗口, 即每个流最多同时处理的消息数量. 达到上限后, 处理完成一条消息才会从平台接收下一条.
+     * <br>
+     * 执行指令、写数据点和批量执行指令的窗口之和不超过 {@link #runQueueSize} 时, 指令不会因等待执行的指令数量达到上限而被拒绝
+     */
+    public static class FlowControl {
+        /**
+         * 执行指令. 默认: 16
+         */
+        private int run = 16;
+        /**
+         * 写数据点. 默认: 8
+         */
+        private int writeTag = 8;
+        /**
+         * 批量执行指令. 默认: 4
+         */
+        private int batchRun = 4;
+        /**
+         * 获取 schema. 默认: 1
+         */
+        private int schema = 1;
+        /**
+         * 调试. 默认: 4
+         */
+        private int debug = 4;
+        /**
+         * 启动驱动. 默认: 1
+         */
+        private int start = 1;
+        /**
+         * http 代理. 默认: 16
+         */
+        private int httpProxy = 16;
+
+        public int getRun() {
+            return run;
+        }
+
+        public void setRun(int run) {
+            this.run = run;
+        }
+
+        public int getWriteTag() {
+            return writeTag;
+        }
+
+        public void setWriteTag(int writeTag) {
+            this.writeTag = writeTag;
+        }
+
+        public int getBatchRun() {
+            return batchRun;
+        }
+
+        public void setBatchRun(int batchRun) {
+            this.batchRun = batchRun;
+        }
+
+        public int getSchema() {
+            return schema;
+        }
+
+        public void setSchema(int schema) {
+            this.schema = schema;
+        }
+
+        public int getDebug() {
+            return debug;
+        }
+
+        public void setDebug(int debug) {
+            this.debug = debug;
+        }
+
+        public int getStart() {
+            return start;
+        }
+
+        public void setStart(int start) {
+            this.start = start;
+        }
+
+        public int getHttpProxy() {
+            return httpProxy;
+        }
+
+        public void setHttpProxy(int httpProxy) {
+            this.httpProxy = httpProxy;
+        }
+    }
 }
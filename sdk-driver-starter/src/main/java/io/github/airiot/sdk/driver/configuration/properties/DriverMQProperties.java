@@ -132,6 +132,28 @@ public class DriverMQProperties {
          * 如果小于或等于 {@code 0} 则不开启重连
          */
         private Duration reconnectInterval = Duration.ofSeconds(5);
+        /**
+         * 消息发送方式. 默认: {@link DeliveryMode#SYNC}
+         */
+        private DeliveryMode deliveryMode = DeliveryMode.SYNC;
+        /**
+         * 已发送但未完成的最大消息数量. 达到该数量后, 发送消息时最多等待 {@link #publishTimeout}. 默认: 10
+         *
+         * @see org.eclipse.paho.client.mqttv3.MqttConnectOptions#setMaxInflight(int)
+         */
+        private int maxInflight = 10;
+        /**
+         * 是否清除会话. 如果为 {@code false}, 重新连接后服务端会继续发送未完成的 QoS 1 和 QoS 2 消息. 默认: true
+         */
+        private boolean cleanSession = true;
+        /**
+         * 未完成消息的存储方式. 默认: {@link Persistence#MEMORY}
+         */
+        private Persistence persistence = Persistence.MEMORY;
+        /**
+         * {@link Persistence#FILE} 方式的存储目录. 默认: ./data/mqtt
+         */
+        private String persistenceDir = "./data/mqtt";
 
         public String getHost() {
             return host;
@@ -220,6 +242,76 @@ public class DriverMQProperties {
         public void setReconnectInterval(Duration reconnectInterval) {
             this.reconnectInterval = reconnectInterval;
         }
+
+        public DeliveryMode getDeliveryMode() {
+            return deliveryMode;
+        }
+
+        public void setDeliveryMode(DeliveryMode deliveryMode) {
+            this.deliveryMode = deliveryMode;
+        }
+
+        public int getMaxInflight() {
+            return maxInflight;
+        }
+
+        public void setMaxInflight(int maxInflight) {
+            this.maxInflight = maxInflight;
+        }
+
+        public boolean isCleanSession() {
+            return cleanSession;
+        }
+
+        public void setCleanSession(boolean cleanSession) {
+            this.cleanSession = cleanSession;
+        }
+
+        public Persistence getPersistence() {
+            return persistence;
+        }
+
+        public void setPersistence(Persistence persistence) {
+            this.persistence = persistence;
+        }
+
+        public String getPersistenceDir() {
+            return persistenceDir;
+        }
+
+        public void setPersistenceDir(String persistenceDir) {
+            this.persistenceDir = persistenceDir;
+        }
+
+        /**
+         * mqtt 消息发送方式
+         */
+        public enum DeliveryMode {
+            /**
+             * 同步发送. 每条消息等待发送完成后返回, 最多等待 {@link Mqtt#getActionTimeout()}
+             */
+            SYNC,
+            /**
+             * 异步发送. 消息交给客户端后立即返回, 发送结果通过回调通知. 已发送但未完成的消息数量不超过 {@link Mqtt#getMaxInflight()}.
+             * <br>
+             * 数据发送失败时, 交由连接断开时的数据处理策略处理
+             */
+            ASYNC,
+        }
+
+        /**
+         * 未完成消息的存储方式
+         */
+        public enum Persistence {
+            /**
+             * 存储在内存中, 进程重启后丢失
+             */
+            MEMORY,
+            /**
+             * 存储在文件中. 配合 {@link Mqtt#isCleanSession()} 为 {@code false} 使用时, 进程重启后会继续发送未完成的 QoS 1 和 QoS 2 消息
+             */
+            FILE,
+        }
     }
 
     public static class Rabbit {
@@ -240,6 +332,22 @@ public class DriverMQProperties {
          * 如果小于或等于 {@code 0} 则不开启重连
          */
         private Duration reconnectInterval = Duration.ofSeconds(5);
+        /**
+         * 发送消息使用的 Channel 的最大数量. 默认: 8
+         */
+        private int channelPoolSize = 8;
+        /**
+         * Channel 均在使用中时, 获取 Channel 的最大等待时间. 默认: 5s
+         */
+        private Duration channelBorrowTimeout = Duration.ofSeconds(5);
+        /**
+         * 消息确认方式. 默认: {@link ConfirmMode#NONE}
+         */
+        private ConfirmMode confirmMode = ConfirmMode.NONE;
+        /**
+         * 等待服务端确认消息的超时时间. 默认: 10s
+         */
+        private Duration confirmTimeout = Duration.ofSeconds(10);
 
         public String getHost() {
             return host;
@@ -288,6 +396,58 @@ public class DriverMQProperties {
         public void setReconnectInterval(Duration reconnectInterval) {
             this.reconnectInterval = reconnectInterval;
         }
+
+        public int getChannelPoolSize() {
+            return channelPoolSize;
+        }
+
+        public void setChannelPoolSize(int channelPoolSize) {
+            this.channelPoolSize = channelPoolSize;
+        }
+
+        public Duration getChannelBorrowTimeout() {
+            return channelBorrowTimeout;
+        }
+
+        public void setChannelBorrowTimeout(Duration channelBorrowTimeout) {
+            this.channelBorrowTimeout = channelBorrowTimeout;
+        }
+
+        public ConfirmMode getConfirmMode() {
+            return confirmMode;
+        }
+
+        public void setConfirmMode(ConfirmMode confirmMode) {
+            this.confirmMode = confirmMode;
+        }
+
+        public Duration getConfirmTimeout() {
+            return confirmTimeout;
+        }
+
+        public void setConfirmTimeout(Duration confirmTimeout) {
+            this.confirmTimeout = confirmTimeout;
+        }
+
+        /**
+         * amqp 消息确认方式 (publisher confirms)
+         */
+        public enum ConfirmMode {
+            /**
+             * 不开启消息确认. 消息写入 Channel 后即认为发送成功
+             */
+            NONE,
+            /**
+             * 同步确认. 发送数据后等待服务端确认, 批量发送时先发送全部数据再统一等待确认, 最多等待 {@link Rabbit#getConfirmTimeout()}
+             */
+            BATCH,
+            /**
+             * 异步确认. 发送数据后立即返回, 服务端拒绝或连接断开导致未确认的数据交由连接断开时的数据处理策略处理.
+             * <br>
+             * 日志和报警信息仍然同步等待确认
+             */
+            ASYNC,
+        }
     }
 
 
@@ -328,6 +488,42 @@ public class DriverMQProperties {
          * 发布消息超时
          */
         private Duration deliverTimeout = Duration.ofSeconds(5);
+        /**
+         * 消息发送方式. 默认: {@link DeliveryMode#SYNC}
+         */
+        private DeliveryMode deliveryMode = DeliveryMode.SYNC;
+        /**
+         * 消息发送前在客户端等待组成批次的最长时间. 如果不填写, 同步发送时为 0, 异步发送时为 500 毫秒
+         * <br>
+         * <b>注: 同步发送时每条消息都会等待发送完成, 设置该值后每条消息都会至少等待该时间</b>
+         *
+         * @see org.apache.kafka.clients.producer.ProducerConfig#LINGER_MS_CONFIG
+         */
+        private Duration linger;
+        /**
+         * 每个分区批次的最大字节数. 默认: 16384
+         *
+         * @see org.apache.kafka.clients.producer.ProducerConfig#BATCH_SIZE_CONFIG
+         */
+        private int batchSize = 16384;
+        /**
+         * 压缩方式, 可选值: none, gzip, snappy, lz4, zstd. 默认: none
+         *
+         * @see org.apache.kafka.clients.producer.ProducerConfig#COMPRESSION_TYPE_CONFIG
+         */
+        private String compressionType = "none";
+        /**
+         * 消息确认方式, 可选值: 0, 1, all. 如果不填写则使用客户端默认值
+         *
+         * @see org.apache.kafka.clients.producer.ProducerConfig#ACKS_CONFIG
+         */
+        private String acks;
+        /**
+         * 每个连接上未收到确认的最大请求数. 默认: 5
+         *
+         * @see org.apache.kafka.clients.producer.ProducerConfig#MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION
+         */
+        private int maxInFlight = 5;
 
         public List<String> getBrokers() {
             return brokers;
@@ -377,6 +573,54 @@ public class DriverMQProperties {
             this.deliverTimeout = deliverTimeout;
         }
 
+        public DeliveryMode getDeliveryMode() {
+            return deliveryMode;
+        }
+
+        public void setDeliveryMode(DeliveryMode deliveryMode) {
+            this.deliveryMode = deliveryMode;
+        }
+
+        public Duration getLinger() {
+            return linger;
+        }
+
+        public void setLinger(Duration linger) {
+            this.linger = linger;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public String getCompressionType() {
+            return compressionType;
+        }
+
+        public void setCompressionType(String compressionType) {
+            this.compressionType = compressionType;
+        }
+
+        public String getAcks() {
+            return acks;
+        }
+
+        public void setAcks(String acks) {
+            this.acks = acks;
+        }
+
+        public int getMaxInFlight() {
+            return maxInFlight;
+        }
+
+        public void setMaxInFlight(int maxInFlight) {
+            this.maxInFlight = maxInFlight;
+        }
+
         @Override
         public String toString() {
             return "Kafka{" +
@@ -386,8 +630,30 @@ public class DriverMQProperties {
                     ", connectTimeout=" + connectTimeout +
                     ", reconnectInterval=" + reconnectInterval +
                     ", deliverTimeout=" + deliverTimeout +
+                    ", deliveryMode=" + deliveryMode +
+                    ", linger=" + linger +
+                    ", batchSize=" + batchSize +
+                    ", compressionType='" + compressionType + '\'' +
+                    ", acks='" + acks + '\'' +
+                    ", maxInFlight=" + maxInFlight +
                     '}';
         }
+
+        /**
+         * kafka 消息发送方式
+         */
+        public enum DeliveryMode {
+            /**
+             * 同步发送. 每条消息等待服务端确认后返回
+             */
+            SYNC,
+            /**
+             * 异步发送. 消息放入客户端缓冲区后立即返回, 由客户端批量发送, 发送结果通过回调通知.
+             * <br>
+             * 数据发送失败时, 交由连接断开时的数据处理策略处理
+             */
+            ASYNC,
+        }
     }
 
     public enum DataSenderType {
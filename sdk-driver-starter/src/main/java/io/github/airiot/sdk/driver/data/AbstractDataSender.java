@@ -27,8 +27,16 @@ import com.google.protobuf.ByteString;
 import io.github.airiot.sdk.driver.DeviceInfo;
 import io.github.airiot.sdk.driver.DriverModules;
 import io.github.airiot.sdk.driver.GlobalContext;
+import io.github.airiot.sdk.driver.VirtualThreads;
 import io.github.airiot.sdk.driver.configuration.properties.DriverAppProperties;
 import io.github.airiot.sdk.driver.configuration.properties.DriverDataProperties;
+import io.github.airiot.sdk.driver.data.aggregate.PointAggregator;
+import io.github.airiot.sdk.driver.data.async.PointDispatcher;
+import io.github.airiot.sdk.driver.data.buffer.BufferReplayer;
+import io.github.airiot.sdk.driver.data.buffer.DiskBuffer;
+import io.github.airiot.sdk.driver.data.codec.PointCodec;
+import io.github.airiot.sdk.driver.data.codec.PointCodecs;
+import io.github.airiot.sdk.driver.event.DriverReloadApplicationEvent;
 import io.github.airiot.sdk.driver.grpc.driver.DriverServiceGrpc;
 import io.github.airiot.sdk.driver.grpc.driver.Request;
 import io.github.airiot.sdk.driver.grpc.driver.Response;
@@ -38,27 +46,37 @@ import io.github.airiot.sdk.logger.LoggerContext;
 import io.github.airiot.sdk.logger.LoggerContexts;
 import io.github.airiot.sdk.logger.LoggerFactory;
 import org.slf4j.Logger;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.boot.logging.LogLevel;
+import org.springframework.context.ApplicationListener;
 import org.springframework.util.Assert;
 import org.springframework.util.CollectionUtils;
 import org.springframework.util.StringUtils;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import static java.time.format.DateTimeFormatter.ISO_OFFSET_DATE_TIME;
 
-public abstract class AbstractDataSender implements DataSender, InitializingBean {
+public abstract class AbstractDataSender implements DataSender, InitializingBean, DisposableBean, ApplicationListener<DriverReloadApplicationEvent> {
 
+    private final Logger startLogger = LoggerFactory.withContext().module(DriverModules.START).getStaticLogger(AbstractDataSender.class);
     private final Logger writePointLogger = LoggerFactory.withContext().module(DriverModules.WRITE_POINTS).getDynamicLogger(AbstractDataSender.class);
     private final Logger writeEventLogger = LoggerFactory.withContext().module(DriverModules.WRITE_EVENT).getStaticLogger(AbstractDataSender.class);
     protected final Logger warningLogger = LoggerFactory.withContext().module(DriverModules.WARNING).getStaticLogger(AbstractDataSender.class);
@@ -79,22 +97,45 @@ public abstract class AbstractDataSender implements DataSender, InitializingBean
             })
             .create();
     /**
-     * {@link Point} 序列化专用对象
+     * {@link Point} 编码器
      */
-    private final Gson pointSerialization = new GsonBuilder()
-            .registerTypeAdapterFactory(PointSerializationAdapter.newFactory())
-            .create();
+    private final PointCodec pointCodec;
 
     protected final String projectId;
     protected final String driverId;
     protected final String serviceId;
+    /**
+     * 异步上报是否使用虚拟线程
+     */
+    private final boolean virtualThreads;
     private final DataHandlerChain chain;
+    /**
+     * 上报数据诊断跟踪
+     */
+    private final PointTracer pointTracer;
     private final GlobalContext globalContext;
     private final DriverServiceGrpc.DriverServiceBlockingStub driverGrpcClient;
 
     private final DriverDataProperties properties;
 
     private Consumer<Point> dataHandlerOnConnectionLost;
+    /**
+     * 异步上报数据分发器. 未开启异步上报时为 {@code null}
+     */
+    private PointDispatcher pointDispatcher;
+    /**
+     * 按时间窗口聚合上报. 未开启聚合上报时为 {@code null}
+     */
+    private PointAggregator pointAggregator;
+    /**
+     * 连接断开时的数据缓存. 只有连接断开时的数据处理策略为 {@link DriverDataProperties.DataHandlePolicyOnConnectLost#BUFFER} 时有效
+     */
+    private DiskBuffer diskBuffer;
+    private BufferReplayer bufferReplayer;
+    /**
+     * 处理异步发送失败的数据. 避免在消息组件的 I/O 回调线程中执行数据处理策略(如写入磁盘缓存)
+     */
+    private ExecutorService deliveryFailureExecutor;
 
     public AbstractDataSender(DriverDataProperties properties, DriverAppProperties appProperties, GlobalContext globalContext,
                               DataHandlerChain chain,
@@ -103,9 +144,13 @@ public abstract class AbstractDataSender implements DataSender, InitializingBean
         this.projectId = appProperties.getProjectId();
         this.driverId = appProperties.getId();
         this.serviceId = appProperties.getInstanceId();
+        this.virtualThreads = appProperties.isVirtualThreads();
         this.globalContext = globalContext;
         this.chain = chain;
+        this.pointTracer = new PointTracer(properties.getTrace().getDevices(), properties.getTrace().getSampling());
         this.driverGrpcClient = driverGrpcClient;
+        this.pointCodec = PointCodecs.getCodec(properties.getCodec())
+                .orElseThrow(() -> new IllegalArgumentException("未找到上报数据的编码器: " + properties.getCodec()));
     }
 
     @Override
@@ -120,9 +165,111 @@ public abstract class AbstractDataSender implements DataSender, InitializingBean
             case DISCARD:
                 this.dataHandlerOnConnectionLost = this::discardHandler;
                 break;
+            case BUFFER:
+                if (!this.supportsPayloadReplay()) {
+                    String message = "连接断开时的数据处理策略配置错误: " + this.getClass().getName()
+                            + " 不支持重新发送缓存的数据, 不能使用 BUFFER 策略";
+                    startLogger.error(message);
+                    throw new IllegalStateException(message);
+                }
+                DriverDataProperties.Buffer bufferProperties = properties.getBuffer();
+                this.diskBuffer = new DiskBuffer(Paths.get(bufferProperties.getDir()),
+                        (int) Math.min(bufferProperties.getSegmentSize().toBytes(), Integer.MAX_VALUE),
+                        bufferProperties.getMaxSize().toBytes(), bufferProperties.getRetention());
+                this.bufferReplayer = new BufferReplayer(this.diskBuffer, this::isRunning, this::doWritePayload,
+                        bufferProperties.getReplayRate(), bufferProperties.getReplayBatchSize());
+                this.bufferReplayer.start();
+                this.dataHandlerOnConnectionLost = this::bufferHandler;
+                break;
             default:
                 throw new IllegalArgumentException("未定义的连接断开时的数据处理策略: " + properties.getPolicy());
         }
+
+        this.deliveryFailureExecutor = Executors.newSingleThreadExecutor(
+                VirtualThreads.threadFactory("DeliveryFailure-", this.virtualThreads));
+
+        if (properties.getAsync() != null && properties.getAsync().isEnabled()) {
+            this.pointDispatcher = new PointDispatcher(properties.getAsync(), this::writePointBatch, this::onPointOverflow,
+                    VirtualThreads.threadFactory("PointDispatcher-", this.virtualThreads));
+            this.pointDispatcher.start();
+        }
+
+        if (properties.getAggregation() != null && properties.getAggregation().isEnabled()) {
+            this.pointAggregator = new PointAggregator(properties.getAggregation(), this::writeAggregatedPoints);
+            this.pointAggregator.start();
+        }
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        if (this.pointDispatcher != null) {
+            this.pointDispatcher.stop();
+        }
+        if (this.pointAggregator != null) {
+            this.pointAggregator.stop();
+        }
+        if (this.deliveryFailureExecutor != null) {
+            this.deliveryFailureExecutor.shutdown();
+            long timeout = properties.getAsync() == null ? 5000 : properties.getAsync().getShutdownTimeout().toMillis();
+            if (!this.deliveryFailureExecutor.awaitTermination(timeout, TimeUnit.MILLISECONDS)) {
+                writePointLogger.warn("上报数据: 等待发送失败的数据处理完成超时");
+            }
+        }
+        if (this.bufferReplayer != null) {
+            this.bufferReplayer.stop();
+        }
+        if (this.diskBuffer != null) {
+            this.diskBuffer.close();
+        }
+    }
+
+    /**
+     * 驱动配置重新加载时, 清除聚合上报中已删除的设备的窗口
+     */
+    @Override
+    public void onApplicationEvent(DriverReloadApplicationEvent event) {
+        if (this.pointAggregator != null) {
+            this.pointAggregator.onApplicationEvent(event);
+        }
+    }
+
+    /**
+     * 等待异步上报队列中的数据发送完成, 并立即发送聚合上报中未结束窗口的数据. 未开启异步上报及聚合上报时直接返回
+     * <br>
+     * 实现类在关闭连接前应调用该方法, 避免队列中的数据因连接关闭而丢失
+     */
+    protected void flushPendingPoints() {
+        if (this.pointDispatcher != null && !this.pointDispatcher.flush(properties.getAsync().getShutdownTimeout())) {
+            writePointLogger.warn("异步上报: 等待队列中数据发送超时, {}", this.pointDispatcher.metrics());
+        }
+        if (this.pointAggregator != null) {
+            this.pointAggregator.flush();
+        }
+    }
+
+    /**
+     * 获取异步上报的运行统计信息, 包括各分片队列深度等
+     *
+     * @return 如果未开启异步上报则返回 {@code null}
+     */
+    public PointDispatcher.Metrics getAsyncMetrics() {
+        return this.pointDispatcher == null ? null : this.pointDispatcher.metrics();
+    }
+
+    /**
+     * 获取上报数据诊断跟踪, 可用于在运行时开启或关闭设备的跟踪
+     */
+    public PointTracer getPointTracer() {
+        return this.pointTracer;
+    }
+
+    /**
+     * 获取聚合上报
+     *
+     * @return 如果未开启聚合上报则返回 {@code null}
+     */
+    public PointAggregator getPointAggregator() {
+        return this.pointAggregator;
     }
 
     private Consumer<Point> createLogHandler(LogLevel level) {
@@ -168,6 +315,37 @@ public abstract class AbstractDataSender implements DataSender, InitializingBean
         throw new DataSenderException(point, "数据上报失败, 服务未启动或连接已断开");
     }
 
+    /**
+     * 连接断开时, 将数据处理后缓存到本地磁盘
+     */
+    private void bufferHandler(Point point) {
+        Point newPoint = this.handlePoint(point);
+        if (newPoint != null) {
+            newPoint = this.chain.filterUnchanged(newPoint);
+        }
+        if (newPoint != null) {
+            this.bufferPoint(newPoint);
+        }
+    }
+
+    /**
+     * 将处理后的数据缓存到本地磁盘, 连接恢复后重新发送
+     *
+     * @param point 处理后的数据
+     * @throws DataSenderException 如果写入缓存失败
+     */
+    private void bufferPoint(Point point) {
+        try {
+            if (!this.diskBuffer.append(point.getTable(), point.getId(), this.encode(point))) {
+                writePointLogger.error("上报数据: 数据大小超过缓存段文件大小, 无法缓存. point = {}", point);
+                return;
+            }
+            writePointLogger.debug("上报数据: 连接断开, 数据已缓存. Device[{}]", point.getId());
+        } catch (Exception e) {
+            throw new DataSenderException(point, "上报数据: 写入缓存失败", e);
+        }
+    }
+
     /**
      * 检查连接状态, 如果未处于运行状态则抛出异常
      *
@@ -203,15 +381,38 @@ public abstract class AbstractDataSender implements DataSender, InitializingBean
      * @return 编码后的字节数组
      */
     protected byte[] encode(Point point) {
-        return pointSerialization.toJson(point).getBytes(StandardCharsets.UTF_8);
+        return this.pointCodec.encode(point);
+    }
+
+    /**
+     * 获取上报数据使用的编码器
+     */
+    protected PointCodec getPointCodec() {
+        return pointCodec;
+    }
+
+    /**
+     * 判断是否使用了非默认的编码器. 使用非默认的编码器时, 实现类需要告知平台数据的编码方式
+     */
+    protected boolean isCustomCodec() {
+        return !PointCodecs.DEFAULT_CODEC.equalsIgnoreCase(this.pointCodec.getName());
+    }
+
+    /**
+     * 创建按设备缓存的 topic 或 routing key 等. 缓存的值保存在设备信息上, 驱动重新加载配置后自动失效
+     *
+     * @param factory 根据模型表标识和设备标识计算缓存值
+     */
+    protected <V> DeviceKeyCache<V> newDeviceKeyCache(BiFunction<String, String, V> factory) {
+        return new DeviceKeyCache<>(this.globalContext, factory);
     }
 
     protected boolean setTableIfAbsent(String deviceId, Consumer<String> setter) {
-        Optional<DeviceInfo<? extends Tag>> deviceInfo = this.globalContext.getDevice(deviceId);
-        if (!deviceInfo.isPresent()) {
+        DeviceInfo<? extends Tag> deviceInfo = this.globalContext.getDeviceOrNull(deviceId);
+        if (deviceInfo == null) {
             return false;
         }
-        setter.accept(deviceInfo.get().getTableId());
+        setter.accept(deviceInfo.getTableId());
         return true;
     }
 
@@ -333,6 +534,12 @@ public abstract class AbstractDataSender implements DataSender, InitializingBean
     @Override
     public void writePoint(String tableId, String deviceId, long time, Map<String, Object> tagValues) {
         Point point = this.globalContext.createPoint(tableId, deviceId, time, tagValues);
+        // 数据处理时会单独创建日志上下文, 此处的上下文只用于 debug 日志
+        if (!writePointLogger.isDebugEnabled()) {
+            this.writePoint(point);
+            return;
+        }
+
         LoggerContext context = LoggerContexts.push();
         context.withTable(tableId);
         try {
@@ -351,99 +558,379 @@ public abstract class AbstractDataSender implements DataSender, InitializingBean
             return;
         }
 
+        if (this.pointDispatcher != null) {
+            this.pointDispatcher.dispatch(point);
+            return;
+        }
+
         if (!this.isRunning()) {
             this.dataHandlerOnConnectionLost.accept(point);
             return;
         }
 
+        Point newPoint = this.handleAndAggregatePoint(point);
+        if (newPoint == null) {
+            return;
+        }
+
+        try {
+            this.doWritePoint(newPoint);
+        } catch (Exception e) {
+            this.logWithTable(newPoint.getTable(), () -> writePointLogger.error("上报数据异常, point = {}", newPoint, e));
+            if (this.diskBuffer != null) {
+                this.bufferPoint(newPoint);
+                return;
+            }
+            throw new DataSenderException(point, "上报数据异常", e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> writePointAsync(Point point) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        if (CollectionUtils.isEmpty(point.getFields())) {
+            writePointLogger.debug("上报数据: 无数据点信息, {}", point);
+            future.complete(null);
+            return future;
+        }
+
+        try {
+            if (!this.isRunning()) {
+                this.dataHandlerOnConnectionLost.accept(point);
+                future.complete(null);
+                return future;
+            }
+
+            Point newPoint = this.handleAndAggregatePoint(point);
+            if (newPoint == null) {
+                future.complete(null);
+                return future;
+            }
+
+            return this.doWritePointAsync(newPoint);
+        } catch (Exception e) {
+            future.completeExceptionally(e);
+            return future;
+        }
+    }
+
+    /**
+     * 数据发送失败时, 交由连接断开时的数据处理策略处理.
+     * <br>
+     * 用于异步发送的消息组件在发送回调中处理发送失败的数据
+     *
+     * <b>注: 策略为 {@link DriverDataProperties.DataHandlePolicyOnConnectLost#EXCEPTION} 时, 异常无法抛给调用方, 只记录日志</b>
+     *
+     * @param point 发送失败的数据
+     * @param cause 失败原因
+     */
+    protected void handleDeliveryFailure(Point point, Throwable cause) {
+        writePointLogger.error("上报数据异常, point = {}", point, cause);
+        try {
+            if (this.diskBuffer != null) {
+                // 数据已处理过, 直接缓存
+                this.bufferPoint(point);
+            } else {
+                this.dataHandlerOnConnectionLost.accept(point);
+            }
+        } catch (DataSenderException e) {
+            writePointLogger.error("上报数据: 发送失败的数据处理失败, point = {}", point, e);
+        }
+    }
+
+    /**
+     * 在独立线程中执行 {@link #handleDeliveryFailure(Point, Throwable)}.
+     * <br>
+     * 用于消息组件的发送回调. 回调通常运行在消息组件的 I/O 线程中, 在该线程中执行数据处理策略(如写入磁盘缓存)会阻塞后续消息的收发.
+     * 未初始化或已关闭时在当前线程中处理
+     *
+     * @param point 发送失败的数据
+     * @param cause 失败原因
+     */
+    protected void handleDeliveryFailureAsync(Point point, Throwable cause) {
+        ExecutorService executor = this.deliveryFailureExecutor;
+        if (executor != null) {
+            try {
+                executor.execute(() -> this.handleDeliveryFailure(point, cause));
+                return;
+            } catch (RejectedExecutionException ignored) {
+                // 已关闭, 在当前线程中处理
+            }
+        }
+        this.handleDeliveryFailure(point, cause);
+    }
+
+    @Override
+    public List<WritePointResult> writePoints(Collection<Point> points) {
+        if (CollectionUtils.isEmpty(points)) {
+            return Collections.emptyList();
+        }
+
+        // 异步上报时, 只将数据放入队列中
+        if (this.pointDispatcher != null) {
+            List<WritePointResult> results = new ArrayList<>(points.size());
+            for (Point point : points) {
+                try {
+                    this.writePoint(point);
+                    results.add(WritePointResult.success(point));
+                } catch (Exception e) {
+                    results.add(WritePointResult.failure(point, e));
+                }
+            }
+            return results;
+        }
+
+        return this.handleAndWritePoints(points);
+    }
+
+    /**
+     * 异步上报时, 在分片线程中批量处理并发送数据
+     */
+    private void writePointBatch(List<Point> points) {
+        for (WritePointResult result : this.handleAndWritePoints(points)) {
+            if (!result.isSuccess()) {
+                writePointLogger.error("异步上报: 上报数据失败, point = {}", result.getPoint(), result.getError());
+            }
+        }
+    }
+
+    /**
+     * 对数据执行数据处理, 并将处理后的数据批量发送
+     *
+     * @param points 采集到的原始数据列表
+     * @return 每条数据的上报结果
+     */
+    private List<WritePointResult> handleAndWritePoints(Collection<Point> points) {
+        WritePointResult[] results = new WritePointResult[points.size()];
+        List<Point> originPoints = new ArrayList<>(points.size());
+        List<Point> newPoints = new ArrayList<>(points.size());
+        int[] indexes = new int[points.size()];
+
+        boolean running = this.isRunning();
+        int index = 0;
+        for (Point point : points) {
+            try {
+                if (point == null || CollectionUtils.isEmpty(point.getFields())) {
+                    writePointLogger.debug("上报数据: 无数据点信息, {}", point);
+                    results[index] = WritePointResult.success(point);
+                } else if (!running) {
+                    this.dataHandlerOnConnectionLost.accept(point);
+                    results[index] = WritePointResult.success(point);
+                } else {
+                    Point newPoint = this.handleAndAggregatePoint(point);
+                    if (newPoint == null) {
+                        results[index] = WritePointResult.success(point);
+                    } else {
+                        indexes[newPoints.size()] = index;
+                        originPoints.add(point);
+                        newPoints.add(newPoint);
+                    }
+                }
+            } catch (Exception e) {
+                results[index] = WritePointResult.failure(point, e);
+            }
+            index++;
+        }
+
+        if (!newPoints.isEmpty()) {
+            List<WritePointResult> sendResults = this.doWritePoints(newPoints);
+            for (int i = 0; i < newPoints.size(); i++) {
+                WritePointResult sendResult = sendResults.get(i);
+                if (!sendResult.isSuccess() && this.diskBuffer != null) {
+                    try {
+                        this.bufferPoint(newPoints.get(i));
+                        sendResult = WritePointResult.success(newPoints.get(i));
+                    } catch (DataSenderException e) {
+                        e.addSuppressed(sendResult.getError());
+                        sendResult = WritePointResult.failure(newPoints.get(i), e);
+                    }
+                }
+                results[indexes[i]] = sendResult.isSuccess()
+                        ? WritePointResult.success(originPoints.get(i))
+                        : WritePointResult.failure(originPoints.get(i), sendResult.getError());
+            }
+        }
+
+        return Arrays.asList(results);
+    }
+
+    /**
+     * 发送聚合后的数据, 在聚合上报的时间轮线程中调用. 发送失败的数据交由 {@link #handleDeliveryFailure(Point, Throwable)} 处理
+     */
+    private void writeAggregatedPoints(List<Point> aggregatedPoints) {
+        List<Point> points = new ArrayList<>(aggregatedPoints.size());
+        for (Point point : aggregatedPoints) {
+            Point newPoint = this.chain.filterUnchanged(point);
+            if (newPoint != null) {
+                points.add(newPoint);
+            }
+        }
+        if (points.isEmpty()) {
+            return;
+        }
+
+        List<WritePointResult> results;
+        try {
+            results = this.doWritePoints(points);
+        } catch (Exception e) {
+            for (Point point : points) {
+                this.handleDeliveryFailure(point, e);
+            }
+            return;
+        }
+        for (WritePointResult result : results) {
+            if (!result.isSuccess()) {
+                this.handleDeliveryFailure(result.getPoint(), result.getError());
+            }
+        }
+    }
+
+    /**
+     * 异步上报队列已满时, 溢出的数据交由连接断开时的数据处理策略处理
+     */
+    private void onPointOverflow(Point point) {
+        writePointLogger.debug("异步上报: 队列已满, 溢出数据 {}", point);
+        this.dataHandlerOnConnectionLost.accept(point);
+    }
+
+    /**
+     * 执行数据处理, 开启聚合上报时将处理后的数据放入聚合窗口, 最后过滤掉值未变化的数据点
+     * <br>
+     * 聚合在变化上报之前执行, 窗口内的每个值都参与聚合, 聚合后的结果再按变化上报过滤
+     *
+     * @param point 采集到的原始数据
+     * @return 需要立即发送的数据. 如果没有需要立即发送的数据点则返回 {@code null}
+     */
+    private Point handleAndAggregatePoint(Point point) {
+        Point newPoint = this.handlePoint(point);
+        if (newPoint != null && this.pointAggregator != null) {
+            newPoint = this.pointAggregator.aggregate(newPoint);
+        }
+        return newPoint == null ? null : this.chain.filterUnchanged(newPoint);
+    }
+
+    /**
+     * 填充 table 信息并执行数据处理
+     *
+     * @param point 采集到的原始数据
+     * @return 处理后的数据, 未过滤值未变化的数据点. 如果处理后数据点列表为空则返回 {@code null}
+     * @throws DataSenderException 如果未找到设备所属的表或者数据处理失败
+     * @see DataHandlerChain#handleValues(Point)
+     */
+    private Point handlePoint(Point point) {
         // 如果未提供 table 信息则自动填充
         if (!StringUtils.hasText(point.getTable())) {
-            Optional<DeviceInfo<? extends Tag>> deviceInfo = this.globalContext.getDevice(point.getId());
-            if (!deviceInfo.isPresent()) {
+            DeviceInfo<? extends Tag> deviceInfo = this.globalContext.getDeviceOrNull(point.getId());
+            if (deviceInfo == null) {
                 throw new DataSenderException(point, "填充 Point.table 信息失败, 未找到设备 '" + point.getId() + "' 的信息");
             }
-            point.setTable(deviceInfo.get().getTableId());
+            point.setTable(deviceInfo.getTableId());
         }
 
         String tableId = point.getTable();
         String deviceId = point.getId();
 
-        LoggerContext context = LoggerContexts.push();
-        context.withTable(tableId);
+        // 未开启 warn 级别的日志时不创建日志上下文, 数据处理失败的日志单独创建上下文
+        boolean withContext = writePointLogger.isWarnEnabled();
+        if (withContext) {
+            LoggerContexts.push().withTable(tableId);
+        }
 
         Point newPoint = null;
 
         try {
-            newPoint = this.chain.handle(point);
+            // 被丢弃的数据点只统计数据处理的结果, 因值未变化而不上报的数据点不计入
+            newPoint = this.chain.handleValues(point);
             writePointLogger.debug("采集数据处理: 原始数据: {}, 处理后数据: {}", point, newPoint);
 
+            if (newPoint == null) {
+                return null;
+            }
             if (CollectionUtils.isEmpty(newPoint.getFields())) {
                 writePointLogger.warn("采集数据处理: 处理后数据点列表为空, 原始数据: {}, 处理后数据: {}", point, newPoint);
-                return;
+                return null;
             }
 
-            if (point.getFields().size() > newPoint.getFields().size()) {
-                writePointLogger.debug("采集数据处理: 数据处理后数据点数量减少, table={}, device={}, 由 {} 减少到 {}. 处理前: {}, 处理后: {}",
-                        tableId, deviceId, point.getFields().size(), newPoint.getFields().size(), point, newPoint);
-
-                // 处理后剩余的数据点列表
-                Set<String> retainFields = newPoint.getFields().stream()
-                        .filter(Objects::nonNull)
-                        .filter(field -> field.getTag() != null)
-                        .map(field -> field.getTag().getId())
-                        .collect(Collectors.toSet());
-
-                Map<String, Object> droppedFields = new HashMap<>(point.getFields().size() - newPoint.getFields().size());
-                for (Field<?> field : point.getFields()) {
-                    if (field == null || field.getTag() == null) {
-                        writePointLogger.warn("采集数据处理: 数据点的 field 或 tag 信息为 null, point = {}, field = {}", point, field);
-                        continue;
-                    }
-
-                    if (!retainFields.contains(field.getTag().getId())) {
-                        droppedFields.put(field.getTag().getId(), field.getValue());
-                    }
-                }
-
-                writePointLogger.warn("采集数据处理: 处理后部分数据点数据被丢弃, table={}, device={}, dropped = {}",
-                        tableId, deviceId, droppedFields);
-            } else if (point.getFields().size() < newPoint.getFields().size()) {
-                writePointLogger.debug("采集数据处理: 数据处理后数据点数量增加, table={}, device={}, 由 {} 增加到 {}. 处理前: {}, 处理后: {}",
-                        tableId, deviceId, point.getFields().size(), newPoint.getFields().size(), point, newPoint);
-
-                // 处理前的数据点列表
-                Set<String> oldFields = point.getFields().stream()
-                        .filter(Objects::nonNull)
-                        .filter(field -> field.getTag() != null)
-                        .map(field -> field.getTag().getId())
-                        .collect(Collectors.toSet());
-
-                Map<String, Object> addedFields = new HashMap<>(newPoint.getFields().size() - point.getFields().size());
-                for (Field<?> field : newPoint.getFields()) {
-                    if (field == null || field.getTag() == null) {
-                        writePointLogger.warn("采集数据处理: 数据点的 field 或 tag 信息为 null, point = {}, field = {}", point, field);
-                        continue;
-                    }
-
-                    if (!oldFields.contains(field.getTag().getId())) {
-                        addedFields.put(field.getTag().getId(), field.getValue());
-                    }
+            int before = point.getFields().size();
+            int after = newPoint.getFields().size();
+            if (before != after && withContext) {
+                if (this.pointTracer.shouldTrace(deviceId)) {
+                    this.traceChangedFields(tableId, deviceId, point, newPoint);
+                } else if (before > after) {
+                    writePointLogger.warn("采集数据处理: 处理后部分数据点数据被丢弃, table={}, device={}, 由 {} 减少到 {}",
+                            tableId, deviceId, before, after);
+                } else {
+                    writePointLogger.warn("采集数据处理: 处理后增加了数据点, table={}, device={}, 由 {} 增加到 {}",
+                            tableId, deviceId, before, after);
                 }
-
-                writePointLogger.warn("采集数据处理: 处理后增加了数据点, table={}, device={}, added = {}", tableId, deviceId, addedFields);
             }
         } catch (Exception e) {
-            writePointLogger.error("采集数据处理: 数据处理失败, point = {}", point, e);
+            if (withContext) {
+                writePointLogger.error("采集数据处理: 数据处理失败, point = {}", point, e);
+            } else {
+                this.logWithTable(tableId, () -> writePointLogger.error("采集数据处理: 数据处理失败, point = {}", point, e));
+            }
             throw new DataSenderException(point, "数据处理失败", e);
         } finally {
-            LoggerContexts.pop();
+            if (withContext) {
+                LoggerContexts.pop();
+            }
         }
 
+        return newPoint;
+    }
+
+    /**
+     * 记录开启跟踪的设备在数据处理后被丢弃或新增的数据点及其值
+     *
+     * @see PointTracer
+     */
+    private void traceChangedFields(String tableId, String deviceId, Point point, Point newPoint) {
+        int before = point.getFields().size();
+        int after = newPoint.getFields().size();
+        boolean dropped = before > after;
+
+        writePointLogger.warn("采集数据处理: 数据处理后数据点数量{}, table={}, device={}, 由 {} 变为 {}. 处理前: {}, 处理后: {}",
+                dropped ? "减少" : "增加", tableId, deviceId, before, after, point, newPoint);
+
+        // 数量减少时查找处理后不存在的数据点, 数量增加时查找处理前不存在的数据点
+        Point source = dropped ? point : newPoint;
+        Point target = dropped ? newPoint : point;
+        Set<String> targetFields = target.getFields().stream()
+                .filter(Objects::nonNull)
+                .filter(field -> field.getTag() != null)
+                .map(field -> field.getTag().getId())
+                .collect(Collectors.toSet());
+
+        Map<String, Object> changedFields = new HashMap<>(Math.abs(before - after));
+        for (Field<?> field : source.getFields()) {
+            if (field == null || field.getTag() == null) {
+                writePointLogger.warn("采集数据处理: 数据点的 field 或 tag 信息为 null, point = {}, field = {}", point, field);
+                continue;
+            }
+
+            if (!targetFields.contains(field.getTag().getId())) {
+                changedFields.put(field.getTag().getId(), field.getValue());
+            }
+        }
+
+        if (dropped) {
+            writePointLogger.warn("采集数据处理: 处理后部分数据点数据被丢弃, table={}, device={}, dropped = {}",
+                    tableId, deviceId, changedFields);
+        } else {
+            writePointLogger.warn("采集数据处理: 处理后增加了数据点, table={}, device={}, added = {}", tableId, deviceId, changedFields);
+        }
+    }
+
+    /**
+     * 在指定表的日志上下文中记录日志. 用于数据上报过程中未创建日志上下文时的异常等低频日志
+     */
+    private void logWithTable(String tableId, Runnable log) {
+        LoggerContexts.push().withTable(tableId);
         try {
-            this.doWritePoint(newPoint);
-        } catch (Exception e) {
-            writePointLogger.error("上报数据异常, point = {}", newPoint, e);
-            throw new DataSenderException(point, "上报数据异常", e);
+            log.run();
+        } finally {
+            LoggerContexts.pop();
         }
     }
 
@@ -479,6 +966,72 @@ public abstract class AbstractDataSender implements DataSender, InitializingBean
      */
     public abstract void doWritePoint(Point point) throws Exception;
 
+    /**
+     * 异步发送数据
+     * <br>
+     * 默认同步调用 {@link #doWritePoint(Point)} 并返回已完成的 {@link CompletableFuture}, 支持异步发送的实现类可覆盖该方法
+     *
+     * @param point 处理后的数据
+     * @return 发送结果
+     */
+    protected CompletableFuture<Void> doWritePointAsync(Point point) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        try {
+            this.doWritePoint(point);
+            future.complete(null);
+        } catch (Exception e) {
+            writePointLogger.error("上报数据异常, point = {}", point, e);
+            future.completeExceptionally(new DataSenderException(point, "上报数据异常", e));
+        }
+        return future;
+    }
+
+    /**
+     * 是否支持重新发送缓存的数据, 即是否实现了 {@link #doWritePayload(String, String, byte[])}.
+     * <br>
+     * 不支持时, 不能使用 {@link DriverDataProperties.DataHandlePolicyOnConnectLost#BUFFER} 策略
+     *
+     * @return 如果支持返回 {@code true}
+     */
+    protected boolean supportsPayloadReplay() {
+        return false;
+    }
+
+    /**
+     * 发送编码后的数据. 用于连接恢复后重新发送缓存的数据
+     * <br>
+     * 实现该方法时需要同时覆盖 {@link #supportsPayloadReplay()} 并返回 {@code true}
+     *
+     * @param tableId  表标识
+     * @param deviceId 设备编号
+     * @param payload  编码后的数据
+     * @throws Exception 如果发送数据时发生异常
+     */
+    protected void doWritePayload(String tableId, String deviceId, byte[] payload) throws Exception {
+        throw new UnsupportedOperationException(this.getClass().getName() + " 不支持发送缓存的数据");
+    }
+
+    /**
+     * 批量发送数据
+     * <br>
+     * 默认逐条调用 {@link #doWritePoint(Point)}, 实现类可根据所使用的消息组件覆盖该方法
+     *
+     * @param points 处理后的数据列表
+     * @return 每条数据的发送结果, 顺序及数量与 {@code points} 一致
+     */
+    protected List<WritePointResult> doWritePoints(List<Point> points) {
+        List<WritePointResult> results = new ArrayList<>(points.size());
+        for (Point point : points) {
+            try {
+                this.doWritePoint(point);
+                results.add(WritePointResult.success(point));
+            } catch (Exception e) {
+                results.add(WritePointResult.failure(point, new DataSenderException(point, "上报数据异常", e)));
+            }
+        }
+        return results;
+    }
+
     /**
      * 发送日志
      *
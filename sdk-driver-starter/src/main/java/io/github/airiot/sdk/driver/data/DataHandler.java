@@ -46,6 +46,38 @@ public interface DataHandler extends Ordered {
         return value != null && tag != null;
     }
 
+    /**
+     * 根据数据点配置判断当前处理器是否可能处理该数据点的数据. 该方法的结果只能依赖数据点的配置信息, 不能依赖采集到的数据.
+     * <br>
+     * 处理链会在数据点第一次上报数据时调用该方法并缓存结果, 驱动重新加载配置后重新判断.
+     * 返回 {@code false} 时, 该数据点的数据不再调用 {@link #supports(String, String, Tag, Object)} 和
+     * {@link #handle(String, String, Tag, Object)}. 默认返回 {@code true}
+     *
+     * @param tableId  设备所属表标识
+     * @param deviceId 设备ID
+     * @param tag      数据点信息
+     * @return 如果当前处理器不可能处理该数据点的数据则返回 {@code false}
+     */
+    default <T extends Tag> boolean supportsTag(String tableId, String deviceId, T tag) {
+        return true;
+    }
+
+    /**
+     * 根据数据点配置预先计算处理该数据点的数据时需要的信息, 例如: 由数据点配置换算出的系数. 该方法的结果只能依赖数据点的配置信息.
+     * <br>
+     * 处理链会在 {@link #supportsTag(String, String, Tag)} 返回 {@code true} 时调用该方法并与数据点一起缓存结果,
+     * 驱动重新加载配置后重新计算. 之后处理该数据点的数据时, 通过 {@link #handle(String, String, Tag, Object, Object)} 传入该结果.
+     * 默认返回 {@code null}
+     *
+     * @param tableId  设备所属表标识
+     * @param deviceId 设备ID
+     * @param tag      数据点信息
+     * @return 预先计算的信息
+     */
+    default <T extends Tag> Object compileTag(String tableId, String deviceId, T tag) {
+        return null;
+    }
+
     /**
      * 对采集到的数据进行处理, 并返回处理后的结果
      *
@@ -56,4 +88,19 @@ public interface DataHandler extends Ordered {
      * @return 处理后的结果数据. 如果返回结果为 {@code null} 或空集合则表示丢弃该数据点的数据, 即不上报给平台.
      */
     <T extends Tag> Map<String, Object> handle(String tableId, String deviceId, T tag, Object value);
+
+    /**
+     * 使用 {@link #compileTag(String, String, Tag)} 预先计算的信息对采集到的数据进行处理. 默认忽略预先计算的信息,
+     * 直接调用 {@link #handle(String, String, Tag, Object)}
+     *
+     * @param tableId  设备所属表标识
+     * @param deviceId 设备ID
+     * @param tag      数据点信息
+     * @param value    采集到的数据
+     * @param compiled {@link #compileTag(String, String, Tag)} 的结果
+     * @return 处理后的结果数据. 如果返回结果为 {@code null} 或空集合则表示丢弃该数据点的数据, 即不上报给平台.
+     */
+    default <T extends Tag> Map<String, Object> handle(String tableId, String deviceId, T tag, Object value, Object compiled) {
+        return this.handle(tableId, deviceId, tag, value);
+    }
 }
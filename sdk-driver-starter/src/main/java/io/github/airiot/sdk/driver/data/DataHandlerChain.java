@@ -42,8 +42,28 @@ public interface DataHandlerChain {
      * 依次执行所有的处理器对一个资产下所有采集到的数据进行处理, 并返回最终处理结果
      *
      * @param point 资产采集到的数据
-     * @return 处理后的结果数据
+     * @return 处理后的结果数据. 如果返回结果为 {@code null} 则表示没有需要上报的数据点
      */
     Point handle(Point point);
 
+    /**
+     * 只执行数据处理, 不过滤值未变化的数据点. 与 {@link #filterUnchanged(Point)} 一起使用时等同于 {@link #handle(Point)}
+     *
+     * @param point 资产采集到的数据
+     * @return 处理后的结果数据. 如果返回结果为 {@code null} 则表示处理后所有数据点的数据都被丢弃
+     */
+    default Point handleValues(Point point) {
+        return this.handle(point);
+    }
+
+    /**
+     * 变化上报, 过滤掉处理后值未变化的数据点
+     *
+     * @param point 由 {@link #handleValues(Point)} 处理后的数据
+     * @return 需要上报的数据. 如果返回结果为 {@code null} 则表示所有数据点的值均未变化
+     */
+    default Point filterUnchanged(Point point) {
+        return point;
+    }
+
 }
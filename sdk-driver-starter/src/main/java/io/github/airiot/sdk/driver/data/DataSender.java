@@ -28,7 +28,11 @@ import io.github.airiot.sdk.driver.model.RunLog;
 import io.github.airiot.sdk.driver.model.UpdateTableDTO;
 import org.springframework.context.SmartLifecycle;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 
 /**
@@ -50,6 +54,47 @@ public interface DataSender extends SmartLifecycle {
      */
     void writePoint(Point point) throws DataSenderException;
 
+    /**
+     * 批量上报驱动采集到的数据
+     * <br>
+     * 单条数据上报失败不会影响其它数据的上报, 每条数据的上报结果通过返回值获取.
+     *
+     * @param points 数据点列表
+     * @return 每条数据的上报结果, 顺序与 {@code points} 的遍历顺序一致
+     */
+    default List<WritePointResult> writePoints(Collection<Point> points) {
+        List<WritePointResult> results = new ArrayList<>(points.size());
+        for (Point point : points) {
+            try {
+                this.writePoint(point);
+                results.add(WritePointResult.success(point));
+            } catch (Exception e) {
+                results.add(WritePointResult.failure(point, e));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * 异步上报驱动采集到的数据
+     * <br>
+     * 如果消息组件支持异步发送, 则在数据放入发送缓冲区后立即返回, 发送结果通过返回的 {@link CompletableFuture} 通知.
+     * 否则同步发送后返回已完成的 {@link CompletableFuture}.
+     *
+     * @param point 数据点
+     * @return 发送结果. 如果发送失败则以 {@link DataSenderException} 异常结束
+     */
+    default CompletableFuture<Void> writePointAsync(Point point) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        try {
+            this.writePoint(point);
+            future.complete(null);
+        } catch (Exception e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
     /**
      * 上报资产采集到的数据. 部分信息会自动填充
      *
@@ -32,4 +32,8 @@ public class DataSenderException extends RuntimeException {
         super(message, cause);
         this.point = point;
     }
+
+    public Point getPoint() {
+        return point;
+    }
 }
@@ -17,23 +17,48 @@
 
 package io.github.airiot.sdk.driver.data;
 
+import io.github.airiot.sdk.driver.DeviceInfo;
+import io.github.airiot.sdk.driver.DriverConfigDelta;
 import io.github.airiot.sdk.driver.data.handlers.*;
+import io.github.airiot.sdk.driver.event.DriverReloadApplicationEvent;
+import io.github.airiot.sdk.driver.model.Deadband;
 import io.github.airiot.sdk.driver.model.Field;
 import io.github.airiot.sdk.driver.model.Point;
 import io.github.airiot.sdk.driver.model.Tag;
 import io.github.airiot.sdk.logger.LoggerFactory;
 import io.github.airiot.sdk.logger.driver.DriverModules;
 import org.slf4j.Logger;
+import org.springframework.context.ApplicationListener;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Collectors;
 
-public class DefaultDataHandlerChain implements DataHandlerChain {
+public class DefaultDataHandlerChain implements DataHandlerChain, ApplicationListener<DriverReloadApplicationEvent> {
 
     private final Logger logger = LoggerFactory.withContext().module(DriverModules.WRITE_POINTS).getStaticLogger(AbstractDataSender.class);
 
     private final TagValueCache tagValueCache;
     private final List<DataHandler> handlers = new ArrayList<>();
+    /**
+     * 各数据点适用的数据处理功能. tableId -> deviceId -> tagId -> 编译结果
+     */
+    private final Map<String, Map<String, Map<String, CompiledTag>>> compiledTags = new ConcurrentHashMap<>();
+    private volatile boolean metricsEnabled = false;
+    /**
+     * 变化上报的默认配置
+     */
+    private volatile Deadband reportOnChange = new Deadband(false, 0d, 0d, 0L);
+    /**
+     * 因值未变化而未上报的次数
+     */
+    private final LongAdder suppressed = new LongAdder();
+    /**
+     * 默认数据处理功能是否使用 {@link java.math.BigDecimal} 精确计算
+     */
+    private final boolean exactDecimal;
 
     public DefaultDataHandlerChain(TagValueCache tagValueCache, List<DataHandler> handlers) {
         this(tagValueCache, handlers, true);
@@ -46,7 +71,17 @@ public class DefaultDataHandlerChain implements DataHandlerChain {
      * @param registerDefaults 是否启用平台默认数据处理功能. 如果设置为 {@code false} 则不启用.
      */
     public DefaultDataHandlerChain(TagValueCache tagValueCache, List<DataHandler> handlers, boolean registerDefaults) {
+        this(tagValueCache, handlers, registerDefaults, false);
+    }
+
+    /**
+     * @param handlers         自定义数据处理功能
+     * @param registerDefaults 是否启用平台默认数据处理功能. 如果设置为 {@code false} 则不启用.
+     * @param exactDecimal     默认的 <b>数值转换</b>, <b>小数位数</b> 和 <b>缩放比例</b> 功能是否使用 {@link java.math.BigDecimal} 精确计算
+     */
+    public DefaultDataHandlerChain(TagValueCache tagValueCache, List<DataHandler> handlers, boolean registerDefaults, boolean exactDecimal) {
         this.tagValueCache = tagValueCache;
+        this.exactDecimal = exactDecimal;
         if (registerDefaults) {
             this.registerDefaultHandlers();
         }
@@ -54,8 +89,8 @@ public class DefaultDataHandlerChain implements DataHandlerChain {
         this.handlers.sort(Comparator.comparing(DataHandler::getOrder));
 
         Logger logger = LoggerFactory.withContext().module(DriverModules.START).getStaticLogger(DefaultDataHandlerChain.class);
-        logger.info("数据处理 Chain: 是否注册默认数据处理功能: {}, 自定义数据处理功能: {}",
-                registerDefaults,
+        logger.info("数据处理 Chain: 是否注册默认数据处理功能: {}, 是否精确计算: {}, 自定义数据处理功能: {}",
+                registerDefaults, exactDecimal,
                 handlers.stream().map(handler -> handler.getClass().getName()).collect(Collectors.toList())
         );
 
@@ -76,8 +111,8 @@ public class DefaultDataHandlerChain implements DataHandlerChain {
      * 6. 将 byte[] 转换为 hex 字符串
      */
     public void registerDefaultHandlers() {
-        this.handlers.add(new ConvertValueHandler());
-        this.handlers.add(new RoundAndScaleValueHandler());
+        this.handlers.add(new ConvertValueHandler(16, this.exactDecimal));
+        this.handlers.add(new RoundAndScaleValueHandler(this.exactDecimal));
         this.handlers.add(new RangeValueHandler(this.tagValueCache));
         this.handlers.add(new RangeValueHandlerV2(this.tagValueCache));
         this.handlers.add(new InvalidRangeValueHandler(this.tagValueCache));
@@ -85,54 +120,224 @@ public class DefaultDataHandlerChain implements DataHandlerChain {
         this.handlers.add(new ByteArrayToHexHandler());
     }
 
+    @Override
+    public void onApplicationEvent(DriverReloadApplicationEvent event) {
+        if (event.isFull()) {
+            // 数据点配置可能已变化, 重新编译
+            this.compiledTags.clear();
+            return;
+        }
+
+        // 配置有变化的数据点对象已被替换, 处理时会重新编译. 这里只清除已删除的设备和数据点
+        DriverConfigDelta delta = event.getDelta();
+        for (String tableId : delta.getRemovedTables()) {
+            this.compiledTags.remove(tableId);
+        }
+        for (DeviceInfo<? extends Tag> device : delta.getRemovedDevices()) {
+            Map<String, Map<String, CompiledTag>> devices = this.compiledTags.get(device.getTableId());
+            if (devices != null) {
+                devices.remove(device.getId());
+            }
+        }
+        for (DeviceInfo<? extends Tag> device : delta.getChangedDevices()) {
+            Map<String, Map<String, CompiledTag>> devices = this.compiledTags.get(device.getTableId());
+            Map<String, CompiledTag> tags = devices == null ? null : devices.get(device.getId());
+            if (tags != null) {
+                tags.keySet().removeAll(delta.getChangedTags(device.getTableId(), device.getId()));
+            }
+        }
+    }
+
+    /**
+     * 是否统计每个数据点的处理耗时
+     */
+    public boolean isMetricsEnabled() {
+        return metricsEnabled;
+    }
+
+    public void setMetricsEnabled(boolean metricsEnabled) {
+        this.metricsEnabled = metricsEnabled;
+    }
+
+    /**
+     * 设置变化上报的默认配置, 数据点上的配置优先. 已编译的数据点需要在重新加载配置后生效
+     *
+     * @see Deadband
+     */
+    public void setReportOnChange(Deadband reportOnChange) {
+        this.reportOnChange = Objects.requireNonNull(reportOnChange, "reportOnChange");
+    }
+
+    public Deadband getReportOnChange() {
+        return reportOnChange;
+    }
+
+    /**
+     * 获取因值未变化而未上报的数据点数量
+     */
+    public long getSuppressedCount() {
+        return this.suppressed.sum();
+    }
+
+    /**
+     * 获取各数据点的处理统计信息. 只有开启统计后才有数据
+     *
+     * @return 各数据点的处理次数及耗时
+     */
+    public List<TagMetrics> getTagMetrics() {
+        List<TagMetrics> metrics = new ArrayList<>();
+        for (Map<String, Map<String, CompiledTag>> devices : this.compiledTags.values()) {
+            for (Map<String, CompiledTag> tags : devices.values()) {
+                for (CompiledTag compiled : tags.values()) {
+                    if (compiled.count.sum() > 0) {
+                        metrics.add(compiled.metrics());
+                    }
+                }
+            }
+        }
+        return metrics;
+    }
+
+    /**
+     * 获取设备下所有数据点的编译结果
+     */
+    private Map<String, CompiledTag> getCompiledTags(String tableId, String deviceId) {
+        return this.compiledTags
+                .computeIfAbsent(tableId == null ? "" : tableId, k -> new ConcurrentHashMap<>())
+                .computeIfAbsent(deviceId == null ? "" : deviceId, k -> new ConcurrentHashMap<>());
+    }
+
+    /**
+     * 获取数据点的编译结果, 即该数据点适用的数据处理功能. 如果数据点信息已变化则重新编译
+     */
+    private CompiledTag compile(Map<String, CompiledTag> compiledTags, String tableId, String deviceId, Tag tag) {
+        CompiledTag compiled = compiledTags.get(tag.getId());
+        if (compiled != null && compiled.tag == tag) {
+            return compiled;
+        }
+
+        List<DataHandler> applicable = new ArrayList<>(this.handlers.size());
+        List<Object> states = new ArrayList<>(this.handlers.size());
+        for (DataHandler handler : this.handlers) {
+            if (handler.supportsTag(tableId, deviceId, tag)) {
+                applicable.add(handler);
+                states.add(handler.compileTag(tableId, deviceId, tag));
+            }
+        }
+        compiled = new CompiledTag(tableId, deviceId, tag, applicable.toArray(new DataHandler[0]), states.toArray(),
+                TagDeadband.of(this.reportOnChange, tag));
+        compiledTags.put(tag.getId(), compiled);
+
+        logger.debug("数据处理: 编译数据点处理功能, tableId = {}, deviceId = {}, tag = {}, handlers = {}",
+                tableId, deviceId, tag.getId(), compiled.handlerNames());
+        return compiled;
+    }
+
     @Override
     public <T extends Tag> Map<String, Object> handle(String tableId, String deviceId, T tag, Object value) {
-        if (handlers.isEmpty()) {
+        CompiledTag compiled = this.compile(this.getCompiledTags(tableId, deviceId), tableId, deviceId, tag);
+        Result result = this.handle(compiled, tableId, deviceId, value);
+        if (result == null) {
+            if (this.isUnchanged(compiled, value)) {
+                return new HashMap<>(2);
+            }
             return Collections.singletonMap(tag.getId(), value);
         }
 
-        Map<String, Object> finalValues = new HashMap<>(2);
-        finalValues.put(tag.getId(), value);
+        Map<String, Object> finalValues = result.extras == null ? new HashMap<>(2) : result.extras;
+        if (result.present && !this.isUnchanged(compiled, result.value)) {
+            finalValues.put(tag.getId(), result.value);
+        }
+        return finalValues;
+    }
 
-        for (DataHandler handler : handlers) {
-            Object tagValue = finalValues.get(tag.getId());
+    /**
+     * 依次执行数据点适用的数据处理功能
+     *
+     * @return 处理结果. 如果没有任何处理功能修改数据点的值则返回 {@code null}
+     */
+    private Result handle(CompiledTag compiled, String tableId, String deviceId, Object value) {
+        Tag tag = compiled.tag;
+        String tagId = tag.getId();
+        if (compiled.handlers.length == 0) {
+            this.tagValueCache.put(tableId, deviceId, tagId, value);
+            return null;
+        }
+
+        long startTime = this.metricsEnabled ? System.nanoTime() : 0;
+
+        Result result = new Result(value);
+        for (int i = 0; i < compiled.handlers.length; i++) {
+            DataHandler handler = compiled.handlers[i];
+            Object tagValue = result.present ? result.value : null;
             if (!handler.supports(tableId, deviceId, tag, tagValue)) {
-                logger.trace("数据处理: 跳过 [{}] 数据处理功能, tableId = {}, deviceId = {}, tag = {}, value = {}",
-                        handler.getClass().getName(), tableId, deviceId, tag, tagValue);
+                if (logger.isTraceEnabled()) {
+                    logger.trace("数据处理: 跳过 [{}] 数据处理功能, tableId = {}, deviceId = {}, tag = {}, value = {}",
+                            handler.getClass().getName(), tableId, deviceId, tag, tagValue);
+                }
                 continue;
             }
-            
-            Map<String, Object> newValue = handler.handle(tableId, deviceId, tag, tagValue);
+
+            Map<String, Object> newValue = handler.handle(tableId, deviceId, tag, tagValue, compiled.states[i]);
             if (newValue == null || newValue.isEmpty()) {
                 logger.info("数据处理: 数据处理功能 [{}] 返回结果为 null, 中断数据处理. tableId = {}, deviceId = {}, tag = {}, value = {}",
                         handler.getClass().getName(), tableId, deviceId, tag, value);
-                finalValues.remove(tag.getId());
+                result.present = false;
+                result.value = null;
                 break;
             }
 
-            finalValues.putAll(newValue);
             // 如果处理后的结果中不包含数据点, 则说明数据点的值被丢弃
-            if (!newValue.containsKey(tag.getId())) {
-                finalValues.remove(tag.getId());
+            result.present = newValue.containsKey(tagId);
+            result.value = newValue.get(tagId);
+            if (newValue.size() > (result.present ? 1 : 0)) {
+                if (result.extras == null) {
+                    result.extras = new HashMap<>(4);
+                }
+                for (Map.Entry<String, Object> entry : newValue.entrySet()) {
+                    if (!tagId.equals(entry.getKey())) {
+                        result.extras.put(entry.getKey(), entry.getValue());
+                    }
+                }
             }
         }
 
+        if (this.metricsEnabled) {
+            compiled.record(System.nanoTime() - startTime);
+        }
+
         // 更新数据点最新有效值缓存
-        if (finalValues.containsKey(tag.getId())) {
-            this.tagValueCache.put(tableId, deviceId, tag.getId(), finalValues.get(tag.getId()));
+        if (result.present) {
+            this.tagValueCache.put(tableId, deviceId, tagId, result.value);
         }
 
-        return finalValues;
+        return result;
+    }
+
+    /**
+     * 变化上报, 判断数据点的值是否未变化而无须上报
+     *
+     * @return 如果开启了变化上报并且值未变化则返回 {@code true}
+     */
+    private boolean isUnchanged(CompiledTag compiled, Object value) {
+        if (compiled.deadband == null || compiled.deadband.shouldReport(value, System.currentTimeMillis())) {
+            return false;
+        }
+        this.suppressed.increment();
+        return true;
     }
 
     @Override
     public Point handle(Point point) {
-        if (handlers.isEmpty()) {
-            return point;
-        }
+        Point newPoint = this.handleValues(point);
+        return newPoint == null ? null : this.filterUnchanged(newPoint);
+    }
 
+    @Override
+    public Point handleValues(Point point) {
         String tableId = point.getTable();
         String deviceId = point.getId();
+        Map<String, CompiledTag> compiledTags = this.getCompiledTags(tableId, deviceId);
         List<Field<? extends Tag>> finalFields = new ArrayList<>(point.getFields().size());
         for (Field<? extends Tag> field : point.getFields()) {
             if (field == null || field.getTag() == null) {
@@ -140,18 +345,23 @@ public class DefaultDataHandlerChain implements DataHandlerChain {
                 continue;
             }
 
-            Map<String, Object> newValue = this.handle(tableId, deviceId, field.getTag(), field.getValue());
-            if (newValue == null || newValue.isEmpty()) {
+            Tag tag = field.getTag();
+            CompiledTag compiled = this.compile(compiledTags, tableId, deviceId, tag);
+            Result result = this.handle(compiled, tableId, deviceId, field.getValue());
+
+            // 必须创建新的 Field 对象, 如果直接修改可能会影响驱动中数据
+            if (result == null) {
+                finalFields.add(new Field<>(tag, field.getValue()));
                 continue;
             }
 
-            for (Map.Entry<String, Object> entry : newValue.entrySet()) {
-                if (entry.getKey().equals(field.getTag().getId())) {
-                    // 必须创建新的 Field 对象, 如果直接修改可能会影响驱动中数据
-                    finalFields.add(new Field<>(field.getTag(), entry.getValue()));
-                    continue;
+            if (result.present) {
+                finalFields.add(new Field<>(tag, result.value));
+            }
+            if (result.extras != null) {
+                for (Map.Entry<String, Object> entry : result.extras.entrySet()) {
+                    finalFields.add(new Field<>(new Tag(entry.getKey(), entry.getKey(), null, null, null, null), entry.getValue()));
                 }
-                finalFields.add(new Field<>(new Tag(entry.getKey(), entry.getKey(), null, null, null, null), entry.getValue()));
             }
         }
 
@@ -160,14 +370,202 @@ public class DefaultDataHandlerChain implements DataHandlerChain {
             return null;
         }
 
+        return copyOf(point, finalFields);
+    }
+
+    @Override
+    public Point filterUnchanged(Point point) {
+        String tableId = point.getTable();
+        String deviceId = point.getId();
+        Map<String, CompiledTag> compiledTags = this.getCompiledTags(tableId, deviceId);
+        List<Field<? extends Tag>> finalFields = null;
+        List<Field<? extends Tag>> fields = point.getFields();
+        for (int i = 0; i < fields.size(); i++) {
+            Field<? extends Tag> field = fields.get(i);
+            // 只对已编译的数据点判断, 处理过程中新增的数据点总是上报
+            CompiledTag compiled = field == null || field.getTag() == null ? null : compiledTags.get(field.getTag().getId());
+            boolean unchanged = compiled != null && compiled.tag == field.getTag() && this.isUnchanged(compiled, field.getValue());
+            if (unchanged && finalFields == null) {
+                finalFields = new ArrayList<>(fields.subList(0, i));
+            } else if (!unchanged && finalFields != null) {
+                finalFields.add(field);
+            }
+        }
+
+        if (finalFields == null) {
+            return point;
+        }
+        if (finalFields.isEmpty()) {
+            logger.debug("数据处理: 该设备所有数据点的值均未变化, 无须上报. tableId = {}, deviceId = {}", tableId, deviceId);
+            return null;
+        }
+        return copyOf(point, finalFields);
+    }
+
+    private static Point copyOf(Point point, List<Field<? extends Tag>> fields) {
         Point newPoint = new Point();
-        newPoint.setTable(tableId);
-        newPoint.setId(deviceId);
+        newPoint.setTable(point.getTable());
+        newPoint.setId(point.getId());
         newPoint.setCid(point.getCid());
-        newPoint.setFields(finalFields);
+        newPoint.setFields(fields);
         newPoint.setTime(point.getTime());
         newPoint.setFieldTypes(point.getFieldTypes());
-
         return newPoint;
     }
+
+    /**
+     * 单个数据点的处理结果
+     */
+    private static class Result {
+        /**
+         * 数据点处理后的值
+         */
+        private Object value;
+        /**
+         * 数据点的值是否仍需要上报
+         */
+        private boolean present = true;
+        /**
+         * 处理过程中新增的其它数据点的值
+         */
+        private Map<String, Object> extras;
+
+        Result(Object value) {
+            this.value = value;
+        }
+    }
+
+    /**
+     * 数据点的编译结果, 即该数据点适用的数据处理功能
+     */
+    private static class CompiledTag {
+        private final String tableId;
+        private final String deviceId;
+        private final Tag tag;
+        private final DataHandler[] handlers;
+        /**
+         * 各数据处理功能根据数据点配置预先计算的信息, 与 {@link #handlers} 一一对应
+         */
+        private final Object[] states;
+        /**
+         * 变化上报状态. 未开启变化上报时为 {@code null}
+         */
+        private final TagDeadband deadband;
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        CompiledTag(String tableId, String deviceId, Tag tag, DataHandler[] handlers, Object[] states, TagDeadband deadband) {
+            this.tableId = tableId;
+            this.deviceId = deviceId;
+            this.tag = tag;
+            this.handlers = handlers;
+            this.states = states;
+            this.deadband = deadband;
+        }
+
+        void record(long nanos) {
+            this.count.increment();
+            this.totalNanos.add(nanos);
+            this.maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        List<String> handlerNames() {
+            List<String> names = new ArrayList<>(this.handlers.length);
+            for (DataHandler handler : this.handlers) {
+                names.add(handler.getClass().getSimpleName());
+            }
+            return names;
+        }
+
+        TagMetrics metrics() {
+            return new TagMetrics(this.tableId, this.deviceId, this.tag.getId(), this.handlerNames(),
+                    this.count.sum(), this.totalNanos.sum(), this.maxNanos.get());
+        }
+    }
+
+    /**
+     * 数据点处理统计信息
+     */
+    public static class TagMetrics {
+        private final String tableId;
+        private final String deviceId;
+        private final String tagId;
+        /**
+         * 该数据点适用的数据处理功能
+         */
+        private final List<String> handlers;
+        /**
+         * 处理次数
+         */
+        private final long count;
+        /**
+         * 总耗时, 单位: 纳秒
+         */
+        private final long totalNanos;
+        /**
+         * 最大耗时, 单位: 纳秒
+         */
+        private final long maxNanos;
+
+        public TagMetrics(String tableId, String deviceId, String tagId, List<String> handlers,
+                          long count, long totalNanos, long maxNanos) {
+            this.tableId = tableId;
+            this.deviceId = deviceId;
+            this.tagId = tagId;
+            this.handlers = handlers;
+            this.count = count;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+        }
+
+        public String getTableId() {
+            return tableId;
+        }
+
+        public String getDeviceId() {
+            return deviceId;
+        }
+
+        public String getTagId() {
+            return tagId;
+        }
+
+        public List<String> getHandlers() {
+            return handlers;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        /**
+         * 平均耗时, 单位: 纳秒
+         */
+        public long getAvgNanos() {
+            return count == 0 ? 0 : totalNanos / count;
+        }
+
+        @Override
+        public String toString() {
+            return "TagMetrics{" +
+                    "tableId='" + tableId + '\'' +
+                    ", deviceId='" + deviceId + '\'' +
+                    ", tagId='" + tagId + '\'' +
+                    ", handlers=" + handlers +
+                    ", count=" + count +
+                    ", avgNanos=" + getAvgNanos() +
+                    ", maxNanos=" + maxNanos +
+                    '}';
+        }
+    }
 }
@@ -0,0 +1,67 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.github.airiot.sdk.driver.data;
+
+import io.github.airiot.sdk.driver.DeviceInfo;
+import io.github.airiot.sdk.driver.GlobalContext;
+import io.github.airiot.sdk.driver.model.Tag;
+
+import java.util.function.BiFunction;
+
+/**
+ * 按设备缓存由模型表标识和设备标识计算得到的值, 例如: 上报数据时使用的 topic 或 routing key.
+ * <br>
+ * 缓存的值作为附加数据保存在 {@link DeviceInfo} 上, 驱动重新加载配置后随设备信息一同失效, 无需单独清理.
+ * 不在当前配置中的设备不缓存, 每次调用时重新计算.
+ *
+ * @param <V> 缓存值的类型
+ * @see DeviceInfo#computeAttachmentIfAbsent(Object, java.util.function.Function)
+ */
+public final class DeviceKeyCache<V> {
+
+    private final GlobalContext globalContext;
+    /**
+     * 根据模型表标识和设备标识计算缓存值
+     */
+    private final BiFunction<String, String, V> factory;
+
+    public DeviceKeyCache(GlobalContext globalContext, BiFunction<String, String, V> factory) {
+        this.globalContext = globalContext;
+        this.factory = factory;
+    }
+
+    /**
+     * 获取设备对应的缓存值, 如果不存在则计算并缓存
+     *
+     * @param tableId  模型表标识
+     * @param deviceId 设备标识
+     * @return 缓存值
+     */
+    public V get(String tableId, String deviceId) {
+        if (tableId == null || deviceId == null || deviceId.isEmpty()) {
+            return this.factory.apply(tableId, deviceId);
+        }
+        DeviceInfo<? extends Tag> device = this.globalContext.getDeviceOrNull(tableId, deviceId);
+        if (device == null) {
+            return this.factory.apply(tableId, deviceId);
+        }
+        // 以当前对象作为附加数据的标识, 不同的缓存之间互不影响
+        return device.computeAttachmentIfAbsent(this, d -> this.factory.apply(tableId, deviceId));
+    }
+}
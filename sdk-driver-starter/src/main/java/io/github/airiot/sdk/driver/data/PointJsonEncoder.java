@@ -0,0 +1,414 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.airiot.sdk.driver.data;
+
+import com.google.gson.Gson;
+import io.github.airiot.sdk.driver.model.Field;
+import io.github.airiot.sdk.driver.model.FieldType;
+import io.github.airiot.sdk.driver.model.Point;
+import io.github.airiot.sdk.driver.model.Tag;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link Point} JSON 编码器
+ * <br>
+ * 生成的内容与 {@link PointSerializationAdapter} 完全一致, 但直接写入线程内复用的字节缓冲区,
+ * 不生成中间 {@link String}. 整数直接按位写入, 常量片段与数据点标识均预先编码.
+ * 非基本类型的值仍交由 {@link Gson} 序列化.
+ */
+public class PointJsonEncoder {
+
+    /**
+     * 缓冲区的最大保留容量, 超过该容量的缓冲区使用后会被释放
+     */
+    private static final int MAX_BUFFER_SIZE = 64 * 1024;
+    /**
+     * 数据点标识编码缓存的最大数量
+     */
+    private static final int MAX_NAME_CACHE_SIZE = 100_000;
+
+    private static final byte[] FIELDS_START = ascii("{\"fields\":{");
+    private static final byte[] SOURCE = ascii("},\"source\":\"device\"");
+    private static final byte[] CID = ascii(",\"cid\":");
+    private static final byte[] TIME = ascii(",\"time\":");
+    private static final byte[] FIELD_TYPES = ascii(",\"fieldTypes\":{");
+    private static final byte[] TRUE = ascii("true");
+    private static final byte[] FALSE = ascii("false");
+    private static final byte[] MIN_LONG = ascii(Long.toString(Long.MIN_VALUE));
+    private static final byte[] HEX = ascii("0123456789abcdef");
+
+    /**
+     * 需要转义的 ASCII 字符, 与 Gson 开启 htmlSafe 时的转义规则一致
+     */
+    private static final byte[][] ESCAPES = new byte[128][];
+
+    static {
+        for (int c = 0; c < 0x20; c++) {
+            ESCAPES[c] = ascii(String.format("\\u%04x", c));
+        }
+        ESCAPES['"'] = ascii("\\\"");
+        ESCAPES['\\'] = ascii("\\\\");
+        ESCAPES['\t'] = ascii("\\t");
+        ESCAPES['\b'] = ascii("\\b");
+        ESCAPES['\n'] = ascii("\\n");
+        ESCAPES['\r'] = ascii("\\r");
+        ESCAPES['\f'] = ascii("\\f");
+        ESCAPES['<'] = ascii("\\u003c");
+        ESCAPES['>'] = ascii("\\u003e");
+        ESCAPES['&'] = ascii("\\u0026");
+        ESCAPES['='] = ascii("\\u003d");
+        ESCAPES['\''] = ascii("\\u0027");
+    }
+
+    /**
+     * 各数据类型编码后的值, 如 {@code "integer"}
+     */
+    private static final Map<FieldType, byte[]> FIELD_TYPE_VALUES = new EnumMap<>(FieldType.class);
+
+    static {
+        for (FieldType type : FieldType.values()) {
+            FIELD_TYPE_VALUES.put(type, ascii("\"" + type.getValue() + "\""));
+        }
+    }
+
+    private final Gson gson = new Gson();
+    /**
+     * 数据点标识编码缓存. key 为数据点标识, value 为 {@code "标识":}
+     */
+    private final Map<String, byte[]> names = new ConcurrentHashMap<>();
+    private final ThreadLocal<Output> buffers = ThreadLocal.withInitial(() -> new Output(1024));
+
+    /**
+     * 对数据编码
+     *
+     * @param point 数据
+     * @return 编码后的字节数组
+     */
+    public byte[] encode(Point point) {
+        Output out = this.buffers.get();
+        out.reset();
+        this.write(point, out);
+        byte[] payload = out.toByteArray();
+        // 避免长期持有过大的缓冲区
+        if (out.capacity() > MAX_BUFFER_SIZE) {
+            this.buffers.remove();
+        }
+        return payload;
+    }
+
+    /**
+     * 将数据编码后写入到缓冲区中
+     *
+     * @param point 数据
+     * @param out   缓冲区
+     */
+    public void write(Point point, Output out) {
+        out.write(FIELDS_START);
+
+        List<Field<? extends Tag>> fields = point.getFields();
+        if (fields != null && !fields.isEmpty()) {
+            boolean first = true;
+            for (Field<? extends Tag> field : fields) {
+                if (field.getTag() == null) {
+                    continue;
+                }
+
+                Object value = field.getValue();
+                if (value == null) {
+                    continue;
+                }
+
+                String json = null;
+                if (!isPrimitive(value)) {
+                    json = this.gson.toJson(value);
+                    if ("null".equals(json)) {
+                        continue;
+                    }
+                }
+
+                if (!first) {
+                    out.write((byte) ',');
+                }
+                first = false;
+                out.write(this.name(field.getTag().getId()));
+
+                if (json != null) {
+                    writeUtf8(out, json);
+                } else {
+                    writeValue(out, value);
+                }
+            }
+        }
+
+        out.write(SOURCE);
+        if (point.getCid() != null) {
+            out.write(CID);
+            writeString(out, point.getCid());
+        }
+        out.write(TIME);
+        writeLong(out, point.getTime());
+
+        Map<String, FieldType> fieldTypes = point.getFieldTypes();
+        if (fieldTypes != null && !fieldTypes.isEmpty()) {
+            out.write(FIELD_TYPES);
+            boolean first = true;
+            for (Map.Entry<String, FieldType> entry : fieldTypes.entrySet()) {
+                if (!first) {
+                    out.write((byte) ',');
+                }
+                first = false;
+                out.write(this.name(entry.getKey()));
+                out.write(FIELD_TYPE_VALUES.get(entry.getValue()));
+            }
+            out.write((byte) '}');
+        }
+
+        out.write((byte) '}');
+    }
+
+    private byte[] name(String name) {
+        byte[] encoded = this.names.get(name);
+        if (encoded != null) {
+            return encoded;
+        }
+
+        Output out = new Output(name.length() + 8);
+        writeString(out, name);
+        out.write((byte) ':');
+        encoded = out.toByteArray();
+        if (this.names.size() < MAX_NAME_CACHE_SIZE) {
+            this.names.put(name, encoded);
+        }
+        return encoded;
+    }
+
+    private static boolean isPrimitive(Object value) {
+        return value instanceof Number || value instanceof String || value instanceof Boolean;
+    }
+
+    private static void writeValue(Output out, Object value) {
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            writeLong(out, ((Number) value).longValue());
+        } else if (value instanceof Double) {
+            writeDouble(out, (Double) value);
+        } else if (value instanceof Float) {
+            writeFloat(out, (Float) value);
+        } else if (value instanceof Number) {
+            writeAscii(out, value.toString());
+        } else if (value instanceof Boolean) {
+            out.write((Boolean) value ? TRUE : FALSE);
+        } else {
+            writeString(out, (String) value);
+        }
+    }
+
+    /**
+     * 写入整数, 不生成中间字符串
+     */
+    static void writeLong(Output out, long value) {
+        if (value == Long.MIN_VALUE) {
+            out.write(MIN_LONG);
+            return;
+        }
+        if (value < 0) {
+            out.write((byte) '-');
+            value = -value;
+        }
+
+        int digits = 1;
+        for (long v = value; v >= 10; v /= 10) {
+            digits++;
+        }
+        out.ensureCapacity(digits);
+        int end = out.size + digits;
+        for (int i = end - 1; i >= out.size; i--) {
+            out.buf[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        out.size = end;
+    }
+
+    /**
+     * 写入双精度浮点数. 格式与 {@link Double#toString(double)} 一致,
+     * 常见的整数值直接按位写入, 其它值使用 {@link Double#toString(double)}
+     */
+    static void writeDouble(Output out, double value) {
+        if (value == (long) value && Math.abs(value) < 1e7 && Double.doubleToRawLongBits(value) != Double.doubleToRawLongBits(-0.0)) {
+            writeLong(out, (long) value);
+            out.write((byte) '.');
+            out.write((byte) '0');
+            return;
+        }
+        writeAscii(out, Double.toString(value));
+    }
+
+    /**
+     * 写入单精度浮点数. 格式与 {@link Float#toString(float)} 一致
+     */
+    static void writeFloat(Output out, float value) {
+        if (value == (long) value && Math.abs(value) < 1e7f && Float.floatToRawIntBits(value) != Float.floatToRawIntBits(-0.0f)) {
+            writeLong(out, (long) value);
+            out.write((byte) '.');
+            out.write((byte) '0');
+            return;
+        }
+        writeAscii(out, Float.toString(value));
+    }
+
+    private static void writeAscii(Output out, String value) {
+        int length = value.length();
+        out.ensureCapacity(length);
+        for (int i = 0; i < length; i++) {
+            out.buf[out.size++] = (byte) value.charAt(i);
+        }
+    }
+
+    /**
+     * 写入 JSON 字符串, 转义规则与 Gson 开启 htmlSafe 时一致
+     */
+    static void writeString(Output out, String value) {
+        out.write((byte) '"');
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                byte[] escape = ESCAPES[c];
+                if (escape != null) {
+                    out.write(escape);
+                } else {
+                    out.write((byte) c);
+                }
+            } else if (c == '\u2028' || c == '\u2029') {
+                out.write((byte) '\\');
+                out.write((byte) 'u');
+                out.write(HEX[(c >> 12) & 0xF]);
+                out.write(HEX[(c >> 8) & 0xF]);
+                out.write(HEX[(c >> 4) & 0xF]);
+                out.write(HEX[c & 0xF]);
+            } else {
+                i = writeUtf8Char(out, value, i, c);
+            }
+        }
+        out.write((byte) '"');
+    }
+
+    /**
+     * 写入已经是 JSON 格式的字符串
+     */
+    private static void writeUtf8(Output out, String value) {
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                out.write((byte) c);
+            } else {
+                i = writeUtf8Char(out, value, i, c);
+            }
+        }
+    }
+
+    /**
+     * 写入非 ASCII 字符的 UTF-8 编码. 无法配对的代理字符写为 {@code ?}, 与 {@link String#getBytes} 一致
+     *
+     * @return 最后处理的字符位置
+     */
+    private static int writeUtf8Char(Output out, String value, int i, char c) {
+        out.ensureCapacity(4);
+        byte[] buf = out.buf;
+        if (c < 0x800) {
+            buf[out.size++] = (byte) (0xC0 | (c >> 6));
+            buf[out.size++] = (byte) (0x80 | (c & 0x3F));
+        } else if (Character.isSurrogate(c)) {
+            if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, value.charAt(++i));
+                buf[out.size++] = (byte) (0xF0 | (cp >> 18));
+                buf[out.size++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                buf[out.size++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                buf[out.size++] = (byte) (0x80 | (cp & 0x3F));
+            } else {
+                buf[out.size++] = (byte) '?';
+            }
+        } else {
+            buf[out.size++] = (byte) (0xE0 | (c >> 12));
+            buf[out.size++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+            buf[out.size++] = (byte) (0x80 | (c & 0x3F));
+        }
+        return i;
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * 可复用的字节缓冲区
+     */
+    public static class Output {
+        private byte[] buf;
+        private int size;
+
+        public Output(int initialCapacity) {
+            this.buf = new byte[Math.max(16, initialCapacity)];
+        }
+
+        public void reset() {
+            this.size = 0;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public int capacity() {
+            return this.buf.length;
+        }
+
+        public byte[] toByteArray() {
+            return Arrays.copyOf(this.buf, this.size);
+        }
+
+        public void write(byte b) {
+            if (this.size == this.buf.length) {
+                this.grow(1);
+            }
+            this.buf[this.size++] = b;
+        }
+
+        public void write(byte[] bytes) {
+            this.ensureCapacity(bytes.length);
+            System.arraycopy(bytes, 0, this.buf, this.size, bytes.length);
+            this.size += bytes.length;
+        }
+
+        public void ensureCapacity(int additional) {
+            if (this.size + additional > this.buf.length) {
+                this.grow(additional);
+            }
+        }
+
+        private void grow(int additional) {
+            this.buf = Arrays.copyOf(this.buf, Math.max(this.buf.length << 1, this.size + additional));
+        }
+    }
+}
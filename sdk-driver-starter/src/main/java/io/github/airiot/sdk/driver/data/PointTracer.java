@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.github.airiot.sdk.driver.data;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 上报数据诊断跟踪
+ * <br>
+ * 数据处理后数据点数量变化时, 默认只记录变化的数量. 只有开启跟踪的设备才会计算并记录具体被丢弃或新增的数据点及其值.
+ * <br>
+ * 为避免高频采集的设备产生大量日志, 可以设置采样间隔, 即每 {@code sampling} 条数据跟踪一次.
+ * 未开启任何设备的跟踪时, {@link #shouldTrace(String)} 不做任何查找.
+ */
+public final class PointTracer {
+
+    private final Map<String, AtomicLong> devices = new ConcurrentHashMap<>();
+    private final int sampling;
+    private volatile boolean enabled;
+
+    /**
+     * @param devices  需要跟踪的设备标识
+     * @param sampling 采样间隔, 小于等于 1 时跟踪每一条数据
+     */
+    public PointTracer(Collection<String> devices, int sampling) {
+        this.sampling = Math.max(1, sampling);
+        if (devices != null) {
+            devices.forEach(this::enable);
+        }
+    }
+
+    /**
+     * 开启设备的跟踪
+     *
+     * @param deviceId 设备标识
+     */
+    public synchronized void enable(String deviceId) {
+        this.devices.putIfAbsent(deviceId, new AtomicLong());
+        this.enabled = true;
+    }
+
+    /**
+     * 关闭设备的跟踪
+     *
+     * @param deviceId 设备标识
+     */
+    public synchronized void disable(String deviceId) {
+        this.devices.remove(deviceId);
+        this.enabled = !this.devices.isEmpty();
+    }
+
+    /**
+     * 当前开启跟踪的设备
+     */
+    public Set<String> getDevices() {
+        return this.devices.keySet();
+    }
+
+    public int getSampling() {
+        return sampling;
+    }
+
+    /**
+     * 判断是否需要跟踪设备的本条数据
+     *
+     * @param deviceId 设备标识
+     * @return 如果设备开启了跟踪且本条数据被采样则返回 {@code true}
+     */
+    public boolean shouldTrace(String deviceId) {
+        if (!this.enabled || deviceId == null) {
+            return false;
+        }
+        AtomicLong counter = this.devices.get(deviceId);
+        return counter != null && (this.sampling == 1 || counter.getAndIncrement() % this.sampling == 0);
+    }
+}
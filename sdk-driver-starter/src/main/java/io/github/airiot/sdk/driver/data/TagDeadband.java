@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.github.airiot.sdk.driver.data;
+
+import io.github.airiot.sdk.driver.model.Deadband;
+import io.github.airiot.sdk.driver.model.Tag;
+
+import java.util.Objects;
+
+/**
+ * 数据点的变化上报状态, 记录上一次上报的值和时间
+ * <br>
+ * 数值类型的值以 {@code double} 存储, 判断时不创建新对象.
+ *
+ * @see Deadband
+ */
+final class TagDeadband {
+
+    /**
+     * 绝对死区. 小于或等于 {@code 0} 时不按绝对值判断
+     */
+    private final double absolute;
+    /**
+     * 百分比死区. 小于或等于 {@code 0} 时不按百分比判断
+     */
+    private final double percent;
+    /**
+     * 最长不上报时间, 单位: 毫秒. 小于或等于 {@code 0} 时不限制
+     */
+    private final long maxSilentMillis;
+
+    /**
+     * 是否已上报过
+     */
+    private boolean reported = false;
+    /**
+     * 上一次上报的值是否为数值
+     */
+    private boolean numeric;
+    private double lastNumber;
+    private Object lastValue;
+    private long lastReportTime;
+
+    TagDeadband(double absolute, double percent, long maxSilentMillis) {
+        this.absolute = absolute;
+        this.percent = percent;
+        this.maxSilentMillis = maxSilentMillis;
+    }
+
+    /**
+     * 根据默认配置和数据点上的配置创建变化上报状态
+     *
+     * @param defaults 默认配置
+     * @param tag      数据点信息
+     * @return 变化上报状态. 如果该数据点未开启变化上报则返回 {@code null}
+     */
+    static TagDeadband of(Deadband defaults, Tag tag) {
+        Deadband config = tag.getDeadband();
+        boolean enabled = pick(config == null ? null : config.getEnabled(), defaults.getEnabled(), false);
+        if (!enabled) {
+            return null;
+        }
+        double absolute = pick(config == null ? null : config.getAbsolute(), defaults.getAbsolute(), 0d);
+        double percent = pick(config == null ? null : config.getPercent(), defaults.getPercent(), 0d);
+        long maxSilentSeconds = pick(config == null ? null : config.getMaxSilentSeconds(), defaults.getMaxSilentSeconds(), 0L);
+        return new TagDeadband(absolute, percent, maxSilentSeconds * 1000);
+    }
+
+    private static <T> T pick(T value, T defaultValue, T fallback) {
+        if (value != null) {
+            return value;
+        }
+        return defaultValue != null ? defaultValue : fallback;
+    }
+
+    /**
+     * 判断是否需要上报该值. 需要上报时记录该值作为下一次判断的基准
+     *
+     * @param value 处理后的值
+     * @param now   当前时间, 毫秒时间戳
+     * @return 如果需要上报则返回 {@code true}
+     */
+    synchronized boolean shouldReport(Object value, long now) {
+        boolean report;
+        if (!this.reported) {
+            report = true;
+        } else if (this.maxSilentMillis > 0 && now - this.lastReportTime >= this.maxSilentMillis) {
+            report = true;
+        } else if (this.numeric && value instanceof Number) {
+            report = this.exceeds(((Number) value).doubleValue());
+        } else {
+            report = this.numeric || !Objects.deepEquals(value, this.lastValue);
+        }
+
+        if (report) {
+            this.reported = true;
+            this.lastReportTime = now;
+            if (value instanceof Number) {
+                this.numeric = true;
+                this.lastNumber = ((Number) value).doubleValue();
+                this.lastValue = null;
+            } else {
+                this.numeric = false;
+                this.lastValue = value;
+            }
+        }
+        return report;
+    }
+
+    private boolean exceeds(double value) {
+        if (Double.isNaN(value) || Double.isNaN(this.lastNumber)) {
+            return Double.compare(value, this.lastNumber) != 0;
+        }
+
+        double diff = Math.abs(value - this.lastNumber);
+        boolean byAbsolute = this.absolute > 0;
+        boolean byPercent = this.percent > 0;
+        if (!byAbsolute && !byPercent) {
+            return diff != 0;
+        }
+        return (byAbsolute && diff > this.absolute)
+                || (byPercent && diff > Math.abs(this.lastNumber) * this.percent / 100);
+    }
+}
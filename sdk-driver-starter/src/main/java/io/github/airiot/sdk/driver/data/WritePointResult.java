@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.airiot.sdk.driver.data;
+
+import io.github.airiot.sdk.driver.model.Point;
+
+/**
+ * 批量上报数据时, 单条数据的上报结果
+ *
+ * @see DataSender#writePoints(java.util.Collection)
+ */
+public class WritePointResult {
+
+    /**
+     * 上报的数据
+     */
+    private final Point point;
+    /**
+     * 失败原因. 上报成功时为 {@code null}
+     */
+    private final Throwable error;
+
+    private WritePointResult(Point point, Throwable error) {
+        this.point = point;
+        this.error = error;
+    }
+
+    public static WritePointResult success(Point point) {
+        return new WritePointResult(point, null);
+    }
+
+    public static WritePointResult failure(Point point, Throwable error) {
+        return new WritePointResult(point, error);
+    }
+
+    public Point getPoint() {
+        return point;
+    }
+
+    public Throwable getError() {
+        return error;
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    @Override
+    public String toString() {
+        return "WritePointResult{" +
+                "point=" + point +
+                ", success=" + isSuccess() +
+                ", error=" + error +
+                '}';
+    }
+}
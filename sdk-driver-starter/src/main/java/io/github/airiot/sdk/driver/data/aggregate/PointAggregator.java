@@ -0,0 +1,520 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.github.airiot.sdk.driver.data.aggregate;
+
+import io.github.airiot.sdk.driver.DeviceInfo;
+import io.github.airiot.sdk.driver.DriverConfigDelta;
+import io.github.airiot.sdk.driver.DriverModules;
+import io.github.airiot.sdk.driver.configuration.properties.DriverDataProperties;
+import io.github.airiot.sdk.driver.configuration.properties.DriverDataProperties.AggregateFunction;
+import io.github.airiot.sdk.driver.configuration.properties.DriverDataProperties.AggregationRule;
+import io.github.airiot.sdk.driver.event.DriverReloadApplicationEvent;
+import io.github.airiot.sdk.driver.model.Field;
+import io.github.airiot.sdk.driver.model.FieldType;
+import io.github.airiot.sdk.driver.model.Point;
+import io.github.airiot.sdk.driver.model.Tag;
+import io.github.airiot.sdk.logger.LoggerFactory;
+import org.slf4j.Logger;
+import org.springframework.context.ApplicationListener;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * 按时间窗口聚合上报的数据
+ * <br>
+ * 数据处理后的值按 设备 + 子设备 + 窗口长度 汇总, 每个数据点在窗口内的最小值、最大值、总和、数量及最后一个值保存在基本类型数组中.
+ * 窗口结束时, 每个设备生成一条 {@link Point}, 数据点的值为按配置的聚合方式计算的结果, 时间为窗口的开始时间.
+ * <br>
+ * 窗口按数据的采集时间 {@link Point#getTime()} 划分, 未提供采集时间时使用当前时间. 采集时间超出当前窗口的数据会立即结束当前窗口,
+ * 早于当前窗口的迟到数据不再聚合, 直接上报.
+ * <br>
+ * 所有设备的窗口由同一个 {@link TimerWheel} 驱动, 窗口在收到第一条数据后经过窗口长度结束. 同一刻度内结束的窗口合并为一批交由 {@code emitter} 发送.
+ * <br>
+ * 驱动配置重新加载时, 已删除的表和设备的窗口会立即发送并清除.
+ *
+ * @see DriverDataProperties.Aggregation
+ */
+public class PointAggregator implements ApplicationListener<DriverReloadApplicationEvent> {
+
+    private final Logger log = LoggerFactory.withContext().module(DriverModules.WRITE_POINTS).getStaticLogger(PointAggregator.class);
+
+    /**
+     * 数据点不聚合
+     */
+    private static final Rule NONE = new Rule(0, null);
+
+    private final DriverDataProperties.Aggregation properties;
+    private final Consumer<List<Point>> emitter;
+    private final LongSupplier clock;
+    private final TimerWheel<Expiry> timer;
+    private final Rule defaultRule;
+
+    /**
+     * 数据点的聚合配置缓存. tableId -> tagId -> rule
+     */
+    private final ConcurrentMap<String, ConcurrentMap<String, Rule>> rules = new ConcurrentHashMap<>();
+    private final ConcurrentMap<SeriesKey, Series> series = new ConcurrentHashMap<>();
+
+    private final LongAdder aggregated = new LongAdder();
+    private final LongAdder emitted = new LongAdder();
+
+    /**
+     * @param properties 聚合配置
+     * @param emitter    发送聚合后数据的方法, 在时间轮线程中调用
+     */
+    public PointAggregator(DriverDataProperties.Aggregation properties, Consumer<List<Point>> emitter) {
+        this(properties, emitter, System::currentTimeMillis);
+    }
+
+    PointAggregator(DriverDataProperties.Aggregation properties, Consumer<List<Point>> emitter, LongSupplier clock) {
+        this.properties = properties;
+        this.emitter = emitter;
+        this.clock = clock;
+        this.defaultRule = new Rule(toMillis(properties.getWindow()),
+                properties.getFunction() == null ? AggregateFunction.AVG : properties.getFunction());
+
+        long tick = Math.max(1, toMillis(properties.getTick()));
+        this.timer = new TimerWheel<>("PointAggregator-Timer", tick, 512, this::expire);
+    }
+
+    public void start() {
+        this.timer.start();
+        log.info("聚合上报: 已启动, {}", this.properties);
+    }
+
+    /**
+     * 停止时间轮, 并立即发送所有未结束窗口中的数据
+     */
+    public void stop() {
+        this.timer.stop();
+        this.flush();
+    }
+
+    /**
+     * 将数据放入所属设备的当前窗口
+     *
+     * @param point 数据处理后的数据
+     * @return 不需要聚合的数据点组成的数据, 需要立即发送. 如果所有数据点均已聚合则返回 {@code null}
+     */
+    public Point aggregate(Point point) {
+        List<Field<? extends Tag>> fields = point.getFields();
+        String tableId = point.getTable() == null ? "" : point.getTable();
+        long now = this.clock.getAsLong();
+        long time = point.getTime() == 0 ? now : point.getTime();
+
+        List<Field<? extends Tag>> passthrough = null;
+        int count = 0;
+        Series current = null;
+        for (int i = 0; i < fields.size(); i++) {
+            Field<? extends Tag> field = fields.get(i);
+            if (field == null || field.getTag() == null || field.getValue() == null) {
+                continue;
+            }
+
+            Rule rule = this.getRule(tableId, field.getTag().getId());
+            if (rule != NONE && (current == null || current.window != rule.window)) {
+                current = this.series.computeIfAbsent(new SeriesKey(tableId, point.getId(), point.getCid(), rule.window), Series::new);
+            }
+
+            long deadline = 0;
+            Point ended = null;
+            boolean late = rule == NONE;
+            if (!late) {
+                synchronized (current) {
+                    late = current.isLate(time);
+                    if (!late) {
+                        // 新数据已超出当前窗口, 立即结束当前窗口. 当前窗口的定时任务到期后不再处理
+                        if (current.isEnded(time)) {
+                            ended = current.drain(0);
+                        }
+                        deadline = current.add(field.getTag(), rule.function, field.getValue(), point.getFieldTypes(), time);
+                    }
+                }
+            }
+
+            if (late) {
+                if (passthrough == null) {
+                    passthrough = new ArrayList<>(fields.size() - i);
+                }
+                passthrough.add(field);
+                continue;
+            }
+
+            if (ended != null) {
+                this.emit(Collections.singletonList(ended));
+            }
+            if (deadline > 0) {
+                // 窗口按采集时间划分, 按收到数据的时间计时
+                this.timer.schedule(new Expiry(current, deadline), now + (deadline - time));
+            }
+            count++;
+        }
+
+        if (count == 0) {
+            return point;
+        }
+
+        this.aggregated.add(count);
+        if (passthrough == null) {
+            return null;
+        }
+        return new Point(point.getId(), point.getCid(), point.getTable(), point.getTime(), passthrough, point.getFieldTypes());
+    }
+
+    /**
+     * 立即发送所有未结束窗口中的数据
+     */
+    public void flush() {
+        List<Point> points = new ArrayList<>();
+        for (Series s : this.series.values()) {
+            Point point = s.drain(0);
+            if (point != null) {
+                points.add(point);
+            }
+        }
+        this.emit(points);
+    }
+
+    /**
+     * 驱动配置重新加载时, 发送并清除已删除的表和设备的窗口, 清除数据点的聚合配置缓存
+     */
+    @Override
+    public void onApplicationEvent(DriverReloadApplicationEvent event) {
+        this.rules.clear();
+
+        DriverConfigDelta delta = event.isFull() ? null : event.getDelta();
+        Set<String> removedTables = delta == null ? Collections.emptySet() : new HashSet<>(delta.getRemovedTables());
+        Set<String> removedDevices = new HashSet<>();
+        if (delta != null) {
+            for (DeviceInfo<? extends Tag> device : delta.getRemovedDevices()) {
+                removedDevices.add(device.getTableId() + "/" + device.getId());
+            }
+        }
+
+        List<Point> points = new ArrayList<>();
+        for (SeriesKey key : this.series.keySet()) {
+            if (delta != null && !removedTables.contains(key.tableId) && !removedDevices.contains(key.tableId + "/" + key.deviceId)) {
+                continue;
+            }
+            Series s = this.series.remove(key);
+            Point point = s == null ? null : s.drain(0);
+            if (point != null) {
+                points.add(point);
+            }
+        }
+        this.emit(points);
+    }
+
+    /**
+     * 已聚合的数据点的值的数量
+     */
+    public long getAggregatedCount() {
+        return this.aggregated.sum();
+    }
+
+    /**
+     * 聚合后发送的数据数量
+     */
+    public long getEmittedCount() {
+        return this.emitted.sum();
+    }
+
+    /**
+     * 当前窗口的数量, 即 设备 + 子设备 + 窗口长度 的组合数量
+     */
+    public int getSeriesCount() {
+        return this.series.size();
+    }
+
+    private void expire(List<Expiry> expired) {
+        List<Point> points = new ArrayList<>(expired.size());
+        for (Expiry expiry : expired) {
+            Point point = expiry.series.drain(expiry.deadline);
+            if (point != null) {
+                points.add(point);
+            }
+        }
+        this.emit(points);
+    }
+
+    private void emit(List<Point> points) {
+        if (points.isEmpty()) {
+            return;
+        }
+
+        log.debug("聚合上报: 发送 {} 条聚合数据", points.size());
+        this.emitted.add(points.size());
+        this.emitter.accept(points);
+    }
+
+    private Rule getRule(String tableId, String tagId) {
+        ConcurrentMap<String, Rule> tableRules = this.rules.get(tableId);
+        if (tableRules == null) {
+            tableRules = this.rules.computeIfAbsent(tableId, k -> new ConcurrentHashMap<>());
+        }
+        Rule rule = tableRules.get(tagId);
+        if (rule == null) {
+            rule = tableRules.computeIfAbsent(tagId, k -> this.resolveRule(tableId, tagId));
+        }
+        return rule;
+    }
+
+    private Rule resolveRule(String tableId, String tagId) {
+        long window = this.defaultRule.window;
+        AggregateFunction function = this.defaultRule.function;
+
+        for (AggregationRule rule : Arrays.asList(
+                this.properties.getTables() == null ? null : this.properties.getTables().get(tableId),
+                this.properties.getTags() == null ? null : this.properties.getTags().get(tagId))) {
+            if (rule == null) {
+                continue;
+            }
+            if (rule.getWindow() != null) {
+                window = toMillis(rule.getWindow());
+            }
+            if (rule.getFunction() != null) {
+                function = rule.getFunction();
+            }
+        }
+
+        return window > 0 ? new Rule(window, function) : NONE;
+    }
+
+    private static long toMillis(Duration duration) {
+        return duration == null || duration.isNegative() ? 0 : duration.toMillis();
+    }
+
+    private static final class Rule {
+        private final long window;
+        private final AggregateFunction function;
+
+        private Rule(long window, AggregateFunction function) {
+            this.window = window;
+            this.function = function;
+        }
+    }
+
+    private static final class Expiry {
+        private final Series series;
+        private final long deadline;
+
+        private Expiry(Series series, long deadline) {
+            this.series = series;
+            this.deadline = deadline;
+        }
+    }
+
+    private static final class SeriesKey {
+        private final String tableId;
+        private final String deviceId;
+        private final String childDeviceId;
+        private final long window;
+
+        private SeriesKey(String tableId, String deviceId, String childDeviceId, long window) {
+            this.tableId = tableId;
+            this.deviceId = deviceId;
+            this.childDeviceId = childDeviceId;
+            this.window = window;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof SeriesKey)) return false;
+            SeriesKey that = (SeriesKey) o;
+            return window == that.window && tableId.equals(that.tableId)
+                    && Objects.equals(deviceId, that.deviceId) && Objects.equals(childDeviceId, that.childDeviceId);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = tableId.hashCode();
+            result = 31 * result + Objects.hashCode(deviceId);
+            result = 31 * result + Objects.hashCode(childDeviceId);
+            result = 31 * result + Long.hashCode(window);
+            return result;
+        }
+    }
+
+    /**
+     * 一个设备在某个窗口长度下的汇总数据. 数据点按首次出现的顺序分配数组下标, 窗口结束后只重置计数, 数组重复使用
+     */
+    private static final class Series {
+        private final SeriesKey key;
+        private final long window;
+        private final Map<String, Integer> index = new HashMap<>();
+
+        private Tag[] tags = new Tag[8];
+        private AggregateFunction[] functions = new AggregateFunction[8];
+        private double[] min = new double[8];
+        private double[] max = new double[8];
+        private double[] sum = new double[8];
+        private long[] count = new long[8];
+        private long[] numeric = new long[8];
+        private Object[] last = new Object[8];
+        private int size;
+
+        private Map<String, FieldType> fieldTypes;
+        private long windowStart;
+        /**
+         * 当前窗口的结束时间. 如果为 {@code 0} 则当前没有数据
+         */
+        private long deadline;
+
+        private Series(SeriesKey key) {
+            this.key = key;
+            this.window = key.window;
+        }
+
+        /**
+         * 采集时间是否早于当前窗口
+         */
+        synchronized boolean isLate(long time) {
+            return this.deadline != 0 && time < this.windowStart;
+        }
+
+        /**
+         * 采集时间是否已超出当前窗口
+         */
+        synchronized boolean isEnded(long time) {
+            return this.deadline != 0 && time >= this.deadline;
+        }
+
+        /**
+         * @param time 数据的采集时间
+         * @return 如果开始了新的窗口, 返回窗口的结束时间, 否则返回 {@code 0}
+         */
+        synchronized long add(Tag tag, AggregateFunction function, Object value, Map<String, FieldType> fieldTypes, long time) {
+            long newDeadline = 0;
+            if (this.deadline == 0) {
+                this.windowStart = time - Math.floorMod(time, this.window);
+                this.deadline = this.windowStart + this.window;
+                newDeadline = this.deadline;
+            }
+
+            Integer idx = this.index.get(tag.getId());
+            int i;
+            if (idx == null) {
+                i = this.size++;
+                this.ensureCapacity(this.size);
+                this.index.put(tag.getId(), i);
+            } else {
+                i = idx;
+            }
+
+            // 重新加载配置后数据点对象可能变化
+            this.tags[i] = tag;
+            this.functions[i] = function;
+            this.last[i] = value;
+            this.count[i]++;
+            if (value instanceof Number) {
+                double d = ((Number) value).doubleValue();
+                if (this.numeric[i]++ == 0) {
+                    this.min[i] = d;
+                    this.max[i] = d;
+                    this.sum[i] = d;
+                } else {
+                    this.min[i] = Math.min(this.min[i], d);
+                    this.max[i] = Math.max(this.max[i], d);
+                    this.sum[i] += d;
+                }
+            }
+            if (fieldTypes != null && !fieldTypes.isEmpty()) {
+                this.fieldTypes = fieldTypes;
+            }
+            return newDeadline;
+        }
+
+        /**
+         * 取出当前窗口的数据并重置
+         *
+         * @param deadline 到期的窗口结束时间. 如果与当前窗口不一致则不处理. 如果为 {@code 0} 则无论窗口是否结束都取出
+         * @return 当前窗口的聚合结果. 如果没有数据则返回 {@code null}
+         */
+        synchronized Point drain(long deadline) {
+            if (this.deadline == 0 || (deadline != 0 && deadline != this.deadline)) {
+                return null;
+            }
+
+            List<Field<? extends Tag>> fields = new ArrayList<>(this.size);
+            for (int i = 0; i < this.size; i++) {
+                if (this.count[i] == 0) {
+                    continue;
+                }
+                fields.add(new Field<>(this.tags[i], this.value(i)));
+                this.count[i] = 0;
+                this.numeric[i] = 0;
+                this.last[i] = null;
+            }
+
+            Map<String, FieldType> types = this.fieldTypes == null ? Collections.emptyMap() : this.fieldTypes;
+            this.fieldTypes = null;
+            this.deadline = 0;
+            return new Point(this.key.deviceId, this.key.childDeviceId, this.key.tableId, this.windowStart, fields, types);
+        }
+
+        private Object value(int i) {
+            if (this.numeric[i] == 0) {
+                return this.functions[i] == AggregateFunction.COUNT ? this.count[i] : this.last[i];
+            }
+            switch (this.functions[i]) {
+                case MIN:
+                    return this.min[i];
+                case MAX:
+                    return this.max[i];
+                case LAST:
+                    return this.last[i];
+                case COUNT:
+                    return this.count[i];
+                case AVG:
+                default:
+                    return this.sum[i] / this.numeric[i];
+            }
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity <= this.tags.length) {
+                return;
+            }
+            int newLength = Math.max(capacity, this.tags.length * 2);
+            this.tags = Arrays.copyOf(this.tags, newLength);
+            this.functions = Arrays.copyOf(this.functions, newLength);
+            this.min = Arrays.copyOf(this.min, newLength);
+            this.max = Arrays.copyOf(this.max, newLength);
+            this.sum = Arrays.copyOf(this.sum, newLength);
+            this.count = Arrays.copyOf(this.count, newLength);
+            this.numeric = Arrays.copyOf(this.numeric, newLength);
+            this.last = Arrays.copyOf(this.last, newLength);
+        }
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.github.airiot.sdk.driver.data.aggregate;
+
+import io.github.airiot.sdk.driver.DriverModules;
+import io.github.airiot.sdk.logger.LoggerFactory;
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 哈希时间轮
+ * <br>
+ * 所有定时任务共用一个后台线程. 每个刻度 ({@code tickMillis}) 检查一次当前槽位, 到期的任务合并为一批交由 {@code handler} 处理.
+ * 任务的实际执行时间比到期时间最多延迟一个刻度.
+ * <br>
+ * 新增任务先进入无锁队列, 由后台线程放入对应的槽位, 槽位只由后台线程访问.
+ *
+ * @param <T> 任务类型
+ */
+final class TimerWheel<T> {
+
+    private final Logger log = LoggerFactory.withContext().module(DriverModules.WRITE_POINTS).getStaticLogger(TimerWheel.class);
+
+    private final String name;
+    private final long tickMillis;
+    private final int mask;
+    private final List<Timeout<T>>[] slots;
+    private final Queue<Timeout<T>> pending = new ConcurrentLinkedQueue<>();
+    private final Consumer<List<T>> handler;
+
+    private volatile boolean running = false;
+    private Thread worker;
+    private long startTime;
+    private long tick;
+
+    /**
+     * @param name          后台线程名称
+     * @param tickMillis    刻度, 单位: 毫秒
+     * @param ticksPerWheel 槽位数量, 会调整为 2 的幂
+     * @param handler       到期任务的处理方法, 在后台线程中调用
+     */
+    @SuppressWarnings("unchecked")
+    TimerWheel(String name, long tickMillis, int ticksPerWheel, Consumer<List<T>> handler) {
+        this.name = name;
+        this.tickMillis = Math.max(1, tickMillis);
+        this.handler = handler;
+
+        int size = Integer.highestOneBit(Math.max(1, ticksPerWheel - 1)) << 1;
+        this.mask = size - 1;
+        this.slots = new List[size];
+        for (int i = 0; i < size; i++) {
+            this.slots[i] = new ArrayList<>();
+        }
+    }
+
+    synchronized void start() {
+        if (this.running) {
+            return;
+        }
+
+        this.running = true;
+        this.startTime = System.currentTimeMillis();
+        this.tick = 0;
+        this.worker = new Thread(this::work);
+        this.worker.setDaemon(true);
+        this.worker.setName(this.name);
+        this.worker.start();
+    }
+
+    /**
+     * 停止后台线程
+     *
+     * @return 尚未执行的任务
+     */
+    synchronized List<T> stop() {
+        List<T> remaining = new ArrayList<>();
+        if (this.running) {
+            this.running = false;
+            this.worker.interrupt();
+            try {
+                this.worker.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        for (List<Timeout<T>> slot : this.slots) {
+            for (Timeout<T> timeout : slot) {
+                remaining.add(timeout.task);
+            }
+            slot.clear();
+        }
+        Timeout<T> timeout;
+        while ((timeout = this.pending.poll()) != null) {
+            remaining.add(timeout.task);
+        }
+        return remaining;
+    }
+
+    /**
+     * 添加定时任务
+     *
+     * @param task     任务
+     * @param deadline 到期时间, unix 时间戳(ms)
+     */
+    void schedule(T task, long deadline) {
+        this.pending.add(new Timeout<>(task, deadline));
+    }
+
+    private void work() {
+        while (this.running) {
+            long next = this.startTime + (this.tick + 1) * this.tickMillis;
+            long sleep = next - System.currentTimeMillis();
+            if (sleep > 0) {
+                try {
+                    Thread.sleep(sleep);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+
+            this.transferPending();
+
+            List<T> expired = new ArrayList<>();
+            Iterator<Timeout<T>> it = this.slots[(int) (this.tick & this.mask)].iterator();
+            while (it.hasNext()) {
+                Timeout<T> timeout = it.next();
+                if (timeout.rounds <= 0) {
+                    expired.add(timeout.task);
+                    it.remove();
+                } else {
+                    timeout.rounds--;
+                }
+            }
+            this.tick++;
+
+            if (!expired.isEmpty()) {
+                try {
+                    this.handler.accept(expired);
+                } catch (Throwable e) {
+                    log.error("时间轮 {}: 处理到期任务失败, 任务数 = {}", this.name, expired.size(), e);
+                }
+            }
+        }
+    }
+
+    private void transferPending() {
+        Timeout<T> timeout;
+        while ((timeout = this.pending.poll()) != null) {
+            // 已到期的任务放入当前刻度
+            long ticks = Math.max((timeout.deadline - this.startTime) / this.tickMillis, this.tick);
+            timeout.rounds = (ticks - this.tick) / this.slots.length;
+            this.slots[(int) (ticks & this.mask)].add(timeout);
+        }
+    }
+
+    private static final class Timeout<T> {
+        private final T task;
+        private final long deadline;
+        private long rounds;
+
+        private Timeout(T task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+    }
+}
@@ -0,0 +1,383 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.airiot.sdk.driver.data.async;
+
+import io.github.airiot.sdk.driver.DriverModules;
+import io.github.airiot.sdk.driver.VirtualThreads;
+import io.github.airiot.sdk.driver.configuration.properties.DriverDataProperties;
+import io.github.airiot.sdk.driver.data.DataSenderException;
+import io.github.airiot.sdk.driver.model.Point;
+import io.github.airiot.sdk.logger.LoggerContexts;
+import io.github.airiot.sdk.logger.LoggerFactory;
+import org.slf4j.Logger;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * 异步上报数据分发器
+ * <br>
+ * 按设备编号将数据分配到固定的分片队列中, 每个分片由一个后台线程批量取出数据并交由 {@code batchHandler} 处理.
+ * 同一设备的数据始终进入同一分片, 因此同一设备的数据按写入顺序处理.
+ */
+public class PointDispatcher {
+
+    private final Logger log = LoggerFactory.withContext().module(DriverModules.WRITE_POINTS).getStaticLogger(PointDispatcher.class);
+
+    private final DriverDataProperties.Async properties;
+    private final Consumer<List<Point>> batchHandler;
+    private final Consumer<Point> overflowHandler;
+    private final BlockingQueue<Point>[] queues;
+    private final Thread[] workers;
+    private final ThreadFactory threadFactory;
+    private final int batchSize;
+
+    /**
+     * 已入队但尚未处理完成的数据数量
+     */
+    private final AtomicLong pending = new AtomicLong();
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder processed = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder spilled = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    private volatile boolean running = false;
+    private Thread metricsReporter;
+
+    /**
+     * @param properties      异步上报配置
+     * @param batchHandler    批量处理数据的方法, 在分片线程中调用
+     * @param overflowHandler 队列已满且策略为 {@link DriverDataProperties.BackPressurePolicy#SPILL} 时, 溢出数据的处理方法
+     */
+    public PointDispatcher(DriverDataProperties.Async properties,
+                           Consumer<List<Point>> batchHandler,
+                           Consumer<Point> overflowHandler) {
+        this(properties, batchHandler, overflowHandler, VirtualThreads.threadFactory("PointDispatcher-", false));
+    }
+
+    /**
+     * @param properties      异步上报配置
+     * @param batchHandler    批量处理数据的方法, 在分片线程中调用
+     * @param overflowHandler 队列已满且策略为 {@link DriverDataProperties.BackPressurePolicy#SPILL} 时, 溢出数据的处理方法
+     * @param threadFactory   分片处理线程的线程工厂. 使用虚拟线程时, 发送数据阻塞不会占用平台线程, 可以配置更多的分片
+     * @see VirtualThreads#threadFactory(String, boolean)
+     */
+    @SuppressWarnings("unchecked")
+    public PointDispatcher(DriverDataProperties.Async properties,
+                           Consumer<List<Point>> batchHandler,
+                           Consumer<Point> overflowHandler,
+                           ThreadFactory threadFactory) {
+        this.properties = properties;
+        this.batchHandler = batchHandler;
+        this.overflowHandler = overflowHandler;
+        this.threadFactory = threadFactory;
+
+        int shards = properties.getShards() <= 0 ? Runtime.getRuntime().availableProcessors() : properties.getShards();
+        int capacity = Math.max(1, properties.getQueueCapacity());
+        this.batchSize = Math.max(1, properties.getBatchSize());
+        this.queues = new BlockingQueue[shards];
+        this.workers = new Thread[shards];
+        for (int i = 0; i < shards; i++) {
+            this.queues[i] = new ArrayBlockingQueue<>(capacity);
+        }
+    }
+
+    /**
+     * 启动分片处理线程
+     */
+    public synchronized void start() {
+        if (this.running) {
+            return;
+        }
+
+        this.running = true;
+        for (int i = 0; i < this.workers.length; i++) {
+            BlockingQueue<Point> queue = this.queues[i];
+            Thread worker = this.threadFactory.newThread(() -> this.work(queue));
+            worker.start();
+            this.workers[i] = worker;
+        }
+
+        Duration metricsInterval = this.properties.getMetricsInterval();
+        if (metricsInterval != null && !metricsInterval.isNegative() && !metricsInterval.isZero()) {
+            this.metricsReporter = new Thread(() -> this.reportMetrics(metricsInterval.toMillis()));
+            this.metricsReporter.setDaemon(true);
+            this.metricsReporter.setName("PointDispatcher-Metrics");
+            this.metricsReporter.start();
+        }
+
+        log.info("异步上报: 已启动, 分片数 = {}, {}", this.queues.length, this.properties);
+    }
+
+    /**
+     * 停止分片处理线程. 停止前会等待队列中的数据处理完成, 最长等待 {@code shutdownTimeout}
+     */
+    public synchronized void stop() {
+        if (!this.running) {
+            return;
+        }
+
+        if (!this.flush(this.properties.getShutdownTimeout())) {
+            log.warn("异步上报: 停止时仍有 {} 条数据未处理", this.pending.get());
+        }
+
+        this.running = false;
+        for (Thread worker : this.workers) {
+            if (worker != null) {
+                worker.interrupt();
+            }
+        }
+        if (this.metricsReporter != null) {
+            this.metricsReporter.interrupt();
+            this.metricsReporter = null;
+        }
+
+        log.info("异步上报: 已停止, {}", this.metrics());
+    }
+
+    /**
+     * 等待已入队的数据处理完成
+     *
+     * @param timeout 最长等待时间
+     * @return 如果在等待时间内所有数据处理完成则返回 {@code true}, 否则返回 {@code false}
+     */
+    public boolean flush(Duration timeout) {
+        long deadline = System.nanoTime() + (timeout == null ? 0 : timeout.toNanos());
+        while (this.pending.get() > 0) {
+            if (!this.running || System.nanoTime() - deadline >= 0) {
+                return this.pending.get() <= 0;
+            }
+            try {
+                TimeUnit.MILLISECONDS.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 将数据放入对应分片的队列中
+     *
+     * @param point 待上报的数据
+     * @throws DataSenderException 如果分发器未启动或者等待入队时线程被中断
+     */
+    public void dispatch(Point point) {
+        if (!this.running) {
+            throw new DataSenderException(point, "异步上报未启动或已停止");
+        }
+
+        BlockingQueue<Point> queue = this.queues[this.shardOf(point.getId())];
+        this.pending.incrementAndGet();
+
+        switch (this.properties.getBackPressure()) {
+            case DROP_OLDEST:
+                while (!queue.offer(point)) {
+                    if (queue.poll() != null) {
+                        this.pending.decrementAndGet();
+                        this.dropped.increment();
+                    }
+                }
+                break;
+            case SPILL:
+                if (!queue.offer(point)) {
+                    this.pending.decrementAndGet();
+                    this.spilled.increment();
+                    this.overflowHandler.accept(point);
+                    return;
+                }
+                break;
+            case BLOCK:
+            default:
+                try {
+                    queue.put(point);
+                } catch (InterruptedException e) {
+                    this.pending.decrementAndGet();
+                    Thread.currentThread().interrupt();
+                    throw new DataSenderException(point, "异步上报: 等待入队时线程被中断", e);
+                }
+                break;
+        }
+
+        this.enqueued.increment();
+    }
+
+    private int shardOf(String deviceId) {
+        if (deviceId == null) {
+            return 0;
+        }
+        return (deviceId.hashCode() & Integer.MAX_VALUE) % this.queues.length;
+    }
+
+    private void work(BlockingQueue<Point> queue) {
+        LoggerContexts.initial();
+        List<Point> batch = new ArrayList<>(this.batchSize);
+        while (this.running || !queue.isEmpty()) {
+            Point first;
+            try {
+                first = queue.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                if (!this.running && queue.isEmpty()) {
+                    break;
+                }
+                continue;
+            }
+
+            if (first == null) {
+                continue;
+            }
+
+            batch.add(first);
+            queue.drainTo(batch, this.batchSize - 1);
+
+            try {
+                this.batchHandler.accept(batch);
+                this.processed.add(batch.size());
+            } catch (Throwable e) {
+                this.failed.add(batch.size());
+                log.error("异步上报: 批量处理数据失败, 数量 = {}", batch.size(), e);
+            } finally {
+                this.pending.addAndGet(-batch.size());
+                batch.clear();
+            }
+        }
+        LoggerContexts.destroy();
+    }
+
+    private void reportMetrics(long intervalMs) {
+        while (this.running) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(intervalMs);
+            } catch (InterruptedException e) {
+                return;
+            }
+            log.info("异步上报: {}", this.metrics());
+        }
+    }
+
+    /**
+     * 获取各分片队列当前的深度
+     *
+     * @return 各分片队列中待处理的数据数量, 数组下标为分片序号
+     */
+    public int[] getQueueDepths() {
+        int[] depths = new int[this.queues.length];
+        for (int i = 0; i < this.queues.length; i++) {
+            depths[i] = this.queues[i].size();
+        }
+        return depths;
+    }
+
+    /**
+     * 获取运行统计信息
+     */
+    public Metrics metrics() {
+        return new Metrics(this.getQueueDepths(), this.enqueued.sum(), this.processed.sum(),
+                this.dropped.sum(), this.spilled.sum(), this.failed.sum());
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * 异步上报运行统计信息
+     */
+    public static class Metrics {
+        /**
+         * 各分片队列深度
+         */
+        private final int[] queueDepths;
+        /**
+         * 已入队数量
+         */
+        private final long enqueued;
+        /**
+         * 已处理数量
+         */
+        private final long processed;
+        /**
+         * 队列已满时被丢弃的数量
+         */
+        private final long dropped;
+        /**
+         * 队列已满时溢出的数量
+         */
+        private final long spilled;
+        /**
+         * 处理失败的数量
+         */
+        private final long failed;
+
+        public Metrics(int[] queueDepths, long enqueued, long processed, long dropped, long spilled, long failed) {
+            this.queueDepths = queueDepths;
+            this.enqueued = enqueued;
+            this.processed = processed;
+            this.dropped = dropped;
+            this.spilled = spilled;
+            this.failed = failed;
+        }
+
+        public int[] getQueueDepths() {
+            return queueDepths;
+        }
+
+        public long getEnqueued() {
+            return enqueued;
+        }
+
+        public long getProcessed() {
+            return processed;
+        }
+
+        public long getDropped() {
+            return dropped;
+        }
+
+        public long getSpilled() {
+            return spilled;
+        }
+
+        public long getFailed() {
+            return failed;
+        }
+
+        @Override
+        public String toString() {
+            return "Metrics{" +
+                    "queueDepths=" + Arrays.toString(queueDepths) +
+                    ", enqueued=" + enqueued +
+                    ", processed=" + processed +
+                    ", dropped=" + dropped +
+                    ", spilled=" + spilled +
+                    ", failed=" + failed +
+                    '}';
+        }
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.airiot.sdk.driver.data.buffer;
+
+import com.google.common.util.concurrent.RateLimiter;
+import io.github.airiot.sdk.driver.DriverModules;
+import io.github.airiot.sdk.logger.LoggerFactory;
+import org.slf4j.Logger;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * 缓存数据重发任务
+ * <br>
+ * 连接恢复后, 按写入顺序以限定的速率重新发送 {@link DiskBuffer} 中的数据. 发送失败时停止本轮发送, 等待下次重试.
+ */
+public class BufferReplayer {
+
+    private final Logger log = LoggerFactory.withContext().module(DriverModules.WRITE_POINTS).getStaticLogger(BufferReplayer.class);
+
+    /**
+     * 数据发送方法
+     */
+    @FunctionalInterface
+    public interface PayloadWriter {
+        /**
+         * 发送编码后的数据
+         *
+         * @param tableId  表标识
+         * @param deviceId 设备编号
+         * @param payload  编码后的数据
+         * @throws Exception 如果发送失败
+         */
+        void write(String tableId, String deviceId, byte[] payload) throws Exception;
+    }
+
+    private final DiskBuffer buffer;
+    private final BooleanSupplier connected;
+    private final PayloadWriter writer;
+    private final RateLimiter rateLimiter;
+    private final int batchSize;
+
+    private volatile boolean running = false;
+    private Thread worker;
+
+    /**
+     * @param buffer    数据缓存
+     * @param connected 判断当前是否已连接
+     * @param writer    数据发送方法
+     * @param rate      每秒最多发送的数据数量
+     * @param batchSize 每批次读取的数据数量
+     */
+    public BufferReplayer(DiskBuffer buffer, BooleanSupplier connected, PayloadWriter writer, double rate, int batchSize) {
+        this.buffer = buffer;
+        this.connected = connected;
+        this.writer = writer;
+        this.rateLimiter = RateLimiter.create(rate > 0 ? rate : Double.MAX_VALUE);
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    public synchronized void start() {
+        if (this.running) {
+            return;
+        }
+        this.running = true;
+        this.worker = new Thread(this::replay);
+        this.worker.setDaemon(true);
+        this.worker.setName("PointBuffer-Replayer");
+        this.worker.start();
+    }
+
+    public synchronized void stop() {
+        if (!this.running) {
+            return;
+        }
+        this.running = false;
+        this.worker.interrupt();
+        try {
+            this.worker.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        this.worker = null;
+    }
+
+    private void replay() {
+        long replayed = 0;
+        while (this.running) {
+            if (!this.connected.getAsBoolean() || this.buffer.isEmpty()) {
+                if (replayed > 0) {
+                    log.info("数据缓存: 已重新发送 {} 条缓存数据", replayed);
+                    replayed = 0;
+                }
+                if (!this.sleep()) {
+                    return;
+                }
+                continue;
+            }
+
+            List<DiskBuffer.Record> records = this.buffer.peek(this.batchSize);
+            if (records.isEmpty()) {
+                // 没有可发送的数据(如数据均已过期或被跳过)时等待下次重试, 避免空转
+                if (!this.sleep()) {
+                    return;
+                }
+                continue;
+            }
+
+            DiskBuffer.Record lastSent = null;
+            boolean failed = false;
+            for (DiskBuffer.Record record : records) {
+                this.rateLimiter.acquire();
+                try {
+                    this.writer.write(record.getTableId(), record.getDeviceId(), record.getPayload());
+                    lastSent = record;
+                    replayed++;
+                } catch (Exception e) {
+                    log.warn("数据缓存: 重新发送缓存数据失败, 等待下次重试. table = {}, device = {}",
+                            record.getTableId(), record.getDeviceId(), e);
+                    failed = true;
+                    break;
+                }
+            }
+
+            if (lastSent != null) {
+                this.buffer.commit(lastSent);
+            }
+
+            if (failed && !this.sleep()) {
+                return;
+            }
+        }
+    }
+
+    private boolean sleep() {
+        try {
+            TimeUnit.SECONDS.sleep(1);
+            return true;
+        } catch (InterruptedException e) {
+            return false;
+        }
+    }
+}
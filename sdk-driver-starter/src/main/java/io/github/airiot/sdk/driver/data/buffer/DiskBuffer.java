@@ -0,0 +1,477 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.airiot.sdk.driver.data.buffer;
+
+import io.github.airiot.sdk.driver.DriverModules;
+import io.github.airiot.sdk.logger.LoggerFactory;
+import org.slf4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * 基于内存映射文件的数据缓存
+ * <br>
+ * 数据按写入顺序追加到多个固定大小的段文件中, 读取位置保存在 {@code checkpoint} 文件中. 进程重启后从上次的读取位置继续读取.
+ * <br>
+ * 每条记录的格式为:
+ * <pre>
+ * | 长度(4) | CRC32(4) | 写入时间(8) | 表标识长度(2) | 表标识 | 设备编号长度(2) | 设备编号 | 数据 |
+ * </pre>
+ * 其中长度及 CRC32 只包含长度之后的部分. 长度为 {@code 0} 表示段文件结束.
+ */
+public class DiskBuffer implements Closeable {
+
+    private static final Logger log = LoggerFactory.withContext().module(DriverModules.WRITE_POINTS).getStaticLogger(DiskBuffer.class);
+
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+    /**
+     * 记录头长度: 长度(4) + CRC32(4)
+     */
+    private static final int RECORD_HEADER_SIZE = 8;
+    /**
+     * 记录体中固定部分的长度: 写入时间(8) + 表标识长度(2) + 设备编号长度(2)
+     */
+    private static final int RECORD_FIXED_SIZE = 12;
+
+    private final Path dir;
+    private final int segmentSize;
+    private final long maxSize;
+    private final long retentionMs;
+
+    private final TreeMap<Long, Segment> segments = new TreeMap<>();
+    private final MappedByteBuffer checkpoint;
+    private Segment writeSegment;
+    private Segment readSegment;
+    private int readOffset;
+
+    /**
+     * @param dir         缓存文件目录
+     * @param segmentSize 每个段文件的大小(字节)
+     * @param maxSize     所有段文件的最大总大小(字节)
+     * @param retention   数据保留时间. 如果为 {@code null} 或小于等于 {@code 0} 则不限制
+     * @throws IOException 如果创建或读取缓存文件失败
+     */
+    public DiskBuffer(Path dir, int segmentSize, long maxSize, Duration retention) throws IOException {
+        this.dir = dir;
+        this.segmentSize = segmentSize;
+        this.maxSize = maxSize;
+        this.retentionMs = retention == null || retention.isNegative() ? 0 : retention.toMillis();
+
+        Files.createDirectories(dir);
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                if (!name.endsWith(SEGMENT_SUFFIX)) {
+                    continue;
+                }
+                long id = Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+                this.segments.put(id, Segment.open(file, id, segmentSize));
+            }
+        }
+
+        if (this.segments.isEmpty()) {
+            Segment segment = Segment.open(this.segmentFile(0), 0, segmentSize);
+            this.segments.put(segment.id, segment);
+        }
+        // 只有最后一个段文件可以继续写入
+        this.writeSegment = this.segments.lastEntry().getValue();
+        this.writeSegment.writePosition = this.writeSegment.recover();
+
+        try (FileChannel channel = FileChannel.open(dir.resolve(CHECKPOINT_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            this.checkpoint = channel.map(FileChannel.MapMode.READ_WRITE, 0, 16);
+        }
+
+        Segment segment = this.segments.get(this.checkpoint.getLong(0));
+        int offset = (int) this.checkpoint.getLong(8);
+        if (segment == null || offset < 0 || offset > segment.capacity) {
+            segment = this.segments.firstEntry().getValue();
+            offset = 0;
+        }
+        this.readSegment = segment;
+        this.readOffset = offset;
+
+        log.info("数据缓存: 已打开, dir = {}, 段文件数量 = {}, 读取位置 = {}:{}",
+                dir, this.segments.size(), this.readSegment.id, this.readOffset);
+    }
+
+    private Path segmentFile(long id) {
+        return this.dir.resolve(String.format("%019d%s", id, SEGMENT_SUFFIX));
+    }
+
+    /**
+     * 追加一条数据
+     *
+     * @param tableId  表标识
+     * @param deviceId 设备编号
+     * @param payload  编码后的数据
+     * @return 如果写入成功返回 {@code true}, 如果数据大于段文件大小则返回 {@code false}
+     * @throws IOException 如果创建新的段文件失败
+     */
+    public synchronized boolean append(String tableId, String deviceId, byte[] payload) throws IOException {
+        byte[] table = tableId == null ? new byte[0] : tableId.getBytes(StandardCharsets.UTF_8);
+        byte[] device = deviceId == null ? new byte[0] : deviceId.getBytes(StandardCharsets.UTF_8);
+        int bodySize = RECORD_FIXED_SIZE + table.length + device.length + payload.length;
+        int recordSize = RECORD_HEADER_SIZE + bodySize;
+        if (recordSize > this.segmentSize) {
+            return false;
+        }
+
+        if (this.writeSegment.writePosition + recordSize > this.writeSegment.capacity) {
+            this.roll();
+        }
+
+        Segment segment = this.writeSegment;
+        int position = segment.writePosition;
+        ByteBuffer buffer = segment.buffer.duplicate();
+        buffer.position(position + RECORD_HEADER_SIZE);
+        buffer.putLong(System.currentTimeMillis());
+        buffer.putShort((short) table.length).put(table);
+        buffer.putShort((short) device.length).put(device);
+        buffer.put(payload);
+
+        segment.buffer.putInt(position + 4, segment.checksum(position + RECORD_HEADER_SIZE, bodySize));
+        // 最后写入长度, 保证读取到的记录是完整的
+        segment.buffer.putInt(position, bodySize);
+        segment.writePosition += recordSize;
+        return true;
+    }
+
+    /**
+     * 从当前读取位置开始读取数据, 但不移动读取位置. 数据发送成功后需要调用 {@link #commit(Record)} 提交读取位置
+     * <br>
+     * 超过保留时间的数据及正在写入的段文件中无法解析的数据会被跳过
+     *
+     * @param max 最多读取的数量
+     * @return 数据列表, 按写入顺序排列
+     */
+    public synchronized List<Record> peek(int max) {
+        List<Record> records = new ArrayList<>(Math.min(max, 128));
+        long expireBefore = this.retentionMs > 0 ? System.currentTimeMillis() - this.retentionMs : Long.MIN_VALUE;
+        long expired = 0;
+
+        Segment segment = this.readSegment;
+        int offset = this.readOffset;
+        while (records.size() < max) {
+            int limit = segment == this.writeSegment ? segment.writePosition : segment.capacity;
+            Record record = segment.read(offset, limit);
+            if (record == null) {
+                if (segment == this.writeSegment) {
+                    if (offset >= limit) {
+                        break;
+                    }
+                    // 读取位置之后仍有已写入的数据但无法解析(校验失败, 或读取位置不在记录边界上), 跳过该条数据,
+                    // 否则读取位置无法前进, 缓存永远不为空
+                    int next = segment.skip(offset, limit);
+                    log.warn("数据缓存: 段文件 {} 在 {} 处的数据无效, 跳过 {} 字节", segment.file, offset, next - offset);
+                    offset = next;
+                } else {
+                    segment = this.segments.higherEntry(segment.id).getValue();
+                    offset = 0;
+                }
+            } else {
+                offset = record.nextOffset;
+                if (record.time >= expireBefore) {
+                    records.add(record);
+                    continue;
+                }
+                expired++;
+            }
+
+            // 跳过的数据及已读完的段文件直接提交
+            if (records.isEmpty()) {
+                this.moveTo(segment, offset);
+            }
+        }
+
+        if (expired > 0) {
+            log.warn("数据缓存: 丢弃 {} 条超过保留时间的数据", expired);
+        }
+        return records;
+    }
+
+    /**
+     * 提交读取位置. 提交后, 该条数据及之前的数据不会再被读取
+     *
+     * @param record 最后一条已处理的数据
+     */
+    public synchronized void commit(Record record) {
+        Segment segment = this.segments.get(record.segmentId);
+        if (segment == null) {
+            // 段文件已因超出大小限制被删除
+            return;
+        }
+        if (segment == this.readSegment && record.nextOffset <= this.readOffset) {
+            return;
+        }
+        this.moveTo(segment, record.nextOffset);
+    }
+
+    private void moveTo(Segment segment, int offset) {
+        this.readSegment = segment;
+        this.readOffset = offset;
+
+        // 删除已读完的段文件
+        while (this.segments.firstKey() < segment.id) {
+            this.deleteSegment(this.segments.firstEntry().getValue());
+        }
+
+        this.checkpoint.putLong(0, segment.id);
+        this.checkpoint.putLong(8, offset);
+    }
+
+    /**
+     * 判断是否还有未读取的数据
+     */
+    public synchronized boolean isEmpty() {
+        return this.readSegment == this.writeSegment && this.readOffset >= this.writeSegment.writePosition;
+    }
+
+    /**
+     * 获取所有段文件的总大小(字节)
+     */
+    public synchronized long size() {
+        long size = 0;
+        for (Segment segment : this.segments.values()) {
+            size += segment.capacity;
+        }
+        return size;
+    }
+
+    private void roll() throws IOException {
+        this.writeSegment.seal();
+
+        long id = this.writeSegment.id + 1;
+        Segment segment = Segment.open(this.segmentFile(id), id, this.segmentSize);
+        segment.writePosition = 0;
+        this.segments.put(id, segment);
+        this.writeSegment = segment;
+
+        this.enforceLimits();
+    }
+
+    /**
+     * 删除超过保留时间及超出大小限制的段文件. 正在写入的段文件不会被删除
+     */
+    private void enforceLimits() {
+        long expireBefore = this.retentionMs > 0 ? System.currentTimeMillis() - this.retentionMs : Long.MIN_VALUE;
+        while (this.segments.size() > 1) {
+            Segment first = this.segments.firstEntry().getValue();
+            boolean oversize = this.size() > this.maxSize;
+            if (!oversize && first.sealedAt >= expireBefore) {
+                break;
+            }
+
+            if (first == this.readSegment || first.id > this.readSegment.id) {
+                log.warn("数据缓存: {}, 删除未发送的段文件 {}", oversize ? "超出大小限制" : "超过保留时间", first.file);
+            }
+            if (first == this.readSegment) {
+                this.moveTo(this.segments.higherEntry(first.id).getValue(), 0);
+            } else {
+                this.deleteSegment(first);
+            }
+        }
+    }
+
+    private void deleteSegment(Segment segment) {
+        this.segments.remove(segment.id);
+        try {
+            Files.deleteIfExists(segment.file);
+        } catch (IOException e) {
+            log.warn("数据缓存: 删除段文件 {} 失败", segment.file, e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        for (Map.Entry<Long, Segment> entry : this.segments.entrySet()) {
+            entry.getValue().buffer.force();
+        }
+        this.checkpoint.force();
+    }
+
+    /**
+     * 段文件
+     */
+    static class Segment {
+
+        private final long id;
+        private final Path file;
+        private final MappedByteBuffer buffer;
+        private final int capacity;
+        private int writePosition;
+        /**
+         * 段文件写满的时间
+         */
+        private long sealedAt;
+
+        private Segment(long id, Path file, MappedByteBuffer buffer, int capacity) {
+            this.id = id;
+            this.file = file;
+            this.buffer = buffer;
+            this.capacity = capacity;
+        }
+
+        /**
+         * 打开段文件. 打开后的段文件视为已写满, 如需继续写入需调用 {@link #recover()} 获取写入位置
+         */
+        static Segment open(Path file, long id, int size) throws IOException {
+            try (FileChannel channel = FileChannel.open(file,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                int capacity = channel.size() > 0 ? (int) channel.size() : size;
+                Segment segment = new Segment(id, file, channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity), capacity);
+                segment.writePosition = capacity;
+                segment.sealedAt = Files.getLastModifiedTime(file).toMillis();
+                return segment;
+            }
+        }
+
+        /**
+         * 扫描段文件中的有效记录
+         *
+         * @return 第一条无效记录的位置
+         */
+        private int recover() {
+            int position = 0;
+            Record record;
+            while ((record = this.read(position, this.capacity)) != null) {
+                position = record.nextOffset;
+            }
+            return position;
+        }
+
+        /**
+         * 标记段文件已写满
+         */
+        private void seal() {
+            if (this.writePosition + 4 <= this.capacity) {
+                this.buffer.putInt(this.writePosition, 0);
+            }
+            this.buffer.force();
+            this.sealedAt = System.currentTimeMillis();
+            this.file.toFile().setLastModified(this.sealedAt);
+        }
+
+        private int checksum(int position, int length) {
+            ByteBuffer slice = this.buffer.duplicate();
+            slice.position(position);
+            slice.limit(position + length);
+            CRC32 crc = new CRC32();
+            crc.update(slice);
+            return (int) crc.getValue();
+        }
+
+        /**
+         * 获取无效记录之后的读取位置. 记录长度有效时跳过该条记录, 否则跳到 {@code limit}
+         */
+        private int skip(int offset, int limit) {
+            if (offset + RECORD_HEADER_SIZE > limit) {
+                return limit;
+            }
+            int bodySize = this.buffer.getInt(offset);
+            if (bodySize < RECORD_FIXED_SIZE || offset + RECORD_HEADER_SIZE + bodySize > limit) {
+                return limit;
+            }
+            return offset + RECORD_HEADER_SIZE + bodySize;
+        }
+
+        private Record read(int offset, int limit) {
+            if (offset + RECORD_HEADER_SIZE > limit) {
+                return null;
+            }
+
+            int bodySize = this.buffer.getInt(offset);
+            if (bodySize < RECORD_FIXED_SIZE || offset + RECORD_HEADER_SIZE + bodySize > limit) {
+                return null;
+            }
+            if (this.buffer.getInt(offset + 4) != this.checksum(offset + RECORD_HEADER_SIZE, bodySize)) {
+                log.warn("数据缓存: 段文件 {} 在 {} 处的数据校验失败, 忽略该段文件后续数据", this.file, offset);
+                return null;
+            }
+
+            ByteBuffer body = this.buffer.duplicate();
+            body.position(offset + RECORD_HEADER_SIZE);
+            long time = body.getLong();
+            byte[] table = new byte[body.getShort() & 0xFFFF];
+            body.get(table);
+            byte[] device = new byte[body.getShort() & 0xFFFF];
+            body.get(device);
+            byte[] payload = new byte[bodySize - RECORD_FIXED_SIZE - table.length - device.length];
+            body.get(payload);
+
+            return new Record(this.id, offset + RECORD_HEADER_SIZE + bodySize, time,
+                    new String(table, StandardCharsets.UTF_8), new String(device, StandardCharsets.UTF_8), payload);
+        }
+    }
+
+    /**
+     * 缓存的数据
+     */
+    public static class Record {
+        private final long segmentId;
+        private final int nextOffset;
+        /**
+         * 写入缓存的时间
+         */
+        private final long time;
+        private final String tableId;
+        private final String deviceId;
+        private final byte[] payload;
+
+        Record(long segmentId, int nextOffset, long time, String tableId, String deviceId, byte[] payload) {
+            this.segmentId = segmentId;
+            this.nextOffset = nextOffset;
+            this.time = time;
+            this.tableId = tableId;
+            this.deviceId = deviceId;
+            this.payload = payload;
+        }
+
+        public long getTime() {
+            return time;
+        }
+
+        public String getTableId() {
+            return tableId;
+        }
+
+        public String getDeviceId() {
+            return deviceId;
+        }
+
+        public byte[] getPayload() {
+            return payload;
+        }
+    }
+}
@@ -0,0 +1,313 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.airiot.sdk.driver.data.codec;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import io.github.airiot.sdk.driver.data.PointJsonEncoder;
+import io.github.airiot.sdk.driver.model.Field;
+import io.github.airiot.sdk.driver.model.FieldType;
+import io.github.airiot.sdk.driver.model.Point;
+import io.github.airiot.sdk.driver.model.Tag;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * CBOR (RFC 8949) 编码器
+ * <br>
+ * 数据结构与 JSON 编码一致, 只是使用二进制格式. 整数按实际大小编码, 浮点数在不损失精度时使用单精度编码,
+ * 对于数值类型的数据, 编码后的大小明显小于 JSON.
+ * 非基本类型的值先转换为 {@link JsonElement} 再编码.
+ */
+public class CborPointCodec implements PointCodec {
+
+    public static final String NAME = "cbor";
+
+    private static final int MAX_BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_NAME_CACHE_SIZE = 100_000;
+
+    private static final int MAJOR_UNSIGNED = 0;
+    private static final int MAJOR_NEGATIVE = 1;
+    private static final int MAJOR_TEXT = 3;
+    private static final int MAJOR_ARRAY = 4;
+    private static final int MAJOR_MAP = 5;
+
+    private static final byte FALSE = (byte) 0xF4;
+    private static final byte TRUE = (byte) 0xF5;
+    private static final byte NULL = (byte) 0xF6;
+    private static final byte FLOAT32 = (byte) 0xFA;
+    private static final byte FLOAT64 = (byte) 0xFB;
+    private static final byte INDEFINITE_MAP = (byte) 0xBF;
+    private static final byte BREAK = (byte) 0xFF;
+
+    private static final byte[] FIELDS = text("fields");
+    private static final byte[] SOURCE_DEVICE = concat(text("source"), text("device"));
+    private static final byte[] CID = text("cid");
+    private static final byte[] TIME = text("time");
+    private static final byte[] FIELD_TYPES = text("fieldTypes");
+    private static final Map<FieldType, byte[]> FIELD_TYPE_VALUES = new EnumMap<>(FieldType.class);
+
+    static {
+        for (FieldType type : FieldType.values()) {
+            FIELD_TYPE_VALUES.put(type, text(type.getValue()));
+        }
+    }
+
+    private final Gson gson = new Gson();
+    /**
+     * 数据点标识编码缓存
+     */
+    private final Map<String, byte[]> names = new ConcurrentHashMap<>();
+    private final ThreadLocal<PointJsonEncoder.Output> buffers = ThreadLocal.withInitial(() -> new PointJsonEncoder.Output(512));
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public String getContentType() {
+        return "application/cbor";
+    }
+
+    @Override
+    public byte[] encode(Point point) {
+        PointJsonEncoder.Output out = this.buffers.get();
+        out.reset();
+        this.write(point, out);
+        byte[] payload = out.toByteArray();
+        if (out.capacity() > MAX_BUFFER_SIZE) {
+            this.buffers.remove();
+        }
+        return payload;
+    }
+
+    private void write(Point point, PointJsonEncoder.Output out) {
+        Map<String, FieldType> fieldTypes = point.getFieldTypes();
+        boolean hasFieldTypes = fieldTypes != null && !fieldTypes.isEmpty();
+        writeHeader(out, MAJOR_MAP, 3 + (point.getCid() != null ? 1 : 0) + (hasFieldTypes ? 1 : 0));
+
+        // 跳过的数据点数量无法预先确定, 使用不定长 map
+        out.write(FIELDS);
+        out.write(INDEFINITE_MAP);
+        List<Field<? extends Tag>> fields = point.getFields();
+        if (fields != null) {
+            for (Field<? extends Tag> field : fields) {
+                if (field.getTag() == null || field.getValue() == null) {
+                    continue;
+                }
+
+                Object value = field.getValue();
+                if (value instanceof Number || value instanceof String || value instanceof Boolean) {
+                    out.write(this.name(field.getTag().getId()));
+                    writeValue(out, value);
+                    continue;
+                }
+
+                JsonElement element = this.gson.toJsonTree(value);
+                if (element.isJsonNull()) {
+                    continue;
+                }
+                out.write(this.name(field.getTag().getId()));
+                writeElement(out, element);
+            }
+        }
+        out.write(BREAK);
+
+        out.write(SOURCE_DEVICE);
+        if (point.getCid() != null) {
+            out.write(CID);
+            writeText(out, point.getCid());
+        }
+        out.write(TIME);
+        writeLong(out, point.getTime());
+
+        if (hasFieldTypes) {
+            out.write(FIELD_TYPES);
+            writeHeader(out, MAJOR_MAP, fieldTypes.size());
+            for (Map.Entry<String, FieldType> entry : fieldTypes.entrySet()) {
+                out.write(this.name(entry.getKey()));
+                out.write(FIELD_TYPE_VALUES.get(entry.getValue()));
+            }
+        }
+    }
+
+    private byte[] name(String name) {
+        byte[] encoded = this.names.get(name);
+        if (encoded != null) {
+            return encoded;
+        }
+        encoded = text(name);
+        if (this.names.size() < MAX_NAME_CACHE_SIZE) {
+            this.names.put(name, encoded);
+        }
+        return encoded;
+    }
+
+    private static void writeValue(PointJsonEncoder.Output out, Object value) {
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            writeLong(out, ((Number) value).longValue());
+        } else if (value instanceof Double) {
+            writeDouble(out, (Double) value);
+        } else if (value instanceof Float) {
+            out.write(FLOAT32);
+            writeInt(out, Float.floatToIntBits((Float) value));
+        } else if (value instanceof BigInteger && ((BigInteger) value).bitLength() < 64) {
+            writeLong(out, ((BigInteger) value).longValue());
+        } else if (value instanceof Number) {
+            writeNumber(out, (Number) value);
+        } else if (value instanceof Boolean) {
+            out.write((Boolean) value ? TRUE : FALSE);
+        } else {
+            writeText(out, (String) value);
+        }
+    }
+
+    /**
+     * 写入整数值可能为小数的数值, 如 {@link BigDecimal} 或 Gson 解析的数值
+     */
+    private static void writeNumber(PointJsonEncoder.Output out, Number value) {
+        BigDecimal decimal;
+        try {
+            decimal = value instanceof BigDecimal ? (BigDecimal) value : new BigDecimal(value.toString());
+        } catch (NumberFormatException e) {
+            writeDouble(out, value.doubleValue());
+            return;
+        }
+
+        try {
+            writeLong(out, decimal.longValueExact());
+        } catch (ArithmeticException e) {
+            writeDouble(out, decimal.doubleValue());
+        }
+    }
+
+    private static void writeElement(PointJsonEncoder.Output out, JsonElement element) {
+        if (element.isJsonNull()) {
+            out.write(NULL);
+        } else if (element.isJsonPrimitive()) {
+            JsonPrimitive primitive = element.getAsJsonPrimitive();
+            if (primitive.isBoolean()) {
+                out.write(primitive.getAsBoolean() ? TRUE : FALSE);
+            } else if (primitive.isNumber()) {
+                writeNumber(out, primitive.getAsNumber());
+            } else {
+                writeText(out, primitive.getAsString());
+            }
+        } else if (element.isJsonArray()) {
+            JsonArray array = element.getAsJsonArray();
+            writeHeader(out, MAJOR_ARRAY, array.size());
+            for (JsonElement item : array) {
+                writeElement(out, item);
+            }
+        } else {
+            JsonObject object = element.getAsJsonObject();
+            writeHeader(out, MAJOR_MAP, object.size());
+            for (Map.Entry<String, JsonElement> entry : object.entrySet()) {
+                writeText(out, entry.getKey());
+                writeElement(out, entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * 写入浮点数. 如果转换为单精度后不损失精度, 则使用单精度编码
+     */
+    private static void writeDouble(PointJsonEncoder.Output out, double value) {
+        float f = (float) value;
+        if (f == value || Double.isNaN(value)) {
+            out.write(FLOAT32);
+            writeInt(out, Float.floatToIntBits(f));
+            return;
+        }
+        long bits = Double.doubleToLongBits(value);
+        out.write(FLOAT64);
+        writeInt(out, (int) (bits >>> 32));
+        writeInt(out, (int) bits);
+    }
+
+    private static void writeLong(PointJsonEncoder.Output out, long value) {
+        if (value >= 0) {
+            writeHeader(out, MAJOR_UNSIGNED, value);
+        } else {
+            writeHeader(out, MAJOR_NEGATIVE, -1 - value);
+        }
+    }
+
+    private static void writeText(PointJsonEncoder.Output out, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeHeader(out, MAJOR_TEXT, bytes.length);
+        out.write(bytes);
+    }
+
+    private static void writeInt(PointJsonEncoder.Output out, int value) {
+        out.write((byte) (value >>> 24));
+        out.write((byte) (value >>> 16));
+        out.write((byte) (value >>> 8));
+        out.write((byte) value);
+    }
+
+    /**
+     * 写入类型及长度信息
+     *
+     * @param major  主类型
+     * @param length 长度或整数值
+     */
+    private static void writeHeader(PointJsonEncoder.Output out, int major, long length) {
+        int type = major << 5;
+        if (length < 24) {
+            out.write((byte) (type | length));
+        } else if (length < 0x100) {
+            out.write((byte) (type | 24));
+            out.write((byte) length);
+        } else if (length < 0x10000) {
+            out.write((byte) (type | 25));
+            out.write((byte) (length >>> 8));
+            out.write((byte) length);
+        } else if (length < 0x100000000L) {
+            out.write((byte) (type | 26));
+            writeInt(out, (int) length);
+        } else {
+            out.write((byte) (type | 27));
+            writeInt(out, (int) (length >>> 32));
+            writeInt(out, (int) length);
+        }
+    }
+
+    private static byte[] text(String value) {
+        PointJsonEncoder.Output out = new PointJsonEncoder.Output(value.length() + 9);
+        writeText(out, value);
+        return out.toByteArray();
+    }
+
+    private static byte[] concat(byte[] a, byte[] b) {
+        byte[] bytes = new byte[a.length + b.length];
+        System.arraycopy(a, 0, bytes, 0, a.length);
+        System.arraycopy(b, 0, bytes, a.length, b.length);
+        return bytes;
+    }
+}
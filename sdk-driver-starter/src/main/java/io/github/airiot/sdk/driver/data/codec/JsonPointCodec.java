@@ -0,0 +1,46 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.airiot.sdk.driver.data.codec;
+
+import io.github.airiot.sdk.driver.data.PointJsonEncoder;
+import io.github.airiot.sdk.driver.model.Point;
+
+/**
+ * JSON 编码器, 默认的编码方式
+ */
+public class JsonPointCodec implements PointCodec {
+
+    public static final String NAME = "json";
+
+    private final PointJsonEncoder encoder = new PointJsonEncoder();
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public String getContentType() {
+        return "application/json";
+    }
+
+    @Override
+    public byte[] encode(Point point) {
+        return this.encoder.encode(point);
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.airiot.sdk.driver.data.codec;
+
+import io.github.airiot.sdk.driver.model.Point;
+
+/**
+ * 上报数据编码器
+ * <br>
+ * 通过 {@link java.util.ServiceLoader} 加载, 实现类需要在 {@code META-INF/services/io.github.airiot.sdk.driver.data.codec.PointCodec}
+ * 中注册, 并通过 {@code airiot.driver.data.codec} 指定使用的编码器名称.
+ * <br>
+ * 实现类必须是线程安全的
+ */
+public interface PointCodec {
+
+    /**
+     * 编码器名称, 如 {@code json}, {@code cbor}. 非默认编码时, 会作为 topic 后缀等告知平台
+     */
+    String getName();
+
+    /**
+     * 编码后数据的内容类型, 如 {@code application/json}
+     */
+    String getContentType();
+
+    /**
+     * 对数据编码
+     *
+     * @param point 处理后的数据
+     * @return 编码后的字节数组
+     */
+    byte[] encode(Point point);
+}
@@ -0,0 +1,63 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.airiot.sdk.driver.data.codec;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.ServiceLoader;
+
+public class PointCodecs {
+
+    /**
+     * 默认编码器名称
+     */
+    public static final String DEFAULT_CODEC = JsonPointCodec.NAME;
+
+    private final static List<PointCodec> CODECS = new ArrayList<>();
+
+    static {
+        ServiceLoader<PointCodec> loader = ServiceLoader.load(PointCodec.class);
+        for (PointCodec codec : loader) {
+            CODECS.add(codec);
+        }
+    }
+
+    /**
+     * 获取所有已注册的编码器
+     */
+    public static List<PointCodec> getCodecs() {
+        return Collections.unmodifiableList(CODECS);
+    }
+
+    /**
+     * 根据名称查找编码器, 名称不区分大小写
+     *
+     * @param name 编码器名称
+     * @return 编码器. 如果没有对应的编码器, 则返回 {@link Optional#empty()}
+     */
+    public static Optional<PointCodec> getCodec(String name) {
+        for (PointCodec codec : CODECS) {
+            if (codec.getName().equalsIgnoreCase(name)) {
+                return Optional.of(codec);
+            }
+        }
+        return Optional.empty();
+    }
+}
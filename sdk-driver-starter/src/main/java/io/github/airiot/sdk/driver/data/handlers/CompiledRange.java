@@ -0,0 +1,373 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.github.airiot.sdk.driver.data.handlers;
+
+import com.google.common.collect.MapMaker;
+import io.github.airiot.sdk.driver.model.Range;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 预编译的有效范围(或无效范围)配置
+ * <br>
+ * 将 {@link Range} 中的动作, 条件模式和条件类型转换为枚举, 条件值转换为 {@code double}.
+ * 判断数据是否满足条件时使用 {@code double} 计算, 仅在计算结果与条件值非常接近时才使用 {@link BigDecimal} 计算,
+ * 因此判断结果与使用 {@link BigDecimal} 计算的结果一致.
+ */
+final class CompiledRange {
+
+    /**
+     * 条件判断结果: 匹配
+     */
+    static final int MATCHED = 1;
+    /**
+     * 条件判断结果: 不匹配
+     */
+    static final int NON_MATCHED = 0;
+    /**
+     * 条件判断结果: 缺少最新有效值, 跳过该条件
+     */
+    static final int SKIPPED = -1;
+
+    private static final BigDecimal HUNDRED = BigDecimal.valueOf(100);
+
+    /**
+     * 不满足条件时的处理动作
+     */
+    enum Action {
+        FIXED, BOUNDARY, DISCARD, LATEST;
+
+        static Action of(String active) {
+            if (active == null) {
+                return null;
+            }
+            switch (active.toLowerCase()) {
+                case "fixed":
+                    return FIXED;
+                case "boundary":
+                    return BOUNDARY;
+                case "discard":
+                    return DISCARD;
+                case "latest":
+                    return LATEST;
+                default:
+                    return null;
+            }
+        }
+    }
+
+    /**
+     * 条件模式
+     */
+    enum Mode {
+        /**
+         * 数值
+         */
+        NUMBER,
+        /**
+         * 与最新有效值的变化率(百分比)
+         */
+        RATE,
+        /**
+         * 与最新有效值的差值
+         */
+        DELTA
+    }
+
+    /**
+     * 条件类型
+     */
+    enum Type {
+        RANGE, GREATER, LESS
+    }
+
+    static final class Condition {
+        private final Range.Condition source;
+        private final Mode mode;
+        private final Type type;
+        /**
+         * 范围最小值. 如果条件类型为 {@link Type#GREATER} 或 {@link Type#LESS} 则为条件值
+         */
+        private final double minValue;
+        /**
+         * 范围最大值. 如果条件类型为 {@link Type#GREATER} 或 {@link Type#LESS} 则为条件值
+         */
+        private final double maxValue;
+        private final boolean defaultCondition;
+        /**
+         * 配置错误信息. 如果不为 {@code null}, 执行到该条件时抛出异常
+         */
+        private final String error;
+
+        private Condition(Range.Condition source) {
+            this.source = source;
+            this.defaultCondition = source.getDefaultCondition() != null && source.getDefaultCondition();
+
+            String mode = source.getMode();
+            String type = source.getCondition();
+            this.mode = "number".equals(mode) ? Mode.NUMBER : "rate".equals(mode) ? Mode.RATE : "delta".equals(mode) ? Mode.DELTA : null;
+            this.type = "range".equals(type) ? Type.RANGE : "greater".equals(type) ? Type.GREATER : "less".equals(type) ? Type.LESS : null;
+
+            Double min = this.type == Type.RANGE ? source.getMinValue() : source.getValue();
+            Double max = this.type == Type.RANGE ? source.getMaxValue() : source.getValue();
+            this.minValue = min == null ? Double.NaN : min;
+            this.maxValue = max == null ? Double.NaN : max;
+
+            if (this.mode == null) {
+                this.error = "未定义的 mode: " + mode + ", condition: " + type;
+            } else if (this.type == null) {
+                this.error = "无效的条件类型: " + type;
+            } else if (min == null || max == null) {
+                this.error = "未配置条件值, mode: " + mode + ", condition: " + type;
+            } else {
+                this.error = null;
+            }
+        }
+
+        Range.Condition getSource() {
+            return source;
+        }
+
+        boolean isDefault() {
+            return defaultCondition;
+        }
+    }
+
+    private final boolean valid;
+    private final boolean invalid;
+    private final boolean hasLimits;
+    private final boolean actionSupported;
+    private final Action action;
+    private final boolean saveInvalid;
+    private final Double fixedValue;
+    private final Condition[] conditions;
+    /**
+     * 变化率的计算精度
+     */
+    private final int precision;
+    /**
+     * 变化率计算精度对应的百分比误差
+     */
+    private final double precisionError;
+
+    private CompiledRange(Range range, int precision) {
+        this.valid = "valid".equalsIgnoreCase(range.getMethod());
+        this.invalid = "invalid".equalsIgnoreCase(range.getMethod());
+        this.hasLimits = range.getMinValue() != null || range.getMaxValue() != null;
+        String active = range.getActive();
+        this.actionSupported = "fixed".equals(active) || "boundary".equals(active) || "discard".equals(active) || "latest".equals(active);
+        this.action = Action.of(active);
+        this.saveInvalid = "save".equals(range.getInvalidAction());
+        this.fixedValue = range.getFixedValue();
+        this.precision = precision;
+        this.precisionError = 100 * Math.pow(10, -precision);
+
+        List<Range.Condition> conditions = range.getConditions() == null ? Collections.emptyList() : range.getConditions();
+        this.conditions = new Condition[conditions.size()];
+        for (int i = 0; i < this.conditions.length; i++) {
+            this.conditions[i] = new Condition(conditions.get(i));
+        }
+    }
+
+    /**
+     * 预编译的有效范围配置缓存. 以 {@link Range} 对象本身作为键(比较引用), 配置重新加载后旧的 {@link Range} 对象被回收时自动清除.
+     * <br>
+     * 注: 编译后再修改 {@link Range} 对象中的配置不会生效
+     */
+    static final class Cache {
+        private final int precision;
+        private final Map<Range, CompiledRange> compiled = new MapMaker().weakKeys().makeMap();
+
+        Cache(int precision) {
+            this.precision = precision;
+        }
+
+        CompiledRange get(Range range) {
+            CompiledRange compiledRange = this.compiled.get(range);
+            if (compiledRange == null) {
+                compiledRange = new CompiledRange(range, this.precision);
+                this.compiled.put(range, compiledRange);
+            }
+            return compiledRange;
+        }
+    }
+
+    /**
+     * 是否配置为有效范围, 即 {@code method} 为 {@code valid}
+     */
+    boolean isValidMethod() {
+        return valid;
+    }
+
+    /**
+     * 是否配置为无效范围, 即 {@code method} 为 {@code invalid}
+     */
+    boolean isInvalidMethod() {
+        return invalid;
+    }
+
+    /**
+     * 是否配置了旧版本的有效范围最小值或最大值
+     */
+    boolean hasLimits() {
+        return hasLimits;
+    }
+
+    /**
+     * 处理动作是否为 {@code fixed}, {@code boundary}, {@code discard} 或 {@code latest} 之一(区分大小写)
+     */
+    boolean isActionSupported() {
+        return actionSupported;
+    }
+
+    Action getAction() {
+        return action;
+    }
+
+    boolean isSaveInvalid() {
+        return saveInvalid;
+    }
+
+    Double getFixedValue() {
+        return fixedValue;
+    }
+
+    int size() {
+        return conditions.length;
+    }
+
+    Condition getCondition(int index) {
+        return conditions[index];
+    }
+
+    /**
+     * 判断数据是否满足条件
+     *
+     * @param condition 条件
+     * @param value     当前值
+     * @param latest    最新有效值. 如果不存在则为 {@link Double#NaN}
+     * @return {@link #MATCHED}, {@link #NON_MATCHED} 或 {@link #SKIPPED}
+     * @throws IllegalStateException 如果条件配置错误
+     */
+    int evaluate(Condition condition, double value, double latest) {
+        // rate 和 delta 模式需要最新有效值, 如果没有最新有效值(或为 0), 则跳过处理
+        if (condition.mode == Mode.RATE && (Double.isNaN(latest) || latest == 0)) {
+            return SKIPPED;
+        } else if (condition.mode == Mode.DELTA && Double.isNaN(latest)) {
+            return SKIPPED;
+        }
+
+        if (condition.error != null) {
+            throw new IllegalStateException(condition.error);
+        }
+
+        switch (condition.type) {
+            case RANGE:
+                return this.compare(condition.mode, value, latest, condition.minValue) >= 0
+                        && this.compare(condition.mode, value, latest, condition.maxValue) <= 0 ? MATCHED : NON_MATCHED;
+            case GREATER:
+                return this.compare(condition.mode, value, latest, condition.minValue) > 0 ? MATCHED : NON_MATCHED;
+            case LESS:
+            default:
+                return this.compare(condition.mode, value, latest, condition.minValue) < 0 ? MATCHED : NON_MATCHED;
+        }
+    }
+
+    /**
+     * 计算不满足条件时的边界值
+     *
+     * @param condition 不满足的条件
+     * @param value     当前值
+     * @param latest    最新有效值
+     * @return 边界值
+     */
+    double boundary(Condition condition, double value, double latest) {
+        double bound;
+        switch (condition.type) {
+            case RANGE:
+                bound = this.compare(condition.mode, value, latest, condition.minValue) < 0 ? condition.minValue : condition.maxValue;
+                break;
+            case GREATER:
+            case LESS:
+            default:
+                bound = condition.minValue;
+                break;
+        }
+
+        switch (condition.mode) {
+            case RATE:
+                // ((x - latest) / latest) * 100 = bound
+                // x = (bound / 100) * latest + latest
+                BigDecimal latestValue = BigDecimal.valueOf(latest);
+                return BigDecimal.valueOf(bound).divide(HUNDRED).multiply(latestValue).add(latestValue).doubleValue();
+            case DELTA:
+                // x - latest = bound
+                // x = latest + bound
+                return BigDecimal.valueOf(latest).add(BigDecimal.valueOf(bound)).doubleValue();
+            case NUMBER:
+            default:
+                return bound;
+        }
+    }
+
+    /**
+     * 比较根据条件模式计算后的值与条件值的大小, 结果与使用 {@link BigDecimal} 计算一致
+     *
+     * @return 如果计算后的值小于, 等于或大于条件值, 分别返回负数, 0 或正数
+     */
+    private int compare(Mode mode, double value, double latest, double bound) {
+        double calcValue;
+        double error;
+        switch (mode) {
+            case NUMBER:
+                // BigDecimal.valueOf(double) 不改变数值的大小顺序
+                return value < bound ? -1 : (value > bound ? 1 : 0);
+            case DELTA:
+                calcValue = value - latest;
+                error = 2 * (Math.ulp(value) + Math.ulp(latest) + Math.ulp(calcValue) + Math.ulp(bound));
+                break;
+            case RATE:
+            default:
+                double delta = value - latest;
+                calcValue = delta / latest * 100;
+                error = 100 * (2 * (Math.ulp(value) + Math.ulp(latest) + Math.ulp(delta)) / Math.abs(latest) + this.precisionError)
+                        + 8 * Math.ulp(calcValue) + Math.ulp(bound);
+                break;
+        }
+
+        double diff = calcValue - bound;
+        if (diff > error) {
+            return 1;
+        } else if (diff < -error) {
+            return -1;
+        }
+
+        // 与条件值非常接近, 使用 BigDecimal 计算
+        BigDecimal val = BigDecimal.valueOf(value);
+        BigDecimal latestValue = BigDecimal.valueOf(latest);
+        BigDecimal exact = mode == Mode.DELTA
+                ? val.subtract(latestValue)
+                : val.subtract(latestValue).divide(latestValue, this.precision, RoundingMode.HALF_UP).multiply(HUNDRED);
+        return exact.compareTo(BigDecimal.valueOf(bound));
+    }
+}
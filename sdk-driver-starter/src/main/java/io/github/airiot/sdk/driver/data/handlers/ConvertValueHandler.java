@@ -57,6 +57,9 @@ import java.util.Map;
  *     4. 当接收到的温度值为 2358 时, 映射后的值为 23.58
  *     5. 当接收到的温度值为 -2358 时, 映射后的值为 -23.58
  * </pre>
+ * <p>
+ * 默认使用 {@code double} 计算, 计算结果以 {@code minValue} 和 {@code maxValue} 的数量级为基准保留 15 位有效数字以消除浮点数误差. 如果需要与 {@link BigDecimal} 完全一致的计算结果,
+ * 可通过 {@link #ConvertValueHandler(int, boolean)} 启用精确计算模式.
  *
  * @see TagValue
  */
@@ -68,9 +71,22 @@ public class ConvertValueHandler implements DataHandler {
      * 计算精度
      */
     private final int scale;
+    /**
+     * 是否使用 {@link BigDecimal} 精确计算
+     */
+    private final boolean exact;
 
-    public ConvertValueHandler(int scale) {
+    /**
+     * @param scale 计算精度, 仅在精确计算模式下生效
+     * @param exact 是否使用 {@link BigDecimal} 精确计算
+     */
+    public ConvertValueHandler(int scale, boolean exact) {
         this.scale = scale;
+        this.exact = exact;
+    }
+
+    public ConvertValueHandler(int scale) {
+        this(scale, false);
     }
 
     public ConvertValueHandler() {
@@ -97,8 +113,25 @@ public class ConvertValueHandler implements DataHandler {
         return matched;
     }
 
+    @Override
+    public <T extends Tag> boolean supportsTag(String tableId, String deviceId, T tag) {
+        TagValue mapping = tag.getTagValue();
+        return mapping != null && mapping.getMinValue() != null && mapping.getMaxValue() != null
+                && mapping.getMinRaw() != null && mapping.getMaxRaw() != null;
+    }
+
+    @Override
+    public <T extends Tag> Object compileTag(String tableId, String deviceId, T tag) {
+        return new Mapping(tag.getTagValue());
+    }
+
     @Override
     public Map<String, Object> handle(String tableId, String deviceId, Tag tag, Object value) {
+        return this.handle(tableId, deviceId, tag, value, null);
+    }
+
+    @Override
+    public Map<String, Object> handle(String tableId, String deviceId, Tag tag, Object value, Object compiled) {
         double dValue = ((Number) value).doubleValue();
         if (Double.isNaN(dValue) || !Double.isFinite(dValue)) {
             logger.warn("数据点数据处理器: 数值转换, 值为 {}, 丢弃. device = {}, tag = {}",
@@ -107,27 +140,53 @@ public class ConvertValueHandler implements DataHandler {
         }
 
         TagValue tagValue = tag.getTagValue();
+        Mapping mapping = compiled instanceof Mapping ? (Mapping) compiled : new Mapping(tagValue);
+        if (this.exact) {
+            return this.exactConvert(tableId, deviceId, tag, tagValue, mapping, value, dValue);
+        }
 
-        BigDecimal val = BigDecimal.valueOf(dValue);
+        if (mapping.minRawValue == mapping.maxRawValue) {
+            logger.debug("数据点数据处理器: 数值转换, table = {}, device = {}, tag = {}, mapping = {}, value = {}, 最大值等于最小值, 无须处理",
+                    tableId, deviceId, tag.getId(), tagValue, value);
+
+            return Collections.singletonMap(tag.getId(), dValue);
+        }
+
+        double val = Math.min(Math.max(dValue, mapping.minRawValue), mapping.maxRawValue);
+
+        double result;
+        if (val == mapping.minRawValue) {
+            result = mapping.minValue;
+        } else if (val == mapping.maxRawValue) {
+            result = mapping.maxValue;
+        } else {
+            result = Decimals.roundToSignificant((val - mapping.minRawValue) * mapping.slope + mapping.minValue,
+                    mapping.magnitude, 15);
+        }
+
+        logger.debug("数据点数据处理器: 数值转换, table = {}, device = {}, tag = {}, mapping = {}, value = {}, result = {}",
+                tableId, deviceId, tag.getId(), tagValue, value, result);
 
-        BigDecimal minRawValue = BigDecimal.valueOf(tagValue.getMinRaw());
-        BigDecimal maxRawValue = BigDecimal.valueOf(tagValue.getMaxRaw());
-        BigDecimal minValue = BigDecimal.valueOf(tagValue.getMinValue());
-        BigDecimal maxValue = BigDecimal.valueOf(tagValue.getMaxValue());
+        return Collections.singletonMap(tag.getId(), result);
+    }
+
+    private Map<String, Object> exactConvert(String tableId, String deviceId, Tag tag, TagValue tagValue, Mapping mapping,
+                                             Object value, double dValue) {
+        BigDecimal val = BigDecimal.valueOf(dValue);
 
-        if (minRawValue.equals(maxRawValue)) {
+        if (mapping.minRawValue == mapping.maxRawValue) {
             logger.debug("数据点数据处理器: 数值转换, table = {}, device = {}, tag = {}, mapping = {}, value = {}, 最大值等于最小值, 无须处理",
                     tableId, deviceId, tag.getId(), tagValue, value);
 
             return Collections.singletonMap(tag.getId(), val);
         }
 
-        val = val.max(minRawValue);
-        val = val.min(maxRawValue);
+        val = val.max(mapping.exactMinRawValue);
+        val = val.min(mapping.exactMaxRawValue);
 
-        BigDecimal result = val.subtract(minRawValue)
-                .divide(maxRawValue.subtract(minRawValue), this.scale, RoundingMode.HALF_DOWN)
-                .multiply(maxValue.subtract(minValue)).add(minValue);
+        BigDecimal result = val.subtract(mapping.exactMinRawValue)
+                .divide(mapping.exactRawRange, this.scale, RoundingMode.HALF_DOWN)
+                .multiply(mapping.exactRange).add(mapping.exactMinValue);
 
         logger.debug("数据点数据处理器: 数值转换, table = {}, device = {}, tag = {}, mapping = {}, value = {}, result = {}",
                 tableId, deviceId, tag.getId(), tagValue, value, result);
@@ -139,4 +198,40 @@ public class ConvertValueHandler implements DataHandler {
     public int getOrder() {
         return 0;
     }
+
+    /**
+     * 由数据点的数值转换配置换算出的系数, 按数据点缓存
+     */
+    private static final class Mapping {
+        private final double minRawValue;
+        private final double maxRawValue;
+        private final double minValue;
+        private final double maxValue;
+        private final double slope;
+        /**
+         * 转换结果的数量级基准, 即 {@code max(|minValue|, |maxValue|)}
+         */
+        private final double magnitude;
+
+        private final BigDecimal exactMinRawValue;
+        private final BigDecimal exactMaxRawValue;
+        private final BigDecimal exactMinValue;
+        private final BigDecimal exactRawRange;
+        private final BigDecimal exactRange;
+
+        Mapping(TagValue tagValue) {
+            this.minRawValue = tagValue.getMinRaw();
+            this.maxRawValue = tagValue.getMaxRaw();
+            this.minValue = tagValue.getMinValue();
+            this.maxValue = tagValue.getMaxValue();
+            this.slope = (this.maxValue - this.minValue) / (this.maxRawValue - this.minRawValue);
+            this.magnitude = Math.max(Math.abs(this.minValue), Math.abs(this.maxValue));
+
+            this.exactMinRawValue = BigDecimal.valueOf(this.minRawValue);
+            this.exactMaxRawValue = BigDecimal.valueOf(this.maxRawValue);
+            this.exactMinValue = BigDecimal.valueOf(this.minValue);
+            this.exactRawRange = this.exactMaxRawValue.subtract(this.exactMinRawValue);
+            this.exactRange = BigDecimal.valueOf(this.maxValue).subtract(this.exactMinValue);
+        }
+    }
 }
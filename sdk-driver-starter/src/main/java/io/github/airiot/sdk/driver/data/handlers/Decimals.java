@@ -0,0 +1,250 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.airiot.sdk.driver.data.handlers;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * 十进制数值计算工具
+ * <br>
+ * 计算结果与先将 {@code double} 通过 {@link BigDecimal#valueOf(double)} 转换后再计算的结果一致,
+ * 但在结果可以精确表示时使用 {@code long} 和 {@code double} 计算, 不创建 {@link BigDecimal} 对象.
+ * 无法保证一致时使用 {@link BigDecimal} 计算.
+ */
+public final class Decimals {
+
+    /**
+     * 可以精确表示为 {@code double} 的 10 的幂
+     */
+    private static final double[] POW10 = new double[23];
+    private static final long[] LONG_POW10 = new long[19];
+
+    static {
+        double d = 1;
+        for (int i = 0; i < POW10.length; i++) {
+            POW10[i] = d;
+            d *= 10;
+        }
+        long l = 1;
+        for (int i = 0; i < LONG_POW10.length; i++) {
+            LONG_POW10[i] = l;
+            l *= 10;
+        }
+    }
+
+    /**
+     * 小于该值的整数可以精确表示为 {@code double}
+     */
+    private static final double MAX_EXACT = 1L << 53;
+    /**
+     * 舍入时与 0.5 的距离小于该值 (以 ulp 为单位) 时, 认为无法确定舍入方向, 使用 {@link BigDecimal} 计算
+     */
+    private static final int TIE_GUARD_ULPS = 16;
+
+    private Decimals() {
+    }
+
+    /**
+     * 数值的十进制表示形式, 即 {@code unscaled * 10^-scale}
+     */
+    public static final class Decimal {
+        private final long unscaled;
+        private final int scale;
+
+        private Decimal(long unscaled, int scale) {
+            this.unscaled = unscaled;
+            this.scale = scale;
+        }
+
+        public long getUnscaled() {
+            return unscaled;
+        }
+
+        public int getScale() {
+            return scale;
+        }
+    }
+
+    /**
+     * 将数值转换为十进制表示形式, 用于预先计算缩放比例等配置
+     *
+     * @param value 数值
+     * @return 十进制表示形式. 如果无法用 {@code long} 精确表示则返回 {@code null}
+     */
+    public static Decimal toDecimal(double value) {
+        BigDecimal decimal = BigDecimal.valueOf(value).stripTrailingZeros();
+        if (decimal.scale() < 0) {
+            decimal = decimal.setScale(0);
+        }
+        if (decimal.scale() >= LONG_POW10.length || decimal.precision() > 18) {
+            return null;
+        }
+        return new Decimal(decimal.unscaledValue().longValueExact(), decimal.scale());
+    }
+
+    /**
+     * 计算 {@code value * mod} 并保留 {@code fixed} 位小数 (四舍五入)
+     * <br>
+     * 结果与 {@code BigDecimal.valueOf(value).multiply(BigDecimal.valueOf(mod)).setScale(fixed, RoundingMode.HALF_UP).doubleValue()} 一致
+     *
+     * @param value 数值, 必须是有限值
+     * @param mod   缩放比例的十进制表示形式. 如果为 {@code null} 则不缩放
+     * @param fixed 保留的小数位数. 如果小于 0 则不做舍入处理
+     * @return 计算结果
+     */
+    public static double scaleAndRound(double value, Decimal mod, int fixed) {
+        long modUnscaled = mod == null ? 1 : mod.unscaled;
+        int modScale = mod == null ? 0 : mod.scale;
+
+        // 1. 如果数值可以精确表示为十进制数, 则全部使用整数计算
+        int scale = decimalScale(value, LONG_POW10.length - 1 - modScale);
+        if (scale >= 0) {
+            long unscaled = (long) Math.rint(value * POW10[scale]);
+            long product;
+            try {
+                product = Math.multiplyExact(unscaled, modUnscaled);
+            } catch (ArithmeticException e) {
+                return exactScaleAndRound(value, mod, fixed);
+            }
+            int productScale = scale + modScale;
+            if (fixed >= 0 && fixed < productScale) {
+                long divisor = LONG_POW10[productScale - fixed];
+                long quotient = product / divisor;
+                long remainder = Math.abs(product % divisor);
+                if (remainder >= divisor - remainder) {
+                    quotient += Long.signum(product);
+                }
+                product = quotient;
+                productScale = fixed;
+            }
+            if (Math.abs(product) < MAX_EXACT) {
+                // 整数与 10 的幂均可精确表示, 除法结果为最接近的 double
+                return product / POW10[productScale];
+            }
+            return exactScaleAndRound(value, mod, fixed);
+        }
+
+        // 2. 否则使用浮点数计算, 舍入方向不确定时使用 BigDecimal
+        if (fixed < 0) {
+            // 不做舍入时, 浮点数乘法的结果可能与 BigDecimal 相差 1 ulp
+            return mod == null ? value : exactScaleAndRound(value, mod, fixed);
+        }
+        double scaled = mod == null ? value : value * modUnscaled / POW10[modScale];
+        double rounded = roundHalfUp(scaled, fixed);
+        return Double.isNaN(rounded) ? exactScaleAndRound(value, mod, fixed) : rounded;
+    }
+
+    /**
+     * 以 {@code magnitude} 的数量级为基准, 将数值四舍五入保留 {@code digits} 位有效数字, 用于消除浮点数计算产生的误差,
+     * 例如将 {@code 23.580000000000002} 处理为 {@code 23.58}.
+     * <br>
+     * 计算结果与参与计算的数值相减得到时, 误差与参与计算的数值的数量级相关, 而与计算结果的数量级无关, 因此需要指定 {@code magnitude}.
+     *
+     * @param value     数值, 必须是有限值
+     * @param magnitude 参与计算的数值中绝对值的最大值
+     * @param digits    有效数字位数, 最大为 15
+     * @return 处理后的数值
+     */
+    public static double roundToSignificant(double value, double magnitude, int digits) {
+        double abs = Math.max(Math.abs(value), Math.abs(magnitude));
+        if (abs == 0) {
+            return value;
+        }
+
+        int exponent = (int) Math.floor(Math.log10(abs));
+        int fixed = digits - 1 - exponent;
+        if (fixed < 0 || fixed >= POW10.length) {
+            return value;
+        }
+        // log10 在 10 的幂附近可能有误差
+        if (fixed > 0 && abs * POW10[fixed] >= POW10[digits]) {
+            fixed--;
+        }
+
+        double rounded = roundHalfUp(value, fixed);
+        if (Double.isNaN(rounded)) {
+            return BigDecimal.valueOf(value).setScale(fixed, RoundingMode.HALF_UP).doubleValue();
+        }
+        return rounded;
+    }
+
+    /**
+     * 使用浮点数计算四舍五入保留 {@code fixed} 位小数
+     *
+     * @return 计算结果. 如果无法确定舍入方向则返回 {@link Double#NaN}
+     */
+    private static double roundHalfUp(double value, int fixed) {
+        if (fixed >= POW10.length) {
+            return Double.NaN;
+        }
+
+        double s = Math.abs(value) * POW10[fixed];
+        if (s >= MAX_EXACT) {
+            return Double.NaN;
+        }
+        double floor = Math.floor(s);
+        double fraction = s - floor;
+        if (Math.abs(fraction - 0.5) <= TIE_GUARD_ULPS * Math.ulp(s)) {
+            return Double.NaN;
+        }
+        double rounded = fraction > 0.5 ? floor + 1 : floor;
+        if (rounded == 0) {
+            return 0d;
+        }
+        return Math.copySign(rounded / POW10[fixed], value);
+    }
+
+    /**
+     * 使用 {@link BigDecimal} 计算 {@code value * mod} 并保留 {@code fixed} 位小数 (四舍五入)
+     *
+     * @see #scaleAndRound(double, Decimal, int)
+     */
+    public static double exactScaleAndRound(double value, Decimal mod, int fixed) {
+        BigDecimal val = BigDecimal.valueOf(value);
+        if (mod != null) {
+            val = val.multiply(BigDecimal.valueOf(mod.unscaled, mod.scale));
+        }
+        if (fixed >= 0) {
+            val = val.setScale(fixed, RoundingMode.HALF_UP);
+        }
+        return val.doubleValue();
+    }
+
+    /**
+     * 计算数值的十进制小数位数, 即满足 {@code value == n / 10^scale} 的最小 {@code scale}
+     *
+     * @param value    数值
+     * @param maxScale 最大的小数位数
+     * @return 小数位数. 如果超过 {@code maxScale} 或无法用 {@code long} 精确表示则返回 {@code -1}
+     */
+    static int decimalScale(double value, int maxScale) {
+        double abs = Math.abs(value);
+        for (int scale = 0; scale <= maxScale && scale < POW10.length; scale++) {
+            double s = abs * POW10[scale];
+            if (s >= MAX_EXACT) {
+                return -1;
+            }
+            double n = Math.rint(s);
+            if (n / POW10[scale] == abs) {
+                return scale;
+            }
+        }
+        return -1;
+    }
+}
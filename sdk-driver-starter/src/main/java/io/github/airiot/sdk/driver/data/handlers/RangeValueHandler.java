@@ -88,6 +88,13 @@ public class RangeValueHandler implements DataHandler {
         return matched;
     }
 
+    @Override
+    public <T extends Tag> boolean supportsTag(String tableId, String deviceId, T tag) {
+        Range range = tag.getRange();
+        return range != null && StringUtils.hasText(range.getActive())
+                && range.getMinValue() != null && range.getMaxValue() != null;
+    }
+
     @Override
     public Map<String, Object> handle(String tableId, String deviceId, Tag tag, Object value) {
         double dValue = ((Number) value).doubleValue();
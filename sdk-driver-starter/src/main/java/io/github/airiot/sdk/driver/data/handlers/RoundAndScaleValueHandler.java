@@ -46,6 +46,10 @@ import java.util.Map;
  *          例如: 123.456 保留 2 位小数最终值为 123.46, 保留 1 位小数 最终值为 123.5
  *
  * </pre>
+ * <p>
+ * 默认使用 {@link Decimals#scaleAndRound(double, Decimals.Decimal, int)} 计算, 计算结果与 {@link BigDecimal} 一致,
+ * 但大多数情况下不需要创建 {@link BigDecimal} 对象. 可通过 {@link #RoundAndScaleValueHandler(boolean)} 启用精确计算模式,
+ * 该模式下处理结果为 {@link BigDecimal} 类型.
  *
  * @see Tag#getFixed() 小数位
  * @see Tag#getMod() 缩放比例
@@ -54,6 +58,22 @@ public class RoundAndScaleValueHandler implements DataHandler {
 
     private final Logger logger = LoggerFactory.withContext().module(DriverModules.WRITE_POINTS).getDynamicLogger(RoundAndScaleValueHandler.class);
 
+    /**
+     * 是否使用 {@link BigDecimal} 精确计算
+     */
+    private final boolean exact;
+
+    /**
+     * @param exact 是否使用 {@link BigDecimal} 精确计算
+     */
+    public RoundAndScaleValueHandler(boolean exact) {
+        this.exact = exact;
+    }
+
+    public RoundAndScaleValueHandler() {
+        this(false);
+    }
+
     @Override
     public boolean supports(String tableId, String deviceId, Tag tag, Object value) {
         if (!DataHandler.super.supports(tableId, deviceId, tag, value)) {
@@ -77,8 +97,23 @@ public class RoundAndScaleValueHandler implements DataHandler {
         return true;
     }
 
+    @Override
+    public <T extends Tag> boolean supportsTag(String tableId, String deviceId, T tag) {
+        return tag.getFixed() != null || tag.getMod() != null;
+    }
+
+    @Override
+    public <T extends Tag> Object compileTag(String tableId, String deviceId, T tag) {
+        return new Scale(tag.getMod());
+    }
+
     @Override
     public Map<String, Object> handle(String tableId, String deviceId, Tag tag, Object value) {
+        return this.handle(tableId, deviceId, tag, value, null);
+    }
+
+    @Override
+    public Map<String, Object> handle(String tableId, String deviceId, Tag tag, Object value, Object compiled) {
         double dValue = ((Number) value).doubleValue();
         if (Double.isNaN(dValue) || !Double.isFinite(dValue)) {
             logger.warn("数据点数据处理器: 小数位数和缩放比例, 值为 {}, 丢弃. device = {}, tag = {}",
@@ -86,24 +121,67 @@ public class RoundAndScaleValueHandler implements DataHandler {
             return Collections.emptyMap();
         }
 
+        Integer fixed = tag.getFixed();
+        Double mod = tag.getMod();
+        if (!this.exact) {
+            Decimals.Decimal modDecimal = mod == null ? null : this.getModDecimal(mod, compiled);
+            if (mod == null || modDecimal != null) {
+                double result = Decimals.scaleAndRound(dValue, modDecimal, fixed == null ? -1 : fixed);
+
+                logger.debug("数据点数据处理器: 小数位数和缩放比例, device = {}, tag = {}, value = {}, result = {}",
+                        deviceId, tag.getId(), value, result);
+
+                return Collections.singletonMap(tag.getId(), result);
+            }
+        }
+
         BigDecimal val = BigDecimal.valueOf(dValue);
-        
-        if (tag.getMod() != null) {
-            val = val.multiply(BigDecimal.valueOf(tag.getMod()));
+
+        if (mod != null) {
+            val = val.multiply(BigDecimal.valueOf(mod));
         }
 
-        if (tag.getFixed() != null && tag.getFixed() >= 0) {
-            val = val.setScale(tag.getFixed(), RoundingMode.HALF_UP);
+        if (fixed != null && fixed >= 0) {
+            val = val.setScale(fixed, RoundingMode.HALF_UP);
         }
 
-        logger.warn("数据点数据处理器: 小数位数和缩放比例, device = {}, tag = {}, value = {}, result = {}",
+        logger.debug("数据点数据处理器: 小数位数和缩放比例, device = {}, tag = {}, value = {}, result = {}",
                 deviceId, tag.getId(), value, val);
 
-        return Collections.singletonMap(tag.getId(), val);
+        return Collections.singletonMap(tag.getId(), this.exact ? val : val.doubleValue());
+    }
+
+    /**
+     * 获取缩放比例的十进制表示形式. 优先使用按数据点缓存的结果
+     */
+    private Decimals.Decimal getModDecimal(Double mod, Object compiled) {
+        if (compiled instanceof Scale) {
+            Scale scale = (Scale) compiled;
+            if (mod.equals(scale.mod)) {
+                return scale.modDecimal;
+            }
+        }
+        return Decimals.toDecimal(mod);
     }
 
     @Override
     public int getOrder() {
         return 100;
     }
+
+    /**
+     * 数据点缩放比例的十进制表示形式, 按数据点缓存
+     */
+    private static final class Scale {
+        private final Double mod;
+        /**
+         * 缩放比例的十进制表示形式. 未配置缩放比例或无法表示时为 {@code null}
+         */
+        private final Decimals.Decimal modDecimal;
+
+        Scale(Double mod) {
+            this.mod = mod;
+            this.modDecimal = mod == null ? null : Decimals.toDecimal(mod);
+        }
+    }
 }
@@ -1,16 +1,32 @@
 package io.github.airiot.sdk.driver.data.handlers;
 
+import io.github.airiot.sdk.driver.DeviceInfo;
+import io.github.airiot.sdk.driver.DriverConfigDelta;
 import io.github.airiot.sdk.driver.event.DriverReloadApplicationEvent;
+import io.github.airiot.sdk.driver.model.Tag;
 import org.springframework.context.ApplicationListener;
 import org.springframework.util.StringUtils;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
 /**
  * 数据点最新有效值缓存
+ * <br>
+ * 按 工作表 -> 设备 -> 数据点 分级存储, 每个数据点对应一个固定的缓存条目, 更新时直接修改条目中的值,
+ * 数值类型的值以原始类型存储, 缓存时间为毫秒时间戳. 因此更新已存在的数据点不会创建新对象.
+ * <br>
+ * 可以限制缓存的数据点数量以及缓存值的有效时间, 默认均不限制.
+ * <br>
+ * 驱动重新加载配置时, 只清除已删除或配置有变化的数据点的缓存.
  */
 public class TagValueCache implements ApplicationListener<DriverReloadApplicationEvent> {
 
@@ -28,9 +44,9 @@ public class TagValueCache implements ApplicationListener<DriverReloadApplicatio
          */
         private final String tagId;
         /**
-         * 缓存时间
+         * 缓存时间, 毫秒时间戳
          */
-        private final LocalDateTime time;
+        private final long timestamp;
         /**
          * 缓存值
          */
@@ -49,7 +65,16 @@ public class TagValueCache implements ApplicationListener<DriverReloadApplicatio
         }
 
         public LocalDateTime getTime() {
-            return time;
+            return LocalDateTime.ofInstant(Instant.ofEpochMilli(this.timestamp), ZoneId.systemDefault());
+        }
+
+        /**
+         * 获取缓存时间
+         *
+         * @return 毫秒时间戳
+         */
+        public long getTimestamp() {
+            return timestamp;
         }
 
         public Object getValue() {
@@ -57,10 +82,14 @@ public class TagValueCache implements ApplicationListener<DriverReloadApplicatio
         }
 
         public CacheValue(String tableId, String deviceId, String tagId, Object value) {
+            this(tableId, deviceId, tagId, System.currentTimeMillis(), value);
+        }
+
+        public CacheValue(String tableId, String deviceId, String tagId, long timestamp, Object value) {
             this.tableId = tableId;
             this.deviceId = deviceId;
             this.tagId = tagId;
-            this.time = LocalDateTime.now();
+            this.timestamp = timestamp;
             this.value = value;
         }
 
@@ -70,17 +99,239 @@ public class TagValueCache implements ApplicationListener<DriverReloadApplicatio
                     "tableId='" + tableId + '\'' +
                     ", deviceId='" + deviceId + '\'' +
                     ", tagId='" + tagId + '\'' +
-                    ", time=" + time +
+                    ", time=" + getTime() +
                     ", value=" + value +
                     '}';
         }
     }
 
-    private final Map<String, Map<String, CacheValue>> cacheValues = new ConcurrentHashMap<>();
+    /**
+     * 缓存值的类型. 数值类型以原始类型存储, 读取时转换回原来的包装类型
+     */
+    private static final byte TYPE_OBJECT = 0;
+    private static final byte TYPE_INT = 1;
+    private static final byte TYPE_LONG = 2;
+    private static final byte TYPE_DOUBLE = 3;
+    private static final byte TYPE_FLOAT = 4;
+    private static final byte TYPE_SHORT = 5;
+    private static final byte TYPE_BYTE = 6;
+
+    /**
+     * 单个数据点的缓存条目, 更新时直接修改条目中的值
+     */
+    private static final class Entry {
+        private byte type;
+        /**
+         * 整数类型的值, 或浮点数类型的值的 {@link Double#doubleToRawLongBits(double)}
+         */
+        private long bits;
+        /**
+         * 非数值类型的值
+         */
+        private Object ref;
+        private long timestamp;
+
+        synchronized void set(Object value, long timestamp) {
+            if (value instanceof Integer) {
+                this.type = TYPE_INT;
+                this.bits = (Integer) value;
+                this.ref = null;
+            } else if (value instanceof Long) {
+                this.type = TYPE_LONG;
+                this.bits = (Long) value;
+                this.ref = null;
+            } else if (value instanceof Double) {
+                this.type = TYPE_DOUBLE;
+                this.bits = Double.doubleToRawLongBits((Double) value);
+                this.ref = null;
+            } else if (value instanceof Float) {
+                this.type = TYPE_FLOAT;
+                this.bits = Double.doubleToRawLongBits((Float) value);
+                this.ref = null;
+            } else if (value instanceof Short) {
+                this.type = TYPE_SHORT;
+                this.bits = (Short) value;
+                this.ref = null;
+            } else if (value instanceof Byte) {
+                this.type = TYPE_BYTE;
+                this.bits = (Byte) value;
+                this.ref = null;
+            } else {
+                this.type = TYPE_OBJECT;
+                this.bits = 0;
+                this.ref = value;
+            }
+            this.timestamp = timestamp;
+        }
+
+        synchronized long getTimestamp() {
+            return this.timestamp;
+        }
+
+        synchronized Object getValue() {
+            switch (this.type) {
+                case TYPE_INT:
+                    return (int) this.bits;
+                case TYPE_LONG:
+                    return this.bits;
+                case TYPE_DOUBLE:
+                    return Double.longBitsToDouble(this.bits);
+                case TYPE_FLOAT:
+                    return (float) Double.longBitsToDouble(this.bits);
+                case TYPE_SHORT:
+                    return (short) this.bits;
+                case TYPE_BYTE:
+                    return (byte) this.bits;
+                default:
+                    return this.ref;
+            }
+        }
+
+        /**
+         * 获取数值类型的值
+         *
+         * @param expireBefore 缓存时间早于该时间的值视为已过期
+         * @return 缓存值. 如果不是数值类型或已过期则返回 {@link Double#NaN}
+         */
+        synchronized double getDouble(long expireBefore) {
+            if (this.timestamp < expireBefore) {
+                return Double.NaN;
+            }
+            switch (this.type) {
+                case TYPE_INT:
+                case TYPE_LONG:
+                case TYPE_SHORT:
+                case TYPE_BYTE:
+                    return this.bits;
+                case TYPE_DOUBLE:
+                case TYPE_FLOAT:
+                    return Double.longBitsToDouble(this.bits);
+                default:
+                    return this.ref instanceof Number ? ((Number) this.ref).doubleValue() : Double.NaN;
+            }
+        }
+    }
+
+    /**
+     * tableId -> deviceId -> tagId -> 缓存条目
+     */
+    private final Map<String, Map<String, Map<String, Entry>>> cacheValues = new ConcurrentHashMap<>();
+    /**
+     * 缓存的数据点数量
+     */
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+
+    /**
+     * 最多缓存的数据点数量. 如果小于等于 {@code 0} 则不限制
+     */
+    private final int maxSize;
+    /**
+     * 缓存值的有效时间, 毫秒. 如果小于等于 {@code 0} 则不限制
+     */
+    private final long ttlMillis;
+    /**
+     * 上次清理过期缓存的时间
+     */
+    private volatile long lastExpireTime = System.currentTimeMillis();
+
+    public TagValueCache() {
+        this(0, null);
+    }
+
+    /**
+     * @param maxSize 最多缓存的数据点数量. 超过后会清除最早更新的数据点. 如果小于等于 {@code 0} 则不限制
+     * @param ttl     缓存值的有效时间. 超过有效时间的值不会再被读取到. 如果为 {@code null} 或小于等于 {@code 0} 则不限制
+     */
+    public TagValueCache(int maxSize, Duration ttl) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttl == null || ttl.isNegative() ? 0 : ttl.toMillis();
+    }
 
     @Override
     public void onApplicationEvent(DriverReloadApplicationEvent event) {
+        if (event.isFull()) {
+            this.clear();
+            return;
+        }
+
+        // 只清除已删除或配置有变化的数据点
+        DriverConfigDelta delta = event.getDelta();
+        for (String tableId : delta.getRemovedTables()) {
+            this.remove(tableId);
+        }
+        for (DeviceInfo<? extends Tag> device : delta.getRemovedDevices()) {
+            this.remove(device.getTableId(), device.getId());
+        }
+        for (DeviceInfo<? extends Tag> device : delta.getChangedDevices()) {
+            for (String tagId : delta.getChangedTags(device.getTableId(), device.getId())) {
+                this.remove(device.getTableId(), device.getId(), tagId);
+            }
+        }
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void clear() {
         this.cacheValues.clear();
+        this.size.set(0);
+    }
+
+    /**
+     * 清除工作表下所有设备的缓存
+     *
+     * @param tableId 工作表标识
+     */
+    public void remove(String tableId) {
+        Map<String, Map<String, Entry>> devices = this.cacheValues.remove(tableId);
+        if (devices != null) {
+            for (Map<String, Entry> tags : devices.values()) {
+                this.size.addAndGet(-tags.size());
+            }
+        }
+    }
+
+    /**
+     * 清除设备下所有数据点的缓存
+     *
+     * @param tableId  工作表标识
+     * @param deviceId 设备编号
+     */
+    public void remove(String tableId, String deviceId) {
+        Map<String, Map<String, Entry>> devices = this.cacheValues.get(tableId);
+        if (devices == null) {
+            return;
+        }
+        Map<String, Entry> tags = devices.remove(deviceId);
+        if (tags != null) {
+            this.size.addAndGet(-tags.size());
+        }
+    }
+
+    /**
+     * 清除数据点的缓存
+     *
+     * @param tableId  工作表标识
+     * @param deviceId 设备编号
+     * @param tagId    数据点标识
+     */
+    public void remove(String tableId, String deviceId, String tagId) {
+        Map<String, Map<String, Entry>> devices = this.cacheValues.get(tableId);
+        if (devices == null) {
+            return;
+        }
+        Map<String, Entry> tags = devices.get(deviceId);
+        if (tags != null && tags.remove(tagId) != null) {
+            this.size.decrementAndGet();
+        }
+    }
+
+    /**
+     * 获取缓存的数据点数量
+     */
+    public int size() {
+        return this.size.get();
     }
 
     /**
@@ -92,9 +343,30 @@ public class TagValueCache implements ApplicationListener<DriverReloadApplicatio
      * @param value    最新有效值
      */
     public void put(String tableId, String deviceId, String tagId, Object value) {
-        String key = String.format("%s|#|%s", tagId, deviceId);
-        this.cacheValues.putIfAbsent(key, new ConcurrentHashMap<>());
-        this.cacheValues.get(key).put(tagId, new CacheValue(tableId, deviceId, tagId, value));
+        long now = System.currentTimeMillis();
+
+        Map<String, Map<String, Entry>> devices = this.cacheValues.get(tableId);
+        if (devices == null) {
+            devices = this.cacheValues.computeIfAbsent(tableId, k -> new ConcurrentHashMap<>());
+        }
+        Map<String, Entry> tags = devices.get(deviceId);
+        if (tags == null) {
+            tags = devices.computeIfAbsent(deviceId, k -> new ConcurrentHashMap<>());
+        }
+        Entry entry = tags.get(tagId);
+        if (entry == null) {
+            entry = tags.computeIfAbsent(tagId, k -> {
+                this.size.incrementAndGet();
+                return new Entry();
+            });
+        }
+        entry.set(value, now);
+
+        if (this.maxSize > 0 && this.size.get() > this.maxSize) {
+            this.evict(now, true);
+        } else if (this.ttlMillis > 0 && now - this.lastExpireTime > this.ttlMillis) {
+            this.evict(now, false);
+        }
     }
 
     /**
@@ -103,9 +375,41 @@ public class TagValueCache implements ApplicationListener<DriverReloadApplicatio
      * @param tableId  工作表标识
      * @param deviceId 设备编号
      * @param tagId    数据点标识
-     * @return 最新有效值. 如果不存在, 则返回 {@code null}
+     * @return 最新有效值. 如果不存在或已过期, 则返回 {@code null}
      */
     public CacheValue get(String tableId, String deviceId, String tagId) {
+        Entry entry = this.getEntry(tableId, deviceId, tagId);
+        if (entry == null) {
+            return null;
+        }
+
+        CacheValue value;
+        synchronized (entry) {
+            value = new CacheValue(tableId, deviceId, tagId, entry.timestamp, entry.getValue());
+        }
+        if (this.isExpired(value.getTimestamp(), System.currentTimeMillis())) {
+            return null;
+        }
+        return value;
+    }
+
+    /**
+     * 获取数值类型的最新有效值. 与 {@link #get(String, String, String)} 不同, 该方法不创建新对象
+     *
+     * @param tableId  工作表标识
+     * @param deviceId 设备编号
+     * @param tagId    数据点标识
+     * @return 最新有效值. 如果不存在, 已过期或者不是数值类型, 则返回 {@link Double#NaN}
+     */
+    public double getDouble(String tableId, String deviceId, String tagId) {
+        Entry entry = this.getEntry(tableId, deviceId, tagId);
+        if (entry == null) {
+            return Double.NaN;
+        }
+        return entry.getDouble(this.ttlMillis > 0 ? System.currentTimeMillis() - this.ttlMillis : Long.MIN_VALUE);
+    }
+
+    private Entry getEntry(String tableId, String deviceId, String tagId) {
         if (!StringUtils.hasText(tableId)) {
             throw new IllegalArgumentException("tableId is empty");
         }
@@ -118,10 +422,79 @@ public class TagValueCache implements ApplicationListener<DriverReloadApplicatio
             throw new IllegalArgumentException("tagId is empty");
         }
 
-        String key = String.format("%s|#|%s", tagId, deviceId);
-        if (!this.cacheValues.containsKey(key)) {
+        Map<String, Map<String, Entry>> devices = this.cacheValues.get(tableId);
+        if (devices == null) {
             return null;
         }
-        return this.cacheValues.get(key).get(tagId);
+        Map<String, Entry> tags = devices.get(deviceId);
+        return tags == null ? null : tags.get(tagId);
+    }
+
+    private boolean isExpired(long timestamp, long now) {
+        return this.ttlMillis > 0 && now - timestamp > this.ttlMillis;
+    }
+
+    /**
+     * 清除过期的缓存. 如果缓存数量超过限制, 再按更新时间从早到晚清除, 直到缓存数量不超过限制的 90%
+     * <br>
+     * 同一时间只有一个线程执行清理, 其它线程直接返回
+     *
+     * @param now  当前时间
+     * @param full 是否因缓存数量超过限制而清理
+     */
+    private void evict(long now, boolean full) {
+        if (!this.evicting.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            this.lastExpireTime = now;
+            long minTimestamp = Long.MAX_VALUE;
+            if (this.ttlMillis > 0) {
+                minTimestamp = this.removeOlderThan(now - this.ttlMillis);
+            }
+
+            if (!full || this.maxSize <= 0) {
+                return;
+            }
+
+            // 每次清除最早更新的一部分数据点, 直到缓存数量不超过限制的 90%
+            int target = this.maxSize - this.maxSize / 10;
+            if (minTimestamp == Long.MAX_VALUE) {
+                minTimestamp = this.removeOlderThan(Long.MIN_VALUE);
+            }
+            long step = Math.max(1, (now - minTimestamp) / 10);
+            long threshold = minTimestamp;
+            while (this.size.get() > target && threshold <= now) {
+                threshold += step;
+                this.removeOlderThan(threshold);
+            }
+        } finally {
+            this.evicting.set(false);
+        }
+    }
+
+    /**
+     * 清除更新时间早于 {@code threshold} 的缓存
+     *
+     * @return 剩余缓存中最早的更新时间
+     */
+    private long removeOlderThan(long threshold) {
+        long minTimestamp = Long.MAX_VALUE;
+        for (Map<String, Map<String, Entry>> devices : this.cacheValues.values()) {
+            for (Map<String, Entry> tags : devices.values()) {
+                Iterator<Entry> iterator = tags.values().iterator();
+                while (iterator.hasNext()) {
+                    long timestamp = iterator.next().getTimestamp();
+                    if (timestamp < threshold) {
+                        iterator.remove();
+                        this.size.decrementAndGet();
+                    } else if (timestamp < minTimestamp) {
+                        minTimestamp = timestamp;
+                    }
+                }
+            }
+        }
+        return minTimestamp;
     }
 }
@@ -0,0 +1,311 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.github.airiot.sdk.driver.data.impl;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.ShutdownSignalException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Amqp Channel 池
+ * <br>
+ * Channel 不是线程安全的, 发送消息前通过 {@link #borrow()} 获取 Channel, 使用完成后通过 {@link #release(PooledChannel)} 归还.
+ * 同时使用的 Channel 数量不超过 {@code maxSize}, 均在使用中时最多等待 {@code borrowTimeoutMs}.
+ * <br>
+ * 开启消息确认 (publisher confirms) 时, {@link PooledChannel#publish(String, String, AMQP.BasicProperties, byte[])}
+ * 返回的 {@link CompletableFuture} 在服务端确认后完成, 在服务端拒绝或 Channel 关闭时异常结束.
+ * 服务端可以一次确认多条消息, 因此批量发送后统一等待即可.
+ */
+public class AmqpChannelPool implements Closeable {
+
+    private final Connection connection;
+    private final int maxSize;
+    private final long borrowTimeoutMs;
+    /**
+     * 是否开启消息确认
+     */
+    private final boolean confirms;
+    private final Semaphore permits;
+    /**
+     * 空闲的 Channel
+     */
+    private final BlockingQueue<PooledChannel> idle;
+    /**
+     * 所有已创建且未关闭的 Channel
+     */
+    private final Set<PooledChannel> channels = ConcurrentHashMap.newKeySet();
+    private volatile boolean closed = false;
+
+    public AmqpChannelPool(Connection connection, int maxSize, long borrowTimeoutMs, boolean confirms) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Channel 池的最大数量必须大于 0");
+        }
+        this.connection = connection;
+        this.maxSize = maxSize;
+        this.borrowTimeoutMs = borrowTimeoutMs;
+        this.confirms = confirms;
+        this.permits = new Semaphore(maxSize);
+        this.idle = new ArrayBlockingQueue<>(maxSize);
+    }
+
+    /**
+     * 获取 Channel. 如果没有空闲的 Channel 则创建新的 Channel
+     *
+     * @return Channel, 使用完成后必须通过 {@link #release(PooledChannel)} 归还
+     * @throws IOException 如果等待超时或创建 Channel 失败
+     */
+    public PooledChannel borrow() throws IOException {
+        if (this.closed) {
+            throw new IOException("Amqp Channel 池已关闭");
+        }
+
+        try {
+            if (!this.permits.tryAcquire(this.borrowTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new IOException("获取 Amqp Channel 超时, 使用中的 Channel 数量: " + this.maxSize);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("获取 Amqp Channel 被中断", e);
+        }
+
+        try {
+            PooledChannel channel;
+            while ((channel = this.idle.poll()) != null) {
+                if (channel.isOpen()) {
+                    return channel;
+                }
+                this.discard(channel);
+            }
+            return this.create();
+        } catch (IOException | RuntimeException e) {
+            this.permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * 归还 Channel. 已关闭的 Channel 会被丢弃
+     */
+    public void release(PooledChannel channel) {
+        if (!this.closed && channel.isOpen() && this.idle.offer(channel)) {
+            this.permits.release();
+            return;
+        }
+        this.discard(channel);
+        this.permits.release();
+    }
+
+    private PooledChannel create() throws IOException {
+        Channel channel = this.connection.createChannel();
+        if (channel == null) {
+            throw new IOException("创建 Amqp Channel 失败, 已达到服务端允许的最大数量");
+        }
+        PooledChannel pooled = new PooledChannel(channel, this.confirms);
+        this.channels.add(pooled);
+        return pooled;
+    }
+
+    private void discard(PooledChannel channel) {
+        this.channels.remove(channel);
+        channel.close();
+    }
+
+    /**
+     * 已创建且未关闭的 Channel 数量
+     */
+    public int getOpenChannels() {
+        return this.channels.size();
+    }
+
+    /**
+     * 空闲的 Channel 数量
+     */
+    public int getIdleChannels() {
+        return this.idle.size();
+    }
+
+    /**
+     * 已发送但服务端尚未确认的消息数量. 未开启消息确认时为 {@code 0}
+     */
+    public int getUnconfirmed() {
+        int count = 0;
+        for (PooledChannel channel : this.channels) {
+            count += channel.getUnconfirmed();
+        }
+        return count;
+    }
+
+    /**
+     * 等待所有已发送的消息被服务端确认
+     *
+     * @param timeoutMs 每个 Channel 的最大等待时间
+     */
+    public void waitForConfirms(long timeoutMs) {
+        if (!this.confirms) {
+            return;
+        }
+        for (PooledChannel channel : this.channels) {
+            try {
+                channel.channel.waitForConfirms(timeoutMs);
+            } catch (Exception ignored) {
+                // Channel 关闭时未确认的消息已异常结束
+            }
+        }
+    }
+
+    /**
+     * 关闭所有 Channel. 未确认的消息异常结束
+     */
+    @Override
+    public void close() {
+        this.closed = true;
+        for (PooledChannel channel : this.channels) {
+            this.discard(channel);
+        }
+        this.idle.clear();
+    }
+
+    @Override
+    public String toString() {
+        return "AmqpChannelPool{" +
+                "maxSize=" + maxSize +
+                ", open=" + getOpenChannels() +
+                ", idle=" + getIdleChannels() +
+                ", unconfirmed=" + getUnconfirmed() +
+                '}';
+    }
+
+    /**
+     * 池中的 Channel
+     */
+    public static final class PooledChannel {
+        private final Channel channel;
+        /**
+         * 未确认的消息. 发送序号 -> 发送结果. 未开启消息确认时为 {@code null}
+         */
+        private final ConcurrentNavigableMap<Long, CompletableFuture<Void>> unconfirmed;
+
+        PooledChannel(Channel channel, boolean confirms) throws IOException {
+            this.channel = channel;
+            if (!confirms) {
+                this.unconfirmed = null;
+                return;
+            }
+
+            this.unconfirmed = new ConcurrentSkipListMap<>();
+            channel.confirmSelect();
+            channel.addConfirmListener(
+                    (deliveryTag, multiple) -> this.confirm(deliveryTag, multiple, null),
+                    (deliveryTag, multiple) -> this.confirm(deliveryTag, multiple, new IOException("消息被服务端拒绝"))
+            );
+            channel.addShutdownListener(this::fail);
+        }
+
+        /**
+         * 发送消息
+         *
+         * @return 发送结果. 未开启消息确认时返回已完成的 {@link CompletableFuture}
+         * @throws IOException 如果发送失败
+         */
+        public CompletableFuture<Void> publish(String exchange, String routingKey, AMQP.BasicProperties props, byte[] body) throws IOException {
+            if (this.unconfirmed == null) {
+                this.channel.basicPublish(exchange, routingKey, false, false, props, body);
+                return CompletableFuture.completedFuture(null);
+            }
+
+            long seqNo = this.channel.getNextPublishSeqNo();
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            this.unconfirmed.put(seqNo, future);
+            try {
+                this.channel.basicPublish(exchange, routingKey, false, false, props, body);
+            } catch (IOException | RuntimeException e) {
+                this.unconfirmed.remove(seqNo);
+                throw e;
+            }
+            return future;
+        }
+
+        boolean isOpen() {
+            return this.channel.isOpen();
+        }
+
+        int getUnconfirmed() {
+            return this.unconfirmed == null ? 0 : this.unconfirmed.size();
+        }
+
+        private void confirm(long deliveryTag, boolean multiple, Throwable cause) {
+            if (!multiple) {
+                this.complete(this.unconfirmed.remove(deliveryTag), cause);
+                return;
+            }
+            Map.Entry<Long, CompletableFuture<Void>> entry;
+            while ((entry = this.unconfirmed.firstEntry()) != null && entry.getKey() <= deliveryTag) {
+                if (this.unconfirmed.remove(entry.getKey(), entry.getValue())) {
+                    this.complete(entry.getValue(), cause);
+                }
+            }
+        }
+
+        private void fail(Throwable cause) {
+            Map.Entry<Long, CompletableFuture<Void>> entry;
+            while ((entry = this.unconfirmed.pollFirstEntry()) != null) {
+                entry.getValue().completeExceptionally(cause);
+            }
+        }
+
+        private void complete(CompletableFuture<Void> future, Throwable cause) {
+            if (future == null) {
+                return;
+            }
+            if (cause == null) {
+                future.complete(null);
+            } else {
+                future.completeExceptionally(cause);
+            }
+        }
+
+        private void close() {
+            try {
+                if (this.channel.isOpen()) {
+                    this.channel.close();
+                }
+            } catch (Exception ignored) {
+                // 连接已断开
+            } finally {
+                if (this.unconfirmed != null) {
+                    this.fail(new ShutdownSignalException(false, true, null, this.channel));
+                }
+            }
+        }
+    }
+}
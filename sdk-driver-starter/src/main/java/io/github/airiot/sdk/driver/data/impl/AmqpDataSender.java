@@ -17,7 +17,7 @@
 
 package io.github.airiot.sdk.driver.data.impl;
 
-import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.AMQP;
 import com.rabbitmq.client.Connection;
 import com.rabbitmq.client.ConnectionFactory;
 import com.rabbitmq.client.MessageProperties;
@@ -27,7 +27,10 @@ import io.github.airiot.sdk.driver.configuration.properties.DriverDataProperties
 import io.github.airiot.sdk.driver.configuration.properties.DriverMQProperties;
 import io.github.airiot.sdk.driver.data.AbstractDataSender;
 import io.github.airiot.sdk.driver.data.DataHandlerChain;
+import io.github.airiot.sdk.driver.data.DataSenderException;
+import io.github.airiot.sdk.driver.data.DeviceKeyCache;
 import io.github.airiot.sdk.driver.data.LogSenderException;
+import io.github.airiot.sdk.driver.data.WritePointResult;
 import io.github.airiot.sdk.driver.data.warning.Warning;
 import io.github.airiot.sdk.driver.data.warning.WarningRecovery;
 import io.github.airiot.sdk.driver.data.warning.WarningSenderException;
@@ -42,29 +45,40 @@ import org.springframework.util.StringUtils;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 
 /**
  * RabbitMQ Amqp 协议
+ * <br>
+ * 使用 {@link AmqpChannelPool} 中的 Channel 发送消息, 可通过 {@link DriverMQProperties.Rabbit#getConfirmMode()} 开启消息确认.
  */
 public class AmqpDataSender extends AbstractDataSender {
 
     private final Logger log = LoggerFactory.withContext().module(DriverModules.START).getStaticLogger(MQTTDataSender.class);
     private final DriverMQProperties.Rabbit rabbitProperties;
-    private final ThreadLocal<Channel> channel = ThreadLocal.withInitial(this::createChannel);
+    /**
+     * 数据消息属性. 使用非默认的编码器时, 通过 contentType 告知平台数据的编码方式
+     */
+    private final AMQP.BasicProperties dataProperties;
+    /**
+     * 设备使用的 routing key
+     */
+    private final DeviceKeyCache<RoutingKeys> routingKeys;
+    private final DriverMQProperties.Rabbit.ConfirmMode confirmMode;
+    private final long confirmTimeoutMs;
     private Connection connection;
-
-    private Channel createChannel() {
-        if (this.connection == null) {
-            throw new IllegalStateException("AmqpDataSender 未连接");
-        }
-
-        try {
-            return this.connection.createChannel();
-        } catch (IOException e) {
-            throw new IllegalStateException("创建 Amqp Channel 异常", e);
-        }
-    }
+    /**
+     * 发送消息使用的 Channel 池
+     */
+    private AmqpChannelPool channelPool;
 
     public AmqpDataSender(DriverDataProperties properties, DriverAppProperties appProperties,
                           DataHandlerChain chain,
@@ -73,6 +87,12 @@ public class AmqpDataSender extends AbstractDataSender {
                           DriverServiceGrpc.DriverServiceBlockingStub driverGrpcClient) {
         super(properties, appProperties, globalContext, chain, driverGrpcClient);
         this.rabbitProperties = rabbitProperties;
+        this.dataProperties = this.isCustomCodec()
+                ? MessageProperties.TEXT_PLAIN.builder().contentType(this.getPointCodec().getContentType()).build()
+                : MessageProperties.TEXT_PLAIN;
+        this.routingKeys = this.newDeviceKeyCache((tableId, deviceId) -> new RoutingKeys(this.projectId, tableId, deviceId));
+        this.confirmMode = rabbitProperties.getConfirmMode() == null ? DriverMQProperties.Rabbit.ConfirmMode.NONE : rabbitProperties.getConfirmMode();
+        this.confirmTimeoutMs = rabbitProperties.getConfirmTimeout().toMillis();
     }
 
     @Override
@@ -97,13 +117,27 @@ public class AmqpDataSender extends AbstractDataSender {
         factory.setNetworkRecoveryInterval(Math.max(reconnectIntervalMs, 5000));
 
         try {
-            this.connection = factory.newConnection();
-            log.info("AmqpDataSender: 已连接");
+            this.connection = this.newConnection(factory);
+            this.channelPool = new AmqpChannelPool(this.connection, this.rabbitProperties.getChannelPoolSize(),
+                    this.rabbitProperties.getChannelBorrowTimeout().toMillis(),
+                    this.confirmMode != DriverMQProperties.Rabbit.ConfirmMode.NONE);
+            log.info("AmqpDataSender: 已连接, confirmMode = {}", this.confirmMode);
         } catch (Exception e) {
             throw new IllegalStateException("AmqpDataSender: 连接失败", e);
         }
     }
 
+    /**
+     * 创建连接
+     *
+     * @param factory 已设置连接参数的连接工厂
+     * @return 连接
+     * @throws Exception 如果连接失败
+     */
+    protected Connection newConnection(ConnectionFactory factory) throws Exception {
+        return factory.newConnection();
+    }
+
     @Override
     public void stop() {
         if (this.connection == null) {
@@ -111,6 +145,10 @@ public class AmqpDataSender extends AbstractDataSender {
         }
 
         log.info("AmqpDataSender: 关闭中");
+        this.flushPendingPoints();
+        // 等待已发送的消息被确认后再关闭
+        this.channelPool.waitForConfirms(this.confirmTimeoutMs);
+        this.channelPool.close();
         try {
             this.connection.close(10000);
             log.info("AmqpDataSender: 已关闭");
@@ -119,6 +157,7 @@ public class AmqpDataSender extends AbstractDataSender {
         }
 
         this.connection = null;
+        this.channelPool = null;
     }
 
     @Override
@@ -126,12 +165,158 @@ public class AmqpDataSender extends AbstractDataSender {
         return this.connection != null && this.connection.isOpen();
     }
 
+    /**
+     * 获取 Channel 池. 可用于查看 Channel 数量和未确认的消息数量
+     *
+     * @return Channel 池. 未连接时返回 {@code null}
+     */
+    public AmqpChannelPool getChannelPool() {
+        return this.channelPool;
+    }
+
+    private AmqpChannelPool getConnectedPool() throws IOException {
+        AmqpChannelPool pool = this.channelPool;
+        if (pool == null) {
+            throw new IOException("AmqpDataSender 未连接");
+        }
+        return pool;
+    }
+
+    /**
+     * 发送消息
+     *
+     * @return 发送结果. 开启消息确认时在服务端确认后完成
+     */
+    private CompletableFuture<Void> publish(String exchange, String routingKey, AMQP.BasicProperties props, byte[] body) throws IOException {
+        AmqpChannelPool pool = this.getConnectedPool();
+        AmqpChannelPool.PooledChannel channel = pool.borrow();
+        try {
+            return channel.publish(exchange, routingKey, props, body);
+        } finally {
+            pool.release(channel);
+        }
+    }
+
+    /**
+     * 等待服务端确认消息, 最多等待 {@link DriverMQProperties.Rabbit#getConfirmTimeout()}
+     */
+    private void awaitConfirm(CompletableFuture<Void> future) throws IOException {
+        if (future.isDone() && !future.isCompletedExceptionally()) {
+            return;
+        }
+        try {
+            future.get(this.confirmTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new IOException("等待服务端确认消息超时", e);
+        } catch (ExecutionException e) {
+            throw new IOException("消息未被服务端确认", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("等待服务端确认消息被中断", e);
+        }
+    }
+
     @Override
     public void doWritePoint(Point point) throws Exception {
-        byte[] payload = this.encode(point);
-        String routingKey = String.format("data.%s.%s.%s", this.projectId, point.getTable(), point.getId());
-        channel.get().basicPublish("data", routingKey,
-                false, false, MessageProperties.TEXT_PLAIN, payload);
+        CompletableFuture<Void> future = this.publish("data", this.routingKeys.get(point.getTable(), point.getId()).data,
+                this.dataProperties, this.encode(point));
+        if (this.confirmMode == DriverMQProperties.Rabbit.ConfirmMode.ASYNC) {
+            future.whenComplete((r, e) -> {
+                if (e != null) {
+                    this.handleDeliveryFailureAsync(point, e);
+                }
+            });
+            return;
+        }
+        this.awaitConfirm(future);
+    }
+
+    @Override
+    protected boolean supportsPayloadReplay() {
+        return true;
+    }
+
+    @Override
+    protected void doWritePayload(String tableId, String deviceId, byte[] payload) throws Exception {
+        // 重新发送缓存的数据时总是等待确认, 确认失败的数据保留在缓存中
+        this.awaitConfirm(this.publish("data", this.routingKeys.get(tableId, deviceId).data, this.dataProperties, payload));
+    }
+
+    @Override
+    protected List<WritePointResult> doWritePoints(List<Point> points) {
+        List<WritePointResult> results = new ArrayList<>(points.size());
+        List<CompletableFuture<Void>> futures = new ArrayList<>(points.size());
+        boolean async = this.confirmMode == DriverMQProperties.Rabbit.ConfirmMode.ASYNC;
+
+        // 同一批数据使用同一个 Channel 发送, 服务端可以一次确认多条
+        AmqpChannelPool pool;
+        AmqpChannelPool.PooledChannel channel;
+        try {
+            pool = this.getConnectedPool();
+            channel = pool.borrow();
+        } catch (IOException e) {
+            for (Point point : points) {
+                results.add(WritePointResult.failure(point, new DataSenderException(point, "上报数据异常", e)));
+            }
+            return results;
+        }
+
+        try {
+            for (Point point : points) {
+                CompletableFuture<Void> future = null;
+                try {
+                    future = channel.publish("data", this.routingKeys.get(point.getTable(), point.getId()).data,
+                            this.dataProperties, this.encode(point));
+                    if (async) {
+                        future.whenComplete((r, e) -> {
+                            if (e != null) {
+                                this.handleDeliveryFailureAsync(point, e);
+                            }
+                        });
+                        future = null;
+                    }
+                    results.add(WritePointResult.success(point));
+                } catch (Exception e) {
+                    results.add(WritePointResult.failure(point, new DataSenderException(point, "上报数据异常", e)));
+                }
+                futures.add(future);
+            }
+        } finally {
+            pool.release(channel);
+        }
+
+        for (int i = 0; i < futures.size(); i++) {
+            CompletableFuture<Void> future = futures.get(i);
+            if (future == null) {
+                continue;
+            }
+            try {
+                this.awaitConfirm(future);
+            } catch (IOException e) {
+                Point point = points.get(i);
+                results.set(i, WritePointResult.failure(point, new DataSenderException(point, "上报数据异常", e)));
+            }
+        }
+        return results;
+    }
+
+    @Override
+    protected CompletableFuture<Void> doWritePointAsync(Point point) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        try {
+            this.publish("data", this.routingKeys.get(point.getTable(), point.getId()).data, this.dataProperties, this.encode(point))
+                    .whenComplete((r, e) -> {
+                        if (e == null) {
+                            future.complete(null);
+                            return;
+                        }
+                        this.handleDeliveryFailureAsync(point, e);
+                        future.completeExceptionally(new DataSenderException(point, "发送数据失败", e));
+                    });
+        } catch (Exception e) {
+            future.completeExceptionally(new DataSenderException(point, "发送数据失败", e));
+        }
+        return future;
     }
 
     @Override
@@ -142,10 +327,8 @@ public class AmqpDataSender extends AbstractDataSender {
 
         byte[] payload = message.getBytes(StandardCharsets.UTF_8);
         try {
-            this.connection.createChannel().basicPublish("logs",
-                    String.format("logs.%s.%s.%s.%s", this.projectId, level, tableId, deviceId),
-                    false, false,
-                    MessageProperties.TEXT_PLAIN, payload);
+            this.awaitConfirm(this.publish("logs", this.routingKeys.get(tableId, deviceId).log(level),
+                    MessageProperties.TEXT_PLAIN, payload));
         } catch (Exception e) {
             throw new LogSenderException(tableId, deviceId, level, message, e);
         }
@@ -171,10 +354,8 @@ public class AmqpDataSender extends AbstractDataSender {
         warningLogger.info("发送报警信息, table = {}, device = {}, {}", tableId, deviceId, warning);
 
         try {
-            this.connection.createChannel().basicPublish("warning",
-                    String.format("warningStorage.%s.%s.%s", this.projectId, tableId, deviceId),
-                    false, false,
-                    MessageProperties.TEXT_PLAIN, warningData);
+            this.awaitConfirm(this.publish("warning", this.routingKeys.get(tableId, deviceId).warningStorage,
+                    MessageProperties.TEXT_PLAIN, warningData));
             warningLogger.info("发送报警信息完成, table = {}, device = {}, {}", tableId, deviceId, warning);
         } catch (Exception e) {
             warningLogger.warn("报警信息发送失败, table = {}, device = {}, {}", tableId, deviceId, warning, e);
@@ -205,10 +386,8 @@ public class AmqpDataSender extends AbstractDataSender {
         warningLogger.info("发送报警恢复信息, table = {}, device = {}, {}", tableId, deviceId, recovery);
 
         try {
-            this.connection.createChannel().basicPublish("warning",
-                    String.format("warningUpdate.%s.%s.%s", this.projectId, tableId, deviceId),
-                    false, false,
-                    MessageProperties.TEXT_PLAIN, warningData);
+            this.awaitConfirm(this.publish("warning", this.routingKeys.get(tableId, deviceId).warningUpdate,
+                    MessageProperties.TEXT_PLAIN, warningData));
             warningLogger.info("发送报警恢复信息完成, table = {}, device = {}, {}", tableId, deviceId, recovery);
         } catch (Exception e) {
             warningLogger.warn("发送报警恢复信息失败, table = {}, device = {}, {}", tableId, deviceId, recovery, e);
@@ -217,4 +396,37 @@ public class AmqpDataSender extends AbstractDataSender {
             LoggerContexts.pop();
         }
     }
+
+    /**
+     * 设备使用的 routing key
+     */
+    private static final class RoutingKeys {
+        private final String projectId;
+        private final String tableId;
+        private final String deviceId;
+        private final String data;
+        private final String warningStorage;
+        private final String warningUpdate;
+        /**
+         * 日志 routing key. level -> routing key
+         */
+        private final Map<String, String> logs = new ConcurrentHashMap<>(4);
+
+        RoutingKeys(String projectId, String tableId, String deviceId) {
+            this.projectId = projectId;
+            this.tableId = tableId;
+            this.deviceId = deviceId;
+            String path = projectId + "." + tableId + "." + deviceId;
+            this.data = "data." + path;
+            this.warningStorage = "warningStorage." + path;
+            this.warningUpdate = "warningUpdate." + path;
+        }
+
+        String log(String level) {
+            if (level == null) {
+                return "logs." + projectId + ".null." + tableId + "." + deviceId;
+            }
+            return logs.computeIfAbsent(level, l -> "logs." + projectId + "." + l + "." + tableId + "." + deviceId);
+        }
+    }
 }
@@ -24,7 +24,9 @@ import io.github.airiot.sdk.driver.configuration.properties.DriverMQProperties;
 import io.github.airiot.sdk.driver.data.AbstractDataSender;
 import io.github.airiot.sdk.driver.data.DataHandlerChain;
 import io.github.airiot.sdk.driver.data.DataSenderException;
+import io.github.airiot.sdk.driver.data.DeviceKeyCache;
 import io.github.airiot.sdk.driver.data.LogSenderException;
+import io.github.airiot.sdk.driver.data.WritePointResult;
 import io.github.airiot.sdk.driver.data.warning.Warning;
 import io.github.airiot.sdk.driver.data.warning.WarningRecovery;
 import io.github.airiot.sdk.driver.data.warning.WarningSenderException;
@@ -34,20 +36,20 @@ import io.github.airiot.sdk.logger.LoggerContext;
 import io.github.airiot.sdk.logger.LoggerContexts;
 import io.github.airiot.sdk.logger.LoggerFactory;
 import io.github.airiot.sdk.logger.driver.DriverModules;
-import org.apache.kafka.clients.producer.KafkaProducer;
-import org.apache.kafka.clients.producer.Producer;
-import org.apache.kafka.clients.producer.ProducerConfig;
-import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.*;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.internals.RecordHeader;
 import org.apache.kafka.common.serialization.BytesSerializer;
-import org.apache.kafka.common.serialization.StringSerializer;
 import org.apache.kafka.common.utils.Bytes;
 import org.slf4j.Logger;
 import org.springframework.util.StringUtils;
 
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
@@ -61,7 +63,19 @@ public class KafkaDataSender extends AbstractDataSender {
     private final DriverMQProperties.Kafka kafkaProperties;
     private final AtomicBoolean running = new AtomicBoolean(false);
     private final Integer partition;
-    private Producer<String, Bytes> kafkaClient;
+    /**
+     * 是否异步发送
+     */
+    private final boolean async;
+    /**
+     * 数据编码方式的消息头. 使用默认的编码器时为 {@code null}
+     */
+    private final Header contentTypeHeader;
+    /**
+     * 设备使用的消息 key, 已按 UTF-8 编码
+     */
+    private final DeviceKeyCache<Keys> keys;
+    private Producer<Bytes, Bytes> kafkaClient;
 
     public KafkaDataSender(DriverDataProperties properties,
                            DriverAppProperties driverAppProperties,
@@ -72,6 +86,11 @@ public class KafkaDataSender extends AbstractDataSender {
         this.driverAppProperties = driverAppProperties;
         this.kafkaProperties = kafkaProperties;
         this.partition = kafkaProperties.getPartition();
+        this.async = kafkaProperties.getDeliveryMode() == DriverMQProperties.Kafka.DeliveryMode.ASYNC;
+        this.contentTypeHeader = this.isCustomCodec()
+                ? new RecordHeader("content-type", this.getPointCodec().getContentType().getBytes(StandardCharsets.UTF_8))
+                : null;
+        this.keys = this.newDeviceKeyCache((tableId, deviceId) -> new Keys(this.projectId, tableId, deviceId));
     }
 
     @Override
@@ -97,14 +116,39 @@ public class KafkaDataSender extends AbstractDataSender {
         configs.put(ProducerConfig.SOCKET_CONNECTION_SETUP_TIMEOUT_MAX_MS_CONFIG, (int) this.kafkaProperties.getConnectTimeout().toMillis() * 3);
         configs.put(ProducerConfig.RECONNECT_BACKOFF_MS_CONFIG, (int) this.kafkaProperties.getReconnectInterval().toMillis());
         configs.put(ProducerConfig.RECONNECT_BACKOFF_MAX_MS_CONFIG, (int) this.kafkaProperties.getReconnectInterval().toMillis() * 3);
-        configs.put(ProducerConfig.LINGER_MS_CONFIG, 500);
-        configs.put(ProducerConfig.BATCH_SIZE_CONFIG, 100);
+        configs.put(ProducerConfig.LINGER_MS_CONFIG, this.getLingerMs());
+        configs.put(ProducerConfig.BATCH_SIZE_CONFIG, this.kafkaProperties.getBatchSize());
+        configs.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, this.kafkaProperties.getCompressionType());
+        configs.put(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, this.kafkaProperties.getMaxInFlight());
+        if (StringUtils.hasText(this.kafkaProperties.getAcks())) {
+            configs.put(ProducerConfig.ACKS_CONFIG, this.kafkaProperties.getAcks());
+        }
         configs.put(ProducerConfig.REQUEST_TIMEOUT_MS_CONFIG, deliverTimeoutMs / 3);
         configs.put(ProducerConfig.DELIVERY_TIMEOUT_MS_CONFIG, deliverTimeoutMs);
 
         log.info("KafkaDataSender: 客户端配置, {}", configs);
 
-        this.kafkaClient = new KafkaProducer<>(configs, new StringSerializer(), new BytesSerializer());
+        this.kafkaClient = this.createProducer(configs);
+    }
+
+    /**
+     * 获取消息组成批次的等待时间. 未配置时, 同步发送不等待, 避免每条消息的发送都被延迟
+     */
+    private int getLingerMs() {
+        if (this.kafkaProperties.getLinger() != null) {
+            return (int) this.kafkaProperties.getLinger().toMillis();
+        }
+        return this.async ? 500 : 0;
+    }
+
+    /**
+     * 创建 kafka 客户端
+     *
+     * @param configs 客户端配置
+     * @return kafka 客户端
+     */
+    protected Producer<Bytes, Bytes> createProducer(Map<String, Object> configs) {
+        return new KafkaProducer<>(configs, new BytesSerializer(), new BytesSerializer());
     }
 
     @Override
@@ -114,6 +158,7 @@ public class KafkaDataSender extends AbstractDataSender {
         }
 
         log.info("KafkaDataSender: 关闭中");
+        this.flushPendingPoints();
 
         try {
             this.kafkaClient.close(Duration.ofSeconds(5));
@@ -125,15 +170,26 @@ public class KafkaDataSender extends AbstractDataSender {
         log.info("KafkaDataSender: 已关闭");
     }
 
+    private ProducerRecord<Bytes, Bytes> createPointRecord(Point point) {
+        return this.createPointRecord(this.keys.get(point.getTable(), point.getId()).device, this.encode(point));
+    }
+
+    private ProducerRecord<Bytes, Bytes> createPointRecord(Bytes key, byte[] payload) {
+        List<Header> headers = this.contentTypeHeader == null ? null : Collections.singletonList(this.contentTypeHeader);
+        return new ProducerRecord<>("data", this.partition, key, new Bytes(payload), headers);
+    }
+
     @Override
     public void doWritePoint(Point point) throws Exception {
-        byte[] payload = this.encode(point);
-        String key = String.format("%s/%s/%s", this.projectId, point.getTable(), point.getId());
-        ProducerRecord<String, Bytes> record = null;
-        if (this.partition == null) {
-            record = new ProducerRecord<>("data", key, new Bytes(payload));
-        } else {
-            record = new ProducerRecord<>("data", this.partition, key, new Bytes(payload));
+        ProducerRecord<Bytes, Bytes> record = this.createPointRecord(point);
+
+        if (this.async) {
+            this.kafkaClient.send(record, (metadata, e) -> {
+                if (e != null) {
+                    this.handleDeliveryFailureAsync(point, e);
+                }
+            });
+            return;
         }
 
         try {
@@ -143,10 +199,88 @@ public class KafkaDataSender extends AbstractDataSender {
         }
     }
 
+    @Override
+    protected boolean supportsPayloadReplay() {
+        return true;
+    }
+
+    @Override
+    protected void doWritePayload(String tableId, String deviceId, byte[] payload) throws Exception {
+        this.kafkaClient.send(this.createPointRecord(this.keys.get(tableId, deviceId).device, payload)).get();
+    }
+
+    @Override
+    protected List<WritePointResult> doWritePoints(List<Point> points) {
+        WritePointResult[] results = new WritePointResult[points.size()];
+        List<Future<RecordMetadata>> futures = new ArrayList<>(Collections.nCopies(points.size(), null));
+
+        for (int i = 0; i < points.size(); i++) {
+            Point point = points.get(i);
+            try {
+                ProducerRecord<Bytes, Bytes> record = this.createPointRecord(point);
+                if (this.async) {
+                    this.kafkaClient.send(record, (metadata, e) -> {
+                        if (e != null) {
+                            this.handleDeliveryFailureAsync(point, e);
+                        }
+                    });
+                    results[i] = WritePointResult.success(point);
+                } else {
+                    futures.set(i, this.kafkaClient.send(record));
+                }
+            } catch (Exception e) {
+                results[i] = WritePointResult.failure(point, new DataSenderException(point, "发送数据失败", e));
+            }
+        }
+
+        if (!this.async) {
+            // 立即发送缓冲区中的数据, 不再等待 linger
+            this.kafkaClient.flush();
+            for (int i = 0; i < points.size(); i++) {
+                Future<RecordMetadata> future = futures.get(i);
+                if (future == null) {
+                    continue;
+                }
+                try {
+                    future.get();
+                    results[i] = WritePointResult.success(points.get(i));
+                } catch (Exception e) {
+                    results[i] = WritePointResult.failure(points.get(i), new DataSenderException(points.get(i), "发送数据失败", e));
+                }
+            }
+        }
+
+        return Arrays.asList(results);
+    }
+
+    @Override
+    protected CompletableFuture<Void> doWritePointAsync(Point point) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        ProducerRecord<Bytes, Bytes> record = this.createPointRecord(point);
+        this.kafkaClient.send(record, (metadata, e) -> {
+            if (e == null) {
+                future.complete(null);
+                return;
+            }
+            future.completeExceptionally(new DataSenderException(point, "发送数据失败", e));
+            this.handleDeliveryFailureAsync(point, e);
+        });
+        return future;
+    }
+
     @Override
     public void doWriteLog(String tableId, String deviceId, String level, String message) throws LogSenderException {
-        String key = String.format("%s/%s/%s/%s", this.projectId, level, tableId, deviceId);
-        ProducerRecord<String, Bytes> record = new ProducerRecord<>("logs", key, new Bytes(message.getBytes()));
+        Bytes key = this.keys.get(tableId, deviceId).log(level);
+        ProducerRecord<Bytes, Bytes> record = new ProducerRecord<>("logs", key, new Bytes(message.getBytes()));
+
+        if (this.async) {
+            this.kafkaClient.send(record, (metadata, e) -> {
+                if (e != null) {
+                    log.warn("KafkaDataSender: 发送日志失败, table = {}, device = {}, level = {}, {}", tableId, deviceId, level, message, e);
+                }
+            });
+            return;
+        }
 
         try {
             this.kafkaClient.send(record).get();
@@ -179,8 +313,26 @@ public class KafkaDataSender extends AbstractDataSender {
         context.withTable(tableId);
         warningLogger.info("发送报警信息, table = {}, device = {}, {}", tableId, deviceId, warning);
 
-        String key = String.format("%s/%s/%s", this.projectId, tableId, deviceId);
-        ProducerRecord<String, Bytes> record = new ProducerRecord<>("warningStorage", key, new Bytes(warningData));
+        Bytes key = this.keys.get(tableId, deviceId).device;
+        ProducerRecord<Bytes, Bytes> record = new ProducerRecord<>("warningStorage", key, new Bytes(warningData));
+
+        if (this.async) {
+            try {
+                this.kafkaClient.send(record, (metadata, e) -> {
+                    if (e == null) {
+                        warningLogger.info("发送报警信息完成, table = {}, device = {}, {}", tableId, deviceId, warning);
+                    } else {
+                        warningLogger.warn("报警信息发送失败, table = {}, device = {}, {}", tableId, deviceId, warning, e);
+                    }
+                });
+            } catch (Exception e) {
+                warningLogger.warn("报警信息发送失败, table = {}, device = {}, {}", tableId, deviceId, warning, e);
+                throw new WarningSenderException("报警信息发送失败", e);
+            } finally {
+                LoggerContexts.pop();
+            }
+            return;
+        }
 
         try {
             this.kafkaClient.send(record).get();
@@ -213,8 +365,26 @@ public class KafkaDataSender extends AbstractDataSender {
         context.withTable(tableId);
         warningLogger.info("发送报警恢复信息, table = {}, device = {}, {}", tableId, deviceId, recovery);
 
-        String key = String.format("%s/%s/%s", this.projectId, tableId, deviceId);
-        ProducerRecord<String, Bytes> record = new ProducerRecord<>("warningUpdate", key, new Bytes(warningData));
+        Bytes key = this.keys.get(tableId, deviceId).device;
+        ProducerRecord<Bytes, Bytes> record = new ProducerRecord<>("warningUpdate", key, new Bytes(warningData));
+
+        if (this.async) {
+            try {
+                this.kafkaClient.send(record, (metadata, e) -> {
+                    if (e == null) {
+                        warningLogger.info("发送报警恢复信息完成, table = {}, device = {}, {}", tableId, deviceId, recovery);
+                    } else {
+                        warningLogger.warn("发送报警恢复信息失败, table = {}, device = {}, {}", tableId, deviceId, recovery, e);
+                    }
+                });
+            } catch (Exception e) {
+                warningLogger.warn("发送报警恢复信息失败, table = {}, device = {}, {}", tableId, deviceId, recovery, e);
+                throw new WarningSenderException("报警恢复信息发送失败", e);
+            } finally {
+                LoggerContexts.pop();
+            }
+            return;
+        }
 
         try {
             this.kafkaClient.send(record).get();
@@ -226,4 +396,39 @@ public class KafkaDataSender extends AbstractDataSender {
             LoggerContexts.pop();
         }
     }
+
+    /**
+     * 设备使用的消息 key, 已按 UTF-8 编码
+     */
+    private static final class Keys {
+        private final String projectId;
+        private final String tableId;
+        private final String deviceId;
+        /**
+         * 数据和报警消息的 key, 即 {@code 项目ID/表标识/设备编号}
+         */
+        private final Bytes device;
+        /**
+         * 日志消息的 key. level -> key
+         */
+        private final Map<String, Bytes> logs = new ConcurrentHashMap<>(4);
+
+        Keys(String projectId, String tableId, String deviceId) {
+            this.projectId = projectId;
+            this.tableId = tableId;
+            this.deviceId = deviceId;
+            this.device = encode(projectId + "/" + tableId + "/" + deviceId);
+        }
+
+        Bytes log(String level) {
+            if (level == null) {
+                return encode(projectId + "/null/" + tableId + "/" + deviceId);
+            }
+            return logs.computeIfAbsent(level, l -> encode(projectId + "/" + l + "/" + tableId + "/" + deviceId));
+        }
+
+        private static Bytes encode(String key) {
+            return new Bytes(key.getBytes(StandardCharsets.UTF_8));
+        }
+    }
 }
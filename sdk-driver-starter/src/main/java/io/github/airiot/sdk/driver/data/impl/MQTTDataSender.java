@@ -23,7 +23,10 @@ import io.github.airiot.sdk.driver.configuration.properties.DriverDataProperties
 import io.github.airiot.sdk.driver.configuration.properties.DriverMQProperties;
 import io.github.airiot.sdk.driver.data.AbstractDataSender;
 import io.github.airiot.sdk.driver.data.DataHandlerChain;
+import io.github.airiot.sdk.driver.data.DeviceKeyCache;
+import io.github.airiot.sdk.driver.data.DataSenderException;
 import io.github.airiot.sdk.driver.data.LogSenderException;
+import io.github.airiot.sdk.driver.data.WritePointResult;
 import io.github.airiot.sdk.driver.data.warning.Warning;
 import io.github.airiot.sdk.driver.data.warning.WarningRecovery;
 import io.github.airiot.sdk.driver.data.warning.WarningSenderException;
@@ -35,18 +38,32 @@ import io.github.airiot.sdk.logger.LoggerFactory;
 import io.github.airiot.sdk.logger.driver.DriverModules;
 import org.eclipse.paho.client.mqttv3.*;
 import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
+import org.eclipse.paho.client.mqttv3.persist.MqttDefaultFilePersistence;
 import org.slf4j.Logger;
 import org.springframework.util.StringUtils;
 
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 
 /**
  * MQTT 协议
+ * <br>
+ * 使用 {@link MqttAsyncClient} 发送消息, 已发送但未完成的消息数量不超过 {@link DriverMQProperties.Mqtt#getMaxInflight()}.
+ * 同步发送方式下等待每条消息发送完成, 异步发送方式下发送结果通过回调通知.
  */
 public class MQTTDataSender extends AbstractDataSender implements MqttCallbackExtended {
 
@@ -55,10 +72,33 @@ public class MQTTDataSender extends AbstractDataSender implements MqttCallbackEx
     private final DriverAppProperties driverAppProperties;
     private final DriverMQProperties.Mqtt mqttProperties;
     private final int qos;
+    /**
+     * 是否异步发送
+     */
+    private final boolean async;
+    private final int maxInflight;
+    private final long actionTimeoutMs;
+    private final long publishTimeoutMs;
+    /**
+     * 数据 topic 后缀. 使用非默认的编码器时为 {@code /编码器名称}, 例如 {@code data/项目ID/表标识/设备编号/cbor}
+     */
+    private final String dataTopicSuffix;
+    /**
+     * 设备使用的 topic
+     */
+    private final DeviceKeyCache<Topics> topics;
     private final AtomicBoolean running = new AtomicBoolean(false);
 
+    /**
+     * 发送窗口, 限制已发送但未完成的消息数量. 重新创建客户端时一同重新创建
+     */
+    private volatile Semaphore window;
+    private final LongAdder publishCount = new LongAdder();
+    private final LongAdder publishNanos = new LongAdder();
+    private final AtomicLong maxPublishNanos = new AtomicLong();
+
     private MqttConnectOptions options;
-    private MqttClient mqttClient;
+    private MqttAsyncClient mqttClient;
 
     public MQTTDataSender(DataHandlerChain chain,
                           DriverDataProperties properties,
@@ -70,9 +110,16 @@ public class MQTTDataSender extends AbstractDataSender implements MqttCallbackEx
         this.driverAppProperties = driverAppProperties;
         this.mqttProperties = mqttProperties;
         this.qos = mqttProperties.getQos();
+        this.async = mqttProperties.getDeliveryMode() == DriverMQProperties.Mqtt.DeliveryMode.ASYNC;
+        this.maxInflight = mqttProperties.getMaxInflight() > 0 ? mqttProperties.getMaxInflight() : 10;
+        this.actionTimeoutMs = mqttProperties.getActionTimeout().toMillis();
+        this.publishTimeoutMs = mqttProperties.getPublishTimeout().toMillis();
+        this.dataTopicSuffix = this.isCustomCodec() ? "/" + this.getPointCodec().getName() : "";
+        this.topics = this.newDeviceKeyCache((tableId, deviceId) -> new Topics(this.projectId, tableId, deviceId, this.dataTopicSuffix));
 
         this.options = new MqttConnectOptions();
-        options.setCleanSession(true);
+        options.setCleanSession(this.mqttProperties.isCleanSession());
+        options.setMaxInflight(this.maxInflight);
         options.setUserName(this.mqttProperties.getUsername());
         options.setPassword(this.mqttProperties.getPassword().toCharArray());
         options.setMqttVersion(this.mqttProperties.getProtocolVersion());
@@ -101,7 +148,7 @@ public class MQTTDataSender extends AbstractDataSender implements MqttCallbackEx
         this.mqttClient = this.createClient();
 
         try {
-            this.mqttClient.connect(options);
+            this.mqttClient.connect(options).waitForCompletion(this.actionTimeoutMs);
         } catch (MqttException e) {
             log.error("MQTTDataSender: 连接失败", e);
             Thread connectTask = new Thread(this::connectTask);
@@ -111,24 +158,44 @@ public class MQTTDataSender extends AbstractDataSender implements MqttCallbackEx
         }
     }
 
-    private MqttClient createClient() {
+    private MqttAsyncClient createClient() {
         String broker = "tcp://" + this.mqttProperties.getHost() + ":" + this.mqttProperties.getPort();
         String clientId = "sdk_" + this.driverAppProperties.getId() + "_" + this.driverAppProperties.getInstanceId();
 
-        MemoryPersistence persistence = new MemoryPersistence();
+        MqttClientPersistence persistence;
+        if (this.mqttProperties.getPersistence() == DriverMQProperties.Mqtt.Persistence.FILE) {
+            persistence = new MqttDefaultFilePersistence(this.mqttProperties.getPersistenceDir());
+        } else {
+            persistence = new MemoryPersistence();
+        }
 
-        log.info("MQTTDataSender: 客户端配置, {}", options);
+        log.info("MQTTDataSender: 客户端配置, {}, deliveryMode = {}, persistence = {}",
+                options, this.mqttProperties.getDeliveryMode(), this.mqttProperties.getPersistence());
 
         try {
-            MqttClient mqttClient = new MqttClient(broker, clientId, persistence);
-            mqttClient.setTimeToWait(this.mqttProperties.getActionTimeout().toMillis());
+            MqttAsyncClient mqttClient = this.newClient(broker, clientId, persistence);
             mqttClient.setCallback(this);
+            // 旧客户端中未完成的消息可能不会再收到回调
+            this.window = new Semaphore(this.maxInflight);
             return mqttClient;
         } catch (MqttException e) {
             throw new IllegalStateException("MQTTDataSender: 初始化失败", e);
         }
     }
 
+    /**
+     * 创建 MQTT 客户端
+     *
+     * @param broker      服务地址
+     * @param clientId    客户端ID
+     * @param persistence 未完成消息的存储方式
+     * @return MQTT 客户端
+     * @throws MqttException 如果创建客户端失败
+     */
+    protected MqttAsyncClient newClient(String broker, String clientId, MqttClientPersistence persistence) throws MqttException {
+        return new MqttAsyncClient(broker, clientId, persistence);
+    }
+
     private void connectTask() {
         int reconnectIntervalMs = (int) this.mqttProperties.getReconnectInterval().toMillis();
         int retryTimes = 1;
@@ -145,7 +212,7 @@ public class MQTTDataSender extends AbstractDataSender implements MqttCallbackEx
             log.info("MQTTDataSender: 第 {} 次重试", retryTimes);
 
             try {
-                this.mqttClient.connect(this.options);
+                this.mqttClient.connect(this.options).waitForCompletion(this.actionTimeoutMs);
                 return;
             } catch (MqttException e) {
                 // 如果当前已连接
@@ -193,8 +260,9 @@ public class MQTTDataSender extends AbstractDataSender implements MqttCallbackEx
         }
 
         log.info("MQTTDataSender: 关闭中");
+        this.flushPendingPoints();
         try {
-            this.mqttClient.disconnect(10000);
+            this.mqttClient.disconnect(10000).waitForCompletion(10000);
             this.mqttClient.close();
             log.info("MQTTDataSender: 已关闭");
         } catch (MqttException e) {
@@ -209,12 +277,172 @@ public class MQTTDataSender extends AbstractDataSender implements MqttCallbackEx
         return this.mqttClient != null && this.mqttClient.isConnected();
     }
 
+    /**
+     * 获取已发送但未完成的消息数量
+     */
+    public int getInflight() {
+        Semaphore window = this.window;
+        return window == null ? 0 : this.maxInflight - window.availablePermits();
+    }
+
+    /**
+     * 获取消息发送的统计信息, 即从发送到完成的耗时
+     */
+    public PublishMetrics getPublishMetrics() {
+        return new PublishMetrics(this.getInflight(), this.publishCount.sum(), this.publishNanos.sum(), this.maxPublishNanos.get());
+    }
+
+    /**
+     * 异步发送消息. 如果已发送但未完成的消息数量达到上限, 最多等待 {@link DriverMQProperties.Mqtt#getPublishTimeout()}
+     *
+     * @return 消息发送完成或失败时结束
+     * @throws MqttException 如果等待超时或客户端无法发送消息
+     */
+    private CompletableFuture<Void> publishAsync(String topic, byte[] payload) throws MqttException {
+        Semaphore window = this.window;
+        try {
+            if (!window.tryAcquire(this.publishTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new MqttException(MqttException.REASON_CODE_MAX_INFLIGHT);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MqttException(e);
+        }
+
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        long start = System.nanoTime();
+        try {
+            this.mqttClient.publish(topic, payload, this.qos, false, null, new IMqttActionListener() {
+                @Override
+                public void onSuccess(IMqttToken token) {
+                    window.release();
+                    long nanos = System.nanoTime() - start;
+                    publishCount.increment();
+                    publishNanos.add(nanos);
+                    maxPublishNanos.accumulateAndGet(nanos, Math::max);
+                    future.complete(null);
+                }
+
+                @Override
+                public void onFailure(IMqttToken token, Throwable e) {
+                    window.release();
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (MqttException | RuntimeException e) {
+            window.release();
+            throw e;
+        }
+        return future;
+    }
+
+    /**
+     * 发送消息并等待发送完成, 最多等待 {@link DriverMQProperties.Mqtt#getActionTimeout()}
+     */
+    private void publish(String topic, byte[] payload) throws MqttException {
+        this.await(this.publishAsync(topic, payload));
+    }
+
+    private void await(CompletableFuture<Void> future) throws MqttException {
+        try {
+            future.get(this.actionTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new MqttException(MqttException.REASON_CODE_CLIENT_TIMEOUT);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof MqttException) {
+                throw (MqttException) e.getCause();
+            }
+            throw new MqttException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MqttException(e);
+        }
+    }
+
     @Override
     public void doWritePoint(Point point) throws Exception {
         this.checkRunState();
-        byte[] payload = this.encode(point);
-        String topic = String.format("data/%s/%s/%s", this.projectId, point.getTable(), point.getId());
-        this.mqttClient.publish(topic, payload, this.qos, false);
+        CompletableFuture<Void> future = this.publishAsync(this.topics.get(point.getTable(), point.getId()).data, this.encode(point));
+        if (this.async) {
+            future.whenComplete((r, e) -> {
+                if (e != null) {
+                    this.handleDeliveryFailureAsync(point, e);
+                }
+            });
+            return;
+        }
+        this.await(future);
+    }
+
+    @Override
+    protected boolean supportsPayloadReplay() {
+        return true;
+    }
+
+    @Override
+    protected void doWritePayload(String tableId, String deviceId, byte[] payload) throws Exception {
+        this.checkRunState();
+        this.publish(this.topics.get(tableId, deviceId).data, payload);
+    }
+
+    @Override
+    protected List<WritePointResult> doWritePoints(List<Point> points) {
+        List<WritePointResult> results = new ArrayList<>(points.size());
+        List<CompletableFuture<Void>> futures = new ArrayList<>(points.size());
+        for (Point point : points) {
+            CompletableFuture<Void> future = null;
+            try {
+                this.checkRunState();
+                future = this.publishAsync(this.topics.get(point.getTable(), point.getId()).data, this.encode(point));
+                if (this.async) {
+                    future.whenComplete((r, e) -> {
+                        if (e != null) {
+                            this.handleDeliveryFailureAsync(point, e);
+                        }
+                    });
+                    future = null;
+                }
+                results.add(WritePointResult.success(point));
+            } catch (Exception e) {
+                results.add(WritePointResult.failure(point, new DataSenderException(point, "上报数据异常", e)));
+            }
+            futures.add(future);
+        }
+
+        // 同步发送时, 先发送全部数据再依次等待发送完成
+        for (int i = 0; i < futures.size(); i++) {
+            CompletableFuture<Void> future = futures.get(i);
+            if (future == null) {
+                continue;
+            }
+            try {
+                this.await(future);
+            } catch (MqttException e) {
+                Point point = points.get(i);
+                results.set(i, WritePointResult.failure(point, new DataSenderException(point, "上报数据异常", e)));
+            }
+        }
+        return results;
+    }
+
+    @Override
+    protected CompletableFuture<Void> doWritePointAsync(Point point) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        try {
+            this.checkRunState();
+            this.publishAsync(this.topics.get(point.getTable(), point.getId()).data, this.encode(point))
+                    .whenComplete((r, e) -> {
+                        if (e == null) {
+                            future.complete(null);
+                            return;
+                        }
+                        future.completeExceptionally(new DataSenderException(point, "发送数据失败", e));
+                        this.handleDeliveryFailureAsync(point, e);
+                    });
+        } catch (Exception e) {
+            future.completeExceptionally(new DataSenderException(point, "发送数据失败", e));
+        }
+        return future;
     }
 
     @Override
@@ -224,7 +452,7 @@ public class MQTTDataSender extends AbstractDataSender implements MqttCallbackEx
         }
 
         try {
-            this.mqttClient.publish(String.format("logs/%s/%s/%s/%s", this.projectId, level, tableId, deviceId), message.getBytes(StandardCharsets.UTF_8), this.qos, false);
+            this.publish(this.topics.get(tableId, deviceId).log(level), message.getBytes(StandardCharsets.UTF_8));
         } catch (MqttException e) {
             throw new LogSenderException(tableId, deviceId, level, message, e);
         }
@@ -281,7 +509,7 @@ public class MQTTDataSender extends AbstractDataSender implements MqttCallbackEx
         warningLogger.info("发送报警信息, table = {}, device = {}, {}", tableId, deviceId, warning);
         
         try {
-            this.mqttClient.publish(String.format("warningStorage/%s/%s/%s", this.projectId, warning.getTable().getId(), warning.getTableData().getId()), warningData, this.qos, false);
+            this.publish(this.topics.get(warning.getTable().getId(), warning.getTableData().getId()).warningStorage, warningData);
             warningLogger.info("发送报警信息完成, table = {}, device = {}, {}", tableId, deviceId, warning);
         } catch (MqttException e) {
             warningLogger.warn("报警信息发送失败, table = {}, device = {}, {}", tableId, deviceId, warning, e);
@@ -312,7 +540,7 @@ public class MQTTDataSender extends AbstractDataSender implements MqttCallbackEx
         warningLogger.info("发送报警恢复信息, table = {}, device = {}, {}", tableId, deviceId, recovery);
 
         try {
-            this.mqttClient.publish(String.format("warningUpdate/%s/%s/%s", this.projectId, tableId, deviceId), warningData, this.qos, false);
+            this.publish(this.topics.get(tableId, deviceId).warningUpdate, warningData);
             warningLogger.info("发送报警恢复信息完成, table = {}, device = {}, {}", tableId, deviceId, recovery);
         } catch (MqttException e) {
             warningLogger.warn("发送报警恢复信息失败, table = {}, device = {}, {}", tableId, deviceId, recovery, e);
@@ -321,4 +549,99 @@ public class MQTTDataSender extends AbstractDataSender implements MqttCallbackEx
             LoggerContexts.pop();
         }
     }
+
+    /**
+     * 设备使用的 topic
+     */
+    private static final class Topics {
+        private final String projectId;
+        private final String tableId;
+        private final String deviceId;
+        private final String data;
+        private final String warningStorage;
+        private final String warningUpdate;
+        /**
+         * 日志 topic. level -> topic
+         */
+        private final Map<String, String> logs = new ConcurrentHashMap<>(4);
+
+        Topics(String projectId, String tableId, String deviceId, String dataTopicSuffix) {
+            this.projectId = projectId;
+            this.tableId = tableId;
+            this.deviceId = deviceId;
+            String path = projectId + "/" + tableId + "/" + deviceId;
+            this.data = "data/" + path + dataTopicSuffix;
+            this.warningStorage = "warningStorage/" + path;
+            this.warningUpdate = "warningUpdate/" + path;
+        }
+
+        String log(String level) {
+            if (level == null) {
+                return "logs/" + projectId + "/null/" + tableId + "/" + deviceId;
+            }
+            return logs.computeIfAbsent(level, l -> "logs/" + projectId + "/" + l + "/" + tableId + "/" + deviceId);
+        }
+    }
+
+    /**
+     * 消息发送统计信息
+     */
+    public static class PublishMetrics {
+        /**
+         * 已发送但未完成的消息数量
+         */
+        private final int inflight;
+        /**
+         * 已完成的消息数量
+         */
+        private final long count;
+        /**
+         * 总耗时, 单位: 纳秒
+         */
+        private final long totalNanos;
+        /**
+         * 最大耗时, 单位: 纳秒
+         */
+        private final long maxNanos;
+
+        public PublishMetrics(int inflight, long count, long totalNanos, long maxNanos) {
+            this.inflight = inflight;
+            this.count = count;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+        }
+
+        public int getInflight() {
+            return inflight;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        /**
+         * 平均耗时, 单位: 纳秒
+         */
+        public long getAvgNanos() {
+            return count == 0 ? 0 : totalNanos / count;
+        }
+
+        @Override
+        public String toString() {
+            return "PublishMetrics{" +
+                    "inflight=" + inflight +
+                    ", count=" + count +
+                    ", avgNanos=" + getAvgNanos() +
+                    ", maxNanos=" + maxNanos +
+                    '}';
+        }
+    }
 }
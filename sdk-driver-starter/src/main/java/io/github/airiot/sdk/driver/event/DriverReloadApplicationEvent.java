@@ -1,5 +1,6 @@
 package io.github.airiot.sdk.driver.event;
 
+import io.github.airiot.sdk.driver.DriverConfigDelta;
 import io.github.airiot.sdk.driver.config.BasicConfig;
 import io.github.airiot.sdk.driver.config.DriverSingleConfig;
 import org.springframework.context.ApplicationEvent;
@@ -10,18 +11,40 @@ import java.time.format.DateTimeFormatter;
 
 /**
  * 驱动重载事件
+ * <br>
+ * 如果不是全部重新加载, 只需要清除 {@link #getDelta()} 中新增、删除或有变化的设备及数据点的缓存
  */
 public class DriverReloadApplicationEvent extends ApplicationEvent {
 
     private final DriverSingleConfig<BasicConfig<?>> driverConfig;
+    private final DriverConfigDelta delta;
 
     public DriverSingleConfig<BasicConfig<?>> getDriverConfig() {
         return driverConfig;
     }
 
+    /**
+     * 相对于上一次配置的变化. 如果为 {@code null} 表示全部重新加载
+     */
+    public DriverConfigDelta getDelta() {
+        return delta;
+    }
+
+    /**
+     * 是否全部重新加载, 此时需要清除所有缓存
+     */
+    public boolean isFull() {
+        return delta == null || delta.isFull();
+    }
+
     public DriverReloadApplicationEvent(DriverSingleConfig<BasicConfig<?>> driverConfig) {
+        this(driverConfig, null);
+    }
+
+    public DriverReloadApplicationEvent(DriverSingleConfig<BasicConfig<?>> driverConfig, DriverConfigDelta delta) {
         super(LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS")));
         this.driverConfig = driverConfig;
+        this.delta = delta;
     }
 
 }
@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.github.airiot.sdk.driver.listener;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.reflect.TypeToken;
+import com.google.protobuf.ByteString;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 平台下发指令的解析器
+ * <br>
+ * 每个指令类型只创建一次, 使用共享的 {@link Gson} 及预先获取的类型适配器解析指令, 避免每次解析时创建 {@link Gson} 对象及通过反射重新生成适配器.
+ * <br>
+ * 指令内容较小时先转换为字符串再解析 (比通过 {@link InputStreamReader} 读取更快), 超过 {@link #STREAM_THRESHOLD} 时直接从
+ * {@link ByteString#newInput()} 中读取, 不创建指令内容的字符串副本.
+ */
+public class CommandDecoder {
+
+    /**
+     * 指令内容超过该大小时直接从 {@link ByteString} 中读取, 单位: 字节
+     */
+    static final int STREAM_THRESHOLD = 4096;
+
+    private final Gson gson;
+    private final TypeToken<?> type;
+
+    /**
+     * @param gson 共享的 {@link Gson} 对象
+     * @param type 指令类型
+     */
+    public CommandDecoder(Gson gson, Type type) {
+        this.gson = gson;
+        this.type = TypeToken.get(type);
+        // 预先生成并缓存类型适配器
+        this.gson.getAdapter(this.type);
+    }
+
+    /**
+     * 解析指令
+     *
+     * @param payload 指令内容, JSON 格式
+     * @return 解析后的指令. 如果指令内容为空则返回 {@code null}
+     * @throws JsonSyntaxException 如果指令内容格式错误
+     */
+    public Object decode(ByteString payload) {
+        if (payload.size() <= STREAM_THRESHOLD) {
+            return this.gson.fromJson(payload.toStringUtf8(), this.type);
+        }
+
+        try (Reader reader = new InputStreamReader(payload.newInput(), StandardCharsets.UTF_8)) {
+            return this.gson.fromJson(reader, this.type);
+        } catch (IOException e) {
+            throw new JsonIOException(e);
+        }
+    }
+
+    /**
+     * 将指令内容包装为输出到日志的参数. 只有日志级别启用时才会转换为字符串, 且只转换一次
+     *
+     * @param payload 指令内容
+     * @return 日志参数
+     */
+    public static Object text(ByteString payload) {
+        return new LazyText(payload);
+    }
+
+    private static final class LazyText {
+        private final ByteString payload;
+        private String text;
+
+        private LazyText(ByteString payload) {
+            this.payload = payload;
+        }
+
+        @Override
+        public String toString() {
+            String value = this.text;
+            if (value == null) {
+                value = this.payload.toStringUtf8();
+                this.text = value;
+            }
+            return value;
+        }
+    }
+}
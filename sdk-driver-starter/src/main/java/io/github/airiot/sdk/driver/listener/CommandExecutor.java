@@ -0,0 +1,385 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.github.airiot.sdk.driver.listener;
+
+import io.github.airiot.sdk.driver.VirtualThreads;
+import io.github.airiot.sdk.logger.LoggerFactory;
+import io.github.airiot.sdk.logger.driver.DriverModules;
+import org.slf4j.Logger;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 指令执行器
+ * <br>
+ * 平台下发的指令按优先级执行: 写数据点 &gt; 批量执行指令 &gt; 执行指令. 相同优先级按接收顺序执行.
+ * <br>
+ * 提交时可以指定串行标识 (例如: 设备标识), 开启串行执行时相同串行标识的指令按提交顺序逐个执行, 避免对同一设备的指令并发执行.
+ * <br>
+ * 等待执行的指令数量达到容量上限时, {@link #submit(Priority, String, Runnable)} 直接返回 {@code false},
+ * 由调用方向平台返回繁忙结果, 不会阻塞调用线程 (即 gRPC 的传输线程).
+ */
+public class CommandExecutor {
+
+    private final Logger log = LoggerFactory.withContext().module(DriverModules.RUN).getStaticLogger(CommandExecutor.class);
+
+    /**
+     * 指令优先级, 按定义顺序由高到低
+     */
+    public enum Priority {
+        /**
+         * 写数据点
+         */
+        WRITE_TAG,
+        /**
+         * 批量执行指令
+         */
+        BATCH_RUN,
+        /**
+         * 执行指令
+         */
+        RUN
+    }
+
+    private static final Priority[] PRIORITIES = Priority.values();
+
+    private final int capacity;
+    private final boolean serial;
+    private final ThreadFactory threadFactory;
+    private final Thread[] workers;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = this.lock.newCondition();
+    /**
+     * 可以执行的指令, 每个优先级一个队列
+     */
+    private final ArrayDeque<Task>[] ready;
+    /**
+     * 串行标识 -> 等待前一个指令执行完成的指令. 存在该标识表示有相同标识的指令正在等待或执行
+     */
+    private final Map<String, ArrayDeque<Task>> serials = new HashMap<>();
+    /**
+     * 尚未开始执行的指令数量
+     */
+    private int pending;
+    private int active;
+
+    private final long[] submitted = new long[PRIORITIES.length];
+    private final long[] started = new long[PRIORITIES.length];
+    private final long[] waitNanos = new long[PRIORITIES.length];
+    private final long[] maxWaitNanos = new long[PRIORITIES.length];
+    private long rejected;
+
+    private volatile boolean running = false;
+
+    /**
+     * @param threads  执行线程数
+     * @param capacity 尚未开始执行的指令的最大数量
+     * @param serial   相同串行标识的指令是否串行执行
+     */
+    public CommandExecutor(int threads, int capacity, boolean serial) {
+        this(threads, capacity, serial, VirtualThreads.threadFactory("CommandExecutor-", false));
+    }
+
+    /**
+     * @param threads       执行线程数
+     * @param capacity      尚未开始执行的指令的最大数量
+     * @param serial        相同串行标识的指令是否串行执行
+     * @param threadFactory 执行线程的线程工厂
+     * @see VirtualThreads#threadFactory(String, boolean)
+     */
+    @SuppressWarnings("unchecked")
+    public CommandExecutor(int threads, int capacity, boolean serial, ThreadFactory threadFactory) {
+        this.capacity = Math.max(1, capacity);
+        this.serial = serial;
+        this.threadFactory = threadFactory;
+        this.workers = new Thread[Math.max(1, threads)];
+        this.ready = new ArrayDeque[PRIORITIES.length];
+        for (int i = 0; i < this.ready.length; i++) {
+            this.ready[i] = new ArrayDeque<>();
+        }
+    }
+
+    public synchronized void start() {
+        if (this.running) {
+            return;
+        }
+
+        this.running = true;
+        for (int i = 0; i < this.workers.length; i++) {
+            Thread worker = this.threadFactory.newThread(this::work);
+            worker.start();
+            this.workers[i] = worker;
+        }
+    }
+
+    /**
+     * 停止执行线程. 尚未开始执行的指令会被丢弃
+     */
+    public synchronized void stop() {
+        if (!this.running) {
+            return;
+        }
+
+        this.running = false;
+        for (Thread worker : this.workers) {
+            worker.interrupt();
+        }
+        this.lock.lock();
+        try {
+            for (ArrayDeque<Task> queue : this.ready) {
+                queue.clear();
+            }
+            this.serials.clear();
+            this.pending = 0;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * 提交指令
+     *
+     * @param priority  优先级
+     * @param serialKey 串行标识. 如果为 {@code null} 或未开启串行执行, 则不与其它指令串行执行
+     * @param command   指令
+     * @return 如果等待执行的指令数量已达到上限则返回 {@code false}
+     */
+    public boolean submit(Priority priority, String serialKey, Runnable command) {
+        this.lock.lock();
+        try {
+            if (!this.running || this.pending >= this.capacity) {
+                this.rejected++;
+                return false;
+            }
+
+            Task task = new Task(priority, this.serial ? serialKey : null, command, System.nanoTime());
+            this.pending++;
+            this.submitted[priority.ordinal()]++;
+
+            if (task.serialKey != null) {
+                ArrayDeque<Task> waiting = this.serials.get(task.serialKey);
+                if (waiting != null) {
+                    waiting.addLast(task);
+                    return true;
+                }
+                this.serials.put(task.serialKey, new ArrayDeque<>());
+            }
+
+            this.ready[priority.ordinal()].addLast(task);
+            this.notEmpty.signal();
+            return true;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    private void work() {
+        while (this.running) {
+            Task task;
+            this.lock.lock();
+            try {
+                while ((task = this.poll()) == null) {
+                    this.notEmpty.await();
+                }
+                this.pending--;
+                this.active++;
+
+                int p = task.priority.ordinal();
+                long wait = System.nanoTime() - task.submitTime;
+                this.started[p]++;
+                this.waitNanos[p] += wait;
+                this.maxWaitNanos[p] = Math.max(this.maxWaitNanos[p], wait);
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                this.lock.unlock();
+            }
+
+            try {
+                task.command.run();
+            } catch (Throwable e) {
+                log.error("指令执行器: 执行指令异常, priority = {}, serialKey = {}", task.priority, task.serialKey, e);
+            } finally {
+                this.complete(task);
+            }
+        }
+    }
+
+    private Task poll() {
+        for (ArrayDeque<Task> queue : this.ready) {
+            Task task = queue.pollFirst();
+            if (task != null) {
+                return task;
+            }
+        }
+        return null;
+    }
+
+    private void complete(Task task) {
+        this.lock.lock();
+        try {
+            this.active--;
+            if (task.serialKey == null) {
+                return;
+            }
+
+            ArrayDeque<Task> waiting = this.serials.get(task.serialKey);
+            Task next = waiting == null ? null : waiting.pollFirst();
+            if (next == null) {
+                this.serials.remove(task.serialKey);
+                return;
+            }
+            this.ready[next.priority.ordinal()].addLast(next);
+            this.notEmpty.signal();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * 获取运行统计信息
+     */
+    public Metrics metrics() {
+        this.lock.lock();
+        try {
+            int[] queueDepths = new int[PRIORITIES.length];
+            int queued = 0;
+            double[] avgWaitMillis = new double[PRIORITIES.length];
+            double[] maxWaitMillis = new double[PRIORITIES.length];
+            for (int i = 0; i < PRIORITIES.length; i++) {
+                queueDepths[i] = this.ready[i].size();
+                queued += queueDepths[i];
+                avgWaitMillis[i] = this.started[i] == 0 ? 0 : (double) this.waitNanos[i] / this.started[i] / TimeUnit.MILLISECONDS.toNanos(1);
+                maxWaitMillis[i] = (double) this.maxWaitNanos[i] / TimeUnit.MILLISECONDS.toNanos(1);
+            }
+            return new Metrics(queueDepths, this.pending - queued, this.active, this.submitted.clone(),
+                    this.rejected, avgWaitMillis, maxWaitMillis);
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    private static final class Task {
+        private final Priority priority;
+        private final String serialKey;
+        private final Runnable command;
+        private final long submitTime;
+
+        private Task(Priority priority, String serialKey, Runnable command, long submitTime) {
+            this.priority = priority;
+            this.serialKey = serialKey;
+            this.command = command;
+            this.submitTime = submitTime;
+        }
+    }
+
+    /**
+     * 指令执行器的运行统计信息. 数组按 {@link Priority} 的定义顺序排列
+     */
+    public static class Metrics {
+        /**
+         * 各优先级中可以执行的指令数量
+         */
+        private final int[] queueDepths;
+        /**
+         * 等待相同串行标识的指令执行完成的指令数量
+         */
+        private final int waiting;
+        /**
+         * 正在执行的指令数量
+         */
+        private final int active;
+        /**
+         * 各优先级已提交的指令数量
+         */
+        private final long[] submitted;
+        /**
+         * 因等待执行的指令数量已达到上限被拒绝的指令数量
+         */
+        private final long rejected;
+        /**
+         * 各优先级指令从提交到开始执行的平均等待时间, 单位: 毫秒
+         */
+        private final double[] avgWaitMillis;
+        /**
+         * 各优先级指令从提交到开始执行的最长等待时间, 单位: 毫秒
+         */
+        private final double[] maxWaitMillis;
+
+        public Metrics(int[] queueDepths, int waiting, int active, long[] submitted, long rejected,
+                       double[] avgWaitMillis, double[] maxWaitMillis) {
+            this.queueDepths = queueDepths;
+            this.waiting = waiting;
+            this.active = active;
+            this.submitted = submitted;
+            this.rejected = rejected;
+            this.avgWaitMillis = avgWaitMillis;
+            this.maxWaitMillis = maxWaitMillis;
+        }
+
+        public int[] getQueueDepths() {
+            return queueDepths;
+        }
+
+        public int getWaiting() {
+            return waiting;
+        }
+
+        public int getActive() {
+            return active;
+        }
+
+        public long[] getSubmitted() {
+            return submitted;
+        }
+
+        public long getRejected() {
+            return rejected;
+        }
+
+        public double[] getAvgWaitMillis() {
+            return avgWaitMillis;
+        }
+
+        public double[] getMaxWaitMillis() {
+            return maxWaitMillis;
+        }
+
+        @Override
+        public String toString() {
+            return "Metrics{" +
+                    "queueDepths=" + Arrays.toString(queueDepths) +
+                    ", waiting=" + waiting +
+                    ", active=" + active +
+                    ", submitted=" + Arrays.toString(submitted) +
+                    ", rejected=" + rejected +
+                    ", avgWaitMillis=" + Arrays.toString(avgWaitMillis) +
+                    ", maxWaitMillis=" + Arrays.toString(maxWaitMillis) +
+                    '}';
+        }
+    }
+}
@@ -20,13 +20,16 @@ package io.github.airiot.sdk.driver.listener;
 import ch.qos.logback.classic.Level;
 import com.alibaba.fastjson2.JSON;
 import com.alibaba.fastjson2.TypeReference;
+import com.google.common.hash.Hashing;
 import com.google.gson.Gson;
 import com.google.gson.JsonSyntaxException;
 import com.google.gson.reflect.TypeToken;
 import com.google.protobuf.ByteString;
-import io.github.airiot.sdk.driver.DeviceInfo;
+import io.github.airiot.sdk.driver.DeviceRegistry;
+import io.github.airiot.sdk.driver.DriverConfigDelta;
 import io.github.airiot.sdk.driver.DriverApp;
 import io.github.airiot.sdk.driver.GlobalContext;
+import io.github.airiot.sdk.driver.VirtualThreads;
 import io.github.airiot.sdk.driver.config.BasicConfig;
 import io.github.airiot.sdk.driver.config.Device;
 import io.github.airiot.sdk.driver.config.DriverSingleConfig;
@@ -37,6 +40,8 @@ import io.github.airiot.sdk.driver.event.DriverReloadApplicationEvent;
 import io.github.airiot.sdk.driver.grpc.driver.Error;
 import io.github.airiot.sdk.driver.grpc.driver.*;
 import io.github.airiot.sdk.driver.model.Tag;
+import io.github.airiot.sdk.grpc.StreamFlowControl;
+import io.github.airiot.sdk.grpc.StreamWriter;
 import io.github.airiot.sdk.logger.LoggerContext;
 import io.github.airiot.sdk.logger.LoggerContexts;
 import io.github.airiot.sdk.logger.LoggerFactory;
@@ -52,20 +57,19 @@ import org.springframework.context.ApplicationContextAware;
 import org.springframework.core.env.*;
 import org.springframework.util.CollectionUtils;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ThreadPoolExecutor;
+import java.util.Objects;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
-import java.util.function.Consumer;
+import java.util.function.BiConsumer;
 
 /**
  * 基于 GRPC 的驱动事件监听器实现
@@ -91,9 +95,10 @@ public class GrpcDriverEventListener implements DriverEventListener, Application
     private final DriverServiceGrpc.DriverServiceBlockingStub driverGrpcClient;
 
     private final Type[] parameterizedTypes;
+    private final CommandDecoder commandDecoder;
     private final Metadata metadata;
 
-    private final ThreadPoolExecutor runExecutor;
+    private final CommandExecutor runExecutor;
     private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
 
     private final Map<String, Level> loggerRoots = new HashMap<>();
@@ -165,6 +170,7 @@ public class GrpcDriverEventListener implements DriverEventListener, Application
         this.driverId = driverProperties.getId();
         this.driverInstanceId = driverProperties.getInstanceId();
         this.parameterizedTypes = this.parseParameterizedTypes();
+        this.commandDecoder = new CommandDecoder(GSON, this.getCommandType());
 
         this.metadata = new Metadata();
         metadata.put(Metadata.Key.of("projectId", Metadata.ASCII_STRING_MARSHALLER),
@@ -181,22 +187,50 @@ public class GrpcDriverEventListener implements DriverEventListener, Application
 
         // 创建指令执行线程池
         int cpus = Runtime.getRuntime().availableProcessors();
-        int corePoolSize = cpus / 2 + 1;
-        int maxPoolSize = cpus;
+        // 使用虚拟线程时, 线程数不再受 CPU 核心数限制
+        boolean virtual = driverProperties.isVirtualThreads() && VirtualThreads.isSupported();
+        int maxPoolSize = virtual ? DriverListenerProperties.DEFAULT_VIRTUAL_RUN_THREADS : cpus;
         if (grpcProperties.getRunMaxThreads() != 0) {
-            corePoolSize = grpcProperties.getRunMaxThreads();
-            maxPoolSize = corePoolSize;
+            maxPoolSize = grpcProperties.getRunMaxThreads();
+        }
+        if (driverProperties.isVirtualThreads() && !virtual) {
+            log.warn("当前 JDK 版本不支持虚拟线程, 使用平台线程执行指令, java.version = {}", System.getProperty("java.version"));
         }
 
         int queueSize = grpcProperties.getRunQueueSize();
         queueSize = queueSize <= 0 ? 32 : queueSize;
-        this.runExecutor = new ThreadPoolExecutor(corePoolSize, maxPoolSize, 60, TimeUnit.SECONDS,
-                new ArrayBlockingQueue<>(queueSize), new ThreadPoolExecutor.CallerRunsPolicy());
+        this.runExecutor = new CommandExecutor(maxPoolSize, queueSize, grpcProperties.isRunSerialByDevice(),
+                VirtualThreads.threadFactory("CommandExecutor-", virtual));
+        this.runExecutor.start();
+    }
+
+    /**
+     * 获取指令执行器的运行统计信息, 包括各优先级的队列深度及等待时间等
+     */
+    public CommandExecutor.Metrics getCommandMetrics() {
+        return this.runExecutor.metrics();
     }
 
-    private void clearTagValueCache(DriverSingleConfig<BasicConfig<?>> driverConfigs) {
+    /**
+     * 指令执行器繁忙时返回给平台的结果
+     */
+    static Result busyResult(CommandExecutor.Metrics metrics) {
+        Result result = new Result();
+        result.setCode(503);
+        result.setError("驱动繁忙, 等待执行的指令数量已达到上限, 请稍后重试. " + metrics);
+        return result;
+    }
+
+    /**
+     * 指令的串行标识, 同一设备的指令串行执行
+     */
+    static String serialKey(String tableId, String deviceId) {
+        return tableId + "/" + deviceId;
+    }
+
+    private void clearTagValueCache(DriverSingleConfig<BasicConfig<?>> driverConfigs, DriverConfigDelta delta) {
         // 发布驱动重载事件
-        this.applicationContext.publishEvent(new DriverReloadApplicationEvent(driverConfigs));
+        this.applicationContext.publishEvent(new DriverReloadApplicationEvent(driverConfigs, delta));
     }
 
     private Type[] parseParameterizedTypes() {
@@ -391,6 +425,7 @@ public class GrpcDriverEventListener implements DriverEventListener, Application
         Channel channel = this.driverGrpcClient.getChannel();
         int retryTimes = 0;
         long retryInterval = this.grpcProperties.getReconnectInterval().toMillis();
+        DriverListenerProperties.FlowControl windows = this.grpcProperties.getFlowControl();
 
         if (this.lastConnectTime != 0) {
             long waitTime = retryInterval - (System.currentTimeMillis() - this.lastConnectTime);
@@ -423,11 +458,10 @@ public class GrpcDriverEventListener implements DriverEventListener, Application
                 );
                 Metadata schemaMetadata = new Metadata();
                 schemaMetadata.merge(this.metadata);
-                SchemaHandler schemaHandler = new SchemaHandler(this.schemaCall, this.driverApp, callback);
+                StreamFlowControl schemaFlow = new StreamFlowControl(this.schemaCall, windows.getSchema());
+                SchemaHandler schemaHandler = new SchemaHandler(this.schemaCall, schemaFlow, this.driverApp, callback);
                 this.schemaCall.start(schemaHandler, schemaMetadata);
-                this.schemaCall.request(Integer.MAX_VALUE);
-
-                Type commandType = this.getCommandType();
+                schemaFlow.start();
 
                 // run
                 this.runCall = channel.newCall(
@@ -436,9 +470,10 @@ public class GrpcDriverEventListener implements DriverEventListener, Application
                 );
                 Metadata runMetadata = new Metadata();
                 runMetadata.merge(this.metadata);
-                RunHandler runHandler = new RunHandler(this.runExecutor, this.runCall, this.driverApp, commandType, callback);
+                StreamFlowControl runFlow = new StreamFlowControl(this.runCall, windows.getRun());
+                RunHandler runHandler = new RunHandler(this.runExecutor, this.runCall, runFlow, this.driverApp, this.commandDecoder, callback);
                 this.runCall.start(runHandler, runMetadata);
-                this.runCall.request(Integer.MAX_VALUE);
+                runFlow.start();
 
                 // writeTag
                 this.writeTagCall = channel.newCall(
@@ -447,9 +482,10 @@ public class GrpcDriverEventListener implements DriverEventListener, Application
                 );
                 Metadata writeTagMetadata = new Metadata();
                 writeTagMetadata.merge(this.metadata);
-                WriteTagHandler writeTagHandler = new WriteTagHandler(this.runExecutor, this.writeTagCall, this.driverApp, commandType, callback);
+                StreamFlowControl writeTagFlow = new StreamFlowControl(this.writeTagCall, windows.getWriteTag());
+                WriteTagHandler writeTagHandler = new WriteTagHandler(this.runExecutor, this.writeTagCall, writeTagFlow, this.driverApp, this.commandDecoder, callback);
                 this.writeTagCall.start(writeTagHandler, writeTagMetadata);
-                this.writeTagCall.request(Integer.MAX_VALUE);
+                writeTagFlow.start();
 
                 // batchRun
                 this.batchRunCall = channel.newCall(
@@ -458,9 +494,10 @@ public class GrpcDriverEventListener implements DriverEventListener, Application
                 );
                 Metadata batchRunMetadata = new Metadata();
                 batchRunMetadata.merge(this.metadata);
-                BatchRunHandler batchRunHandler = new BatchRunHandler(this.runExecutor, this.batchRunCall, this.driverApp, commandType, callback);
+                StreamFlowControl batchRunFlow = new StreamFlowControl(this.batchRunCall, windows.getBatchRun());
+                BatchRunHandler batchRunHandler = new BatchRunHandler(this.runExecutor, this.batchRunCall, batchRunFlow, this.driverApp, this.commandDecoder, callback);
                 this.batchRunCall.start(batchRunHandler, batchRunMetadata);
-                this.batchRunCall.request(Integer.MAX_VALUE);
+                batchRunFlow.start();
 
                 // debug
                 this.debugCall = channel.newCall(
@@ -469,9 +506,10 @@ public class GrpcDriverEventListener implements DriverEventListener, Application
                 );
                 Metadata debugRunMetadata = new Metadata();
                 debugRunMetadata.merge(this.metadata);
-                DebugHandler debugHandler = new DebugHandler(this.debugCall, this.driverApp, callback);
+                StreamFlowControl debugFlow = new StreamFlowControl(this.debugCall, windows.getDebug());
+                DebugHandler debugHandler = new DebugHandler(this.debugCall, debugFlow, this.driverApp, callback);
                 this.debugCall.start(debugHandler, debugRunMetadata);
-                this.debugCall.request(Integer.MAX_VALUE);
+                debugFlow.start();
 
                 // start
                 this.startCall = channel.newCall(
@@ -480,11 +518,12 @@ public class GrpcDriverEventListener implements DriverEventListener, Application
                 );
                 Metadata startMetadata = new Metadata();
                 startMetadata.merge(this.metadata);
-                StartHandler startHandler = new StartHandler(this.startCall, this.driverApp, this.globalContext,
+                StreamFlowControl startFlow = new StreamFlowControl(this.startCall, windows.getStart());
+                StartHandler startHandler = new StartHandler(this.startCall, startFlow, this.driverApp, this.globalContext,
                         this.getDriverConfigType(), this.getTagType(),
                         callback, this.loggerRoots, this::clearTagValueCache);
                 this.startCall.start(startHandler, startMetadata);
-                this.startCall.request(Integer.MAX_VALUE);
+                startFlow.start();
 
                 // httpProxy
                 if (this.driverApp.supportHttpProxy()) {
@@ -494,9 +533,10 @@ public class GrpcDriverEventListener implements DriverEventListener, Application
                     );
                     Metadata httpProxyMetadata = new Metadata();
                     httpProxyMetadata.merge(this.metadata);
-                    HttpProxyHandler httpProxyHandler = new HttpProxyHandler(this.httpProxyCall, this.driverApp, callback);
+                    StreamFlowControl httpProxyFlow = new StreamFlowControl(this.httpProxyCall, windows.getHttpProxy());
+                    HttpProxyHandler httpProxyHandler = new HttpProxyHandler(this.httpProxyCall, httpProxyFlow, this.driverApp, callback);
                     this.httpProxyCall.start(httpProxyHandler, httpProxyMetadata);
-                    this.httpProxyCall.request(Integer.MAX_VALUE);
+                    httpProxyFlow.start();
                 }
 
                 this.state.set(State.RUNNING);
@@ -537,25 +577,28 @@ public class GrpcDriverEventListener implements DriverEventListener, Application
     static class RunHandler extends ClientCall.Listener<RunRequest> {
         private final Logger log = LoggerFactory.withContext().module(DriverModules.START).getStaticLogger(RunHandler.class);
 
-        private final ThreadPoolExecutor executor;
-        private final ClientCall<RunResult, RunRequest> clientCall;
+        private final CommandExecutor executor;
+        private final StreamWriter<RunResult> writer;
+        private final StreamFlowControl flowControl;
         private final DriverApp<Object, Object, Object> driverApp;
-        private final Type commandType;
+        private final CommandDecoder commandDecoder;
         private final StreamClosedCallback closedCallback;
 
-        public RunHandler(ThreadPoolExecutor executor, ClientCall<RunResult, RunRequest> clientCall,
+        public RunHandler(CommandExecutor executor, ClientCall<RunResult, RunRequest> clientCall, StreamFlowControl flowControl,
                           DriverApp<Object, Object, Object> driverApp,
-                          Type commandType, StreamClosedCallback closedCallback) {
+                          CommandDecoder commandDecoder, StreamClosedCallback closedCallback) {
             this.executor = executor;
-            this.clientCall = clientCall;
+            this.writer = new StreamWriter<>(clientCall, this.log);
+            this.flowControl = flowControl;
             this.driverApp = driverApp;
-            this.commandType = commandType;
+            this.commandDecoder = commandDecoder;
             this.closedCallback = closedCallback;
         }
 
         @Override
         public void onClose(Status status, Metadata trailers) {
             log.error("closed, status = {}, metadata = {}", status, trailers);
+            this.writer.close();
             if (status.getCode() != Status.Code.CANCELLED) {
                 this.closedCallback.handle(status, trailers);
             }
@@ -564,6 +607,8 @@ public class GrpcDriverEventListener implements DriverEventListener, Application
         @Override
         public void onReady() {
             log.info("ready");
+            this.writer.onReady();
+            this.flowControl.onReady();
         }
 
         @Override
@@ -573,75 +618,95 @@ public class GrpcDriverEventListener implements DriverEventListener, Application
 
             String req = request.getRequest();
             String serialNo = request.getSerialNo();
+            Object payload = CommandDecoder.text(request.getCommand());
 
-            logger.info("接收到指令请求, req = {}, serialNo = {}, command = {}", req, serialNo, request.getCommand().toStringUtf8());
+            logger.info("接收到指令请求, req = {}, serialNo = {}, command = {}", req, serialNo, payload);
 
-            CompletableFuture.supplyAsync(() -> {
+            Runnable task = () -> {
                 LoggerContext context = LoggerContexts.push();
                 context.withTable(request.getTableId()).withDevice(request.getId());
+                try {
+                    this.sendResult(logger, request, payload, this.execute(logger, request, payload));
+                } finally {
+                    LoggerContexts.pop();
+                    this.flowControl.release();
+                }
+            };
 
-                logger.info("开始执行指令, req = {}, serialNo = {}, command = {}", req, serialNo, request.getCommand().toStringUtf8());
+            if (!this.executor.submit(CommandExecutor.Priority.RUN, serialKey(request.getTableId(), request.getId()), task)) {
+                CommandExecutor.Metrics metrics = this.executor.metrics();
+                logger.warn("指令执行器繁忙, 拒绝执行指令, req = {}, serialNo = {}, {}", req, serialNo, metrics);
+                this.sendResult(logger, request, payload, busyResult(metrics));
+                this.flowControl.release();
+            }
+        }
 
-                Result result = new Result();
-                result.setCode(200);
+        private Result execute(Logger logger, RunRequest request, Object payload) {
+            String req = request.getRequest();
+            String serialNo = request.getSerialNo();
 
-                try {
-                    Object command = new Gson().fromJson(request.getCommand().toStringUtf8(), this.commandType);
-                    Cmd<Object> cmd = new Cmd<>(req, request.getTableId(), request.getId(), serialNo, command);
-                    Object runResult = this.driverApp.run(cmd);
-                    result.setResult(runResult);
-                    logger.info("指令执行成功, req = {}, serialNo = {}, command = {}, result = {}",
-                            req, serialNo, request.getCommand().toStringUtf8(), runResult);
-                } catch (JsonSyntaxException e) {
-                    logger.error("指令执行失败, 解析命令失败, req = {}, serialNo = {}, command = {}", req, serialNo, request.getCommand().toStringUtf8(), e);
-                    result.setCode(400);
-                    result.setError(e.getMessage());
-                } catch (Exception e) {
-                    logger.error("指令执行失败, req = {}, serialNo = {}, command = {}", req, serialNo, request.getCommand().toStringUtf8(), e);
-                    result.setCode(400);
-                    result.setError(e.getMessage());
-                }
-                return result;
-            }, this.executor).handle((r, e) -> {
-                try {
-                    clientCall.sendMessage(RunResult.newBuilder()
-                            .setRequest(req)
-                            .setMessage(GrpcDriverEventListener.encode(r))
-                            .build());
-                } catch (Exception ex) {
-                    logger.error("上报指令下发结果失败, req = {}, serialNo = {}, command = {}",
-                            req, serialNo, request.getCommand().toStringUtf8(), ex);
-                }
+            logger.info("开始执行指令, req = {}, serialNo = {}, command = {}", req, serialNo, payload);
 
-                return r;
-            }).whenComplete((r, e) -> {
-                LoggerContexts.pop();
-            });
+            Result result = new Result();
+            result.setCode(200);
+
+            try {
+                Object command = this.commandDecoder.decode(request.getCommand());
+                Cmd<Object> cmd = new Cmd<>(req, request.getTableId(), request.getId(), serialNo, command);
+                Object runResult = this.driverApp.run(cmd);
+                result.setResult(runResult);
+                logger.info("指令执行成功, req = {}, serialNo = {}, command = {}, result = {}",
+                        req, serialNo, payload, runResult);
+            } catch (JsonSyntaxException e) {
+                logger.error("指令执行失败, 解析命令失败, req = {}, serialNo = {}, command = {}", req, serialNo, payload, e);
+                result.setCode(400);
+                result.setError(e.getMessage());
+            } catch (Exception e) {
+                logger.error("指令执行失败, req = {}, serialNo = {}, command = {}", req, serialNo, payload, e);
+                result.setCode(400);
+                result.setError(e.getMessage());
+            }
+            return result;
+        }
+
+        private void sendResult(Logger logger, RunRequest request, Object payload, Result result) {
+            try {
+                this.writer.write(RunResult.newBuilder()
+                        .setRequest(request.getRequest())
+                        .setMessage(GrpcDriverEventListener.encode(result))
+                        .build());
+            } catch (Exception ex) {
+                logger.error("上报指令下发结果失败, req = {}, serialNo = {}, command = {}",
+                        request.getRequest(), request.getSerialNo(), payload, ex);
+            }
         }
     }
 
     static class WriteTagHandler extends ClientCall.Listener<RunRequest> {
         private final Logger log = LoggerFactory.withContext().module(DriverModules.WRITE_TAG).getStaticLogger("write-tag-stream");
 
-        private final ThreadPoolExecutor executor;
-        private final ClientCall<RunResult, RunRequest> clientCall;
+        private final CommandExecutor executor;
+        private final StreamWriter<RunResult> writer;
+        private final StreamFlowControl flowControl;
         private final DriverApp<Object, Object, Object> driverApp;
-        private final Type commandType;
+        private final CommandDecoder commandDecoder;
         private final StreamClosedCallback closedCallback;
 
-        public WriteTagHandler(ThreadPoolExecutor executor, ClientCall<RunResult, RunRequest> clientCall,
+        public WriteTagHandler(CommandExecutor executor, ClientCall<RunResult, RunRequest> clientCall, StreamFlowControl flowControl,
                                DriverApp<Object, Object, Object> driverApp,
-                               Type commandType, StreamClosedCallback closedCallback) {
+                               CommandDecoder commandDecoder, StreamClosedCallback closedCallback) {
             this.executor = executor;
-            this.clientCall = clientCall;
+            this.writer = new StreamWriter<>(clientCall, this.log);
+            this.flowControl = flowControl;
             this.driverApp = driverApp;
-            this.commandType = commandType;
+            this.commandDecoder = commandDecoder;
             this.closedCallback = closedCallback;
         }
 
         @Override
         public void onClose(Status status, Metadata trailers) {
             log.error("closed, status = {}, metadata = {}", status, trailers);
+            this.writer.close();
             if (status.getCode() != Status.Code.CANCELLED) {
                 this.closedCallback.handle(status, trailers);
             }
@@ -650,6 +715,8 @@ public class GrpcDriverEventListener implements DriverEventListener, Application
         @Override
         public void onReady() {
             log.info("ready");
+            this.writer.onReady();
+            this.flowControl.onReady();
         }
 
         @Override
@@ -659,74 +726,95 @@ public class GrpcDriverEventListener implements DriverEventListener, Application
 
             String req = request.getRequest();
             String serialNo = request.getSerialNo();
+            Object payload = CommandDecoder.text(request.getCommand());
 
-            logger.info("接收到写数据点指令请求, req = {}, serialNo = {}, command = {}", req, serialNo, request.getCommand().toStringUtf8());
+            logger.info("接收到写数据点指令请求, req = {}, serialNo = {}, command = {}", req, serialNo, payload);
 
-            CompletableFuture.supplyAsync(() -> {
+            Runnable task = () -> {
                 LoggerContext context = LoggerContexts.push();
                 context.withTable(request.getTableId()).withDevice(request.getId());
+                try {
+                    this.sendResult(logger, request, payload, this.execute(logger, request, payload));
+                } finally {
+                    LoggerContexts.pop();
+                    this.flowControl.release();
+                }
+            };
 
-                logger.info("执行写数据点指令, req = {}, serialNo = {}, command = {}", req, serialNo, request.getCommand().toStringUtf8());
+            if (!this.executor.submit(CommandExecutor.Priority.WRITE_TAG, serialKey(request.getTableId(), request.getId()), task)) {
+                CommandExecutor.Metrics metrics = this.executor.metrics();
+                logger.warn("指令执行器繁忙, 拒绝写数据点, req = {}, serialNo = {}, {}", req, serialNo, metrics);
+                this.sendResult(logger, request, payload, busyResult(metrics));
+                this.flowControl.release();
+            }
+        }
 
-                Result result = new Result();
-                result.setCode(200);
+        private Result execute(Logger logger, RunRequest request, Object payload) {
+            String req = request.getRequest();
+            String serialNo = request.getSerialNo();
 
-                try {
-                    Object command = new Gson().fromJson(request.getCommand().toStringUtf8(), this.commandType);
-                    Cmd<Object> cmd = new Cmd<>(req, request.getTableId(), request.getId(), serialNo, command);
-                    Object runResult = this.driverApp.writeTag(cmd);
-                    result.setResult(runResult);
-                    logger.info("写数据点成功, req = {}, serialNo = {}, command = {}, result = {}",
-                            req, serialNo, request.getCommand().toStringUtf8(), runResult);
-                } catch (JsonSyntaxException e) {
-                    logger.error("写数据点失败, 解析命令失败, req = {}, serialNo = {}, command = {}", req, serialNo, request.getCommand().toStringUtf8(), e);
-                    result.setCode(400);
-                    result.setError(e.getMessage());
-                } catch (Exception e) {
-                    logger.error("写数据点失败, req = {}, serialNo = {}, command = {}", req, serialNo, request.getCommand().toStringUtf8(), e);
-                    result.setCode(400);
-                    result.setError(e.getMessage());
-                }
-                return result;
-            }, this.executor).handle((r, e) -> {
-                try {
-                    clientCall.sendMessage(RunResult.newBuilder()
-                            .setRequest(req)
-                            .setMessage(GrpcDriverEventListener.encode(r))
-                            .build());
-                } catch (Exception ex) {
-                    logger.error("上报写数据点结果失败, req = {}, serialNo = {}, command = {}",
-                            req, serialNo, request.getCommand().toStringUtf8(), ex);
-                }
-                return r;
-            }).whenComplete((r, e) -> {
-                LoggerContexts.pop();
-            });
+            logger.info("执行写数据点指令, req = {}, serialNo = {}, command = {}", req, serialNo, payload);
+
+            Result result = new Result();
+            result.setCode(200);
+
+            try {
+                Object command = this.commandDecoder.decode(request.getCommand());
+                Cmd<Object> cmd = new Cmd<>(req, request.getTableId(), request.getId(), serialNo, command);
+                Object runResult = this.driverApp.writeTag(cmd);
+                result.setResult(runResult);
+                logger.info("写数据点成功, req = {}, serialNo = {}, command = {}, result = {}",
+                        req, serialNo, payload, runResult);
+            } catch (JsonSyntaxException e) {
+                logger.error("写数据点失败, 解析命令失败, req = {}, serialNo = {}, command = {}", req, serialNo, payload, e);
+                result.setCode(400);
+                result.setError(e.getMessage());
+            } catch (Exception e) {
+                logger.error("写数据点失败, req = {}, serialNo = {}, command = {}", req, serialNo, payload, e);
+                result.setCode(400);
+                result.setError(e.getMessage());
+            }
+            return result;
+        }
+
+        private void sendResult(Logger logger, RunRequest request, Object payload, Result result) {
+            try {
+                this.writer.write(RunResult.newBuilder()
+                        .setRequest(request.getRequest())
+                        .setMessage(GrpcDriverEventListener.encode(result))
+                        .build());
+            } catch (Exception ex) {
+                logger.error("上报写数据点结果失败, req = {}, serialNo = {}, command = {}",
+                        request.getRequest(), request.getSerialNo(), payload, ex);
+            }
         }
     }
 
     static class BatchRunHandler extends ClientCall.Listener<BatchRunRequest> {
         private final Logger log = LoggerFactory.withContext().module(DriverModules.BATCH_RUN).getStaticLogger("batch-run-stream");
 
-        private final ThreadPoolExecutor executor;
-        private final ClientCall<BatchRunResult, BatchRunRequest> clientCall;
+        private final CommandExecutor executor;
+        private final StreamWriter<BatchRunResult> writer;
+        private final StreamFlowControl flowControl;
         private final DriverApp<Object, Object, Object> driverApp;
-        private final Type commandType;
+        private final CommandDecoder commandDecoder;
         private final StreamClosedCallback closedCallback;
 
-        public BatchRunHandler(ThreadPoolExecutor executor, ClientCall<BatchRunResult, BatchRunRequest> clientCall,
+        public BatchRunHandler(CommandExecutor executor, ClientCall<BatchRunResult, BatchRunRequest> clientCall, StreamFlowControl flowControl,
                                DriverApp<Object, Object, Object> driverApp,
-                               Type commandType, StreamClosedCallback closedCallback) {
+                               CommandDecoder commandDecoder, StreamClosedCallback closedCallback) {
             this.executor = executor;
-            this.clientCall = clientCall;
+            this.writer = new StreamWriter<>(clientCall, this.log);
+            this.flowControl = flowControl;
             this.driverApp = driverApp;
-            this.commandType = commandType;
+            this.commandDecoder = commandDecoder;
             this.closedCallback = closedCallback;
         }
 
         @Override
         public void onClose(Status status, Metadata trailers) {
             log.error("closed, status = {}, metadata = {}", status, trailers);
+            this.writer.close();
             if (status.getCode() != Status.Code.CANCELLED) {
                 this.closedCallback.handle(status, trailers);
             }
@@ -735,6 +823,8 @@ public class GrpcDriverEventListener implements DriverEventListener, Application
         @Override
         public void onReady() {
             log.info("ready");
+            this.writer.onReady();
+            this.flowControl.onReady();
         }
 
         @Override
@@ -744,63 +834,83 @@ public class GrpcDriverEventListener implements DriverEventListener, Application
 
             String req = request.getRequest();
             String serialNo = request.getSerialNo();
+            Object payload = CommandDecoder.text(request.getCommand());
 
-            logger.info("接收到批量执行指令请求, req = {}, serialNo = {}, command = {}", req, serialNo, request.getCommand().toStringUtf8());
+            logger.info("接收到批量执行指令请求, req = {}, serialNo = {}, command = {}", req, serialNo, payload);
 
-            CompletableFuture.supplyAsync(() -> {
+            // 批量指令涉及多个设备, 不与单个设备的指令串行执行
+            Runnable task = () -> {
                 LoggerContext context = LoggerContexts.push();
                 context.withTable(request.getTableId());
+                try {
+                    this.sendResult(logger, request, payload, this.execute(logger, request, payload));
+                } finally {
+                    LoggerContexts.pop();
+                    this.flowControl.release();
+                }
+            };
 
-                logger.info("开始批量执行指令, req = {}, serialNo = {}, command = {}", req, serialNo, request.getCommand().toStringUtf8());
+            if (!this.executor.submit(CommandExecutor.Priority.BATCH_RUN, null, task)) {
+                CommandExecutor.Metrics metrics = this.executor.metrics();
+                logger.warn("指令执行器繁忙, 拒绝批量执行指令, req = {}, serialNo = {}, {}", req, serialNo, metrics);
+                this.sendResult(logger, request, payload, busyResult(metrics));
+                this.flowControl.release();
+            }
+        }
 
-                Result result = new Result();
-                result.setCode(200);
+        private Result execute(Logger logger, BatchRunRequest request, Object payload) {
+            String req = request.getRequest();
+            String serialNo = request.getSerialNo();
 
-                try {
-                    Object command = new Gson().fromJson(request.getCommand().toStringUtf8(), this.commandType);
-                    BatchCmd<Object> cmd = new BatchCmd<>(req, request.getTableId(), request.getIdList(), serialNo, command);
-                    Object runResult = this.driverApp.batchRun(cmd);
-                    result.setResult(runResult);
-                    logger.info("批量下发指令, 成功, req = {}, serialNo = {}, command = {}, result = {}",
-                            req, serialNo, request.getCommand().toStringUtf8(), runResult);
-                } catch (JsonSyntaxException e) {
-                    logger.error("批量下发指令, 解析命令失败, req = {}, serialNo = {}, command = {}", req, serialNo, request.getCommand().toStringUtf8(), e);
-                    result.setCode(400);
-                    result.setError(e.getMessage());
-                } catch (Exception e) {
-                    logger.error("批量下发指令, req = {}, serialNo = {}, command = {}", req, serialNo, request.getCommand().toStringUtf8(), e);
-                    result.setCode(400);
-                    result.setError(e.getMessage());
-                }
-                return result;
-            }, this.executor).handle((r, e) -> {
-                try {
-                    clientCall.sendMessage(BatchRunResult.newBuilder()
-                            .setRequest(req)
-                            .setMessage(GrpcDriverEventListener.encode(r))
-                            .build());
-                } catch (Exception ex) {
-                    logger.error("上报批量下发指令结果失败, req = {}, serialNo = {}, command = {}",
-                            req, serialNo, request.getCommand().toStringUtf8(), ex);
-                }
+            logger.info("开始批量执行指令, req = {}, serialNo = {}, command = {}", req, serialNo, payload);
 
-                return r;
-            }).whenComplete((r, e) -> {
-                LoggerContexts.pop();
-            });
+            Result result = new Result();
+            result.setCode(200);
+
+            try {
+                Object command = this.commandDecoder.decode(request.getCommand());
+                BatchCmd<Object> cmd = new BatchCmd<>(req, request.getTableId(), request.getIdList(), serialNo, command);
+                Object runResult = this.driverApp.batchRun(cmd);
+                result.setResult(runResult);
+                logger.info("批量下发指令, 成功, req = {}, serialNo = {}, command = {}, result = {}",
+                        req, serialNo, payload, runResult);
+            } catch (JsonSyntaxException e) {
+                logger.error("批量下发指令, 解析命令失败, req = {}, serialNo = {}, command = {}", req, serialNo, payload, e);
+                result.setCode(400);
+                result.setError(e.getMessage());
+            } catch (Exception e) {
+                logger.error("批量下发指令, req = {}, serialNo = {}, command = {}", req, serialNo, payload, e);
+                result.setCode(400);
+                result.setError(e.getMessage());
+            }
+            return result;
+        }
+
+        private void sendResult(Logger logger, BatchRunRequest request, Object payload, Result result) {
+            try {
+                this.writer.write(BatchRunResult.newBuilder()
+                        .setRequest(request.getRequest())
+                        .setMessage(GrpcDriverEventListener.encode(result))
+                        .build());
+            } catch (Exception ex) {
+                logger.error("上报批量下发指令结果失败, req = {}, serialNo = {}, command = {}",
+                        request.getRequest(), request.getSerialNo(), payload, ex);
+            }
         }
     }
 
     static class DebugHandler extends ClientCall.Listener<Debug> {
         private final Logger log = LoggerFactory.withContext().module(DriverModules.DEBUG).getStaticLogger("debug-stream");
-        private final ClientCall<Debug, Debug> clientCall;
+        private final StreamWriter<Debug> writer;
+        private final StreamFlowControl flowControl;
         private final DriverApp<Object, Object, Object> driverApp;
         private final StreamClosedCallback closedCallback;
 
-        public DebugHandler(ClientCall<Debug, Debug> clientCall,
+        public DebugHandler(ClientCall<Debug, Debug> clientCall, StreamFlowControl flowControl,
                             DriverApp<Object, Object, Object> driverApp,
                             StreamClosedCallback closedCallback) {
-            this.clientCall = clientCall;
+            this.writer = new StreamWriter<>(clientCall, this.log);
+            this.flowControl = flowControl;
             this.driverApp = driverApp;
             this.closedCallback = closedCallback;
         }
@@ -808,6 +918,7 @@ public class GrpcDriverEventListener implements DriverEventListener, Application
         @Override
         public void onClose(Status status, Metadata trailers) {
             log.error("closed, status = {}, metadata = {}", status, trailers);
+            this.writer.close();
             if (status.getCode() != Status.Code.CANCELLED) {
                 this.closedCallback.handle(status, trailers);
             }
@@ -816,10 +927,20 @@ public class GrpcDriverEventListener implements DriverEventListener, Application
         @Override
         public void onReady() {
             log.info("ready");
+            this.writer.onReady();
+            this.flowControl.onReady();
         }
 
         @Override
         public void onMessage(Debug request) {
+            try {
+                this.handle(request);
+            } finally {
+                this.flowControl.release();
+            }
+        }
+
+        private void handle(Debug request) {
             LoggerContexts.initial().setModule(DriverModules.DEBUG);
             Logger logger = LoggerFactory.getLogger(StartHandler.class);
 
@@ -844,7 +965,7 @@ public class GrpcDriverEventListener implements DriverEventListener, Application
             }
 
             try {
-                clientCall.sendMessage(debug);
+                this.writer.write(debug);
             } catch (Exception e) {
                 log.error("上报 debug 结果失败, req = {}, result = {}", req, debug, e);
             }
@@ -854,27 +975,38 @@ public class GrpcDriverEventListener implements DriverEventListener, Application
     static class StartHandler extends ClientCall.Listener<StartRequest> {
         private final Logger logger = LoggerFactory.withContext().module(DriverModules.START).getStaticLogger(StartHandler.class);
         private final Map<String, Level> loggerRoots;
-        private final ClientCall<StartResult, StartRequest> clientCall;
+        private final StreamWriter<StartResult> writer;
+        private final StreamFlowControl flowControl;
         private final DriverApp<Object, Object, Object> driverApp;
         private final GlobalContext globalContext;
         private final Type driverConfigType;
-        private final Type tagType;
+        /**
+         * SDK 使用的配置类型, 即 {@code DriverSingleConfig<BasicConfig<Tag>>}
+         */
+        private final Type sdkConfigType;
+        /**
+         * 驱动的配置类型是否可以直接作为 SDK 使用的配置. 如果可以则只解析一次
+         */
+        private final boolean sharedConfig;
         private final StreamClosedCallback closedCallback;
-        private final Consumer<DriverSingleConfig<BasicConfig<?>>> clearCacheFn;
+        private final BiConsumer<DriverSingleConfig<BasicConfig<?>>, DriverConfigDelta> clearCacheFn;
 
-        public StartHandler(ClientCall<StartResult, StartRequest> clientCall,
+        public StartHandler(ClientCall<StartResult, StartRequest> clientCall, StreamFlowControl flowControl,
                             DriverApp<Object, Object, Object> driverApp,
                             GlobalContext globalContext,
                             Type driverConfigType, Type tagType,
                             StreamClosedCallback closedCallback,
                             Map<String, Level> loggerRoots,
-                            Consumer<DriverSingleConfig<BasicConfig<?>>> clearCacheFn
+                            BiConsumer<DriverSingleConfig<BasicConfig<?>>, DriverConfigDelta> clearCacheFn
         ) {
-            this.clientCall = clientCall;
+            this.writer = new StreamWriter<>(clientCall, this.logger);
+            this.flowControl = flowControl;
             this.driverApp = driverApp;
             this.globalContext = globalContext;
             this.driverConfigType = driverConfigType;
-            this.tagType = tagType;
+            this.sdkConfigType = TypeReference.parametricType(DriverSingleConfig.class,
+                    TypeReference.parametricType(BasicConfig.class, tagType));
+            this.sharedConfig = isSdkConfigType(driverConfigType, tagType);
             this.closedCallback = closedCallback;
             this.loggerRoots = loggerRoots;
             this.clearCacheFn = clearCacheFn;
@@ -883,6 +1015,7 @@ public class GrpcDriverEventListener implements DriverEventListener, Application
         @Override
         public void onClose(Status status, Metadata trailers) {
             logger.error("closed, status = {}, metadata = {}", status, trailers);
+            this.writer.close();
             if (status.getCode() != Status.Code.CANCELLED) {
                 this.closedCallback.handle(status, trailers);
             }
@@ -891,19 +1024,30 @@ public class GrpcDriverEventListener implements DriverEventListener, Application
         @Override
         public void onReady() {
             logger.info("ready");
+            this.writer.onReady();
+            this.flowControl.onReady();
         }
 
         @Override
         public void onMessage(StartRequest message) {
+            try {
+                this.handle(message);
+            } finally {
+                this.flowControl.release();
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private void handle(StartRequest message) {
             String req = message.getRequest();
-            String config = message.getConfig().toString(StandardCharsets.UTF_8);
+            ByteString config = message.getConfig();
 
             LoggerContexts.initial().setModule(DriverModules.START);
             Logger logger = LoggerFactory.getLogger(StartHandler.class);
 
             logger.info("启动驱动, req = {}", req);
             if (logger.isDebugEnabled()) {
-                logger.debug("启动驱动, req = {}, config  {}", req, config);
+                logger.debug("启动驱动, req = {}, config  {}", req, CommandDecoder.text(config));
             }
 
             Result result = new Result();
@@ -912,56 +1056,61 @@ public class GrpcDriverEventListener implements DriverEventListener, Application
 
             boolean passed = true;
             DriverSingleConfig<BasicConfig<? extends Tag>> driverConfig = null;
+            Object drvConfig = null;
+            DriverConfigDelta delta = null;
             try {
-                Type baseConfigType = TypeReference.parametricType(BasicConfig.class, this.tagType);
-                Type driverConfigType = TypeReference.parametricType(DriverSingleConfig.class, baseConfigType);
-
-                driverConfig = JSON.parseObject(config, driverConfigType);
+                // 直接从 ByteString 中解析, 不转换为字符串. 驱动的配置类型兼容时只解析一次, SDK 与驱动共用解析结果
+                drvConfig = parseConfig(config, this.driverConfigType);
+                if (this.sharedConfig) {
+                    driverConfig = (DriverSingleConfig<BasicConfig<? extends Tag>>) drvConfig;
+                } else {
+                    driverConfig = parseConfig(config, this.sdkConfigType);
+                }
 
                 if (logger.isDebugEnabled()) {
                     logger.debug("启动驱动, config = {}", driverConfig);
                 }
 
                 String instanceId = driverConfig.getId();
-                Map<String, List<DeviceInfo<? extends Tag>>> deviceInfos = new HashMap<>();
-
-                Map<String, Tag> driverInstanceTags = new HashMap<>();
-                if (driverConfig.getConfig() != null && !CollectionUtils.isEmpty(driverConfig.getConfig().getTags())) {
-                    for (Tag tag : driverConfig.getConfig().getTags()) {
-                        driverInstanceTags.put(tag.getId(), tag);
-                    }
-                }
-
-                for (Model<BasicConfig<? extends Tag>, BasicConfig<? extends Tag>> table : driverConfig.getTables()) {
+                DeviceRegistry.Builder registry = DeviceRegistry.builder();
+                // 根据驱动自身的配置计算指纹, 用于判断模型和设备的配置是否变化.
+                // 驱动的配置类型不是 DriverSingleConfig 时无法计算, 只比较数据点
+                DriverSingleConfig<?> typedConfig = drvConfig instanceof DriverSingleConfig ? (DriverSingleConfig<?>) drvConfig : null;
+                registry.driverInstanceTags(driverConfig.getConfig() == null ? null : driverConfig.getConfig().getTags(),
+                        typedConfig == null ? 0 : fingerprint(typedConfig.getConfig()));
+
+                // 同一模型下未单独配置数据点的设备共享模型的数据点集合
+                List<? extends Model<?, ?>> typedTables = typedConfig == null ? null : typedConfig.getTables();
+                List<? extends Model<BasicConfig<? extends Tag>, BasicConfig<? extends Tag>>> tables = driverConfig.getTables();
+                for (int i = 0; i < tables.size(); i++) {
+                    Model<BasicConfig<? extends Tag>, BasicConfig<? extends Tag>> table = tables.get(i);
                     String tableId = table.getId();
+                    Model<?, ?> typedTable = typedTables != null && i < typedTables.size()
+                            && Objects.equals(tableId, typedTables.get(i).getId()) ? typedTables.get(i) : null;
+
                     table.setDriverInstanceId(instanceId);
-                    Map<String, Tag> tableTags = new HashMap<>(driverInstanceTags);
-                    if (table.getConfig() != null && !CollectionUtils.isEmpty(table.getConfig().getTags())) {
-                        for (Tag tag : table.getConfig().getTags()) {
-                            tableTags.put(tag.getId(), tag);
-                        }
-                    }
+                    registry.table(tableId, table.getConfig() == null ? null : table.getConfig().getTags(),
+                            typedTable == null ? 0 : fingerprint(typedTable.getConfig()));
+
+                    List<? extends Device<?>> typedDevices = typedTable == null ? null : typedTable.getDevices();
+                    List<Device<BasicConfig<? extends Tag>>> devices = table.getDevices();
+                    for (int j = 0; j < devices.size(); j++) {
+                        Device<BasicConfig<? extends Tag>> device = devices.get(j);
+                        Device<?> typedDevice = typedDevices != null && j < typedDevices.size()
+                                && Objects.equals(device.getId(), typedDevices.get(j).getId()) ? typedDevices.get(j) : null;
 
-                    for (Device<BasicConfig<? extends Tag>> device : table.getDevices()) {
                         device.setDriverInstanceId(instanceId);
                         device.setTable(tableId);
-
-                        Map<String, Tag> deviceTags = new HashMap<>(tableTags);
-                        if (device.getConfig() != null && !CollectionUtils.isEmpty(device.getConfig().getTags())) {
-                            for (Tag tag : device.getConfig().getTags()) {
-                                deviceTags.put(tag.getId(), tag);
-                            }
-                        }
-                        String deviceId = device.getId();
-                        DeviceInfo<? extends Tag> info = new DeviceInfo<>(deviceId, tableId, instanceId, deviceTags);
-                        deviceInfos.putIfAbsent(deviceId, new ArrayList<>(1));
-                        deviceInfos.get(deviceId).add(info);
+                        registry.device(tableId, device.getId(), instanceId,
+                                device.getConfig() == null ? null : device.getConfig().getTags(),
+                                typedDevice == null ? 0 : fingerprint(typedDevice));
                     }
                 }
 
-                this.globalContext.set(deviceInfos);
+                delta = this.globalContext.update(registry.build());
+                logger.info("启动驱动, 配置变化: {}", delta);
             } catch (Exception e) {
-                logger.error("启动驱动, 解析启动配置失败, config = {}", config, e);
+                logger.error("启动驱动, 解析启动配置失败, config = {}", config.toStringUtf8(), e);
                 passed = false;
                 result.setCode(400);
                 result.setResult("启动配置不正确: " + e.getMessage());
@@ -1008,9 +1157,12 @@ public class GrpcDriverEventListener implements DriverEventListener, Application
 
             if (passed) {
                 try {
-                    Object drvConfig = JSON.parseObject(config, this.driverConfigType);
-                    this.driverApp.start(drvConfig);
-                    this.clearCacheFn.accept(driverConfig);
+                    if (delta.isFull()) {
+                        this.driverApp.start(drvConfig);
+                    } else {
+                        this.driverApp.reload(drvConfig, delta);
+                    }
+                    this.clearCacheFn.accept(driverConfig, delta);
                 } catch (Exception e) {
                     logger.error("启动驱动:", e);
                     result.setCode(400);
@@ -1020,25 +1172,74 @@ public class GrpcDriverEventListener implements DriverEventListener, Application
 
             LoggerContexts.destroy();
 
-            clientCall.sendMessage(StartResult.newBuilder()
+            this.writer.write(StartResult.newBuilder()
                     .setRequest(message.getRequest())
                     .setMessage(GrpcDriverEventListener.encode(result))
                     .build());
         }
     }
 
+    /**
+     * 从 {@link ByteString} 中解析配置, 不创建配置内容的字符串副本
+     */
+    static <T> T parseConfig(ByteString config, Type type) throws IOException {
+        try (InputStream input = config.newInput()) {
+            return JSON.parseObject(input, StandardCharsets.UTF_8, type);
+        }
+    }
+
+    /**
+     * 判断驱动的配置类型是否为 {@code DriverSingleConfig<C>}, 且 {@code C} 为 {@code BasicConfig<T>} 或其子类,
+     * {@code T} 为驱动声明的数据点类型. 此时驱动的配置可以直接作为 SDK 使用的配置
+     *
+     * @param driverConfigType 驱动的配置类型
+     * @param tagType          驱动声明的数据点类型
+     */
+    static boolean isSdkConfigType(Type driverConfigType, Type tagType) {
+        if (!(driverConfigType instanceof ParameterizedType)
+                || ((ParameterizedType) driverConfigType).getRawType() != DriverSingleConfig.class) {
+            return false;
+        }
+
+        Type configType = ((ParameterizedType) driverConfigType).getActualTypeArguments()[0];
+        while (configType instanceof Class && configType != Object.class) {
+            Class<?> configClass = (Class<?>) configType;
+            if (configClass.isInterface()) {
+                return false;
+            }
+            configType = configClass.getGenericSuperclass();
+        }
+
+        return configType instanceof ParameterizedType
+                && ((ParameterizedType) configType).getRawType() == BasicConfig.class
+                && tagType.equals(((ParameterizedType) configType).getActualTypeArguments()[0]);
+    }
+
+    /**
+     * 计算配置的指纹. 配置相同时指纹相同, 不会返回 {@code 0}
+     */
+    static long fingerprint(Object config) {
+        if (config == null) {
+            return 1;
+        }
+        long hash = Hashing.murmur3_128().hashString(JSON.toJSONString(config), StandardCharsets.UTF_8).asLong();
+        return hash == 0 ? 1 : hash;
+    }
+
     static class SchemaHandler extends ClientCall.Listener<SchemaRequest> {
 
         private final Logger logger = LoggerFactory.withContext().module(DriverModules.SCHEMA).getStaticLogger(SchemaHandler.class);
 
-        private final ClientCall<SchemaResult, SchemaRequest> clientCall;
+        private final StreamWriter<SchemaResult> writer;
+        private final StreamFlowControl flowControl;
         private final DriverApp<Object, Object, Object> driverApp;
         private final StreamClosedCallback closedCallback;
 
-        public SchemaHandler(ClientCall<SchemaResult, SchemaRequest> clientCall,
+        public SchemaHandler(ClientCall<SchemaResult, SchemaRequest> clientCall, StreamFlowControl flowControl,
                              DriverApp<Object, Object, Object> driverApp,
                              StreamClosedCallback closedCallback) {
-            this.clientCall = clientCall;
+            this.writer = new StreamWriter<>(clientCall, this.logger);
+            this.flowControl = flowControl;
             this.driverApp = driverApp;
             this.closedCallback = closedCallback;
         }
@@ -1046,6 +1247,7 @@ public class GrpcDriverEventListener implements DriverEventListener, Application
         @Override
         public void onClose(Status status, Metadata trailers) {
             logger.error("closed, status = {}, metadata = {}", status, trailers);
+            this.writer.close();
             if (status.getCode() != Status.Code.CANCELLED) {
                 this.closedCallback.handle(status, trailers);
             }
@@ -1054,10 +1256,20 @@ public class GrpcDriverEventListener implements DriverEventListener, Application
         @Override
         public void onReady() {
             logger.info("ready");
+            this.writer.onReady();
+            this.flowControl.onReady();
         }
 
         @Override
         public void onMessage(SchemaRequest request) {
+            try {
+                this.handle(request);
+            } finally {
+                this.flowControl.release();
+            }
+        }
+
+        private void handle(SchemaRequest request) {
             LoggerContexts.initial().setModule(DriverModules.SCHEMA);
             Logger logger = LoggerFactory.getLogger(SchemaHandler.class);
 
@@ -1087,7 +1299,7 @@ public class GrpcDriverEventListener implements DriverEventListener, Application
             }
 
             String message = new Gson().toJson(result);
-            clientCall.sendMessage(SchemaResult.newBuilder()
+            this.writer.write(SchemaResult.newBuilder()
                     .setRequest(request.getRequest())
                     .setMessage(ByteString.copyFrom(message, StandardCharsets.UTF_8))
                     .build());
@@ -1102,14 +1314,16 @@ public class GrpcDriverEventListener implements DriverEventListener, Application
         private final static Type HEADER_TYPE = new TypeToken<Map<String, List<String>>>() {
         }.getType();
 
-        private final ClientCall<HttpProxyResult, HttpProxyRequest> clientCall;
+        private final StreamWriter<HttpProxyResult> writer;
+        private final StreamFlowControl flowControl;
         private final DriverApp<Object, Object, Object> driverApp;
         private final StreamClosedCallback closedCallback;
 
-        public HttpProxyHandler(ClientCall<HttpProxyResult, HttpProxyRequest> clientCall,
+        public HttpProxyHandler(ClientCall<HttpProxyResult, HttpProxyRequest> clientCall, StreamFlowControl flowControl,
                                 DriverApp<Object, Object, Object> driverApp,
                                 StreamClosedCallback closedCallback) {
-            this.clientCall = clientCall;
+            this.writer = new StreamWriter<>(clientCall, this.logger);
+            this.flowControl = flowControl;
             this.driverApp = driverApp;
             this.closedCallback = closedCallback;
         }
@@ -1117,6 +1331,7 @@ public class GrpcDriverEventListener implements DriverEventListener, Application
         @Override
         public void onClose(Status status, Metadata trailers) {
             logger.error("closed, status = {}, metadata = {}", status, trailers);
+            this.writer.close();
             if (status.getCode() != Status.Code.CANCELLED) {
                 this.closedCallback.handle(status, trailers);
             }
@@ -1125,10 +1340,20 @@ public class GrpcDriverEventListener implements DriverEventListener, Application
         @Override
         public void onReady() {
             logger.info("ready");
+            this.writer.onReady();
+            this.flowControl.onReady();
         }
 
         @Override
         public void onMessage(HttpProxyRequest request) {
+            try {
+                this.handle(request);
+            } finally {
+                this.flowControl.release();
+            }
+        }
+
+        private void handle(HttpProxyRequest request) {
             LoggerContexts.initial().setModule(DriverModules.HTTP_PROXY);
             Logger logger = LoggerFactory.getLogger(HttpProxyHandler.class);
 
@@ -1152,7 +1377,7 @@ public class GrpcDriverEventListener implements DriverEventListener, Application
             }
 
             String message = GSON.toJson(result);
-            clientCall.sendMessage(HttpProxyResult.newBuilder()
+            this.writer.write(HttpProxyResult.newBuilder()
                     .setRequest(request.getRequest())
                     .setData(ByteString.copyFrom(message, StandardCharsets.UTF_8))
                     .build());
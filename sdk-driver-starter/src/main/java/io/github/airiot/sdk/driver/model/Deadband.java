@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.github.airiot.sdk.driver.model;
+
+/**
+ * 数据点-变化上报配置
+ * <br>
+ * 开启后, 只有数据点的值相对于上一次上报的值的变化超过死区时才上报, 未变化的值不再重复上报.
+ * 数值类型的值按死区判断是否变化, 其它类型的值按 {@link Object#equals(Object)} 判断.
+ * 距离上一次上报的时间超过 {@code maxSilentSeconds} 时, 即使值未变化也会上报一次.
+ * <br>
+ * 未配置的字段使用驱动配置 {@code data.report-on-change} 中的默认值.
+ *
+ * <pre>
+ * {
+ *     "enabled": true,
+ *     "absolute": 0.5,
+ *     "percent": 1,
+ *     "maxSilentSeconds": 300
+ * }
+ * </pre>
+ */
+public class Deadband {
+    /**
+     * 是否开启变化上报
+     */
+    private Boolean enabled;
+    /**
+     * 绝对死区. 与上一次上报的值的差的绝对值大于该值时上报
+     */
+    private Double absolute;
+    /**
+     * 百分比死区. 与上一次上报的值的差的绝对值大于上一次上报的值的绝对值的 {@code percent}% 时上报
+     */
+    private Double percent;
+    /**
+     * 最长不上报时间, 单位: 秒. 小于或等于 {@code 0} 时不限制
+     */
+    private Long maxSilentSeconds;
+
+    public Deadband() {
+    }
+
+    public Deadband(Boolean enabled, Double absolute, Double percent, Long maxSilentSeconds) {
+        this.enabled = enabled;
+        this.absolute = absolute;
+        this.percent = percent;
+        this.maxSilentSeconds = maxSilentSeconds;
+    }
+
+    public Boolean getEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(Boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Double getAbsolute() {
+        return absolute;
+    }
+
+    public void setAbsolute(Double absolute) {
+        this.absolute = absolute;
+    }
+
+    public Double getPercent() {
+        return percent;
+    }
+
+    public void setPercent(Double percent) {
+        this.percent = percent;
+    }
+
+    public Long getMaxSilentSeconds() {
+        return maxSilentSeconds;
+    }
+
+    public void setMaxSilentSeconds(Long maxSilentSeconds) {
+        this.maxSilentSeconds = maxSilentSeconds;
+    }
+
+    @Override
+    public String toString() {
+        return "Deadband{" +
+                "enabled=" + enabled +
+                ", absolute=" + absolute +
+                ", percent=" + percent +
+                ", maxSilentSeconds=" + maxSilentSeconds +
+                '}';
+    }
+}
@@ -46,6 +46,10 @@ public class Tag {
      * 数据点-缩放比例配置
      */
     private Double mod;
+    /**
+     * 数据点-变化上报配置
+     */
+    private Deadband deadband;
 
     /**
      * 无效值的标识
@@ -126,6 +130,14 @@ public class Tag {
         this.mod = mod;
     }
 
+    public Deadband getDeadband() {
+        return deadband;
+    }
+
+    public void setDeadband(Deadband deadband) {
+        this.deadband = deadband;
+    }
+
     @Override
     public String toString() {
         return "Tag{" +
@@ -135,6 +147,7 @@ public class Tag {
                 ", range=" + range +
                 ", fixed=" + fixed +
                 ", mod=" + mod +
+                ", deadband=" + deadband +
                 '}';
     }
 }
@@ -0,0 +1,209 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.airiot.sdk.driver;
+
+import io.github.airiot.sdk.driver.model.Tag;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+public class DeviceRegistryTests {
+
+    private static DeviceRegistry registry() {
+        return DeviceRegistry.builder()
+                .driverInstanceTags(Arrays.asList(new Tag("tag1", "instance-tag1"), new Tag("tag2", "instance-tag2")))
+                .table("table1", Arrays.asList(new Tag("tag2", "table-tag2"), new Tag("tag3", "table-tag3")))
+                .device("table1", "device1", "instance1", null)
+                .device("table1", "device2", "instance1", Collections.emptyList())
+                .device("table1", "device3", "instance1", Arrays.asList(new Tag("tag3", "device-tag3"), new Tag("tag4", "device-tag4")))
+                .table("table2", null)
+                .device("table2", "device1", "instance1", null)
+                .device("table2", "device4", "instance1", null)
+                .build();
+    }
+
+    @Test
+    void testSharedTags() {
+        DeviceRegistry registry = registry();
+        Assertions.assertEquals(5, registry.size());
+
+        DeviceInfo<? extends Tag> device1 = registry.get("table1", "device1");
+        DeviceInfo<? extends Tag> device2 = registry.get("table1", "device2");
+        Assertions.assertSame(device1.getTags(), device2.getTags());
+        Assertions.assertEquals(3, device1.getTags().size());
+        Assertions.assertEquals("instance-tag1", device1.getTags().get("tag1").getName());
+        Assertions.assertEquals("table-tag2", device1.getTags().get("tag2").getName());
+        Assertions.assertEquals("table-tag3", device1.getTags().get("tag3").getName());
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> device1.getTags().remove("tag1"));
+
+        // 模型上未配置数据点时使用驱动实例上的数据点
+        Assertions.assertEquals(2, registry.get("table2", "device4").getTags().size());
+        Assertions.assertEquals("instance-tag2", registry.get("table2", "device4").getTags().get("tag2").getName());
+    }
+
+    @Test
+    void testOverrideTags() {
+        Map<String, ? extends Tag> tags = registry().get("table1", "device3").getTags();
+        Assertions.assertEquals(4, tags.size());
+        Assertions.assertEquals("instance-tag1", tags.get("tag1").getName());
+        Assertions.assertEquals("table-tag2", tags.get("tag2").getName());
+        Assertions.assertEquals("device-tag3", tags.get("tag3").getName());
+        Assertions.assertEquals("device-tag4", tags.get("tag4").getName());
+        Assertions.assertTrue(tags.containsKey("tag4"));
+        Assertions.assertFalse(tags.containsKey("tag5"));
+        Assertions.assertNull(tags.get("tag5"));
+
+        Map<String, String> names = new HashMap<>();
+        tags.forEach((id, tag) -> names.put(id, tag.getName()));
+        Map<String, String> expected = new HashMap<>();
+        expected.put("tag1", "instance-tag1");
+        expected.put("tag2", "table-tag2");
+        expected.put("tag3", "device-tag3");
+        expected.put("tag4", "device-tag4");
+        Assertions.assertEquals(expected, names);
+        Assertions.assertEquals(4, tags.entrySet().size());
+    }
+
+    @Test
+    void testLookup() {
+        DeviceRegistry registry = registry();
+        Assertions.assertEquals("table2", registry.get("device4").getTableId());
+        Assertions.assertEquals("instance1", registry.get("device4").getDriverInstanceId());
+        Assertions.assertNull(registry.get("device5"));
+        Assertions.assertNull(registry.get("table3", "device1"));
+        Assertions.assertNull(registry.get("table2", "device2"));
+        Assertions.assertEquals(3, registry.getDevices("table1").size());
+        Assertions.assertTrue(registry.getDevices("table3").isEmpty());
+
+        // 多个模型表中存在相同的设备标识
+        Assertions.assertThrows(IllegalStateException.class, () -> registry.get("device1"));
+        Assertions.assertEquals("table1", registry.get("table1", "device1").getTableId());
+        Assertions.assertEquals("table2", registry.get("table2", "device1").getTableId());
+    }
+
+    @Test
+    void testExpireOnReload() {
+        GlobalContext context = new GlobalContext();
+        context.set(registry());
+
+        DeviceInfo<? extends Tag> cached = context.getDeviceOrNull("table1", "device1");
+        Assertions.assertFalse(cached.isExpired());
+        Assertions.assertTrue(context.getDevice("device4").isPresent());
+
+        context.set(registry());
+        Assertions.assertTrue(cached.isExpired());
+        DeviceInfo<? extends Tag> reloaded = context.getDeviceOrNull("table1", "device1");
+        Assertions.assertNotSame(cached, reloaded);
+        Assertions.assertFalse(reloaded.isExpired());
+    }
+
+    @Test
+    void testReloadDelta() {
+        GlobalContext context = new GlobalContext();
+        DriverConfigDelta first = context.update(registry());
+        Assertions.assertTrue(first.isFull());
+        Assertions.assertEquals(5, first.getAddedDevices().size());
+
+        DeviceInfo<? extends Tag> device1 = context.getDeviceOrNull("table1", "device1");
+        DeviceInfo<? extends Tag> device3 = context.getDeviceOrNull("table1", "device3");
+        DeviceInfo<? extends Tag> device4 = context.getDeviceOrNull("table2", "device4");
+
+        // 相同的配置, 数据点对象不同
+        DriverConfigDelta unchanged = context.update(registry());
+        Assertions.assertTrue(unchanged.isEmpty());
+        Assertions.assertSame(device1, context.getDeviceOrNull("table1", "device1"));
+        Assertions.assertSame(device4, context.getDevice("device4").orElse(null));
+        Assertions.assertFalse(device1.isExpired());
+
+        DeviceRegistry next = DeviceRegistry.builder()
+                .driverInstanceTags(Arrays.asList(new Tag("tag1", "instance-tag1"), new Tag("tag2", "instance-tag2")))
+                .table("table1", Arrays.asList(new Tag("tag2", "table-tag2"), new Tag("tag3", "table-tag3")))
+                .device("table1", "device1", "instance1", null)
+                .device("table1", "device3", "instance1", Collections.singletonList(new Tag("tag3", "device-tag3-changed")))
+                .device("table1", "device5", "instance1", null)
+                .table("table3", null)
+                .device("table3", "device6", "instance1", null)
+                .build();
+        DriverConfigDelta delta = context.update(next);
+        Assertions.assertFalse(delta.isFull());
+        Assertions.assertEquals(Collections.singleton("table3"), delta.getAddedTables());
+        Assertions.assertEquals(Collections.singleton("table2"), delta.getRemovedTables());
+        Assertions.assertTrue(delta.getChangedTables().isEmpty());
+        Assertions.assertEquals(2, delta.getAddedDevices().size());
+        // device2 被删除, table2 中的 device1 和 device4 随模型删除
+        Assertions.assertEquals(3, delta.getRemovedDevices().size());
+        Assertions.assertEquals(1, delta.getChangedDevices().size());
+        Assertions.assertEquals(new HashSet<>(Arrays.asList("tag3", "tag4")), delta.getChangedTags("table1", "device3"));
+        Assertions.assertTrue(delta.getChangedTags("table1", "device1").isEmpty());
+
+        Assertions.assertSame(device1, context.getDeviceOrNull("table1", "device1"));
+        Assertions.assertFalse(device1.isExpired());
+        Assertions.assertTrue(device3.isExpired());
+        Assertions.assertTrue(device4.isExpired());
+        Assertions.assertNotSame(device3, context.getDeviceOrNull("table1", "device3"));
+        Assertions.assertEquals("device-tag3-changed", context.getDeviceOrNull("table1", "device3").getTags().get("tag3").getName());
+    }
+
+    @Test
+    void testReloadFingerprint() {
+        GlobalContext context = new GlobalContext();
+        context.update(DeviceRegistry.builder()
+                .driverInstanceTags(null, 1)
+                .table("table1", Collections.singletonList(new Tag("tag1", "tag1")), 10)
+                .device("table1", "device1", "instance1", null, 100)
+                .device("table1", "device2", "instance1", null, 200)
+                .build());
+        DeviceInfo<? extends Tag> device1 = context.getDeviceOrNull("table1", "device1");
+
+        // 数据点未变化, 设备的其它配置变化
+        DriverConfigDelta delta = context.update(DeviceRegistry.builder()
+                .driverInstanceTags(null, 1)
+                .table("table1", Collections.singletonList(new Tag("tag1", "tag1")), 10)
+                .device("table1", "device1", "instance1", null, 101)
+                .device("table1", "device2", "instance1", null, 200)
+                .build());
+        Assertions.assertEquals(1, delta.getChangedDevices().size());
+        Assertions.assertEquals("device1", delta.getChangedDevices().get(0).getId());
+        Assertions.assertTrue(delta.getChangedTags("table1", "device1").isEmpty());
+        Assertions.assertTrue(device1.isExpired());
+
+        // 模型配置变化, 所有设备均视为有变化
+        delta = context.update(DeviceRegistry.builder()
+                .driverInstanceTags(null, 1)
+                .table("table1", Collections.singletonList(new Tag("tag1", "tag1")), 11)
+                .device("table1", "device1", "instance1", null, 101)
+                .device("table1", "device2", "instance1", null, 200)
+                .build());
+        Assertions.assertEquals(Collections.singleton("table1"), delta.getChangedTables());
+        Assertions.assertEquals(2, delta.getChangedDevices().size());
+
+        // 驱动实例配置变化, 全部重新加载
+        delta = context.update(DeviceRegistry.builder()
+                .driverInstanceTags(null, 2)
+                .table("table1", Collections.singletonList(new Tag("tag1", "tag1")), 11)
+                .device("table1", "device1", "instance1", null, 101)
+                .build());
+        Assertions.assertTrue(delta.isFull());
+        Assertions.assertEquals(1, delta.getAddedDevices().size());
+    }
+}
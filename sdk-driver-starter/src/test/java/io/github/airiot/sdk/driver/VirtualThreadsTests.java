@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.github.airiot.sdk.driver;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class VirtualThreadsTests {
+
+    private static final InheritableThreadLocal<String> CONTEXT = new InheritableThreadLocal<>();
+
+    private static void assertInherited(ThreadFactory factory) throws InterruptedException {
+        AtomicReference<String> inherited = new AtomicReference<>();
+        CONTEXT.set("table1");
+        try {
+            Thread thread = factory.newThread(() -> inherited.set(CONTEXT.get()));
+            thread.start();
+            thread.join(5000);
+        } finally {
+            CONTEXT.remove();
+        }
+        Assertions.assertEquals("table1", inherited.get());
+    }
+
+    @Test
+    void testPlatformThreads() throws InterruptedException {
+        ThreadFactory factory = VirtualThreads.threadFactory("worker-", false);
+        Thread first = factory.newThread(() -> {
+        });
+        Thread second = factory.newThread(() -> {
+        });
+        Assertions.assertEquals("worker-0", first.getName());
+        Assertions.assertEquals("worker-1", second.getName());
+        Assertions.assertTrue(first.isDaemon());
+        assertInherited(factory);
+    }
+
+    @Test
+    void testVirtualThreads() throws InterruptedException {
+        // 不支持虚拟线程时使用平台线程
+        ThreadFactory factory = VirtualThreads.threadFactory("virtual-", true);
+        Thread thread = factory.newThread(() -> {
+        });
+        Assertions.assertEquals("virtual-0", thread.getName());
+        // 虚拟线程均为守护线程
+        Assertions.assertTrue(thread.isDaemon());
+        assertInherited(factory);
+    }
+}
@@ -0,0 +1,296 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.airiot.sdk.driver.data;
+
+import io.github.airiot.sdk.driver.data.handlers.ConvertValueHandler;
+import io.github.airiot.sdk.driver.data.handlers.RoundAndScaleValueHandler;
+import io.github.airiot.sdk.driver.data.handlers.TagValueCache;
+import io.github.airiot.sdk.driver.event.DriverReloadApplicationEvent;
+import io.github.airiot.sdk.driver.model.Deadband;
+import io.github.airiot.sdk.driver.model.Field;
+import io.github.airiot.sdk.driver.model.Point;
+import io.github.airiot.sdk.driver.model.Tag;
+import io.github.airiot.sdk.driver.model.TagValue;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class DefaultDataHandlerChainTests {
+
+    /**
+     * 只处理 id 以 {@code scale} 开头的数据点, 将值乘以 10 并增加一个 {@code 数据点标识_raw} 数据点
+     */
+    static class ScaleHandler implements DataHandler {
+        private final AtomicInteger supportsTagCount = new AtomicInteger();
+        private final AtomicInteger handleCount = new AtomicInteger();
+
+        @Override
+        public <T extends Tag> boolean supportsTag(String tableId, String deviceId, T tag) {
+            supportsTagCount.incrementAndGet();
+            return tag.getId().startsWith("scale");
+        }
+
+        @Override
+        public <T extends Tag> Map<String, Object> handle(String tableId, String deviceId, T tag, Object value) {
+            handleCount.incrementAndGet();
+            Map<String, Object> values = new HashMap<>();
+            values.put(tag.getId(), ((Number) value).intValue() * 10);
+            values.put(tag.getId() + "_raw", value);
+            return values;
+        }
+
+        @Override
+        public int getOrder() {
+            return 0;
+        }
+    }
+
+    /**
+     * 丢弃数据点 {@code drop} 的值
+     */
+    static class DropHandler implements DataHandler {
+        @Override
+        public <T extends Tag> boolean supportsTag(String tableId, String deviceId, T tag) {
+            return "drop".equals(tag.getId());
+        }
+
+        @Override
+        public <T extends Tag> Map<String, Object> handle(String tableId, String deviceId, T tag, Object value) {
+            return Collections.emptyMap();
+        }
+
+        @Override
+        public int getOrder() {
+            return 1;
+        }
+    }
+
+    /**
+     * 将数据点的值乘以预先计算的倍数(即数据点的 {@code fixed})
+     */
+    static class FactorHandler implements DataHandler {
+        private final AtomicInteger compileCount = new AtomicInteger();
+
+        @Override
+        public <T extends Tag> Object compileTag(String tableId, String deviceId, T tag) {
+            compileCount.incrementAndGet();
+            return tag.getFixed();
+        }
+
+        @Override
+        public <T extends Tag> Map<String, Object> handle(String tableId, String deviceId, T tag, Object value) {
+            throw new IllegalStateException("未使用预先计算的信息");
+        }
+
+        @Override
+        public <T extends Tag> Map<String, Object> handle(String tableId, String deviceId, T tag, Object value, Object compiled) {
+            return Collections.singletonMap(tag.getId(), ((Number) value).intValue() * (Integer) compiled);
+        }
+
+        @Override
+        public int getOrder() {
+            return 0;
+        }
+    }
+
+    private Tag tag(String id) {
+        return new Tag(id, id, null, null, null, null);
+    }
+
+    private Object valueOf(Point point, String tagId) {
+        for (Field<? extends Tag> field : point.getFields()) {
+            if (field.getTag().getId().equals(tagId)) {
+                return field.getValue();
+            }
+        }
+        return null;
+    }
+
+    @Test
+    void testCompileOncePerTag() {
+        ScaleHandler scale = new ScaleHandler();
+        TagValueCache cache = new TagValueCache();
+        DefaultDataHandlerChain chain = new DefaultDataHandlerChain(cache, Arrays.asList(scale, new DropHandler()), false);
+
+        Tag scale1 = tag("scale1");
+        Tag plain = tag("plain");
+        Tag drop = tag("drop");
+        for (int i = 0; i < 10; i++) {
+            List<Field<? extends Tag>> fields = Arrays.asList(new Field<>(scale1, i), new Field<>(plain, "v" + i), new Field<>(drop, i));
+            Point result = chain.handle(new Point("device-1", "table1", i, fields, null));
+
+            Assertions.assertNotNull(result);
+            Assertions.assertEquals(3, result.getFields().size());
+            Assertions.assertEquals(i * 10, valueOf(result, "scale1"));
+            Assertions.assertEquals(i, valueOf(result, "scale1_raw"));
+            Assertions.assertEquals("v" + i, valueOf(result, "plain"));
+        }
+
+        // 每个数据点只判断一次
+        Assertions.assertEquals(3, scale.supportsTagCount.get());
+        Assertions.assertEquals(10, scale.handleCount.get());
+        Assertions.assertEquals(90, cache.get("table1", "device-1", "scale1").getValue());
+        Assertions.assertEquals("v9", cache.get("table1", "device-1", "plain").getValue());
+        Assertions.assertNull(cache.get("table1", "device-1", "drop"));
+
+        // 重新加载配置后重新编译
+        chain.onApplicationEvent(new DriverReloadApplicationEvent(null));
+        chain.handle(new Point("device-1", "table1", 0, Collections.singletonList(new Field<>(scale1, 1)), null));
+        Assertions.assertEquals(4, scale.supportsTagCount.get());
+
+        // 数据点信息变化后重新编译
+        chain.handle(new Point("device-1", "table1", 0, Collections.singletonList(new Field<>(tag("scale1"), 1)), null));
+        Assertions.assertEquals(5, scale.supportsTagCount.get());
+    }
+
+    @Test
+    void testCompileTagState() {
+        FactorHandler factor = new FactorHandler();
+        DefaultDataHandlerChain chain = new DefaultDataHandlerChain(new TagValueCache(), Collections.singletonList(factor), false);
+
+        Tag tag = new Tag("factor", "factor", null, null, 3, null);
+        for (int i = 0; i < 10; i++) {
+            Point result = chain.handle(new Point("device-1", "table1", i, Collections.singletonList(new Field<>(tag, i)), null));
+            Assertions.assertEquals(i * 3, valueOf(result, "factor"));
+        }
+        Assertions.assertEquals(1, factor.compileCount.get());
+
+        // 重新加载配置后重新计算
+        chain.onApplicationEvent(new DriverReloadApplicationEvent(null));
+        Assertions.assertEquals(Collections.singletonMap("factor", 6), chain.handle("table1", "device-1", tag, 2));
+        Assertions.assertEquals(2, factor.compileCount.get());
+    }
+
+    @Test
+    void testConvertAndScaleWithCompiledTag() {
+        ConvertValueHandler convert = new ConvertValueHandler();
+        RoundAndScaleValueHandler roundAndScale = new RoundAndScaleValueHandler();
+        DefaultDataHandlerChain chain = new DefaultDataHandlerChain(new TagValueCache(), Arrays.asList(convert, roundAndScale), false);
+
+        Tag converted = new Tag("temp", "temp", new TagValue(-50d, 50d, -5000d, 5000d), null, 1, null);
+        Tag scaled = new Tag("power", "power", null, null, 1, 0.001);
+        for (int value : new int[]{-5000, -2358, 0, 2358, 4999, 6000}) {
+            Object expected = roundAndScale.handle("table1", "device-1", converted,
+                    convert.handle("table1", "device-1", converted, value).get("temp")).get("temp");
+            Assertions.assertEquals(expected, chain.handle("table1", "device-1", converted, value).get("temp"));
+        }
+        Assertions.assertEquals(23.6, chain.handle("table1", "device-1", converted, 2358).get("temp"));
+        Assertions.assertEquals(123.5, chain.handle("table1", "device-1", scaled, 123456).get("power"));
+    }
+
+    @Test
+    void testHandleSingleValue() {
+        DefaultDataHandlerChain chain = new DefaultDataHandlerChain(new TagValueCache(), Arrays.asList(new ScaleHandler(), new DropHandler()), false);
+
+        Map<String, Object> values = chain.handle("table1", "device-1", tag("scale1"), 2);
+        Assertions.assertEquals(2, values.size());
+        Assertions.assertEquals(20, values.get("scale1"));
+        Assertions.assertEquals(2, values.get("scale1_raw"));
+
+        Assertions.assertEquals(Collections.singletonMap("plain", 2), chain.handle("table1", "device-1", tag("plain"), 2));
+        Assertions.assertTrue(chain.handle("table1", "device-1", tag("drop"), 2).isEmpty());
+    }
+
+    @Test
+    void testMetrics() {
+        DefaultDataHandlerChain chain = new DefaultDataHandlerChain(new TagValueCache(), Collections.singletonList(new ScaleHandler()), false);
+        chain.setMetricsEnabled(true);
+
+        Tag scale1 = tag("scale1");
+        for (int i = 0; i < 5; i++) {
+            chain.handle(new Point("device-1", "table1", i, Arrays.asList(new Field<>(scale1, i), new Field<>(tag("plain"), i)), null));
+        }
+
+        List<DefaultDataHandlerChain.TagMetrics> metrics = chain.getTagMetrics();
+        Assertions.assertEquals(1, metrics.size());
+        Assertions.assertEquals("scale1", metrics.get(0).getTagId());
+        Assertions.assertEquals(5, metrics.get(0).getCount());
+        Assertions.assertEquals(Collections.singletonList("ScaleHandler"), metrics.get(0).getHandlers());
+    }
+
+    @Test
+    void testReportOnChange() {
+        TagValueCache cache = new TagValueCache();
+        DefaultDataHandlerChain chain = new DefaultDataHandlerChain(cache, Collections.singletonList(new ScaleHandler()), false);
+        chain.setReportOnChange(new Deadband(true, 0.5, 0d, 0L));
+
+        Tag plain = tag("plain");
+        Tag scale1 = tag("scale1");
+        Tag percent = tag("percent");
+        percent.setDeadband(new Deadband(null, 0d, 10d, null));
+        Tag disabled = tag("disabled");
+        disabled.setDeadband(new Deadband(false, null, null, null));
+
+        // 首次上报
+        Assertions.assertEquals(Collections.singletonMap("plain", 1.0), chain.handle("table1", "device-1", plain, 1.0));
+        // 变化未超过绝对死区, 不上报, 但最新有效值缓存仍然更新
+        Assertions.assertTrue(chain.handle("table1", "device-1", plain, 1.4).isEmpty());
+        Assertions.assertEquals(1.4, cache.getDouble("table1", "device-1", "plain"));
+        // 与上一次上报的值比较, 而不是与最新值比较
+        Assertions.assertEquals(Collections.singletonMap("plain", 1.6), chain.handle("table1", "device-1", plain, 1.6));
+
+        // 按处理后的值判断, 新增的数据点不受影响
+        Assertions.assertEquals(2, chain.handle("table1", "device-1", scale1, 1).size());
+        Map<String, Object> values = chain.handle("table1", "device-1", scale1, 1);
+        Assertions.assertEquals(Collections.singletonMap("scale1_raw", 1), values);
+
+        // 数据点单独配置百分比死区
+        Assertions.assertFalse(chain.handle("table1", "device-1", percent, 100).isEmpty());
+        Assertions.assertTrue(chain.handle("table1", "device-1", percent, 109).isEmpty());
+        Assertions.assertFalse(chain.handle("table1", "device-1", percent, 111).isEmpty());
+
+        // 数据点单独关闭
+        Assertions.assertFalse(chain.handle("table1", "device-1", disabled, 1).isEmpty());
+        Assertions.assertFalse(chain.handle("table1", "device-1", disabled, 1).isEmpty());
+
+        // 非数值类型按 equals 判断
+        Tag text = tag("text");
+        Assertions.assertFalse(chain.handle("table1", "device-1", text, "a").isEmpty());
+        Assertions.assertTrue(chain.handle("table1", "device-1", text, "a").isEmpty());
+        Assertions.assertFalse(chain.handle("table1", "device-1", text, "b").isEmpty());
+
+        // 所有数据点均未变化时不上报
+        Assertions.assertNull(chain.handle(new Point("device-1", "table1", 0,
+                Arrays.asList(new Field<>(plain, 1.6), new Field<>(text, "b")), null)));
+        Point point = chain.handle(new Point("device-1", "table1", 0,
+                Arrays.asList(new Field<>(plain, 3.0), new Field<>(text, "b")), null));
+        Assertions.assertEquals(1, point.getFields().size());
+        Assertions.assertEquals(3.0, point.getFields().get(0).getValue());
+        Assertions.assertEquals(7, chain.getSuppressedCount());
+    }
+
+    @Test
+    void testReportOnChangeHeartbeat() throws InterruptedException {
+        DefaultDataHandlerChain chain = new DefaultDataHandlerChain(new TagValueCache(), Collections.emptyList(), false);
+        Tag tag = tag("plain");
+        tag.setDeadband(new Deadband(true, null, null, 1L));
+
+        Assertions.assertFalse(chain.handle("table1", "device-1", tag, 1).isEmpty());
+        Assertions.assertTrue(chain.handle("table1", "device-1", tag, 1).isEmpty());
+        Thread.sleep(1100);
+        // 超过最长不上报时间, 即使值未变化也上报
+        Assertions.assertFalse(chain.handle("table1", "device-1", tag, 1).isEmpty());
+        Assertions.assertTrue(chain.handle("table1", "device-1", tag, 1).isEmpty());
+    }
+}
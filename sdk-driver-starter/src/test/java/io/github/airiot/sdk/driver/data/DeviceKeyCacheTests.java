@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.github.airiot.sdk.driver.data;
+
+import io.github.airiot.sdk.driver.DeviceRegistry;
+import io.github.airiot.sdk.driver.GlobalContext;
+import io.github.airiot.sdk.driver.model.Tag;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class DeviceKeyCacheTests {
+
+    private static DeviceRegistry registry(String tagName) {
+        return DeviceRegistry.builder()
+                .table("table1", null)
+                .device("table1", "device1", "instance1", null)
+                .device("table1", "device2", "instance1", Collections.singletonList(new Tag("tag1", tagName)))
+                .build();
+    }
+
+    @Test
+    void testCacheAndReload() {
+        GlobalContext context = new GlobalContext();
+        context.update(registry("tag1"));
+
+        AtomicInteger created = new AtomicInteger();
+        DeviceKeyCache<String> cache = new DeviceKeyCache<>(context, (tableId, deviceId) -> {
+            created.incrementAndGet();
+            return "data/project1/" + tableId + "/" + deviceId;
+        });
+
+        String device1 = cache.get("table1", "device1");
+        Assertions.assertEquals("data/project1/table1/device1", device1);
+        Assertions.assertSame(device1, cache.get("table1", "device1"));
+        Assertions.assertEquals("data/project1/table1/device2", cache.get("table1", "device2"));
+        Assertions.assertEquals(2, created.get());
+
+        // 不同的缓存互不影响
+        DeviceKeyCache<String> other = new DeviceKeyCache<>(context, (tableId, deviceId) -> "logs/" + deviceId);
+        Assertions.assertEquals("logs/device1", other.get("table1", "device1"));
+        Assertions.assertSame(device1, cache.get("table1", "device1"));
+
+        // 不在配置中的设备不缓存
+        Assertions.assertEquals("data/project1/table1/device3", cache.get("table1", "device3"));
+        Assertions.assertEquals("data/project1/table1/device3", cache.get("table1", "device3"));
+        Assertions.assertEquals(4, created.get());
+
+        // 重新加载后, 配置未变化的设备保留缓存, 有变化的设备重新计算
+        context.update(registry("tag1-changed"));
+        Assertions.assertSame(device1, cache.get("table1", "device1"));
+        Assertions.assertEquals("data/project1/table1/device2", cache.get("table1", "device2"));
+        Assertions.assertEquals(5, created.get());
+    }
+}
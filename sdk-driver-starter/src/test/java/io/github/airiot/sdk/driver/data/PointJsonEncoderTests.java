@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.airiot.sdk.driver.data;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import io.github.airiot.sdk.driver.model.Field;
+import io.github.airiot.sdk.driver.model.FieldType;
+import io.github.airiot.sdk.driver.model.Point;
+import io.github.airiot.sdk.driver.model.Tag;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class PointJsonEncoderTests {
+
+    private final Gson gson = new GsonBuilder()
+            .registerTypeAdapterFactory(PointSerializationAdapter.newFactory())
+            .create();
+    private final PointJsonEncoder encoder = new PointJsonEncoder();
+
+    private Field<Tag> field(String id, Object value) {
+        return new Field<>(new Tag(id, id, null, null, null, null), value);
+    }
+
+    private void assertSameAsAdapter(Point point) {
+        byte[] expected = gson.toJson(point).getBytes(StandardCharsets.UTF_8);
+        byte[] actual = encoder.encode(point);
+        Assertions.assertEquals(new String(expected, StandardCharsets.UTF_8), new String(actual, StandardCharsets.UTF_8));
+        Assertions.assertArrayEquals(expected, actual);
+    }
+
+    @Test
+    void testNumbers() {
+        List<Field<? extends Tag>> fields = new ArrayList<>();
+        Object[] values = {0, -1, 123, Integer.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE, (short) 7, (byte) -8,
+                0.0, -0.0, 1.0, -25.0, 9999999.0, 1e7, 123.456, 1e-5, Double.NaN, Double.POSITIVE_INFINITY,
+                0.0f, -0.0f, 1.5f, 3.0f, 1e8f, new BigDecimal("12.3400")};
+        for (int i = 0; i < values.length; i++) {
+            fields.add(field("tag" + i, values[i]));
+        }
+        assertSameAsAdapter(new Point("device-1", "table1", 1700000000000L, fields, null));
+    }
+
+    @Test
+    void testStrings() {
+        List<Field<? extends Tag>> fields = Arrays.asList(
+                field("s1", "hello"),
+                field("s2", "中文 \"quoted\" \\ / <tag> & = 'x'"),
+                field("s3", "\t\n\r\b\f\u0001\u001f"),
+                field("s4", "line sep "),
+                field("s5", "emoji 😀 broken \uD83D"),
+                field("名称<", true),
+                field("b", false));
+        assertSameAsAdapter(new Point("device-1", "cid<1>", "table1", -5L, fields, null));
+    }
+
+    @Test
+    void testSkipNullAndComplexValues() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("a", 1);
+        map.put("b", "x");
+        List<Field<? extends Tag>> fields = Arrays.asList(
+                field("n1", null),
+                new Field<>(null, 1),
+                field("arr", new int[]{1, 2, 3}),
+                field("map", map),
+                field("list", Arrays.asList("x", null, 2)),
+                field("n2", null));
+        assertSameAsAdapter(new Point("device-1", "table1", 1L, fields, null));
+        assertSameAsAdapter(new Point("device-1", "table1", 1L, Collections.singletonList(field("n", null)), null));
+        assertSameAsAdapter(new Point("device-1", "table1", 1L, Collections.emptyList(), null));
+        assertSameAsAdapter(new Point("device-1", "table1", 1L, null, null));
+    }
+
+    @Test
+    void testFieldTypes() {
+        Map<String, FieldType> fieldTypes = new LinkedHashMap<>();
+        fieldTypes.put("t1", FieldType.INTEGER);
+        fieldTypes.put("t2", FieldType.FLOAT);
+        fieldTypes.put("t3", FieldType.STRING);
+        fieldTypes.put("t\"4", FieldType.BOOLEAN);
+        List<Field<? extends Tag>> fields = Arrays.asList(field("t1", 1), field("t2", 2.5), field("t3", "x"));
+        assertSameAsAdapter(new Point("device-1", "table1", 1L, fields, fieldTypes));
+        assertSameAsAdapter(new Point("device-1", "table1", 1L, fields, Collections.emptyMap()));
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.github.airiot.sdk.driver.data;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+
+public class PointTracerTests {
+
+    @Test
+    void testDisabled() {
+        PointTracer tracer = new PointTracer(null, 1);
+        Assertions.assertFalse(tracer.shouldTrace("device1"));
+        Assertions.assertFalse(tracer.shouldTrace(null));
+        Assertions.assertTrue(tracer.getDevices().isEmpty());
+    }
+
+    @Test
+    void testEnableAndDisable() {
+        PointTracer tracer = new PointTracer(Collections.singleton("device1"), 0);
+        Assertions.assertEquals(1, tracer.getSampling());
+        Assertions.assertTrue(tracer.shouldTrace("device1"));
+        Assertions.assertTrue(tracer.shouldTrace("device1"));
+        Assertions.assertFalse(tracer.shouldTrace("device2"));
+
+        tracer.enable("device2");
+        Assertions.assertTrue(tracer.shouldTrace("device2"));
+
+        tracer.disable("device1");
+        tracer.disable("device2");
+        Assertions.assertFalse(tracer.shouldTrace("device1"));
+        Assertions.assertFalse(tracer.shouldTrace("device2"));
+    }
+
+    @Test
+    void testSampling() {
+        PointTracer tracer = new PointTracer(Collections.singleton("device1"), 3);
+        int traced = 0;
+        for (int i = 0; i < 9; i++) {
+            if (tracer.shouldTrace("device1")) {
+                traced++;
+            }
+        }
+        Assertions.assertEquals(3, traced);
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.airiot.sdk.driver.data;
+
+import io.github.airiot.sdk.driver.GlobalContext;
+import io.github.airiot.sdk.driver.configuration.properties.DriverAppProperties;
+import io.github.airiot.sdk.driver.configuration.properties.DriverDataProperties;
+import io.github.airiot.sdk.driver.data.handlers.TagValueCache;
+import io.github.airiot.sdk.driver.data.warning.Warning;
+import io.github.airiot.sdk.driver.data.warning.WarningRecovery;
+import io.github.airiot.sdk.driver.model.Deadband;
+import io.github.airiot.sdk.driver.model.Field;
+import io.github.airiot.sdk.driver.model.Point;
+import io.github.airiot.sdk.driver.model.Tag;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class WritePointsTests {
+
+    static class RecordingDataSender extends AbstractDataSender {
+
+        private final List<Point> sent = new ArrayList<>();
+        private boolean running = true;
+
+        RecordingDataSender(DriverDataProperties properties) {
+            this(properties, new DefaultDataHandlerChain(new TagValueCache(), Collections.emptyList(), false));
+        }
+
+        RecordingDataSender(DriverDataProperties properties, DataHandlerChain chain) {
+            super(properties, appProperties(), new GlobalContext(), chain, null);
+        }
+
+        static DriverAppProperties appProperties() {
+            DriverAppProperties properties = new DriverAppProperties();
+            properties.setProjectId("project1");
+            properties.setId("driver1");
+            properties.setInstanceId("instance1");
+            properties.setName("driver1");
+            return properties;
+        }
+
+        @Override
+        public void doWritePoint(Point point) {
+            if ("bad-device".equals(point.getId())) {
+                throw new IllegalStateException("发送失败");
+            }
+            sent.add(point);
+        }
+
+        @Override
+        public void doWriteLog(String tableId, String deviceId, String level, String message) {
+        }
+
+        @Override
+        public void sendWarning(Warning warning) {
+        }
+
+        @Override
+        public void recoverWarning(String tableId, String deviceId, WarningRecovery recovery) {
+        }
+
+        @Override
+        public void start() {
+        }
+
+        @Override
+        public void stop() {
+        }
+
+        @Override
+        public boolean isRunning() {
+            return running;
+        }
+    }
+
+    private Point point(String deviceId) {
+        List<Field<? extends Tag>> fields = new ArrayList<>();
+        fields.add(new Field<>(new Tag("tag1", "tag1", null, null, null, null), 1));
+        return new Point(deviceId, "table1", System.currentTimeMillis(), fields, null);
+    }
+
+    @Test
+    void testPartialFailure() throws Exception {
+        RecordingDataSender sender = new RecordingDataSender(new DriverDataProperties());
+        sender.afterPropertiesSet();
+
+        Point empty = new Point("device-3", "table1", 0, Collections.emptyList(), null);
+        List<Point> points = Arrays.asList(point("device-1"), point("bad-device"), empty, point("device-2"));
+        List<WritePointResult> results = sender.writePoints(points);
+
+        Assertions.assertEquals(4, results.size());
+        Assertions.assertTrue(results.get(0).isSuccess());
+        Assertions.assertFalse(results.get(1).isSuccess());
+        Assertions.assertInstanceOf(DataSenderException.class, results.get(1).getError());
+        Assertions.assertTrue(results.get(2).isSuccess());
+        Assertions.assertTrue(results.get(3).isSuccess());
+        for (int i = 0; i < points.size(); i++) {
+            Assertions.assertSame(points.get(i), results.get(i).getPoint());
+        }
+        Assertions.assertEquals(2, sender.sent.size());
+    }
+
+    @Test
+    void testConnectionLost() throws Exception {
+        RecordingDataSender sender = new RecordingDataSender(new DriverDataProperties());
+        sender.afterPropertiesSet();
+        sender.running = false;
+
+        List<WritePointResult> results = sender.writePoints(Arrays.asList(point("device-1"), point("device-2")));
+
+        Assertions.assertEquals(2, results.size());
+        Assertions.assertFalse(results.get(0).isSuccess());
+        Assertions.assertFalse(results.get(1).isSuccess());
+        Assertions.assertTrue(sender.sent.isEmpty());
+    }
+
+    @Test
+    void testAllFieldsUnchanged() throws Exception {
+        DefaultDataHandlerChain chain = new DefaultDataHandlerChain(new TagValueCache(), Collections.emptyList(), false);
+        chain.setReportOnChange(new Deadband(true, 0d, 0d, 0L));
+        RecordingDataSender sender = new RecordingDataSender(new DriverDataProperties(), chain);
+        sender.afterPropertiesSet();
+
+        Tag tag = new Tag("tag1", "tag1", null, null, null, null);
+        sender.writePoint(new Point("device-1", "table1", System.currentTimeMillis(), Collections.singletonList(new Field<>(tag, 1)), null));
+        // 值未变化时没有需要上报的数据, 不是上报失败
+        sender.writePoint(new Point("device-1", "table1", System.currentTimeMillis(), Collections.singletonList(new Field<>(tag, 1)), null));
+        List<WritePointResult> results = sender.writePoints(Collections.singletonList(
+                new Point("device-1", "table1", System.currentTimeMillis(), Collections.singletonList(new Field<>(tag, 1)), null)));
+
+        Assertions.assertTrue(results.get(0).isSuccess());
+        Assertions.assertEquals(1, sender.sent.size());
+        Assertions.assertEquals(2, chain.getSuppressedCount());
+    }
+
+    @Test
+    void testPartialFieldsUnchanged() throws Exception {
+        DefaultDataHandlerChain chain = new DefaultDataHandlerChain(new TagValueCache(), Collections.emptyList(), false);
+        chain.setReportOnChange(new Deadband(true, 0d, 0d, 0L));
+        RecordingDataSender sender = new RecordingDataSender(new DriverDataProperties(), chain);
+        sender.afterPropertiesSet();
+
+        Tag tag1 = new Tag("tag1", "tag1", null, null, null, null);
+        Tag tag2 = new Tag("tag2", "tag2", null, null, null, null);
+        sender.writePoint(new Point("device-1", "table1", System.currentTimeMillis(),
+                Arrays.asList(new Field<>(tag1, 1), new Field<>(tag2, 1)), null));
+        sender.writePoint(new Point("device-1", "table1", System.currentTimeMillis(),
+                Arrays.asList(new Field<>(tag1, 1), new Field<>(tag2, 2)), null));
+
+        Assertions.assertEquals(2, sender.sent.size());
+        Assertions.assertEquals(1, sender.sent.get(1).getFields().size());
+        Assertions.assertEquals("tag2", sender.sent.get(1).getFields().get(0).getTag().getId());
+
+        // 数据处理本身不丢弃数据点, 值未变化的数据点只在之后被过滤
+        Point handled = chain.handleValues(new Point("device-1", "table1", System.currentTimeMillis(),
+                Arrays.asList(new Field<>(tag1, 1), new Field<>(tag2, 2)), null));
+        Assertions.assertEquals(2, handled.getFields().size());
+        Assertions.assertNull(chain.filterUnchanged(handled));
+    }
+
+    @Test
+    void testAggregateBeforeReportOnChange() throws Exception {
+        DriverDataProperties properties = new DriverDataProperties();
+        properties.getAggregation().setEnabled(true);
+        properties.getAggregation().setWindow(Duration.ofMinutes(1));
+        DefaultDataHandlerChain chain = new DefaultDataHandlerChain(new TagValueCache(), Collections.emptyList(), false);
+        chain.setReportOnChange(new Deadband(true, 0d, 0d, 0L));
+        RecordingDataSender sender = new RecordingDataSender(properties, chain);
+        sender.afterPropertiesSet();
+        try {
+            Tag tag = new Tag("tag1", "tag1", null, null, null, null);
+            // 窗口内重复的值也参与聚合
+            for (int value : new int[]{1, 1, 4}) {
+                sender.writePoint(new Point("device-1", "table1", 60_000, Collections.singletonList(new Field<>(tag, value)), null));
+            }
+            sender.flushPendingPoints();
+            Assertions.assertEquals(1, sender.sent.size());
+            Assertions.assertEquals(2.0, sender.sent.get(0).getFields().get(0).getValue());
+
+            // 聚合结果未变化时不上报
+            for (int value : new int[]{3, 1}) {
+                sender.writePoint(new Point("device-1", "table1", 120_000, Collections.singletonList(new Field<>(tag, value)), null));
+            }
+            sender.flushPendingPoints();
+            Assertions.assertEquals(1, sender.sent.size());
+        } finally {
+            sender.destroy();
+        }
+    }
+
+    @Test
+    void testBufferPolicyRequiresPayloadReplay() {
+        DriverDataProperties properties = new DriverDataProperties();
+        properties.setPolicy(DriverDataProperties.DataHandlePolicyOnConnectLost.BUFFER);
+        RecordingDataSender sender = new RecordingDataSender(properties);
+
+        // 未实现重新发送缓存的数据时, 启动失败
+        IllegalStateException e = Assertions.assertThrows(IllegalStateException.class, sender::afterPropertiesSet);
+        Assertions.assertTrue(e.getMessage().contains("BUFFER"), e.getMessage());
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.github.airiot.sdk.driver.data.aggregate;
+
+import io.github.airiot.sdk.driver.DeviceRegistry;
+import io.github.airiot.sdk.driver.DriverConfigDelta;
+import io.github.airiot.sdk.driver.GlobalContext;
+import io.github.airiot.sdk.driver.configuration.properties.DriverDataProperties;
+import io.github.airiot.sdk.driver.configuration.properties.DriverDataProperties.AggregateFunction;
+import io.github.airiot.sdk.driver.configuration.properties.DriverDataProperties.AggregationRule;
+import io.github.airiot.sdk.driver.event.DriverReloadApplicationEvent;
+import io.github.airiot.sdk.driver.model.Field;
+import io.github.airiot.sdk.driver.model.Point;
+import io.github.airiot.sdk.driver.model.Tag;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class PointAggregatorTests {
+
+    private static final Tag TAG1 = new Tag("tag1", "tag1");
+    private static final Tag TAG2 = new Tag("tag2", "tag2");
+    private static final Tag TAG3 = new Tag("tag3", "tag3");
+
+    private static Point point(String deviceId, Object... values) {
+        return timedPoint("table1", deviceId, 0, values);
+    }
+
+    private static Point timedPoint(String tableId, String deviceId, long time, Object... values) {
+        List<Field<? extends Tag>> fields = new ArrayList<>();
+        for (int i = 0; i < values.length; i += 2) {
+            fields.add(new Field<>((Tag) values[i], values[i + 1]));
+        }
+        return new Point(deviceId, null, tableId, time, fields, Collections.emptyMap());
+    }
+
+    private static Map<String, Object> values(Point point) {
+        Map<String, Object> values = new HashMap<>();
+        for (Field<? extends Tag> field : point.getFields()) {
+            values.put(field.getTag().getId(), field.getValue());
+        }
+        return values;
+    }
+
+    @Test
+    void testAggregate() {
+        DriverDataProperties.Aggregation properties = new DriverDataProperties.Aggregation();
+        properties.setWindow(Duration.ofSeconds(1));
+        properties.getTags().put("tag2", new AggregationRule(null, AggregateFunction.MAX));
+        // tag3 不聚合
+        properties.getTags().put("tag3", new AggregationRule(Duration.ZERO, null));
+
+        List<Point> emitted = new ArrayList<>();
+        AtomicLong now = new AtomicLong(10_500);
+        PointAggregator aggregator = new PointAggregator(properties, emitted::addAll, now::get);
+
+        Assertions.assertNull(aggregator.aggregate(point("device1", TAG1, 1, TAG2, 5)));
+        Assertions.assertNull(aggregator.aggregate(point("device1", TAG1, 2, TAG2, 3)));
+        Assertions.assertNull(aggregator.aggregate(point("device1", TAG1, 6, TAG2, "off")));
+        Assertions.assertNull(aggregator.aggregate(point("device2", TAG1, 7)));
+
+        Point passthrough = aggregator.aggregate(point("device1", TAG1, 3, TAG3, 8));
+        Assertions.assertNotNull(passthrough);
+        Assertions.assertEquals(Collections.singletonMap("tag3", 8), values(passthrough));
+
+        Point unchanged = point("device1", TAG3, 9);
+        Assertions.assertSame(unchanged, aggregator.aggregate(unchanged));
+        Assertions.assertEquals(8, aggregator.getAggregatedCount());
+        Assertions.assertEquals(2, aggregator.getSeriesCount());
+
+        aggregator.flush();
+        Assertions.assertEquals(2, emitted.size());
+        emitted.sort((a, b) -> a.getId().compareTo(b.getId()));
+
+        Point device1 = emitted.get(0);
+        Assertions.assertEquals("device1", device1.getId());
+        Assertions.assertEquals("table1", device1.getTable());
+        Assertions.assertEquals(10_000, device1.getTime());
+        Map<String, Object> expected = new HashMap<>();
+        expected.put("tag1", 3.0);
+        expected.put("tag2", 5.0);
+        Assertions.assertEquals(expected, values(device1));
+        Assertions.assertEquals(Collections.singletonMap("tag1", 7.0), values(emitted.get(1)));
+
+        // 窗口已清空
+        emitted.clear();
+        aggregator.flush();
+        Assertions.assertTrue(emitted.isEmpty());
+        Assertions.assertEquals(2, aggregator.getEmittedCount());
+    }
+
+    @Test
+    void testFunctions() {
+        DriverDataProperties.Aggregation properties = new DriverDataProperties.Aggregation();
+        properties.setFunction(AggregateFunction.MIN);
+        properties.getTables().put("table1", new AggregationRule(Duration.ofSeconds(10), AggregateFunction.COUNT));
+        properties.getTags().put("tag1", new AggregationRule(null, AggregateFunction.LAST));
+
+        List<Point> emitted = new ArrayList<>();
+        PointAggregator aggregator = new PointAggregator(properties, emitted::addAll, () -> 25_000);
+        for (int i = 0; i < 5; i++) {
+            aggregator.aggregate(point("device1", TAG1, i, TAG2, i * 2));
+        }
+        aggregator.flush();
+
+        Assertions.assertEquals(1, emitted.size());
+        Assertions.assertEquals(20_000, emitted.get(0).getTime());
+        Map<String, Object> expected = new HashMap<>();
+        expected.put("tag1", 4);
+        expected.put("tag2", 5L);
+        Assertions.assertEquals(expected, values(emitted.get(0)));
+    }
+
+    @Test
+    void testEventTime() {
+        DriverDataProperties.Aggregation properties = new DriverDataProperties.Aggregation();
+        properties.setWindow(Duration.ofSeconds(1));
+
+        List<Point> emitted = new ArrayList<>();
+        PointAggregator aggregator = new PointAggregator(properties, emitted::addAll, () -> 100_000);
+
+        // 按采集时间划分窗口, 与当前时间无关
+        Assertions.assertNull(aggregator.aggregate(timedPoint("table1", "device1", 10_200, TAG1, 1)));
+        Assertions.assertNull(aggregator.aggregate(timedPoint("table1", "device1", 10_700, TAG1, 3)));
+        Assertions.assertTrue(emitted.isEmpty());
+
+        // 超出当前窗口的数据立即结束当前窗口
+        Assertions.assertNull(aggregator.aggregate(timedPoint("table1", "device1", 11_100, TAG1, 5)));
+        Assertions.assertEquals(1, emitted.size());
+        Assertions.assertEquals(10_000, emitted.get(0).getTime());
+        Assertions.assertEquals(Collections.singletonMap("tag1", 2.0), values(emitted.get(0)));
+
+        // 迟到的数据不再聚合, 保留采集时间直接上报
+        Point late = aggregator.aggregate(timedPoint("table1", "device1", 10_900, TAG1, 7));
+        Assertions.assertNotNull(late);
+        Assertions.assertEquals(10_900, late.getTime());
+        Assertions.assertEquals(Collections.singletonMap("tag1", 7), values(late));
+
+        aggregator.flush();
+        Assertions.assertEquals(2, emitted.size());
+        Assertions.assertEquals(11_000, emitted.get(1).getTime());
+        Assertions.assertEquals(Collections.singletonMap("tag1", 5.0), values(emitted.get(1)));
+    }
+
+    @Test
+    void testReload() {
+        DriverDataProperties.Aggregation properties = new DriverDataProperties.Aggregation();
+        properties.setWindow(Duration.ofSeconds(1));
+
+        GlobalContext context = new GlobalContext();
+        context.update(DeviceRegistry.builder()
+                .table("table1", Collections.singletonList(TAG1))
+                .device("table1", "device1", "instance1", null)
+                .device("table1", "device2", "instance1", null)
+                .table("table2", Collections.singletonList(TAG1))
+                .device("table2", "device3", "instance1", null)
+                .build());
+
+        List<Point> emitted = new ArrayList<>();
+        PointAggregator aggregator = new PointAggregator(properties, emitted::addAll, () -> 10_000);
+        aggregator.aggregate(timedPoint("table1", "device1", 0, TAG1, 1));
+        aggregator.aggregate(timedPoint("table1", "device2", 0, TAG1, 2));
+        aggregator.aggregate(timedPoint("table2", "device3", 0, TAG1, 3));
+        Assertions.assertEquals(3, aggregator.getSeriesCount());
+
+        // 删除 device2 和 table2, 其窗口中的数据立即发送
+        DriverConfigDelta delta = context.update(DeviceRegistry.builder()
+                .table("table1", Collections.singletonList(TAG1))
+                .device("table1", "device1", "instance1", null)
+                .build());
+        aggregator.onApplicationEvent(new DriverReloadApplicationEvent(null, delta));
+
+        Assertions.assertEquals(1, aggregator.getSeriesCount());
+        Assertions.assertEquals(2, emitted.size());
+        emitted.sort((a, b) -> a.getId().compareTo(b.getId()));
+        Assertions.assertEquals("device2", emitted.get(0).getId());
+        Assertions.assertEquals("device3", emitted.get(1).getId());
+
+        aggregator.onApplicationEvent(new DriverReloadApplicationEvent(null));
+        Assertions.assertEquals(0, aggregator.getSeriesCount());
+        Assertions.assertEquals(3, emitted.size());
+        Assertions.assertEquals("device1", emitted.get(2).getId());
+    }
+
+    @Test
+    void testTimerFlush() throws InterruptedException {
+        DriverDataProperties.Aggregation properties = new DriverDataProperties.Aggregation();
+        properties.setWindow(Duration.ofMillis(50));
+        properties.setTick(Duration.ofMillis(5));
+
+        List<Point> emitted = new CopyOnWriteArrayList<>();
+        PointAggregator aggregator = new PointAggregator(properties, emitted::addAll);
+        aggregator.start();
+        try {
+            for (String deviceId : Arrays.asList("device1", "device2", "device3")) {
+                aggregator.aggregate(point(deviceId, TAG1, 1.5));
+            }
+
+            long deadline = System.currentTimeMillis() + 5000;
+            while (emitted.size() < 3 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            Assertions.assertEquals(3, emitted.size());
+            for (Point point : emitted) {
+                Assertions.assertEquals(0, point.getTime() % 50);
+                Assertions.assertEquals(Collections.singletonMap("tag1", 1.5), values(point));
+            }
+        } finally {
+            aggregator.stop();
+        }
+    }
+}
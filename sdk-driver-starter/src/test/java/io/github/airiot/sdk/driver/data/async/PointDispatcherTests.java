@@ -0,0 +1,136 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.airiot.sdk.driver.data.async;
+
+import io.github.airiot.sdk.driver.configuration.properties.DriverDataProperties;
+import io.github.airiot.sdk.driver.model.Point;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class PointDispatcherTests {
+
+    private DriverDataProperties.Async properties(int shards, int capacity, DriverDataProperties.BackPressurePolicy policy) {
+        DriverDataProperties.Async async = new DriverDataProperties.Async();
+        async.setEnabled(true);
+        async.setShards(shards);
+        async.setQueueCapacity(capacity);
+        async.setBatchSize(10);
+        async.setBackPressure(policy);
+        return async;
+    }
+
+    private Point point(String deviceId, long time) {
+        return new Point(deviceId, "table1", time, Collections.emptyList(), null);
+    }
+
+    @Test
+    void testKeepOrderPerDevice() {
+        Map<String, List<Long>> received = new ConcurrentHashMap<>();
+        PointDispatcher dispatcher = new PointDispatcher(properties(4, 100, DriverDataProperties.BackPressurePolicy.BLOCK),
+                points -> points.forEach(p -> received.computeIfAbsent(p.getId(), k -> Collections.synchronizedList(new ArrayList<>())).add(p.getTime())),
+                p -> Assertions.fail("不应溢出"));
+        dispatcher.start();
+
+        for (long i = 0; i < 1000; i++) {
+            dispatcher.dispatch(point("device-" + (i % 7), i));
+        }
+
+        Assertions.assertTrue(dispatcher.flush(Duration.ofSeconds(5)));
+        dispatcher.stop();
+
+        Assertions.assertEquals(7, received.size());
+        for (List<Long> times : received.values()) {
+            List<Long> sorted = new ArrayList<>(times);
+            Collections.sort(sorted);
+            Assertions.assertEquals(sorted, times);
+        }
+        Assertions.assertEquals(1000, dispatcher.metrics().getProcessed());
+    }
+
+    @Test
+    void testDropOldest() throws InterruptedException {
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Long> received = Collections.synchronizedList(new ArrayList<>());
+        PointDispatcher dispatcher = new PointDispatcher(properties(1, 2, DriverDataProperties.BackPressurePolicy.DROP_OLDEST),
+                points -> {
+                    blocked.countDown();
+                    try {
+                        release.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException ignored) {
+                    }
+                    points.forEach(p -> received.add(p.getTime()));
+                },
+                p -> Assertions.fail("不应溢出"));
+        dispatcher.start();
+
+        dispatcher.dispatch(point("device-1", 0));
+        Assertions.assertTrue(blocked.await(5, TimeUnit.SECONDS));
+        for (long i = 1; i <= 5; i++) {
+            dispatcher.dispatch(point("device-1", i));
+        }
+        release.countDown();
+
+        Assertions.assertTrue(dispatcher.flush(Duration.ofSeconds(5)));
+        dispatcher.stop();
+
+        Assertions.assertEquals(Arrays.asList(0L, 4L, 5L), received);
+        Assertions.assertEquals(3, dispatcher.metrics().getDropped());
+    }
+
+    @Test
+    void testSpill() throws InterruptedException {
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger spilled = new AtomicInteger();
+        PointDispatcher dispatcher = new PointDispatcher(properties(1, 1, DriverDataProperties.BackPressurePolicy.SPILL),
+                points -> {
+                    blocked.countDown();
+                    try {
+                        release.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException ignored) {
+                    }
+                },
+                p -> spilled.incrementAndGet());
+        dispatcher.start();
+
+        dispatcher.dispatch(point("device-1", 0));
+        Assertions.assertTrue(blocked.await(5, TimeUnit.SECONDS));
+        dispatcher.dispatch(point("device-1", 1));
+        dispatcher.dispatch(point("device-1", 2));
+        dispatcher.dispatch(point("device-1", 3));
+        release.countDown();
+
+        Assertions.assertTrue(dispatcher.flush(Duration.ofSeconds(5)));
+        dispatcher.stop();
+
+        Assertions.assertEquals(2, spilled.get());
+        Assertions.assertEquals(2, dispatcher.metrics().getSpilled());
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.airiot.sdk.driver.data.buffer;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+
+public class DiskBufferTests {
+
+    @TempDir
+    Path dir;
+
+    private byte[] payload(int i) {
+        return ("{\"v\":" + i + "}").getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void testAppendPeekCommit() throws Exception {
+        try (DiskBuffer buffer = new DiskBuffer(dir, 1024, 1024 * 1024, Duration.ofHours(1))) {
+            Assertions.assertTrue(buffer.isEmpty());
+            for (int i = 0; i < 100; i++) {
+                Assertions.assertTrue(buffer.append("table1", "device-" + (i % 3), payload(i)));
+            }
+            Assertions.assertFalse(buffer.isEmpty());
+
+            int next = 0;
+            while (!buffer.isEmpty()) {
+                List<DiskBuffer.Record> records = buffer.peek(7);
+                for (DiskBuffer.Record record : records) {
+                    Assertions.assertEquals("table1", record.getTableId());
+                    Assertions.assertEquals("device-" + (next % 3), record.getDeviceId());
+                    Assertions.assertArrayEquals(payload(next), record.getPayload());
+                    next++;
+                }
+                if (!records.isEmpty()) {
+                    buffer.commit(records.get(records.size() - 1));
+                }
+            }
+            Assertions.assertEquals(100, next);
+        }
+    }
+
+    @Test
+    void testRecoverAfterReopen() throws Exception {
+        try (DiskBuffer buffer = new DiskBuffer(dir, 1024, 1024 * 1024, Duration.ofHours(1))) {
+            for (int i = 0; i < 50; i++) {
+                buffer.append("table1", "device-1", payload(i));
+            }
+            List<DiskBuffer.Record> records = buffer.peek(20);
+            buffer.commit(records.get(records.size() - 1));
+        }
+
+        try (DiskBuffer buffer = new DiskBuffer(dir, 1024, 1024 * 1024, Duration.ofHours(1))) {
+            int next = 20;
+            while (!buffer.isEmpty()) {
+                List<DiskBuffer.Record> records = buffer.peek(100);
+                for (DiskBuffer.Record record : records) {
+                    Assertions.assertArrayEquals(payload(next++), record.getPayload());
+                }
+                if (!records.isEmpty()) {
+                    buffer.commit(records.get(records.size() - 1));
+                }
+            }
+            Assertions.assertEquals(50, next);
+        }
+    }
+
+    @Test
+    void testMaxSize() throws Exception {
+        try (DiskBuffer buffer = new DiskBuffer(dir, 1024, 4 * 1024, Duration.ofHours(1))) {
+            for (int i = 0; i < 1000; i++) {
+                buffer.append("table1", "device-1", payload(i));
+            }
+            Assertions.assertTrue(buffer.size() <= 5 * 1024, "size = " + buffer.size());
+
+            List<DiskBuffer.Record> records = buffer.peek(1);
+            Assertions.assertFalse(records.isEmpty());
+            Assertions.assertNotEquals("{\"v\":0}", new String(records.get(0).getPayload(), StandardCharsets.UTF_8));
+        }
+    }
+
+    private void overwrite(Path file, long position, byte[] data) throws Exception {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(data), position);
+        }
+    }
+
+    @Test
+    void testSkipCorruptRecord() throws Exception {
+        try (DiskBuffer buffer = new DiskBuffer(dir, 1024, 1024 * 1024, Duration.ofHours(1))) {
+            for (int i = 0; i < 3; i++) {
+                buffer.append("table1", "device-1", payload(i));
+            }
+            // 修改正在写入的段文件中第一条记录的数据, 使其校验失败. 数据起始位置: 头(8) + 固定部分(12) + 表标识(6) + 设备编号(8)
+            overwrite(dir.resolve(String.format("%019d.seg", 0)), 34, new byte[]{'x'});
+
+            List<DiskBuffer.Record> records = buffer.peek(10);
+            Assertions.assertEquals(2, records.size());
+            Assertions.assertArrayEquals(payload(1), records.get(0).getPayload());
+            Assertions.assertArrayEquals(payload(2), records.get(1).getPayload());
+
+            buffer.commit(records.get(1));
+            Assertions.assertTrue(buffer.isEmpty());
+        }
+    }
+
+    @Test
+    void testSkipInvalidReadOffset() throws Exception {
+        try (DiskBuffer buffer = new DiskBuffer(dir, 1024, 1024 * 1024, Duration.ofHours(1))) {
+            for (int i = 0; i < 3; i++) {
+                buffer.append("table1", "device-1", payload(i));
+            }
+        }
+        // 读取位置不在记录边界上
+        overwrite(dir.resolve("checkpoint"), 8, ByteBuffer.allocate(8).putLong(0, 3).array());
+
+        try (DiskBuffer buffer = new DiskBuffer(dir, 1024, 1024 * 1024, Duration.ofHours(1))) {
+            Assertions.assertFalse(buffer.isEmpty());
+            Assertions.assertTrue(buffer.peek(10).isEmpty());
+            Assertions.assertTrue(buffer.isEmpty());
+        }
+    }
+
+    @Test
+    void testRejectTooLarge() throws Exception {
+        try (DiskBuffer buffer = new DiskBuffer(dir, 1024, 1024 * 1024, Duration.ofHours(1))) {
+            Assertions.assertFalse(buffer.append("table1", "device-1", new byte[2048]));
+            Assertions.assertTrue(buffer.isEmpty());
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.airiot.sdk.driver.data.codec;
+
+import io.github.airiot.sdk.driver.model.Field;
+import io.github.airiot.sdk.driver.model.FieldType;
+import io.github.airiot.sdk.driver.model.Point;
+import io.github.airiot.sdk.driver.model.Tag;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class CborPointCodecTests {
+
+    private final CborPointCodec codec = new CborPointCodec();
+
+    private Field<Tag> field(String id, Object value) {
+        return new Field<>(new Tag(id, id, null, null, null, null), value);
+    }
+
+    private static byte[] bytes(int... values) {
+        byte[] bytes = new byte[values.length];
+        for (int i = 0; i < values.length; i++) {
+            bytes[i] = (byte) values[i];
+        }
+        return bytes;
+    }
+
+    @Test
+    void testLookup() {
+        Assertions.assertTrue(PointCodecs.getCodec("json").orElse(null) instanceof JsonPointCodec);
+        Assertions.assertTrue(PointCodecs.getCodec("CBOR").orElse(null) instanceof CborPointCodec);
+        Assertions.assertFalse(PointCodecs.getCodec("xml").isPresent());
+    }
+
+    @Test
+    void testEncode() {
+        Map<String, FieldType> fieldTypes = new LinkedHashMap<>();
+        fieldTypes.put("a", FieldType.INTEGER);
+        List<Field<? extends Tag>> fields = Arrays.asList(
+                field("a", 1),
+                field("b", -10),
+                field("c", 1.5),
+                field("d", 0.1),
+                field("e", true),
+                field("f", "x"),
+                field("g", null),
+                field("h", new int[]{1000}));
+        Point point = new Point("device-1", "c1", "table1", 70000L, fields, fieldTypes);
+
+        byte[] expected = bytes(
+                0xA5,
+                0x66, 'f', 'i', 'e', 'l', 'd', 's', 0xBF,
+                0x61, 'a', 0x01,
+                0x61, 'b', 0x29,
+                0x61, 'c', 0xFA, 0x3F, 0xC0, 0x00, 0x00,
+                0x61, 'd', 0xFB, 0x3F, 0xB9, 0x99, 0x99, 0x99, 0x99, 0x99, 0x9A,
+                0x61, 'e', 0xF5,
+                0x61, 'f', 0x61, 'x',
+                0x61, 'h', 0x81, 0x19, 0x03, 0xE8,
+                0xFF,
+                0x66, 's', 'o', 'u', 'r', 'c', 'e', 0x66, 'd', 'e', 'v', 'i', 'c', 'e',
+                0x63, 'c', 'i', 'd', 0x62, 'c', '1',
+                0x64, 't', 'i', 'm', 'e', 0x1A, 0x00, 0x01, 0x11, 0x70,
+                0x6A, 'f', 'i', 'e', 'l', 'd', 'T', 'y', 'p', 'e', 's', 0xA1, 0x61, 'a', 0x67, 'i', 'n', 't', 'e', 'g', 'e', 'r');
+        Assertions.assertArrayEquals(expected, codec.encode(point));
+    }
+
+    @Test
+    void testSmallerThanJson() {
+        List<Field<? extends Tag>> fields = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            fields.add(field("tag" + i, i % 2 == 0 ? (Object) (i * 1234) : (Object) (i * 0.5)));
+        }
+        Point point = new Point("device-1", "table1", System.currentTimeMillis(), fields, Collections.emptyMap());
+        byte[] json = new JsonPointCodec().encode(point);
+        byte[] cbor = codec.encode(point);
+        Assertions.assertTrue(cbor.length < json.length, "cbor = " + cbor.length + ", json = " + json.length);
+    }
+}
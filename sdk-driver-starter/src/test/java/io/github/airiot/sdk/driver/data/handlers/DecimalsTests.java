@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.github.airiot.sdk.driver.data.handlers;
+
+import io.github.airiot.sdk.driver.model.Tag;
+import io.github.airiot.sdk.driver.model.TagValue;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.Random;
+
+public class DecimalsTests {
+
+    private static final double[] MODS = {1, 10, 100, 0.1, 0.01, 0.001, 0.5, 0.25, 1.5, 3, 0.0001, 1e-6, 12.345};
+
+    private double bigDecimal(double value, Double mod, int fixed) {
+        BigDecimal val = BigDecimal.valueOf(value);
+        if (mod != null) {
+            val = val.multiply(BigDecimal.valueOf(mod));
+        }
+        if (fixed >= 0) {
+            val = val.setScale(fixed, java.math.RoundingMode.HALF_UP);
+        }
+        return val.doubleValue();
+    }
+
+    @Test
+    void testDecimalScale() {
+        Assertions.assertEquals(0, Decimals.decimalScale(123, 18));
+        Assertions.assertEquals(2, Decimals.decimalScale(1.25, 18));
+        Assertions.assertEquals(1, Decimals.decimalScale(-0.1, 18));
+        Assertions.assertEquals(3, Decimals.decimalScale(123.456, 18));
+        Assertions.assertEquals(-1, Decimals.decimalScale(Math.PI, 3));
+    }
+
+    @Test
+    void testScaleAndRoundTies() {
+        Assertions.assertEquals(bigDecimal(1.005, null, 2), Decimals.scaleAndRound(1.005, null, 2));
+        Assertions.assertEquals(1.01, Decimals.scaleAndRound(1.005, null, 2));
+        Assertions.assertEquals(-1.01, Decimals.scaleAndRound(-1.005, null, 2));
+        Assertions.assertEquals(2.68, Decimals.scaleAndRound(2.675, null, 2));
+        Assertions.assertEquals(123.46, Decimals.scaleAndRound(123456, Decimals.toDecimal(0.001), 2));
+        Assertions.assertEquals(12345600d, Decimals.scaleAndRound(123456, Decimals.toDecimal(100), 0));
+        Assertions.assertEquals(0d, Decimals.scaleAndRound(-0.001, null, 2));
+    }
+
+    @Test
+    void testScaleAndRoundMatchesBigDecimal() {
+        Random random = new Random(20240601L);
+        for (int i = 0; i < 100_000; i++) {
+            double value;
+            switch (i % 4) {
+                case 0:
+                    value = random.nextInt(2_000_000) - 1_000_000;
+                    break;
+                case 1:
+                    value = (random.nextInt(2_000_000) - 1_000_000) / 1000d;
+                    break;
+                case 2:
+                    value = (random.nextDouble() - 0.5) * 1e6;
+                    break;
+                default:
+                    value = (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(20) - 10);
+                    break;
+            }
+            Double mod = random.nextInt(4) == 0 ? null : MODS[random.nextInt(MODS.length)];
+            int fixed = random.nextInt(8) - 1;
+
+            double expected = bigDecimal(value, mod, fixed);
+            double actual = Decimals.scaleAndRound(value, mod == null ? null : Decimals.toDecimal(mod), fixed);
+            Assertions.assertEquals(expected, actual, "value = " + value + ", mod = " + mod + ", fixed = " + fixed);
+        }
+    }
+
+    @Test
+    void testRoundToSignificant() {
+        Assertions.assertEquals(23.58, Decimals.roundToSignificant(23.580000000000002, 0, 15));
+        Assertions.assertEquals(-23.58, Decimals.roundToSignificant(-23.579999999999998, 0, 15));
+        Assertions.assertEquals(0.3, Decimals.roundToSignificant(0.1 + 0.2, 0, 15));
+        Assertions.assertEquals(1000d, Decimals.roundToSignificant(999.9999999999999, 0, 15));
+        Assertions.assertEquals(-0.99, Decimals.roundToSignificant(-0.990000000000002, 50, 15));
+        Assertions.assertEquals(0d, Decimals.roundToSignificant(0d, 0, 15));
+        Assertions.assertEquals(1e300, Decimals.roundToSignificant(1e300, 0, 15));
+    }
+
+    @Test
+    void testConvertMatchesBigDecimal() {
+        ConvertValueHandler fast = new ConvertValueHandler(16, false);
+        ConvertValueHandler exact = new ConvertValueHandler(16, true);
+
+        Tag tag = new Tag("tag01", "tag01", new TagValue(-50d, 50d, -5000d, 5000d), null, null, null);
+        Assertions.assertEquals(23.58, handle(fast, tag, 2358));
+        Assertions.assertEquals(-23.58, handle(fast, tag, -2358));
+        Assertions.assertEquals(-50d, handle(fast, tag, -6000));
+        Assertions.assertEquals(50d, handle(fast, tag, 6000));
+        for (int i = -5000; i <= 5000; i++) {
+            Assertions.assertEquals(handle(exact, tag, i), handle(fast, tag, i), "value = " + i);
+        }
+
+        Random random = new Random(20240602L);
+        for (int i = 0; i < 100_000; i++) {
+            double minRaw = random.nextInt(10000) - 5000;
+            double maxRaw = minRaw + 1 + random.nextInt(100000);
+            double minValue = (random.nextInt(20000) - 10000) / 100d;
+            double maxValue = minValue + (random.nextInt(20000) - 10000) / 10d;
+            tag = new Tag("tag01", "tag01", new TagValue(minValue, maxValue, minRaw, maxRaw), null, null, null);
+
+            double value = minRaw + (maxRaw - minRaw) * random.nextDouble();
+            double expected = handle(exact, tag, value);
+            double actual = handle(fast, tag, value);
+            double tolerance = 1e-13 * Math.max(1, Math.max(Math.abs(minValue), Math.abs(maxValue)));
+            Assertions.assertEquals(expected, actual, tolerance, "tag = " + tag.getTagValue() + ", value = " + value);
+        }
+    }
+
+    @Test
+    void testRoundAndScaleMatchesBigDecimal() {
+        RoundAndScaleValueHandler fast = new RoundAndScaleValueHandler(false);
+        RoundAndScaleValueHandler exact = new RoundAndScaleValueHandler(true);
+
+        Random random = new Random(20240603L);
+        for (int i = 0; i < 50_000; i++) {
+            Double mod = random.nextBoolean() ? null : MODS[random.nextInt(MODS.length)];
+            Integer fixed = mod == null || random.nextBoolean() ? random.nextInt(6) : null;
+            Tag tag = new Tag("tag01", "tag01", null, null, fixed, mod);
+            double value = (random.nextInt(2_000_000) - 1_000_000) / Math.pow(10, random.nextInt(5));
+
+            Object expected = exact.handle("table1", "device1", tag, value).get("tag01");
+            Object actual = fast.handle("table1", "device1", tag, value).get("tag01");
+            Assertions.assertTrue(expected instanceof BigDecimal);
+            Assertions.assertEquals(((BigDecimal) expected).doubleValue(), (Double) actual, "tag = " + tag + ", value = " + value);
+        }
+    }
+
+    private double handle(ConvertValueHandler handler, Tag tag, double value) {
+        Map<String, Object> result = handler.handle("table1", "device1", tag, value);
+        return ((Number) result.get("tag01")).doubleValue();
+    }
+}
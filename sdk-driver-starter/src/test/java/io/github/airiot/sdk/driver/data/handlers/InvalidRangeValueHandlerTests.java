@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.github.airiot.sdk.driver.data.handlers;
+
+import io.github.airiot.sdk.driver.model.Range;
+import io.github.airiot.sdk.driver.model.Tag;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Map;
+
+public class InvalidRangeValueHandlerTests {
+
+    private Tag tag(String active, String invalidAction, Range.Condition... conditions) {
+        Range range = new Range();
+        range.setMethod("invalid");
+        range.setActive(active);
+        range.setFixedValue(-1d);
+        range.setInvalidAction(invalidAction);
+        range.setConditions(Arrays.asList(conditions));
+        return new Tag("tag01", "tag01", null, range, null, null);
+    }
+
+    @Test
+    void testSupports() {
+        InvalidRangeValueHandler handler = new InvalidRangeValueHandler(new TagValueCache());
+        Tag tag = tag("fixed", null, new Range.Condition("number", "greater", 100d, false));
+        Assertions.assertTrue(handler.supports("table1", "device1", tag, 1));
+        Assertions.assertTrue(handler.supportsTag("table1", "device1", tag));
+        Assertions.assertFalse(handler.supportsTag("table1", "device1", tag("fixed", null)));
+
+        tag = tag("fixed", null, new Range.Condition("number", "greater", 100d, false));
+        tag.getRange().setMethod("valid");
+        Assertions.assertFalse(handler.supports("table1", "device1", tag, 1));
+        Assertions.assertFalse(handler.supportsTag("table1", "device1", tag));
+    }
+
+    @Test
+    void testHandle() {
+        TagValueCache cache = new TagValueCache();
+        InvalidRangeValueHandler handler = new InvalidRangeValueHandler(cache);
+        Range.Condition greater = new Range.Condition("number", "greater", null, null, 100d, false, "too-large");
+        Range.Condition less = new Range.Condition("number", "less", null, null, 0d, false, "too-small");
+
+        // 未匹配任何条件, 返回原始值
+        Tag fixed = tag("fixed", "save", greater, less);
+        Assertions.assertEquals(50, handler.handle("table1", "device1", fixed, 50).get("tag01"));
+
+        Map<String, Object> result = handler.handle("table1", "device1", fixed, 101);
+        Assertions.assertEquals(-1d, result.get("tag01"));
+        Assertions.assertEquals("too-large", result.get(fixed.getInvalidType()));
+        Assertions.assertEquals(101, result.get(fixed.getInvalidTagId()));
+
+        result = handler.handle("table1", "device1", tag("discard", null, greater, less), -1);
+        Assertions.assertFalse(result.containsKey("tag01"));
+        Assertions.assertEquals("too-small", result.get("tag01__invalid__type"));
+        Assertions.assertFalse(result.containsKey("tag01__invalid"));
+
+        Tag latest = tag("latest", null, greater, less);
+        Assertions.assertEquals(101, handler.handle("table1", "device1", latest, 101).get("tag01"));
+        cache.put("table1", "device1", "tag01", 42);
+        Assertions.assertEquals(42d, handler.handle("table1", "device1", latest, 101).get("tag01"));
+
+        Tag boundary = tag("boundary", null, greater, less);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> handler.handle("table1", "device1", boundary, 101));
+    }
+
+    @Test
+    void testDelta() {
+        TagValueCache cache = new TagValueCache();
+        InvalidRangeValueHandler handler = new InvalidRangeValueHandler(cache);
+        Tag tag = tag("discard", null, new Range.Condition("delta", "greater", 0.2, false));
+
+        // 没有最新有效值时跳过条件
+        Assertions.assertEquals(1d, handler.handle("table1", "device1", tag, 1d).get("tag01"));
+
+        // 0.3 - 0.1 使用十进制计算结果为 0.2, 不大于 0.2
+        cache.put("table1", "device1", "tag01", 0.1);
+        Assertions.assertEquals(0.3, handler.handle("table1", "device1", tag, 0.3).get("tag01"));
+        Assertions.assertFalse(handler.handle("table1", "device1", tag, 0.31).containsKey("tag01"));
+    }
+}
@@ -0,0 +1,271 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.github.airiot.sdk.driver.data.handlers;
+
+import io.github.airiot.sdk.driver.model.Range;
+import io.github.airiot.sdk.driver.model.Tag;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Random;
+
+public class RangeValueHandlerV2Tests {
+
+    private Tag tag(String active, Range.Condition... conditions) {
+        Range range = new Range();
+        range.setMethod("valid");
+        range.setActive(active);
+        range.setFixedValue(-1d);
+        range.setConditions(Arrays.asList(conditions));
+        return new Tag("tag01", "tag01", null, range, null, null);
+    }
+
+    private Object handle(RangeValueHandlerV2 handler, Tag tag, double value) {
+        Map<String, Object> result = handler.handle("table1", "device1", tag, value);
+        return result.get("tag01");
+    }
+
+    @Test
+    void testSupports() {
+        RangeValueHandlerV2 handler = new RangeValueHandlerV2(new TagValueCache());
+        Tag tag = tag("boundary", new Range.Condition("number", "range", 0d, 100d, true));
+        Assertions.assertTrue(handler.supports("table1", "device1", tag, 1));
+        Assertions.assertTrue(handler.supportsTag("table1", "device1", tag));
+        Assertions.assertFalse(handler.supports("table1", "device1", tag, "1"));
+
+        tag = tag("boundary", new Range.Condition("number", "range", 0d, 100d, true));
+        tag.getRange().setMethod("invalid");
+        Assertions.assertFalse(handler.supports("table1", "device1", tag, 1));
+        Assertions.assertFalse(handler.supportsTag("table1", "device1", tag));
+
+        Tag unknownAction = tag("BOUNDARY", new Range.Condition("number", "range", 0d, 100d, true));
+        Assertions.assertFalse(handler.supports("table1", "device1", unknownAction, 1));
+
+        Range limits = new Range(0d, 100d, 0d, "boundary");
+        limits.setMethod("valid");
+        limits.setConditions(Collections.singletonList(new Range.Condition("number", "range", 0d, 100d, true)));
+        Assertions.assertFalse(handler.supports("table1", "device1", new Tag("tag01", "tag01", null, limits, null, null), 1));
+
+        Tag empty = tag("boundary");
+        Assertions.assertFalse(handler.supports("table1", "device1", empty, 1));
+        Assertions.assertFalse(handler.supportsTag("table1", "device1", empty));
+    }
+
+    @Test
+    void testNumber() {
+        RangeValueHandlerV2 handler = new RangeValueHandlerV2(new TagValueCache());
+        Range.Condition range = new Range.Condition("number", "range", 0d, 100d, true);
+
+        Tag boundary = tag("boundary", range);
+        Assertions.assertEquals(50d, handle(handler, boundary, 50));
+        Assertions.assertEquals(0d, handle(handler, boundary, 0));
+        Assertions.assertEquals(100d, handle(handler, boundary, 100));
+        Assertions.assertEquals(0d, handle(handler, boundary, -0.5));
+        Assertions.assertEquals(100d, handle(handler, boundary, 100.5));
+
+        Assertions.assertEquals(-1d, handle(handler, tag("fixed", range), 101));
+        Assertions.assertNull(handle(handler, tag("discard", range), 101));
+        // 没有最新有效值时取当前值
+        Assertions.assertEquals(101d, handle(handler, tag("latest", range), 101));
+
+        Tag greater = tag("boundary", new Range.Condition("number", "greater", 10d, true));
+        Assertions.assertEquals(11d, handle(handler, greater, 11));
+        Assertions.assertEquals(10d, handle(handler, greater, 10));
+        Tag less = tag("boundary", new Range.Condition("number", "less", 10d, true));
+        Assertions.assertEquals(9d, handle(handler, less, 9));
+        Assertions.assertEquals(10d, handle(handler, less, 10));
+
+        // 满足任意一个条件即为有效
+        Tag multiple = tag("boundary",
+                new Range.Condition("number", "less", 0d, false),
+                new Range.Condition("number", "greater", 100d, true));
+        Assertions.assertEquals(-5d, handle(handler, multiple, -5));
+        Assertions.assertEquals(105d, handle(handler, multiple, 105));
+        Assertions.assertEquals(100d, handle(handler, multiple, 50));
+
+        // 没有默认条件时丢弃
+        Tag noDefault = tag("boundary", new Range.Condition("number", "range", 0d, 100d, false));
+        Assertions.assertNull(handle(handler, noDefault, 101));
+    }
+
+    @Test
+    void testDeltaAndRate() {
+        TagValueCache cache = new TagValueCache();
+        RangeValueHandlerV2 handler = new RangeValueHandlerV2(cache);
+        Tag delta = tag("boundary", new Range.Condition("delta", "range", -5d, 5d, true));
+        Tag rate = tag("boundary", new Range.Condition("rate", "range", -10d, 10d, true));
+
+        // 没有最新有效值时跳过条件, 返回原始值
+        Assertions.assertEquals(100, handler.handle("table1", "device1", delta, 100).get("tag01"));
+        Assertions.assertEquals(100, handler.handle("table1", "device1", rate, 100).get("tag01"));
+
+        cache.put("table1", "device1", "tag01", 100d);
+        Assertions.assertEquals(103d, handle(handler, delta, 103));
+        Assertions.assertEquals(105d, handle(handler, delta, 110));
+        Assertions.assertEquals(95d, handle(handler, delta, 90));
+        Assertions.assertEquals(108d, handle(handler, rate, 108));
+        Assertions.assertEquals(110d, handle(handler, rate, 120));
+        Assertions.assertEquals(90d, handle(handler, rate, 80));
+
+        Assertions.assertEquals(100d, handle(handler, tag("latest", new Range.Condition("delta", "range", -5d, 5d, true)), 200));
+
+        // 最新有效值为 0 时跳过 rate 条件
+        cache.put("table1", "device1", "tag01", 0d);
+        Assertions.assertEquals(50, handler.handle("table1", "device1", rate, 50).get("tag01"));
+    }
+
+    @Test
+    void testNearBoundary() {
+        TagValueCache cache = new TagValueCache();
+        RangeValueHandlerV2 handler = new RangeValueHandlerV2(cache);
+
+        // 0.3 - 0.1 使用 double 计算结果为 0.19999999999999998, 使用十进制计算结果为 0.2
+        cache.put("table1", "device1", "tag01", 0.1);
+        Tag less = tag("discard", new Range.Condition("delta", "less", 0.2, true));
+        Assertions.assertNull(handle(handler, less, 0.3));
+        Assertions.assertEquals(0.29, handle(handler, less, 0.29));
+
+        // 变化率按 10 位小数四舍五入后等于 5%
+        cache.put("table1", "device1", "tag01", 1d);
+        Tag greater = tag("discard", new Range.Condition("rate", "greater", 5d, true));
+        Assertions.assertNull(handle(handler, greater, 1.05000000000004));
+        Assertions.assertEquals(1.0500000001, handle(handler, greater, 1.0500000001));
+    }
+
+    @Test
+    void testInvalidCondition() {
+        RangeValueHandlerV2 handler = new RangeValueHandlerV2(new TagValueCache());
+        Tag tag = tag("boundary", new Range.Condition("unknown", "range", 0d, 100d, true));
+        Assertions.assertThrows(IllegalStateException.class, () -> handler.handle("table1", "device1", tag, 1));
+
+        // 跳过的条件不检查配置
+        Tag skipped = tag("boundary", new Range.Condition("rate", "unknown", 0d, 100d, true));
+        Assertions.assertEquals(1, handler.handle("table1", "device1", skipped, 1).get("tag01"));
+    }
+
+    @Test
+    void testMatchesBigDecimal() {
+        TagValueCache cache = new TagValueCache();
+        RangeValueHandlerV2 handler = new RangeValueHandlerV2(cache);
+        String[] modes = {"number", "delta", "rate"};
+        String[] types = {"range", "greater", "less"};
+        Random random = new Random(20240610L);
+
+        for (int i = 0; i < 50_000; i++) {
+            String mode = modes[random.nextInt(modes.length)];
+            String type = types[random.nextInt(types.length)];
+            double latest = randomDecimal(random);
+            double min = randomDecimal(random);
+            double max = min + Math.abs(randomDecimal(random));
+            Range.Condition condition = "range".equals(type)
+                    ? new Range.Condition(mode, type, min, max, true)
+                    : new Range.Condition(mode, type, min, true);
+
+            // 选取与条件值非常接近的值
+            double bound = random.nextBoolean() ? min : max;
+            double target;
+            switch (mode) {
+                case "delta":
+                    target = BigDecimal.valueOf(latest).add(BigDecimal.valueOf(bound)).doubleValue();
+                    break;
+                case "rate":
+                    target = BigDecimal.valueOf(bound).divide(BigDecimal.valueOf(100)).multiply(BigDecimal.valueOf(latest))
+                            .add(BigDecimal.valueOf(latest)).doubleValue();
+                    break;
+                default:
+                    target = bound;
+                    break;
+            }
+            double value = target + (random.nextInt(5) - 2) * Math.ulp(target);
+
+            cache.put("table1", "device1", "tag01", latest);
+            Tag tag = tag("boundary", condition);
+            Object expected = expected(condition, value, latest);
+            Object actual = handle(handler, tag, value);
+            Assertions.assertEquals(expected, actual,
+                    "mode = " + mode + ", type = " + type + ", value = " + value + ", latest = " + latest + ", condition = " + condition);
+        }
+    }
+
+    private double randomDecimal(Random random) {
+        return (random.nextInt(200_000) - 100_000) / Math.pow(10, random.nextInt(4));
+    }
+
+    /**
+     * 使用 BigDecimal 计算单个默认条件在边界模式下的处理结果
+     */
+    private Object expected(Range.Condition condition, double value, double latest) {
+        BigDecimal val = BigDecimal.valueOf(value);
+        BigDecimal latestVal = BigDecimal.valueOf(latest);
+        if ("rate".equals(condition.getMode()) && latestVal.compareTo(BigDecimal.ZERO) == 0) {
+            return value;
+        }
+
+        BigDecimal calcValue;
+        switch (condition.getMode()) {
+            case "rate":
+                calcValue = val.subtract(latestVal).divide(latestVal, 10, RoundingMode.HALF_UP).multiply(BigDecimal.valueOf(100));
+                break;
+            case "delta":
+                calcValue = val.subtract(latestVal);
+                break;
+            default:
+                calcValue = val;
+                break;
+        }
+
+        BigDecimal bound;
+        switch (condition.getCondition()) {
+            case "range":
+                BigDecimal min = BigDecimal.valueOf(condition.getMinValue());
+                BigDecimal max = BigDecimal.valueOf(condition.getMaxValue());
+                if (calcValue.compareTo(min) >= 0 && calcValue.compareTo(max) <= 0) {
+                    return value;
+                }
+                bound = calcValue.compareTo(min) < 0 ? min : max;
+                break;
+            case "greater":
+                bound = BigDecimal.valueOf(condition.getValue());
+                if (calcValue.compareTo(bound) > 0) {
+                    return value;
+                }
+                break;
+            default:
+                bound = BigDecimal.valueOf(condition.getValue());
+                if (calcValue.compareTo(bound) < 0) {
+                    return value;
+                }
+                break;
+        }
+
+        switch (condition.getMode()) {
+            case "rate":
+                return bound.divide(BigDecimal.valueOf(100)).multiply(latestVal).add(latestVal).doubleValue();
+            case "delta":
+                return latestVal.add(bound).doubleValue();
+            default:
+                return bound.doubleValue();
+        }
+    }
+}
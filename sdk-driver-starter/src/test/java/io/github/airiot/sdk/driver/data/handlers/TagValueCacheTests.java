@@ -0,0 +1,160 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.github.airiot.sdk.driver.data.handlers;
+
+import io.github.airiot.sdk.driver.DeviceRegistry;
+import io.github.airiot.sdk.driver.DriverConfigDelta;
+import io.github.airiot.sdk.driver.GlobalContext;
+import io.github.airiot.sdk.driver.event.DriverReloadApplicationEvent;
+import io.github.airiot.sdk.driver.model.Tag;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+public class TagValueCacheTests {
+
+    @Test
+    void testPutAndGet() {
+        TagValueCache cache = new TagValueCache();
+        Assertions.assertNull(cache.get("table1", "device1", "tag1"));
+        Assertions.assertTrue(Double.isNaN(cache.getDouble("table1", "device1", "tag1")));
+
+        cache.put("table1", "device1", "tag1", 42);
+        cache.put("table1", "device1", "tag2", 1.5d);
+        cache.put("table1", "device1", "tag3", "on");
+        cache.put("table1", "device1", "tag4", new BigDecimal("2.25"));
+        cache.put("table1", "device1", "tag5", 7L);
+        cache.put("table1", "device1", "tag6", 0.5f);
+
+        // 保持原来的值类型
+        Assertions.assertEquals(42, cache.get("table1", "device1", "tag1").getValue());
+        Assertions.assertEquals(1.5d, cache.get("table1", "device1", "tag2").getValue());
+        Assertions.assertEquals("on", cache.get("table1", "device1", "tag3").getValue());
+        Assertions.assertEquals(new BigDecimal("2.25"), cache.get("table1", "device1", "tag4").getValue());
+        Assertions.assertEquals(7L, cache.get("table1", "device1", "tag5").getValue());
+        Assertions.assertEquals(0.5f, cache.get("table1", "device1", "tag6").getValue());
+
+        Assertions.assertEquals(42d, cache.getDouble("table1", "device1", "tag1"));
+        Assertions.assertEquals(1.5d, cache.getDouble("table1", "device1", "tag2"));
+        Assertions.assertTrue(Double.isNaN(cache.getDouble("table1", "device1", "tag3")));
+        Assertions.assertEquals(2.25d, cache.getDouble("table1", "device1", "tag4"));
+
+        // 更新已有的值
+        cache.put("table1", "device1", "tag1", 43.5d);
+        Assertions.assertEquals(43.5d, cache.get("table1", "device1", "tag1").getValue());
+        Assertions.assertEquals(6, cache.size());
+
+        // 不同工作表和设备的值互不影响
+        Assertions.assertNull(cache.get("table2", "device1", "tag1"));
+        Assertions.assertNull(cache.get("table1", "device2", "tag1"));
+
+        TagValueCache.CacheValue value = cache.get("table1", "device1", "tag1");
+        Assertions.assertEquals("table1", value.getTableId());
+        Assertions.assertEquals("device1", value.getDeviceId());
+        Assertions.assertEquals("tag1", value.getTagId());
+        Assertions.assertTrue(System.currentTimeMillis() - value.getTimestamp() < 5000);
+
+        cache.clear();
+        Assertions.assertNull(cache.get("table1", "device1", "tag1"));
+        Assertions.assertEquals(0, cache.size());
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> cache.get("", "device1", "tag1"));
+    }
+
+    @Test
+    void testTtl() throws InterruptedException {
+        TagValueCache cache = new TagValueCache(0, Duration.ofMillis(50));
+        cache.put("table1", "device1", "tag1", 1);
+        Assertions.assertEquals(1, cache.get("table1", "device1", "tag1").getValue());
+
+        TimeUnit.MILLISECONDS.sleep(120);
+        Assertions.assertNull(cache.get("table1", "device1", "tag1"));
+        Assertions.assertTrue(Double.isNaN(cache.getDouble("table1", "device1", "tag1")));
+
+        // 写入时清除过期的缓存
+        cache.put("table1", "device1", "tag2", 2);
+        Assertions.assertEquals(1, cache.size());
+        Assertions.assertEquals(2, cache.get("table1", "device1", "tag2").getValue());
+    }
+
+    @Test
+    void testMaxSize() throws InterruptedException {
+        TagValueCache cache = new TagValueCache(100, null);
+        for (int i = 0; i < 100; i++) {
+            cache.put("table1", "device" + (i % 10), "old" + i, i);
+        }
+        Assertions.assertEquals(100, cache.size());
+
+        TimeUnit.MILLISECONDS.sleep(20);
+        for (int i = 0; i < 50; i++) {
+            cache.put("table1", "device" + (i % 10), "new" + i, i);
+        }
+
+        Assertions.assertTrue(cache.size() <= 100);
+        for (int i = 0; i < 50; i++) {
+            Assertions.assertEquals(i, cache.get("table1", "device" + (i % 10), "new" + i).getValue());
+        }
+    }
+
+    @Test
+    void testReload() {
+        GlobalContext context = new GlobalContext();
+        context.update(DeviceRegistry.builder()
+                .table("table1", Arrays.asList(new Tag("tag1", "tag1"), new Tag("tag2", "tag2")))
+                .device("table1", "device1", "instance1", null)
+                .device("table1", "device2", "instance1", null)
+                .device("table1", "device3", "instance1", null)
+                .table("table2", null)
+                .device("table2", "device4", "instance1", Collections.singletonList(new Tag("tag1", "tag1")))
+                .build());
+
+        TagValueCache cache = new TagValueCache();
+        for (int i = 1; i <= 3; i++) {
+            cache.put("table1", "device" + i, "tag1", 1);
+            cache.put("table1", "device" + i, "tag2", 2);
+        }
+        cache.put("table2", "device4", "tag1", 1);
+        Assertions.assertEquals(7, cache.size());
+
+        // 删除 device2 和 table2, 修改 device3 的 tag2
+        DriverConfigDelta delta = context.update(DeviceRegistry.builder()
+                .table("table1", Arrays.asList(new Tag("tag1", "tag1"), new Tag("tag2", "tag2")))
+                .device("table1", "device1", "instance1", null)
+                .device("table1", "device3", "instance1", Collections.singletonList(new Tag("tag2", "tag2-changed")))
+                .build());
+        cache.onApplicationEvent(new DriverReloadApplicationEvent(null, delta));
+
+        Assertions.assertEquals(3, cache.size());
+        Assertions.assertNotNull(cache.get("table1", "device1", "tag1"));
+        Assertions.assertNotNull(cache.get("table1", "device1", "tag2"));
+        Assertions.assertNull(cache.get("table1", "device2", "tag1"));
+        Assertions.assertNotNull(cache.get("table1", "device3", "tag1"));
+        Assertions.assertNull(cache.get("table1", "device3", "tag2"));
+        Assertions.assertNull(cache.get("table2", "device4", "tag1"));
+
+        // 全部重新加载
+        cache.onApplicationEvent(new DriverReloadApplicationEvent(null));
+        Assertions.assertEquals(0, cache.size());
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.github.airiot.sdk.driver.data.impl;
+
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.ConfirmCallback;
+import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.MessageProperties;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+public class AmqpChannelPoolTests {
+
+    private static Channel openChannel() {
+        Channel channel = Mockito.mock(Channel.class);
+        Mockito.when(channel.isOpen()).thenReturn(true);
+        return channel;
+    }
+
+    @Test
+    void testBorrowAndRelease() throws IOException {
+        Connection connection = Mockito.mock(Connection.class);
+        Channel channel = openChannel();
+        Mockito.when(connection.createChannel()).thenReturn(channel);
+
+        AmqpChannelPool pool = new AmqpChannelPool(connection, 1, 50, false);
+        AmqpChannelPool.PooledChannel borrowed = pool.borrow();
+        Assertions.assertEquals(1, pool.getOpenChannels());
+        Assertions.assertEquals(0, pool.getIdleChannels());
+
+        // 超过最大数量时等待超时
+        Assertions.assertThrows(IOException.class, pool::borrow);
+
+        pool.release(borrowed);
+        Assertions.assertEquals(1, pool.getIdleChannels());
+        Assertions.assertSame(borrowed, pool.borrow());
+        Mockito.verify(connection, Mockito.times(1)).createChannel();
+
+        // 已关闭的 Channel 归还时丢弃
+        Mockito.when(channel.isOpen()).thenReturn(false);
+        pool.release(borrowed);
+        Assertions.assertEquals(0, pool.getOpenChannels());
+        Assertions.assertEquals(0, pool.getIdleChannels());
+
+        CompletableFuture<Void> future = pool.borrow().publish("data", "data.p.t.d", MessageProperties.TEXT_PLAIN, new byte[0]);
+        Assertions.assertTrue(future.isDone());
+        Mockito.verify(connection, Mockito.times(2)).createChannel();
+    }
+
+    @Test
+    void testConfirms() throws IOException {
+        Connection connection = Mockito.mock(Connection.class);
+        Channel channel = openChannel();
+        Mockito.when(connection.createChannel()).thenReturn(channel);
+        Mockito.when(channel.getNextPublishSeqNo()).thenReturn(1L, 2L, 3L, 4L);
+
+        AmqpChannelPool pool = new AmqpChannelPool(connection, 2, 50, true);
+        AmqpChannelPool.PooledChannel borrowed = pool.borrow();
+        Mockito.verify(channel).confirmSelect();
+        ArgumentCaptor<ConfirmCallback> ack = ArgumentCaptor.forClass(ConfirmCallback.class);
+        ArgumentCaptor<ConfirmCallback> nack = ArgumentCaptor.forClass(ConfirmCallback.class);
+        Mockito.verify(channel).addConfirmListener(ack.capture(), nack.capture());
+
+        CompletableFuture<Void> f1 = borrowed.publish("data", "k", MessageProperties.TEXT_PLAIN, new byte[0]);
+        CompletableFuture<Void> f2 = borrowed.publish("data", "k", MessageProperties.TEXT_PLAIN, new byte[0]);
+        CompletableFuture<Void> f3 = borrowed.publish("data", "k", MessageProperties.TEXT_PLAIN, new byte[0]);
+        CompletableFuture<Void> f4 = borrowed.publish("data", "k", MessageProperties.TEXT_PLAIN, new byte[0]);
+        pool.release(borrowed);
+        Assertions.assertEquals(4, pool.getUnconfirmed());
+        Assertions.assertFalse(f1.isDone());
+
+        // 批量确认
+        ack.getValue().handle(2, true);
+        Assertions.assertTrue(f1.isDone() && !f1.isCompletedExceptionally());
+        Assertions.assertTrue(f2.isDone() && !f2.isCompletedExceptionally());
+        Assertions.assertEquals(2, pool.getUnconfirmed());
+
+        nack.getValue().handle(3, false);
+        Assertions.assertTrue(f3.isCompletedExceptionally());
+        Assertions.assertFalse(f4.isDone());
+
+        // 关闭时未确认的消息异常结束
+        pool.close();
+        Assertions.assertTrue(f4.isCompletedExceptionally());
+        Assertions.assertEquals(0, pool.getUnconfirmed());
+        Assertions.assertThrows(IOException.class, pool::borrow);
+    }
+}
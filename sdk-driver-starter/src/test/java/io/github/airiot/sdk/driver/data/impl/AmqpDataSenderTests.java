@@ -0,0 +1,190 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.github.airiot.sdk.driver.data.impl;
+
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.ConfirmCallback;
+import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.ConnectionFactory;
+import io.github.airiot.sdk.driver.GlobalContext;
+import io.github.airiot.sdk.driver.configuration.properties.DriverAppProperties;
+import io.github.airiot.sdk.driver.configuration.properties.DriverDataProperties;
+import io.github.airiot.sdk.driver.configuration.properties.DriverMQProperties;
+import io.github.airiot.sdk.driver.data.DefaultDataHandlerChain;
+import io.github.airiot.sdk.driver.data.handlers.TagValueCache;
+import io.github.airiot.sdk.driver.model.Field;
+import io.github.airiot.sdk.driver.model.Point;
+import io.github.airiot.sdk.driver.model.Tag;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class AmqpDataSenderTests {
+
+    static class TestAmqpDataSender extends AmqpDataSender {
+
+        private final Connection connection = Mockito.mock(Connection.class);
+        private final Channel channel = Mockito.mock(Channel.class);
+        private final BlockingQueue<Point> failures = new LinkedBlockingQueue<>();
+        private final BlockingQueue<String> failureThreads = new LinkedBlockingQueue<>();
+
+        TestAmqpDataSender(DriverMQProperties.Rabbit rabbitProperties) throws Exception {
+            super(new DriverDataProperties(), appProperties(),
+                    new DefaultDataHandlerChain(new TagValueCache(), Collections.emptyList(), false),
+                    rabbitProperties, new GlobalContext(), null);
+
+            AtomicLong seqNo = new AtomicLong(1);
+            Mockito.when(this.connection.isOpen()).thenReturn(true);
+            Mockito.when(this.connection.createChannel()).thenReturn(this.channel);
+            Mockito.when(this.channel.isOpen()).thenReturn(true);
+            Mockito.when(this.channel.getNextPublishSeqNo()).thenAnswer(invocation -> seqNo.getAndIncrement());
+        }
+
+        static DriverAppProperties appProperties() {
+            DriverAppProperties properties = new DriverAppProperties();
+            properties.setProjectId("project1");
+            properties.setId("driver1");
+            properties.setInstanceId("instance1");
+            properties.setName("driver1");
+            return properties;
+        }
+
+        @Override
+        protected Connection newConnection(ConnectionFactory factory) {
+            return this.connection;
+        }
+
+        @Override
+        protected void handleDeliveryFailure(Point point, Throwable cause) {
+            this.failureThreads.add(Thread.currentThread().getName());
+            this.failures.add(point);
+        }
+
+        /**
+         * 服务端拒绝的消息的回调
+         */
+        ConfirmCallback nackCallback() throws Exception {
+            ArgumentCaptor<ConfirmCallback> ack = ArgumentCaptor.forClass(ConfirmCallback.class);
+            ArgumentCaptor<ConfirmCallback> nack = ArgumentCaptor.forClass(ConfirmCallback.class);
+            Mockito.verify(this.channel).addConfirmListener(ack.capture(), nack.capture());
+            return nack.getValue();
+        }
+    }
+
+    private TestAmqpDataSender sender;
+
+    private TestAmqpDataSender start(DriverMQProperties.Rabbit.ConfirmMode confirmMode) throws Exception {
+        DriverMQProperties.Rabbit properties = new DriverMQProperties.Rabbit();
+        properties.setConfirmMode(confirmMode);
+
+        this.sender = new TestAmqpDataSender(properties);
+        this.sender.afterPropertiesSet();
+        this.sender.start();
+        return this.sender;
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (this.sender != null) {
+            this.sender.stop();
+            this.sender.destroy();
+        }
+    }
+
+    private Point point(String deviceId) {
+        List<Field<? extends Tag>> fields = new ArrayList<>();
+        fields.add(new Field<>(new Tag("tag1", "tag1", null, null, null, null), 1));
+        return new Point(deviceId, "table1", System.currentTimeMillis(), fields, null);
+    }
+
+    /**
+     * 在模拟的连接线程中回调服务端拒绝消息
+     */
+    private static String nackOnConnectionThread(ConfirmCallback nack, long deliveryTag, boolean multiple) throws Exception {
+        ExecutorService connectionThread = Executors.newSingleThreadExecutor(r -> new Thread(r, "AMQP Connection"));
+        try {
+            connectionThread.submit(() -> {
+                nack.handle(deliveryTag, multiple);
+                return null;
+            }).get(5, TimeUnit.SECONDS);
+        } finally {
+            connectionThread.shutdown();
+        }
+        return "AMQP Connection";
+    }
+
+    @Test
+    void testAsyncConfirmFailure() throws Exception {
+        TestAmqpDataSender sender = start(DriverMQProperties.Rabbit.ConfirmMode.ASYNC);
+
+        sender.writePoint(point("device1"));
+        Assertions.assertTrue(sender.failures.isEmpty());
+
+        String connectionThread = nackOnConnectionThread(sender.nackCallback(), 1, false);
+
+        Point failure = sender.failures.poll(5, TimeUnit.SECONDS);
+        Assertions.assertNotNull(failure);
+        Assertions.assertEquals("device1", failure.getId());
+        String failureThread = sender.failureThreads.poll();
+        Assertions.assertNotEquals(connectionThread, failureThread);
+        Assertions.assertTrue(failureThread.startsWith("DeliveryFailure-"), failureThread);
+    }
+
+    @Test
+    void testAsyncConfirmWritePointsFailure() throws Exception {
+        TestAmqpDataSender sender = start(DriverMQProperties.Rabbit.ConfirmMode.ASYNC);
+
+        sender.writePoints(Arrays.asList(point("device1"), point("device2")));
+        Assertions.assertTrue(sender.failures.isEmpty());
+
+        nackOnConnectionThread(sender.nackCallback(), 2, true);
+
+        for (int i = 0; i < 2; i++) {
+            Assertions.assertNotNull(sender.failures.poll(5, TimeUnit.SECONDS));
+            String failureThread = sender.failureThreads.poll();
+            Assertions.assertTrue(failureThread.startsWith("DeliveryFailure-"), failureThread);
+        }
+    }
+
+    @Test
+    void testWritePointAsyncConfirmFailure() throws Exception {
+        TestAmqpDataSender sender = start(DriverMQProperties.Rabbit.ConfirmMode.ASYNC);
+
+        CompletableFuture<Void> future = sender.writePointAsync(point("device1"));
+        Assertions.assertFalse(future.isDone());
+
+        nackOnConnectionThread(sender.nackCallback(), 1, false);
+
+        Assertions.assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        Point failure = sender.failures.poll(5, TimeUnit.SECONDS);
+        Assertions.assertNotNull(failure);
+        Assertions.assertEquals("device1", failure.getId());
+        String failureThread = sender.failureThreads.poll();
+        Assertions.assertTrue(failureThread.startsWith("DeliveryFailure-"), failureThread);
+    }
+}
@@ -0,0 +1,292 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.airiot.sdk.driver.data.impl;
+
+import io.github.airiot.sdk.driver.GlobalContext;
+import io.github.airiot.sdk.driver.configuration.properties.DriverAppProperties;
+import io.github.airiot.sdk.driver.configuration.properties.DriverDataProperties;
+import io.github.airiot.sdk.driver.configuration.properties.DriverMQProperties;
+import io.github.airiot.sdk.driver.data.DataSenderException;
+import io.github.airiot.sdk.driver.data.DefaultDataHandlerChain;
+import io.github.airiot.sdk.driver.data.WritePointResult;
+import io.github.airiot.sdk.driver.data.handlers.TagValueCache;
+import io.github.airiot.sdk.driver.model.Field;
+import io.github.airiot.sdk.driver.model.Point;
+import io.github.airiot.sdk.driver.model.Tag;
+import org.apache.kafka.clients.producer.Callback;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.serialization.BytesSerializer;
+import org.apache.kafka.common.utils.Bytes;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+
+public class KafkaDataSenderTests {
+
+    static class TestKafkaDataSender extends KafkaDataSender {
+
+        private final MockProducer<Bytes, Bytes> producer;
+        private Map<String, Object> configs;
+        private final BlockingQueue<Point> failures = new LinkedBlockingQueue<>();
+        private final BlockingQueue<String> failureThreads = new LinkedBlockingQueue<>();
+
+        TestKafkaDataSender(DriverMQProperties.Kafka.DeliveryMode deliveryMode, boolean autoComplete) {
+            this(kafkaProperties(deliveryMode), new MockProducer<>(autoComplete, new BytesSerializer(), new BytesSerializer()));
+        }
+
+        TestKafkaDataSender(DriverMQProperties.Kafka kafkaProperties, MockProducer<Bytes, Bytes> producer) {
+            super(new DriverDataProperties(), appProperties(), kafkaProperties, new GlobalContext(),
+                    new DefaultDataHandlerChain(new TagValueCache(), Collections.emptyList(), false), null);
+            this.producer = producer;
+        }
+
+        static DriverAppProperties appProperties() {
+            DriverAppProperties properties = new DriverAppProperties();
+            properties.setProjectId("project1");
+            properties.setId("driver1");
+            properties.setInstanceId("instance1");
+            properties.setName("driver1");
+            return properties;
+        }
+
+        static DriverMQProperties.Kafka kafkaProperties(DriverMQProperties.Kafka.DeliveryMode deliveryMode) {
+            DriverMQProperties.Kafka properties = new DriverMQProperties.Kafka();
+            properties.setDeliveryMode(deliveryMode);
+            return properties;
+        }
+
+        @Override
+        protected Producer<Bytes, Bytes> createProducer(Map<String, Object> configs) {
+            this.configs = configs;
+            if (this.producer instanceof LingerProducer) {
+                ((LingerProducer) this.producer).linger = (int) configs.get(ProducerConfig.LINGER_MS_CONFIG);
+            }
+            return this.producer;
+        }
+
+        @Override
+        protected void handleDeliveryFailure(Point point, Throwable cause) {
+            this.failureThreads.add(Thread.currentThread().getName());
+            this.failures.add(point);
+        }
+    }
+
+    /**
+     * 模拟客户端组成批次的等待: 消息在 linger.ms 之后才发送完成
+     */
+    static class LingerProducer extends MockProducer<Bytes, Bytes> {
+
+        private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        private volatile int linger;
+
+        LingerProducer() {
+            super(false, new BytesSerializer(), new BytesSerializer());
+        }
+
+        @Override
+        public synchronized Future<RecordMetadata> send(ProducerRecord<Bytes, Bytes> record, Callback callback) {
+            Future<RecordMetadata> future = super.send(record, callback);
+            this.scheduler.schedule(this::completeNext, this.linger, TimeUnit.MILLISECONDS);
+            return future;
+        }
+
+        @Override
+        public synchronized void close() {
+            super.close();
+            this.scheduler.shutdownNow();
+        }
+    }
+
+    private TestKafkaDataSender sender;
+
+    private TestKafkaDataSender start(DriverMQProperties.Kafka.DeliveryMode deliveryMode, boolean autoComplete) throws Exception {
+        this.sender = new TestKafkaDataSender(deliveryMode, autoComplete);
+        this.sender.afterPropertiesSet();
+        this.sender.start();
+        return this.sender;
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (this.sender != null) {
+            this.sender.stop();
+            this.sender.destroy();
+        }
+    }
+
+    private Point point(String deviceId) {
+        List<Field<? extends Tag>> fields = new ArrayList<>();
+        fields.add(new Field<>(new Tag("tag1", "tag1", null, null, null, null), 1));
+        return new Point(deviceId, "table1", System.currentTimeMillis(), fields, null);
+    }
+
+    @Test
+    void testSyncSuccess() throws Exception {
+        TestKafkaDataSender sender = start(DriverMQProperties.Kafka.DeliveryMode.SYNC, true);
+
+        sender.writePoint(point("device1"));
+
+        List<ProducerRecord<Bytes, Bytes>> history = sender.producer.history();
+        Assertions.assertEquals(1, history.size());
+        Assertions.assertEquals("data", history.get(0).topic());
+        Assertions.assertEquals("project1/table1/device1", new String(history.get(0).key().get(), StandardCharsets.UTF_8));
+        Assertions.assertTrue(sender.failures.isEmpty());
+    }
+
+    @Test
+    void testLingerByDeliveryMode() throws Exception {
+        Assertions.assertEquals(0, start(DriverMQProperties.Kafka.DeliveryMode.SYNC, true).configs.get(ProducerConfig.LINGER_MS_CONFIG));
+        tearDown();
+        Assertions.assertEquals(500, start(DriverMQProperties.Kafka.DeliveryMode.ASYNC, true).configs.get(ProducerConfig.LINGER_MS_CONFIG));
+        tearDown();
+
+        // 配置的等待时间优先
+        DriverMQProperties.Kafka properties = TestKafkaDataSender.kafkaProperties(DriverMQProperties.Kafka.DeliveryMode.SYNC);
+        properties.setLinger(Duration.ofMillis(20));
+        this.sender = new TestKafkaDataSender(properties, new MockProducer<>(true, new BytesSerializer(), new BytesSerializer()));
+        this.sender.afterPropertiesSet();
+        this.sender.start();
+        Assertions.assertEquals(20, this.sender.configs.get(ProducerConfig.LINGER_MS_CONFIG));
+    }
+
+    @Test
+    void testSyncSendDoesNotWaitForLinger() throws Exception {
+        LingerProducer producer = new LingerProducer();
+        this.sender = new TestKafkaDataSender(TestKafkaDataSender.kafkaProperties(DriverMQProperties.Kafka.DeliveryMode.SYNC), producer);
+        this.sender.afterPropertiesSet();
+        this.sender.start();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 10; i++) {
+            this.sender.writePoint(point("device" + i));
+        }
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        Assertions.assertEquals(10, producer.history().size());
+        // 使用异步发送的默认等待时间时, 10 条数据至少需要 5 秒
+        Assertions.assertTrue(elapsedMs < 2000, "elapsed " + elapsedMs + "ms");
+    }
+
+    @Test
+    void testSyncFailure() throws Exception {
+        TestKafkaDataSender sender = start(DriverMQProperties.Kafka.DeliveryMode.SYNC, false);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> result = executor.submit(() -> sender.writePoint(point("device1")));
+            while (sender.producer.history().isEmpty()) {
+                Thread.sleep(10);
+            }
+            Assertions.assertTrue(sender.producer.errorNext(new RuntimeException("broker unavailable")));
+
+            ExecutionException e = Assertions.assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+            Assertions.assertInstanceOf(DataSenderException.class, e.getCause());
+            // 同步发送的失败直接抛给调用方, 不交由发送失败处理
+            Assertions.assertTrue(sender.failures.isEmpty());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testSyncWritePoints() throws Exception {
+        TestKafkaDataSender sender = start(DriverMQProperties.Kafka.DeliveryMode.SYNC, false);
+
+        List<WritePointResult> results = sender.writePoints(Arrays.asList(point("device1"), point("device2")));
+
+        Assertions.assertEquals(2, results.size());
+        Assertions.assertTrue(results.get(0).isSuccess());
+        Assertions.assertTrue(results.get(1).isSuccess());
+        Assertions.assertEquals(2, sender.producer.history().size());
+    }
+
+    @Test
+    void testAsyncSuccess() throws Exception {
+        TestKafkaDataSender sender = start(DriverMQProperties.Kafka.DeliveryMode.ASYNC, false);
+
+        sender.writePoint(point("device1"));
+        Assertions.assertEquals(1, sender.producer.history().size());
+        Assertions.assertTrue(sender.producer.completeNext());
+
+        Assertions.assertNull(sender.failures.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void testAsyncFailure() throws Exception {
+        TestKafkaDataSender sender = start(DriverMQProperties.Kafka.DeliveryMode.ASYNC, false);
+
+        sender.writePoint(point("device1"));
+        Assertions.assertTrue(sender.producer.errorNext(new RuntimeException("broker unavailable")));
+
+        Point failed = sender.failures.poll(5, TimeUnit.SECONDS);
+        Assertions.assertNotNull(failed);
+        Assertions.assertEquals("device1", failed.getId());
+        // 不在发送回调线程中处理
+        Assertions.assertTrue(sender.failureThreads.poll().startsWith("DeliveryFailure-"));
+    }
+
+    @Test
+    void testAsyncWritePointsFailure() throws Exception {
+        TestKafkaDataSender sender = start(DriverMQProperties.Kafka.DeliveryMode.ASYNC, false);
+
+        List<WritePointResult> results = sender.writePoints(Arrays.asList(point("device1"), point("device2")));
+        Assertions.assertTrue(results.get(0).isSuccess());
+        Assertions.assertTrue(results.get(1).isSuccess());
+
+        Assertions.assertTrue(sender.producer.completeNext());
+        Assertions.assertTrue(sender.producer.errorNext(new RuntimeException("broker unavailable")));
+
+        Point failed = sender.failures.poll(5, TimeUnit.SECONDS);
+        Assertions.assertNotNull(failed);
+        Assertions.assertEquals("device2", failed.getId());
+        Assertions.assertNull(sender.failures.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void testWritePointAsync() throws Exception {
+        TestKafkaDataSender sender = start(DriverMQProperties.Kafka.DeliveryMode.ASYNC, false);
+
+        CompletableFuture<Void> success = sender.writePointAsync(point("device1"));
+        CompletableFuture<Void> failure = sender.writePointAsync(point("device2"));
+        Assertions.assertFalse(success.isDone());
+        Assertions.assertFalse(failure.isDone());
+
+        Assertions.assertTrue(sender.producer.completeNext());
+        Assertions.assertTrue(sender.producer.errorNext(new RuntimeException("broker unavailable")));
+
+        Assertions.assertNull(success.get(5, TimeUnit.SECONDS));
+        ExecutionException e = Assertions.assertThrows(ExecutionException.class, () -> failure.get(5, TimeUnit.SECONDS));
+        Assertions.assertInstanceOf(DataSenderException.class, e.getCause());
+
+        Point failed = sender.failures.poll(5, TimeUnit.SECONDS);
+        Assertions.assertNotNull(failed);
+        Assertions.assertEquals("device2", failed.getId());
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.airiot.sdk.driver.data.impl;
+
+import io.github.airiot.sdk.driver.GlobalContext;
+import io.github.airiot.sdk.driver.configuration.properties.DriverAppProperties;
+import io.github.airiot.sdk.driver.configuration.properties.DriverDataProperties;
+import io.github.airiot.sdk.driver.configuration.properties.DriverMQProperties;
+import io.github.airiot.sdk.driver.data.DataSenderException;
+import io.github.airiot.sdk.driver.data.DefaultDataHandlerChain;
+import io.github.airiot.sdk.driver.data.WritePointResult;
+import io.github.airiot.sdk.driver.data.handlers.TagValueCache;
+import io.github.airiot.sdk.driver.model.Field;
+import io.github.airiot.sdk.driver.model.Point;
+import io.github.airiot.sdk.driver.model.Tag;
+import org.eclipse.paho.client.mqttv3.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+
+public class MQTTDataSenderTests {
+
+    static class TestMQTTDataSender extends MQTTDataSender {
+
+        private final MqttAsyncClient client = Mockito.mock(MqttAsyncClient.class);
+        /**
+         * 已发送但未完成的消息的回调
+         */
+        private final BlockingQueue<IMqttActionListener> listeners = new LinkedBlockingQueue<>();
+        private final BlockingQueue<Point> failures = new LinkedBlockingQueue<>();
+        private final BlockingQueue<String> failureThreads = new LinkedBlockingQueue<>();
+
+        TestMQTTDataSender(DriverMQProperties.Mqtt mqttProperties) throws MqttException {
+            super(new DefaultDataHandlerChain(new TagValueCache(), Collections.emptyList(), false), new DriverDataProperties(),
+                    appProperties(), mqttProperties, new GlobalContext(), null);
+
+            IMqttToken token = Mockito.mock(IMqttToken.class);
+            Mockito.when(client.connect(ArgumentMatchers.any())).thenReturn(token);
+            Mockito.when(client.disconnect(ArgumentMatchers.anyLong())).thenReturn(token);
+            Mockito.when(client.isConnected()).thenReturn(true);
+            Mockito.when(client.publish(ArgumentMatchers.anyString(), ArgumentMatchers.any(byte[].class), ArgumentMatchers.anyInt(),
+                    ArgumentMatchers.anyBoolean(), ArgumentMatchers.any(), ArgumentMatchers.any())).thenAnswer(invocation -> {
+                listeners.add(invocation.getArgument(5));
+                return null;
+            });
+        }
+
+        static DriverAppProperties appProperties() {
+            DriverAppProperties properties = new DriverAppProperties();
+            properties.setProjectId("project1");
+            properties.setId("driver1");
+            properties.setInstanceId("instance1");
+            properties.setName("driver1");
+            return properties;
+        }
+
+        @Override
+        protected MqttAsyncClient newClient(String broker, String clientId, MqttClientPersistence persistence) {
+            return this.client;
+        }
+
+        @Override
+        protected void handleDeliveryFailure(Point point, Throwable cause) {
+            this.failureThreads.add(Thread.currentThread().getName());
+            this.failures.add(point);
+        }
+
+        IMqttActionListener nextListener() throws InterruptedException {
+            IMqttActionListener listener = this.listeners.poll(5, TimeUnit.SECONDS);
+            Assertions.assertNotNull(listener);
+            return listener;
+        }
+    }
+
+    private TestMQTTDataSender sender;
+
+    private TestMQTTDataSender start(DriverMQProperties.Mqtt.DeliveryMode deliveryMode, int maxInflight) throws Exception {
+        DriverMQProperties.Mqtt properties = new DriverMQProperties.Mqtt();
+        properties.setDeliveryMode(deliveryMode);
+        properties.setMaxInflight(maxInflight);
+        properties.setActionTimeout(Duration.ofSeconds(5));
+        properties.setPublishTimeout(Duration.ofMillis(100));
+
+        this.sender = new TestMQTTDataSender(properties);
+        this.sender.afterPropertiesSet();
+        this.sender.start();
+        return this.sender;
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (this.sender != null) {
+            this.sender.stop();
+            this.sender.destroy();
+        }
+    }
+
+    private Point point(String deviceId) {
+        List<Field<? extends Tag>> fields = new ArrayList<>();
+        fields.add(new Field<>(new Tag("tag1", "tag1", null, null, null, null), 1));
+        return new Point(deviceId, "table1", System.currentTimeMillis(), fields, null);
+    }
+
+    @Test
+    void testInflightWindow() throws Exception {
+        TestMQTTDataSender sender = start(DriverMQProperties.Mqtt.DeliveryMode.ASYNC, 2);
+
+        sender.writePoint(point("device1"));
+        sender.writePoint(point("device2"));
+        Assertions.assertEquals(2, sender.getInflight());
+
+        // 发送窗口已满, 等待 publishTimeout 后失败
+        Assertions.assertThrows(DataSenderException.class, () -> sender.writePoint(point("device3")));
+        Assertions.assertEquals(2, sender.getInflight());
+
+        // 发送成功和失败都会释放发送窗口
+        sender.nextListener().onSuccess(null);
+        Assertions.assertEquals(1, sender.getInflight());
+        sender.nextListener().onFailure(null, new MqttException(MqttException.REASON_CODE_CONNECTION_LOST));
+        Assertions.assertEquals(0, sender.getInflight());
+
+        sender.writePoint(point("device4"));
+        Assertions.assertEquals(1, sender.getInflight());
+        Assertions.assertEquals(1, sender.getPublishMetrics().getCount());
+    }
+
+    @Test
+    void testAsyncFailure() throws Exception {
+        TestMQTTDataSender sender = start(DriverMQProperties.Mqtt.DeliveryMode.ASYNC, 10);
+
+        sender.writePoint(point("device1"));
+        sender.nextListener().onFailure(null, new MqttException(MqttException.REASON_CODE_CONNECTION_LOST));
+
+        Point failed = sender.failures.poll(5, TimeUnit.SECONDS);
+        Assertions.assertNotNull(failed);
+        Assertions.assertEquals("device1", failed.getId());
+        // 不在发送回调线程中处理
+        Assertions.assertTrue(sender.failureThreads.poll().startsWith("DeliveryFailure-"));
+
+        CompletableFuture<Void> future = sender.writePointAsync(point("device2"));
+        sender.nextListener().onFailure(null, new MqttException(MqttException.REASON_CODE_CONNECTION_LOST));
+        ExecutionException e = Assertions.assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        Assertions.assertInstanceOf(DataSenderException.class, e.getCause());
+        Assertions.assertEquals("device2", sender.failures.poll(5, TimeUnit.SECONDS).getId());
+    }
+
+    @Test
+    void testSyncWritePoints() throws Exception {
+        TestMQTTDataSender sender = start(DriverMQProperties.Mqtt.DeliveryMode.SYNC, 10);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<List<WritePointResult>> future = executor.submit(() ->
+                    sender.writePoints(Arrays.asList(point("device1"), point("device2"), point("device3"))));
+
+            // 先发送全部数据再等待发送完成
+            IMqttActionListener first = sender.nextListener();
+            IMqttActionListener second = sender.nextListener();
+            IMqttActionListener third = sender.nextListener();
+            Assertions.assertEquals(3, sender.getInflight());
+
+            third.onSuccess(null);
+            second.onFailure(null, new MqttException(MqttException.REASON_CODE_CONNECTION_LOST));
+            first.onSuccess(null);
+
+            List<WritePointResult> results = future.get(5, TimeUnit.SECONDS);
+            Assertions.assertEquals(3, results.size());
+            Assertions.assertTrue(results.get(0).isSuccess());
+            Assertions.assertFalse(results.get(1).isSuccess());
+            Assertions.assertInstanceOf(DataSenderException.class, results.get(1).getError());
+            Assertions.assertEquals("device2", results.get(1).getPoint().getId());
+            Assertions.assertTrue(results.get(2).isSuccess());
+            Assertions.assertEquals(0, sender.getInflight());
+            // 同步发送的失败通过结果返回, 不交由发送失败处理
+            Assertions.assertTrue(sender.failures.isEmpty());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
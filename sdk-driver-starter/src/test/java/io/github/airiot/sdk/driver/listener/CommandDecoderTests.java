@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.github.airiot.sdk.driver.listener;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import com.google.protobuf.ByteString;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+public class CommandDecoderTests {
+
+    public static class Command {
+        private String name;
+        private Map<String, Object> params;
+
+        public String getName() {
+            return name;
+        }
+
+        public Map<String, Object> getParams() {
+            return params;
+        }
+    }
+
+    private static String json(int params) {
+        StringBuilder sb = new StringBuilder("{\"name\":\"设置转速\",\"params\":{");
+        for (int i = 0; i < params; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("\"p").append(i).append("\":").append(i);
+        }
+        return sb.append("}}").toString();
+    }
+
+    @Test
+    void testDecode() {
+        CommandDecoder decoder = new CommandDecoder(new Gson(), Command.class);
+
+        for (int params : new int[]{2, 1000}) {
+            ByteString payload = ByteString.copyFromUtf8(json(params));
+            Assertions.assertEquals(params > 2, payload.size() > CommandDecoder.STREAM_THRESHOLD);
+
+            Command command = (Command) decoder.decode(payload);
+            Assertions.assertEquals("设置转速", command.getName());
+            Assertions.assertEquals(params, command.getParams().size());
+            Assertions.assertEquals(1.0, command.getParams().get("p1"));
+        }
+
+        Assertions.assertNull(decoder.decode(ByteString.EMPTY));
+        Assertions.assertThrows(JsonSyntaxException.class, () -> decoder.decode(ByteString.copyFromUtf8("{\"name\":")));
+        Assertions.assertThrows(JsonSyntaxException.class,
+                () -> decoder.decode(ByteString.copyFromUtf8(json(1000).replace("\"p999\"", "\"p999"))));
+    }
+
+    @Test
+    void testText() {
+        ByteString payload = ByteString.copyFromUtf8(json(2));
+        Object text = CommandDecoder.text(payload);
+        Assertions.assertEquals(json(2), text.toString());
+        Assertions.assertSame(text.toString(), text.toString());
+    }
+}
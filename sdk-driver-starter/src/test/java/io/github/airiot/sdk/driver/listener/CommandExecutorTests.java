@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.github.airiot.sdk.driver.listener;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CommandExecutorTests {
+
+    private static Runnable await(CountDownLatch latch) {
+        return () -> {
+            try {
+                latch.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+    }
+
+    @Test
+    void testPriority() throws InterruptedException {
+        CommandExecutor executor = new CommandExecutor(1, 16, true);
+        executor.start();
+        try {
+            CountDownLatch blocker = new CountDownLatch(1);
+            CountDownLatch started = new CountDownLatch(1);
+            Assertions.assertTrue(executor.submit(CommandExecutor.Priority.RUN, null, () -> {
+                started.countDown();
+                await(blocker).run();
+            }));
+            Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            List<String> executed = new CopyOnWriteArrayList<>();
+            CountDownLatch done = new CountDownLatch(4);
+            for (String name : Arrays.asList("run-1", "batch-1", "write-1", "run-2")) {
+                CommandExecutor.Priority priority = name.startsWith("run") ? CommandExecutor.Priority.RUN
+                        : name.startsWith("batch") ? CommandExecutor.Priority.BATCH_RUN : CommandExecutor.Priority.WRITE_TAG;
+                executor.submit(priority, null, () -> {
+                    executed.add(name);
+                    done.countDown();
+                });
+            }
+
+            CommandExecutor.Metrics metrics = executor.metrics();
+            Assertions.assertEquals(1, metrics.getActive());
+            Assertions.assertArrayEquals(new int[]{1, 1, 2}, metrics.getQueueDepths());
+
+            blocker.countDown();
+            Assertions.assertTrue(done.await(5, TimeUnit.SECONDS));
+            Assertions.assertEquals(Arrays.asList("write-1", "batch-1", "run-1", "run-2"), executed);
+            Assertions.assertArrayEquals(new long[]{1, 1, 3}, executor.metrics().getSubmitted());
+        } finally {
+            executor.stop();
+        }
+    }
+
+    @Test
+    void testSerialByKey() throws InterruptedException {
+        CommandExecutor executor = new CommandExecutor(4, 64, true);
+        executor.start();
+        try {
+            AtomicInteger running = new AtomicInteger();
+            AtomicInteger maxRunning = new AtomicInteger();
+            List<Integer> executed = new CopyOnWriteArrayList<>();
+            CountDownLatch done = new CountDownLatch(20);
+            for (int i = 0; i < 20; i++) {
+                int n = i;
+                executor.submit(CommandExecutor.Priority.RUN, "table1/device1", () -> {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    try {
+                        Thread.sleep(1);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    executed.add(n);
+                    running.decrementAndGet();
+                    done.countDown();
+                });
+            }
+
+            Assertions.assertTrue(done.await(5, TimeUnit.SECONDS));
+            Assertions.assertEquals(1, maxRunning.get());
+            for (int i = 0; i < 20; i++) {
+                Assertions.assertEquals(i, executed.get(i));
+            }
+        } finally {
+            executor.stop();
+        }
+    }
+
+    @Test
+    void testReject() throws InterruptedException {
+        CommandExecutor executor = new CommandExecutor(1, 2, true);
+        executor.start();
+        try {
+            CountDownLatch blocker = new CountDownLatch(1);
+            CountDownLatch started = new CountDownLatch(1);
+            executor.submit(CommandExecutor.Priority.RUN, "device1", () -> {
+                started.countDown();
+                await(blocker).run();
+            });
+            Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            // 等待同一设备的指令执行完成的指令也计入容量
+            Assertions.assertTrue(executor.submit(CommandExecutor.Priority.RUN, "device1", () -> {
+            }));
+            Assertions.assertTrue(executor.submit(CommandExecutor.Priority.WRITE_TAG, "device2", () -> {
+            }));
+            Assertions.assertFalse(executor.submit(CommandExecutor.Priority.WRITE_TAG, "device3", () -> {
+            }));
+
+            CommandExecutor.Metrics metrics = executor.metrics();
+            Assertions.assertEquals(1, metrics.getRejected());
+            Assertions.assertEquals(1, metrics.getWaiting());
+            blocker.countDown();
+        } finally {
+            executor.stop();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.airiot.sdk.driver.listener;
+
+import com.alibaba.fastjson2.TypeReference;
+import com.google.protobuf.ByteString;
+import io.github.airiot.sdk.driver.config.BasicConfig;
+import io.github.airiot.sdk.driver.config.DriverSingleConfig;
+import io.github.airiot.sdk.driver.model.Tag;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+public class StartConfigTests {
+
+    public static class MyTag extends Tag {
+        private Integer address;
+
+        public Integer getAddress() {
+            return address;
+        }
+
+        public void setAddress(Integer address) {
+            this.address = address;
+        }
+    }
+
+    public static class MyConfig extends BasicConfig<MyTag> {
+        private String host;
+
+        public String getHost() {
+            return host;
+        }
+
+        public void setHost(String host) {
+            this.host = host;
+        }
+    }
+
+    private static final String CONFIG = "{\"id\":\"instance1\",\"name\":\"驱动实例\",\"device\":{\"host\":\"127.0.0.1\",\"tags\":[{\"id\":\"tag1\",\"address\":1}]}," +
+            "\"tables\":[{\"id\":\"table1\",\"device\":{\"tags\":[{\"id\":\"tag2\",\"address\":2}]}," +
+            "\"devices\":[{\"id\":\"device1\",\"device\":{\"host\":\"127.0.0.2\",\"tags\":[{\"id\":\"tag3\",\"address\":3,\"fixed\":2}]}}]}]}";
+
+    @Test
+    void testSdkConfigType() {
+        Assertions.assertTrue(GrpcDriverEventListener.isSdkConfigType(
+                new TypeReference<DriverSingleConfig<MyConfig>>() {
+                }.getType(), MyTag.class));
+        Assertions.assertTrue(GrpcDriverEventListener.isSdkConfigType(
+                new TypeReference<DriverSingleConfig<BasicConfig<MyTag>>>() {
+                }.getType(), MyTag.class));
+
+        // 数据点类型不一致
+        Assertions.assertFalse(GrpcDriverEventListener.isSdkConfigType(
+                new TypeReference<DriverSingleConfig<MyConfig>>() {
+                }.getType(), Tag.class));
+        Assertions.assertFalse(GrpcDriverEventListener.isSdkConfigType(
+                new TypeReference<DriverSingleConfig<Map<String, Object>>>() {
+                }.getType(), MyTag.class));
+        Assertions.assertFalse(GrpcDriverEventListener.isSdkConfigType(MyConfig.class, MyTag.class));
+    }
+
+    @Test
+    void testParseConfig() throws IOException {
+        Type type = new TypeReference<DriverSingleConfig<MyConfig>>() {
+        }.getType();
+        DriverSingleConfig<MyConfig> config = GrpcDriverEventListener.parseConfig(ByteString.copyFrom(CONFIG, StandardCharsets.UTF_8), type);
+
+        Assertions.assertEquals("驱动实例", config.getName());
+        Assertions.assertEquals("127.0.0.1", config.getConfig().getHost());
+        Assertions.assertEquals(1, config.getConfig().getTags().get(0).getAddress());
+
+        MyConfig deviceConfig = config.getTables().get(0).getDevices().get(0).getConfig();
+        Assertions.assertEquals("127.0.0.2", deviceConfig.getHost());
+        Assertions.assertEquals(MyTag.class, deviceConfig.getTags().get(0).getClass());
+        Assertions.assertEquals(3, deviceConfig.getTags().get(0).getAddress());
+        Assertions.assertEquals(2, deviceConfig.getTags().get(0).getFixed());
+    }
+}
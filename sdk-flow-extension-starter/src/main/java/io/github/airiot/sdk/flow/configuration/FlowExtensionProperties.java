@@ -54,6 +54,15 @@ public class FlowExtensionProperties {
      * 如果为 0 则取当前主机的 CPU 核心数量
      */
     private int maxThreads = 0;
+    /**
+     * 每个扩展节点最多同时处理的执行请求数量, 达到上限后执行完成一个请求才会从流程引擎接收下一个.
+     * 如果为 0, 则为线程池可以容纳的任务数量 (即最大线程数量与等待队列长度之和) 平均分配到每个扩展节点
+     */
+    private int runWindow = 0;
+    /**
+     * 每个扩展节点最多同时处理的 schema 请求数量
+     */
+    private int schemaWindow = 1;
 
     public String getHost() {
         return host;
@@ -95,6 +104,22 @@ public class FlowExtensionProperties {
         this.heartbeatInterval = heartbeatInterval;
     }
     
+    public int getRunWindow() {
+        return runWindow;
+    }
+
+    public void setRunWindow(int runWindow) {
+        this.runWindow = runWindow;
+    }
+
+    public int getSchemaWindow() {
+        return schemaWindow;
+    }
+
+    public void setSchemaWindow(int schemaWindow) {
+        this.schemaWindow = schemaWindow;
+    }
+
     public int getMaxThreads() {
         return maxThreads;
     }
@@ -22,6 +22,8 @@ import cn.airiot.sdk.client.dubbo.grpc.engine.ExtensionRunRequest;
 import cn.airiot.sdk.client.dubbo.grpc.engine.ExtensionSchemaRequest;
 import com.google.gson.Gson;
 import com.google.protobuf.ByteString;
+import io.github.airiot.sdk.grpc.StreamFlowControl;
+import io.github.airiot.sdk.grpc.StreamWriter;
 import io.grpc.ClientCall;
 import io.grpc.Metadata;
 import io.grpc.Status;
@@ -29,6 +31,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.nio.charset.StandardCharsets;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadPoolExecutor;
 
 class FlowExtensionHandler {
@@ -50,11 +53,13 @@ class FlowExtensionHandler {
     public FlowExtensionHandler(FlowExtensionDelegate extension,
                                 ThreadPoolExecutor executor,
                                 ClientCall<ExtensionResult, ExtensionSchemaRequest> schemaCall,
-                                ClientCall<ExtensionResult, ExtensionRunRequest> runCall) {
+                                StreamFlowControl schemaFlow,
+                                ClientCall<ExtensionResult, ExtensionRunRequest> runCall,
+                                StreamFlowControl runFlow) {
         this.schemaCall = schemaCall;
         this.runCall = runCall;
-        this.schemaHandler = new SchemaHandler(extension, schemaCall);
-        this.runHandler = new RunHandler(extension, executor, runCall);
+        this.schemaHandler = new SchemaHandler(extension, schemaCall, schemaFlow);
+        this.runHandler = new RunHandler(extension, executor, runCall, runFlow);
     }
 
     public void close() {
@@ -67,30 +72,55 @@ class FlowExtensionHandler {
         private final Gson gson = new Gson();
         private final ThreadPoolExecutor executor;
         private final FlowExtensionDelegate delegate;
-        private final ClientCall<ExtensionResult, ExtensionRunRequest> call;
+        private final StreamWriter<ExtensionResult> writer;
+        private final StreamFlowControl flowControl;
 
         public RunHandler(FlowExtensionDelegate delegate,
                           ThreadPoolExecutor executor,
-                          ClientCall<ExtensionResult, ExtensionRunRequest> call) {
+                          ClientCall<ExtensionResult, ExtensionRunRequest> call,
+                          StreamFlowControl flowControl) {
             this.logger = LoggerFactory.getLogger(delegate.getId() + "#run");
             this.executor = executor;
             this.delegate = delegate;
-            this.call = call;
+            this.writer = new StreamWriter<>(call, this.logger);
+            this.flowControl = flowControl;
         }
 
         @Override
         public void onReady() {
             logger.info("就绪");
+            this.writer.onReady();
+            this.flowControl.onReady();
         }
 
         @Override
         public void onClose(Status status, Metadata trailers) {
             logger.error("已关闭, status={}", status);
+            this.writer.close();
         }
 
         @Override
         public void onMessage(ExtensionRunRequest request) {
-            this.executor.execute(new AsyncRunTask(this.delegate, this.call, request));
+            AsyncRunTask task = new AsyncRunTask(this.delegate, this.writer, request);
+            try {
+                // 执行完成后再接收下一个请求
+                this.executor.execute(() -> {
+                    try {
+                        task.run();
+                    } finally {
+                        this.flowControl.release();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                logger.warn("线程池已满, 拒绝执行, request: {}", request.getRequest());
+                this.writer.write(ExtensionResult.newBuilder()
+                        .setRequest(request.getRequest())
+                        .setStatus(false)
+                        .setInfo("扩展节点繁忙")
+                        .setDetail("等待执行的请求数量已达到上限, 请稍后重试")
+                        .build());
+                this.flowControl.release();
+            }
         }
     }
 
@@ -98,27 +128,41 @@ class FlowExtensionHandler {
 
         private final Logger logger;
         private final FlowExtensionDelegate delegate;
-        private final ClientCall<ExtensionResult, ExtensionSchemaRequest> call;
+        private final StreamWriter<ExtensionResult> writer;
+        private final StreamFlowControl flowControl;
 
         public SchemaHandler(FlowExtensionDelegate delegate,
-                             ClientCall<ExtensionResult, ExtensionSchemaRequest> call) {
+                             ClientCall<ExtensionResult, ExtensionSchemaRequest> call,
+                             StreamFlowControl flowControl) {
             this.logger = LoggerFactory.getLogger(delegate.getId() + "#schema");
             this.delegate = delegate;
-            this.call = call;
+            this.writer = new StreamWriter<>(call, this.logger);
+            this.flowControl = flowControl;
         }
 
         @Override
         public void onReady() {
             logger.info("就绪");
+            this.writer.onReady();
+            this.flowControl.onReady();
         }
 
         @Override
         public void onClose(Status status, Metadata trailers) {
             logger.error("已关闭, status={}", status);
+            this.writer.close();
         }
 
         @Override
         public void onMessage(ExtensionSchemaRequest message) {
+            try {
+                this.handle(message);
+            } finally {
+                this.flowControl.release();
+            }
+        }
+
+        private void handle(ExtensionSchemaRequest message) {
             logger.debug("接收到请求: {}", message.getRequest());
             try {
                 String schema = this.delegate.schema();
@@ -127,7 +171,7 @@ class FlowExtensionHandler {
                     logger.debug("request: {}, schema: {}", message.getRequest(), schema);
                 }
 
-                this.call.sendMessage(ExtensionResult.newBuilder()
+                this.writer.write(ExtensionResult.newBuilder()
                         .setRequest(message.getRequest())
                         .setStatus(true)
                         .setInfo("OK")
@@ -136,7 +180,7 @@ class FlowExtensionHandler {
                         .build());
             } catch (Exception e) {
                 logger.error("获取扩展节点 schema 失败, request: {}", message.getRequest(), e);
-                this.call.sendMessage(ExtensionResult.newBuilder()
+                this.writer.write(ExtensionResult.newBuilder()
                         .setRequest(message.getRequest())
                         .setStatus(false)
                         .setInfo("调用 schema 异常")
@@ -19,6 +19,7 @@ package io.github.airiot.sdk.flow.extension;
 
 import cn.airiot.sdk.client.dubbo.grpc.engine.*;
 import io.github.airiot.sdk.flow.configuration.FlowExtensionProperties;
+import io.github.airiot.sdk.grpc.StreamFlowControl;
 import io.grpc.*;
 import org.apache.commons.codec.binary.Hex;
 import org.slf4j.Logger;
@@ -52,6 +53,10 @@ public class FlowExtensionManagement implements SmartLifecycle {
     private final Channel channel;
 
     private final ThreadPoolExecutor executor;
+    /**
+     * 每个扩展节点最多同时处理的执行请求数量
+     */
+    private final int runWindow;
 
     /**
      * 连接线程
@@ -88,6 +93,8 @@ public class FlowExtensionManagement implements SmartLifecycle {
         }
 
         this.handlers = new ArrayList<>(extensions.size());
+        this.runWindow = properties.getRunWindow() > 0 ? properties.getRunWindow()
+                : Math.max(1, (maxThreads + coreThreads) / Math.max(1, extensions.size()));
 
         this.channel = ManagedChannelBuilder.forAddress(properties.getHost(), properties.getPort())
                 .usePlaintext()
@@ -208,12 +215,15 @@ public class FlowExtensionManagement implements SmartLifecycle {
                             CallOptions.DEFAULT.withWaitForReady()
                     );
 
-                    FlowExtensionHandler handler = new FlowExtensionHandler(extension, this.executor, schemaCall, runCall);
+                    StreamFlowControl schemaFlow = new StreamFlowControl(schemaCall, this.properties.getSchemaWindow());
+                    StreamFlowControl runFlow = new StreamFlowControl(runCall, this.runWindow);
+
+                    FlowExtensionHandler handler = new FlowExtensionHandler(extension, this.executor, schemaCall, schemaFlow, runCall, runFlow);
                     schemaCall.start(handler.getSchemaHandler(), this.createMetadata(extension));
-                    schemaCall.request(Integer.MAX_VALUE);
+                    schemaFlow.start();
 
                     runCall.start(handler.getRunHandler(), this.createMetadata(extension));
-                    runCall.request(Integer.MAX_VALUE);
+                    runFlow.start();
 
                     this.handlers.add(handler);
 
@@ -49,6 +49,14 @@ public class FlowPluginProperties {
      * 心跳间隔
      */
     private Duration heartbeatInterval = Duration.ofSeconds(30);
+    /**
+     * 每个插件最多接收但尚未处理完成的执行请求数量, 达到上限后处理完成一个请求才会从流程引擎接收下一个
+     */
+    private int executeWindow = 8;
+    /**
+     * 每个插件最多接收但尚未处理完成的调试请求数量
+     */
+    private int debugWindow = 4;
 
     public String getHost() {
         return host;
@@ -89,4 +97,20 @@ public class FlowPluginProperties {
     public void setHeartbeatInterval(Duration heartbeatInterval) {
         this.heartbeatInterval = heartbeatInterval;
     }
+
+    public int getExecuteWindow() {
+        return executeWindow;
+    }
+
+    public void setExecuteWindow(int executeWindow) {
+        this.executeWindow = executeWindow;
+    }
+
+    public int getDebugWindow() {
+        return debugWindow;
+    }
+
+    public void setDebugWindow(int debugWindow) {
+        this.debugWindow = debugWindow;
+    }
 }
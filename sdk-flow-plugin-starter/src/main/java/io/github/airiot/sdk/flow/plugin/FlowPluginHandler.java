@@ -17,8 +17,10 @@
 
 package io.github.airiot.sdk.flow.plugin;
 
+import io.github.airiot.sdk.flow.configuration.FlowPluginProperties;
 import io.github.airiot.sdk.flow.plugin.debug.FlowPluginDebugHandler;
 import io.github.airiot.sdk.flow.plugin.execute.FlowPluginExecuteHandler;
+import io.github.airiot.sdk.grpc.StreamFlowControl;
 import io.grpc.CallOptions;
 import io.grpc.Channel;
 import io.grpc.ClientCall;
@@ -34,13 +36,15 @@ public class FlowPluginHandler {
     private final Logger logger = LoggerFactory.getLogger(FlowPluginHandler.class);
 
     private final Channel channel;
+    private final FlowPluginProperties properties;
     private final FlowPluginDelegate plugin;
     private final FlowPluginClosedListener listener;
     private FlowPluginExecuteHandler executeHandler;
     private FlowPluginDebugHandler debugHandler;
 
-    public FlowPluginHandler(Channel channel, FlowPluginDelegate plugin, FlowPluginClosedListener listener) {
+    public FlowPluginHandler(Channel channel, FlowPluginProperties properties, FlowPluginDelegate plugin, FlowPluginClosedListener listener) {
         this.channel = channel;
+        this.properties = properties;
         this.plugin = plugin;
         this.listener = listener;
     }
@@ -73,9 +77,10 @@ public class FlowPluginHandler {
                 CallOptions.DEFAULT.withWaitForReady()
         );
 
-        this.executeHandler = new FlowPluginExecuteHandler(executeCall, plugin, this.listener);
+        StreamFlowControl executeFlow = new StreamFlowControl(executeCall, this.properties.getExecuteWindow());
+        this.executeHandler = new FlowPluginExecuteHandler(executeCall, executeFlow, plugin, this.listener);
         executeCall.start(executeHandler, this.getMetadata());
-        executeCall.request(Integer.MAX_VALUE);
+        executeFlow.start();
 
 
         ClientCall<DebugResponse, DebugRequest> debugCall = channel.newCall(
@@ -83,9 +88,10 @@ public class FlowPluginHandler {
                 CallOptions.DEFAULT.withWaitForReady()
         );
 
-        this.debugHandler = new FlowPluginDebugHandler(debugCall, plugin, this.listener);
+        StreamFlowControl debugFlow = new StreamFlowControl(debugCall, this.properties.getDebugWindow());
+        this.debugHandler = new FlowPluginDebugHandler(debugCall, debugFlow, plugin, this.listener);
         debugCall.start(this.debugHandler, this.getMetadata());
-        debugCall.request(Integer.MAX_VALUE);
+        debugFlow.start();
 
         logger.info("注册插件: 成功, name={}, mode={}", plugin.getName(), plugin.getPluginType());
     }
@@ -20,6 +20,8 @@ package io.github.airiot.sdk.flow.plugin.debug;
 import com.google.gson.Gson;
 import com.google.protobuf.ByteString;
 import io.github.airiot.sdk.flow.plugin.*;
+import io.github.airiot.sdk.grpc.StreamFlowControl;
+import io.github.airiot.sdk.grpc.StreamWriter;
 import io.grpc.ClientCall;
 import io.grpc.Metadata;
 import io.grpc.Status;
@@ -39,14 +41,19 @@ public class FlowPluginDebugHandler extends ClientCall.Listener<DebugRequest> {
     private final Gson gson = new Gson();
 
     private final ClientCall<DebugResponse, DebugRequest> call;
+    private final StreamWriter<DebugResponse> writer;
+    private final StreamFlowControl flowControl;
     private final FlowPluginDelegate plugin;
     private final FlowPluginClosedListener listener;
 
     private final String name;
     private final String mode;
 
-    public FlowPluginDebugHandler(ClientCall<DebugResponse, DebugRequest> call, FlowPluginDelegate plugin, FlowPluginClosedListener listener) {
+    public FlowPluginDebugHandler(ClientCall<DebugResponse, DebugRequest> call, StreamFlowControl flowControl,
+                                  FlowPluginDelegate plugin, FlowPluginClosedListener listener) {
         this.call = call;
+        this.writer = new StreamWriter<>(call, this.logger);
+        this.flowControl = flowControl;
         this.plugin = plugin;
         this.name = plugin.getName();
         this.mode = plugin.getPluginType().getType();
@@ -60,6 +67,7 @@ public class FlowPluginDebugHandler extends ClientCall.Listener<DebugRequest> {
     @Override
     public void onClose(Status status, Metadata trailers) {
         logger.warn("流程插件调试流已关闭, name={}, mode={}", name, mode);
+        this.writer.close();
         if (status.getCode() != Status.Code.CANCELLED) {
             this.listener.onClose(status, trailers);
         }
@@ -68,10 +76,20 @@ public class FlowPluginDebugHandler extends ClientCall.Listener<DebugRequest> {
     @Override
     public void onReady() {
         logger.info("流程插件调试流已就绪, name={}, mode={}", name, mode);
+        this.writer.onReady();
+        this.flowControl.onReady();
     }
 
     @Override
     public void onMessage(DebugRequest request) {
+        try {
+            this.handle(request);
+        } finally {
+            this.flowControl.release();
+        }
+    }
+
+    private void handle(DebugRequest request) {
         String config = request.getConfig().toStringUtf8();
         logger.info("流程插件调试[{}-{}]: 收到请求, project={}, flowId={}, elementId={}, config={}",
                 name, mode, request.getProjectId(), request.getFlowId(), request.getElementId(), config);
@@ -112,7 +130,7 @@ public class FlowPluginDebugHandler extends ClientCall.Listener<DebugRequest> {
         }
 
         try {
-            this.call.sendMessage(response);
+            this.writer.write(response);
             logger.info("流程插件调试[{}-{}]: 处理结果已发送, project={}, flowId={}, elementId={}, elementJob={}",
                     name, mode, request.getProjectId(), request.getFlowId(), request.getElementId(), request.getElementJob());
         } catch (Exception e) {
@@ -20,6 +20,8 @@ package io.github.airiot.sdk.flow.plugin.execute;
 import com.google.gson.Gson;
 import com.google.protobuf.ByteString;
 import io.github.airiot.sdk.flow.plugin.*;
+import io.github.airiot.sdk.grpc.StreamFlowControl;
+import io.github.airiot.sdk.grpc.StreamWriter;
 import io.grpc.ClientCall;
 import io.grpc.Metadata;
 import io.grpc.Status;
@@ -39,14 +41,19 @@ public class FlowPluginExecuteHandler extends ClientCall.Listener<FlowRequest> {
     private final Gson gson = new Gson();
 
     private final ClientCall<FlowResponse, FlowRequest> call;
+    private final StreamWriter<FlowResponse> writer;
+    private final StreamFlowControl flowControl;
     private final FlowPluginDelegate plugin;
     private final FlowPluginClosedListener listener;
 
     private final String name;
     private final String mode;
 
-    public FlowPluginExecuteHandler(ClientCall<FlowResponse, FlowRequest> call, FlowPluginDelegate plugin, FlowPluginClosedListener listener) {
+    public FlowPluginExecuteHandler(ClientCall<FlowResponse, FlowRequest> call, StreamFlowControl flowControl,
+                                    FlowPluginDelegate plugin, FlowPluginClosedListener listener) {
         this.call = call;
+        this.writer = new StreamWriter<>(call, this.logger);
+        this.flowControl = flowControl;
         this.plugin = plugin;
         this.name = plugin.getName();
         this.mode = plugin.getPluginType().getType();
@@ -60,6 +67,7 @@ public class FlowPluginExecuteHandler extends ClientCall.Listener<FlowRequest> {
     @Override
     public void onClose(Status status, Metadata trailers) {
         logger.warn("流程插件已关闭, name={}, mode={}", name, mode);
+        this.writer.close();
         if (status.getCode() != Status.Code.CANCELLED) {
             this.listener.onClose(status, trailers);
         }
@@ -68,10 +76,20 @@ public class FlowPluginExecuteHandler extends ClientCall.Listener<FlowRequest> {
     @Override
     public void onReady() {
         logger.info("流程插件已就绪, name={}, mode={}", name, mode);
+        this.writer.onReady();
+        this.flowControl.onReady();
     }
 
     @Override
     public void onMessage(FlowRequest request) {
+        try {
+            this.handle(request);
+        } finally {
+            this.flowControl.release();
+        }
+    }
+
+    private void handle(FlowRequest request) {
         String config = request.getConfig().toStringUtf8();
         logger.info("流程插件[{}-{}]: 收到请求, project={}, flowId={}, job={}, elementId={}, elementJob={}, config={}",
                 name, mode, request.getProjectId(), request.getFlowId(), request.getJob(),
@@ -116,7 +134,7 @@ public class FlowPluginExecuteHandler extends ClientCall.Listener<FlowRequest> {
         }
 
         try {
-            this.call.sendMessage(response);
+            this.writer.write(response);
             logger.info("流程插件[{}-{}]: 处理结果已发送, project={}, flowId={}, job={}, elementId={}, elementJob={}",
                     name, mode, request.getProjectId(), request.getFlowId(), request.getJob(),
                     request.getElementId(), request.getElementJob());
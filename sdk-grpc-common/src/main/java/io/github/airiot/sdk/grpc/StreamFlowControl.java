@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.github.airiot.sdk.grpc;
+
+import io.grpc.ClientCall;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * gRPC 流的接收端流量控制
+ * <br>
+ * 启动时只向服务端请求 {@code window} 条消息, 之后每处理完成一条消息 (见 {@link #release()}) 再请求一条,
+ * 因此已接收但尚未处理完成的消息不会超过 {@code window} 条. 客户端处理不过来时服务端会暂停发送, 消息不会在客户端内存中堆积.
+ * <br>
+ * 处理完成时如果发送端未就绪 (即 {@link ClientCall#isReady()} 为 {@code false}, 处理结果尚未发出), 则推迟到 {@link #onReady()} 时再请求,
+ * 避免在处理结果无法及时发出时继续接收新的消息.
+ */
+public final class StreamFlowControl {
+
+    private final ClientCall<?, ?> call;
+    private final int window;
+    /**
+     * 因发送端未就绪而推迟请求的消息数量
+     */
+    private final AtomicInteger deferred = new AtomicInteger();
+
+    /**
+     * @param call   gRPC 调用
+     * @param window 最多同时处理的消息数量. 小于 1 时为 1
+     */
+    public StreamFlowControl(ClientCall<?, ?> call, int window) {
+        this.call = call;
+        this.window = Math.max(1, window);
+    }
+
+    /**
+     * 在 {@link ClientCall#start(ClientCall.Listener, io.grpc.Metadata)} 之后调用, 请求第一批消息
+     */
+    public void start() {
+        this.call.request(this.window);
+    }
+
+    /**
+     * 一条消息处理完成, 可以接收下一条消息. 可以在任意线程调用
+     */
+    public void release() {
+        if (this.call.isReady()) {
+            this.call.request(1);
+            return;
+        }
+
+        this.deferred.incrementAndGet();
+        // 与 onReady 并发时, onReady 可能在计数前已执行, 再次检查避免推迟的请求丢失
+        if (this.call.isReady()) {
+            this.onReady();
+        }
+    }
+
+    /**
+     * 发送端就绪, 由 {@link ClientCall.Listener#onReady()} 调用
+     */
+    public void onReady() {
+        int n = this.deferred.getAndSet(0);
+        if (n > 0) {
+            this.call.request(n);
+        }
+    }
+
+    int getWindow() {
+        return window;
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.github.airiot.sdk.grpc;
+
+import io.grpc.ClientCall;
+import org.slf4j.Logger;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * gRPC 流的发送端, 保证同一时刻只有一个线程调用 {@link ClientCall#sendMessage(Object)}
+ * <br>
+ * {@link ClientCall} 不是线程安全的, 多个执行线程同时发送处理结果会导致流被破坏. 发送的消息先放入无锁队列,
+ * 由当前没有其它线程在发送时的调用线程依次发出, 其它线程只负责入队, 不会阻塞.
+ * <br>
+ * 发送端未就绪 (即 {@link ClientCall#isReady()} 为 {@code false}) 时消息保留在队列中, 在 {@link #onReady()} 时继续发送.
+ * 每次发送会将队列中已有的消息一次全部发出. 队列中的消息数量受 {@link StreamFlowControl} 的接收窗口限制.
+ *
+ * @param <T> 发送的消息类型
+ */
+public final class StreamWriter<T> {
+
+    private final ClientCall<T, ?> call;
+    private final Logger logger;
+    private final Queue<T> queue = new ConcurrentLinkedQueue<>();
+    /**
+     * 发送请求的数量. 不为 0 时表示有线程正在发送, 其它线程增加计数后直接返回, 由正在发送的线程再次检查队列
+     */
+    private final AtomicInteger wip = new AtomicInteger();
+    private volatile boolean closed = false;
+
+    /**
+     * @param call   gRPC 调用
+     * @param logger 发送失败时记录日志
+     */
+    public StreamWriter(ClientCall<T, ?> call, Logger logger) {
+        this.call = call;
+        this.logger = logger;
+    }
+
+    /**
+     * 发送消息. 可以在任意线程调用
+     *
+     * @param message 消息
+     */
+    public void write(T message) {
+        if (this.closed) {
+            this.logger.warn("流已关闭, 丢弃消息: {}", message);
+            return;
+        }
+        this.queue.offer(message);
+        this.drain();
+    }
+
+    /**
+     * 发送端就绪, 由 {@link ClientCall.Listener#onReady()} 调用
+     */
+    public void onReady() {
+        this.drain();
+    }
+
+    /**
+     * 流已关闭, 由 {@link ClientCall.Listener#onClose(io.grpc.Status, io.grpc.Metadata)} 调用. 丢弃尚未发送的消息
+     */
+    public void close() {
+        this.closed = true;
+        this.queue.clear();
+    }
+
+    /**
+     * 尚未发送的消息数量
+     */
+    int pending() {
+        return this.queue.size();
+    }
+
+    private void drain() {
+        if (this.wip.getAndIncrement() != 0) {
+            return;
+        }
+
+        int missed = 1;
+        do {
+            while (!this.closed && this.call.isReady()) {
+                T message = this.queue.poll();
+                if (message == null) {
+                    break;
+                }
+                try {
+                    this.call.sendMessage(message);
+                } catch (Exception e) {
+                    this.logger.error("发送消息失败, message = {}", message, e);
+                }
+            }
+            missed = this.wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+}
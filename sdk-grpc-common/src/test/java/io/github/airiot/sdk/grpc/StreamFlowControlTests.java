@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.github.airiot.sdk.grpc;
+
+import io.grpc.ClientCall;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+public class StreamFlowControlTests {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testWindow() {
+        ClientCall<Object, Object> call = Mockito.mock(ClientCall.class);
+        Mockito.when(call.isReady()).thenReturn(true);
+
+        StreamFlowControl flowControl = new StreamFlowControl(call, 0);
+        Assertions.assertEquals(1, flowControl.getWindow());
+
+        flowControl = new StreamFlowControl(call, 8);
+        flowControl.start();
+        Mockito.verify(call).request(8);
+
+        flowControl.release();
+        flowControl.release();
+        Mockito.verify(call, Mockito.times(2)).request(1);
+
+        // 发送端就绪, 没有推迟的请求
+        flowControl.onReady();
+        Mockito.verifyNoMoreInteractions(Mockito.ignoreStubs(call));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testDeferUntilReady() {
+        ClientCall<Object, Object> call = Mockito.mock(ClientCall.class);
+        Mockito.when(call.isReady()).thenReturn(false);
+
+        StreamFlowControl flowControl = new StreamFlowControl(call, 4);
+        flowControl.start();
+        flowControl.release();
+        flowControl.release();
+        flowControl.release();
+        Mockito.verify(call, Mockito.never()).request(Mockito.intThat(n -> n < 4));
+
+        Mockito.when(call.isReady()).thenReturn(true);
+        flowControl.onReady();
+        Mockito.verify(call).request(3);
+
+        flowControl.onReady();
+        Mockito.verify(call, Mockito.times(1)).request(3);
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.github.airiot.sdk.grpc;
+
+import io.grpc.ClientCall;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class StreamWriterTests {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testSerializedSend() throws InterruptedException {
+        ClientCall<Integer, Object> call = Mockito.mock(ClientCall.class);
+        Mockito.when(call.isReady()).thenReturn(true);
+
+        AtomicInteger sending = new AtomicInteger();
+        AtomicBoolean concurrent = new AtomicBoolean(false);
+        List<Integer> sent = new ArrayList<>();
+        Mockito.doAnswer(invocation -> {
+            if (sending.incrementAndGet() > 1) {
+                concurrent.set(true);
+            }
+            sent.add(invocation.getArgument(0));
+            sending.decrementAndGet();
+            return null;
+        }).when(call).sendMessage(Mockito.any());
+
+        StreamWriter<Integer> writer = new StreamWriter<>(call, LoggerFactory.getLogger(StreamWriterTests.class));
+        int threads = 8;
+        int messages = 10000;
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            int base = t * messages;
+            new Thread(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < messages; i++) {
+                        writer.write(base + i);
+                    }
+                } catch (InterruptedException ignored) {
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+        start.countDown();
+        done.await();
+
+        Assertions.assertFalse(concurrent.get());
+        Assertions.assertEquals(threads * messages, sent.size());
+        Assertions.assertEquals(0, writer.pending());
+
+        // 同一线程写入的消息按写入顺序发送
+        int[] last = new int[threads];
+        Arrays.fill(last, -1);
+        for (int value : sent) {
+            int t = value / messages;
+            Assertions.assertTrue(value > last[t]);
+            last[t] = value;
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testWaitForReady() {
+        ClientCall<Integer, Object> call = Mockito.mock(ClientCall.class);
+        Mockito.when(call.isReady()).thenReturn(false);
+
+        StreamWriter<Integer> writer = new StreamWriter<>(call, LoggerFactory.getLogger(StreamWriterTests.class));
+        writer.write(1);
+        writer.write(2);
+        Mockito.verify(call, Mockito.never()).sendMessage(Mockito.any());
+        Assertions.assertEquals(2, writer.pending());
+
+        Mockito.when(call.isReady()).thenReturn(true);
+        writer.onReady();
+        Mockito.verify(call).sendMessage(1);
+        Mockito.verify(call).sendMessage(2);
+        Assertions.assertEquals(0, writer.pending());
+
+        // 关闭后丢弃消息
+        writer.close();
+        writer.write(3);
+        Mockito.verify(call, Mockito.never()).sendMessage(3);
+    }
+}
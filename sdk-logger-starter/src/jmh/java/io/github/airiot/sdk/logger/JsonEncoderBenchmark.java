@@ -0,0 +1,290 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.github.airiot.sdk.logger;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.IThrowableProxy;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.classic.spi.ThrowableProxy;
+import ch.qos.logback.core.LayoutBase;
+import ch.qos.logback.core.encoder.LayoutWrappingEncoder;
+import com.google.gson.Gson;
+import io.github.airiot.sdk.logger.suggestion.SuggestionException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.logging.logback.ExtendedWhitespaceThrowableProxyConverter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static java.time.temporal.ChronoField.*;
+
+/**
+ * 使用 {@link LayoutWrappingEncoder} 包装原 {@code JsonLayout} 实现与 {@link JsonEncoder} 的编码性能对比
+ * <br>
+ * 运行时添加 {@code -prof gc} 参数可查看每条日志分配的内存
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class JsonEncoderBenchmark {
+
+    /**
+     * 日志是否包含异常堆栈
+     */
+    @Param({"false", "true"})
+    private boolean withException;
+
+    private final Logger logger = new ch.qos.logback.classic.LoggerContext().getLogger(JsonEncoderBenchmark.class);
+    private LayoutWrappingEncoder<ILoggingEvent> legacy;
+    private JsonEncoder encoder;
+    private LoggingEventWithContext event;
+
+    @Setup
+    public void setup() {
+        LegacyJsonLayout layout = new LegacyJsonLayout();
+        layout.start();
+        this.legacy = new LayoutWrappingEncoder<>();
+        this.legacy.setLayout(layout);
+        this.legacy.setCharset(StandardCharsets.UTF_8);
+        this.legacy.start();
+
+        this.encoder = new JsonEncoder();
+        this.encoder.start();
+
+        LoggerContext parent = LoggerContexts.createContext();
+        parent.setProjectId("project1");
+        parent.setService("driver");
+        parent.setModule("write-points");
+        parent.withDriverGroup("group1");
+        LoggerContext context = new LoggerContext(parent).withTable("table1");
+
+        LoggingEvent loggingEvent = new LoggingEvent(Logger.class.getName(), this.logger, Level.WARN,
+                "采集数据处理: 处理后部分数据点数据被丢弃, table={}, device={}, 由 {} 减少到 {}",
+                this.withException ? new IllegalStateException("数据处理失败") : null,
+                new Object[]{"table1", "device1", 10, 9});
+        // 预先计算调用位置和格式化后的消息, 只比较编码的开销
+        loggingEvent.getCallerData();
+        loggingEvent.getFormattedMessage();
+        this.event = new LoggingEventWithContext(context, loggingEvent);
+    }
+
+    @Benchmark
+    public byte[] legacyLayout() {
+        return this.legacy.encode(this.event);
+    }
+
+    @Benchmark
+    public byte[] jsonEncoder() {
+        return this.encoder.encode(this.event);
+    }
+
+    /**
+     * 原 {@code JsonLayout} 的实现
+     */
+    static class LegacyJsonLayout extends LayoutBase<ILoggingEvent> {
+
+        private final static int initialBufferSize = 512;
+        private final Gson gson = new Gson();
+        private final ZoneId zoneId = ZonedDateTime.now().getZone();
+        private final ExtendedWhitespaceThrowableProxyConverter throwableProxyConverter = new ExtendedWhitespaceThrowableProxyConverter();
+
+        private static final DateTimeFormatter DATE_TIME_FORMATTER = new DateTimeFormatterBuilder()
+                .parseCaseInsensitive()
+                .append(DateTimeFormatter.ISO_LOCAL_DATE)
+                .appendLiteral('T')
+                .append(new DateTimeFormatterBuilder()
+                        .appendValue(HOUR_OF_DAY, 2)
+                        .appendLiteral(':')
+                        .appendValue(MINUTE_OF_HOUR, 2)
+                        .optionalStart()
+                        .appendLiteral(':')
+                        .appendValue(SECOND_OF_MINUTE, 2)
+                        .optionalStart()
+                        .appendFraction(NANO_OF_SECOND, 9, 9, true).toFormatter())
+                .optionalStart()
+                .appendOffset("+HH:MM", "GMT")
+                .toFormatter();
+
+        @Override
+        public void start() {
+            super.start();
+            throwableProxyConverter.setOptionList(Collections.singletonList("10"));
+            throwableProxyConverter.start();
+        }
+
+        @Override
+        public String doLayout(ILoggingEvent event) {
+            if (!(event instanceof LoggingEventWithContext)) {
+                throw new IllegalArgumentException("the logging event '" + event.getClass().getName() + "' is not a instance of LoggingEventWithContext");
+            }
+
+            LoggerContext context = ((LoggingEventWithContext) event).getContext();
+
+            String lineInfo = null;
+            if (event.getCallerData() != null && event.getCallerData().length > 1) {
+                StackTraceElement element = event.getCallerData()[1];
+                lineInfo = element.getClassName() + ":" + element.getLineNumber();
+            }
+
+            Map<String, Object> keys = context.getRefData(true);
+
+            String time = LocalDateTime.ofInstant(Instant.ofEpochMilli(event.getTimeStamp()), zoneId).format(DATE_TIME_FORMATTER);
+            StringBuilder sb = new StringBuilder(initialBufferSize);
+            sb.append("{")
+                    .append("\"logType\":").append("\"__syslog__\"").append(",")
+                    .append("\"level\":").append('"').append(event.getLevel().levelStr).append('"').append(",")
+                    .append("\"time\":").append('"').append(time).append('"').append(",")
+                    .append("\"projectId\":").append('"').append(context.getProjectId()).append('"').append(",")
+                    .append("\"service\":").append('"').append(context.getService()).append('"').append(",")
+                    .append("\"module\":").append('"').append(context.getModule()).append('"').append(",");
+
+            if (keys != null && !keys.isEmpty()) {
+                for (Map.Entry<String, Object> entry : keys.entrySet()) {
+                    String key = entry.getKey();
+                    Object value = entry.getValue();
+                    if (value == null) {
+                        continue;
+                    }
+
+                    sb.append('"').append(key).append('"').append(":");
+
+                    if (value instanceof Number) {
+                        sb.append(value);
+                    } else {
+                        sb.append('"').append(value).append('"');
+                    }
+
+                    sb.append(",");
+                }
+            }
+
+            String traceId = context.getTraceId();
+            String spanId = context.getSpanId();
+            if (traceId != null && !traceId.isEmpty()) {
+                sb.append("\"traceId\":").append('"').append(context.getTraceId()).append('"').append(",");
+            }
+            if (spanId != null && !spanId.isEmpty()) {
+                sb.append("\"spanId\":").append('"').append(context.getSpanId()).append('"').append(",");
+            }
+
+            if (context.getData() != null) {
+                sb.append("\"data\":{")
+                        .append("\"__line__\":\"").append(lineInfo).append("\",")
+                        .append("\"raw\":").append(gson.toJson(context.getData()))
+                        .append("\"}");
+            } else {
+                sb.append("\"data\":").append("{\"__line__\":\"").append(lineInfo).append("\"}");
+            }
+
+            sb.append(",");
+            sb.append("\"msg\":").append('"').append(event.getFormattedMessage()).append('"');
+
+            String detail = "";
+            Optional<Object> detailValue = context.getRefData(LoggerContext.DETAIL_KEY);
+            if (detailValue.isPresent()) {
+                detail = String.valueOf(detailValue.get());
+            }
+
+            String suggest = "";
+            Optional<Object> suggestValue = context.getRefData(LoggerContext.SUGGESTION_KEY);
+            if (suggestValue.isPresent()) {
+                suggest = String.valueOf(suggestValue.get());
+            }
+
+            if (event.getThrowableProxy() != null) {
+                // 建议信息
+                IThrowableProxy proxy = event.getThrowableProxy();
+                if (proxy instanceof ThrowableProxy) {
+                    Throwable cause = ((ThrowableProxy) proxy).getThrowable();
+                    if (cause instanceof SuggestionException) {
+                        if (!suggest.isEmpty()) {
+                            suggest += "," + ((SuggestionException) cause).getSuggestion();
+                        } else {
+                            suggest = ((SuggestionException) cause).getSuggestion();
+                        }
+                    }
+                }
+
+                // 将手动设置的 detail 和异常信息拼接到一起
+                String exception = throwableProxyConverter.convert(event);
+                while (exception.startsWith("\r\n")) {
+                    exception = exception.substring(2);
+                }
+
+                while (exception.endsWith("\r\n")) {
+                    exception = exception.substring(0, exception.length() - 2);
+                }
+
+                exception = exception.replaceAll("\r\n", "\\\\r\\\\n");
+                exception = exception.replaceAll("\n", "\\\\r\\\\n");
+                exception = exception.replaceAll("\t", "");
+
+                if (detail.isEmpty()) {
+                    detail = exception;
+                } else {
+                    detail = "\\r\\n" + exception;
+                }
+            }
+
+            if (!detail.isEmpty()) {
+                sb.append(",\"" + LoggerContext.DETAIL_KEY + "\":").append('"').append(detail).append('"');
+            }
+
+            if (!suggest.isEmpty()) {
+                sb.append(",\"" + LoggerContext.SUGGESTION_KEY + "\":")
+                        .append('"')
+                        .append(suggest)
+                        .append('"');
+            }
+
+            sb.append("}");
+            sb.append("\r\n");
+
+            context.remove(LoggerContext.DETAIL_KEY);
+            context.remove(LoggerContext.FOCUS_KEY);
+            context.remove(LoggerContext.SUGGESTION_KEY);
+
+            return sb.toString();
+        }
+    }
+}
@@ -36,15 +36,16 @@ public class JsonConsoleAppenderWithDynamicContext extends UnsynchronizedAppende
         LoggerContext current = LoggerContexts.getContext();
         LoggerContext parent = current.getParent();
 
-        current.setParent(this.context);
-        if (parent != null) {
-            this.context.setParent(parent);
-        }
-        
-        try {
-            this.delegate.doAppend(new LoggingEventWithContext(current, eventObject));
-        } finally {
-            current.setParent(this.context.getParent());
+        // 模块上下文由多个线程共享, 当前上下文也可能被子线程继承, 因此不修改二者的父上下文,
+        // 而是为本次输出组装副本: 当前上下文 -> 模块上下文 -> 当前上下文的父上下文
+        LoggerContext eventContext;
+        if (parent == null) {
+            // 当前上下文为根上下文
+            eventContext = this.context.withParent(current);
+        } else {
+            eventContext = current.withParent(this.context.withParent(parent));
         }
+
+        this.delegate.doAppend(new LoggingEventWithContext(eventContext, eventObject));
     }
 }
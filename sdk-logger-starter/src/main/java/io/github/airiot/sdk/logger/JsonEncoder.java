@@ -0,0 +1,498 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.github.airiot.sdk.logger;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.IThrowableProxy;
+import ch.qos.logback.classic.spi.ThrowableProxy;
+import ch.qos.logback.core.encoder.EncoderBase;
+import com.google.gson.Gson;
+import io.github.airiot.sdk.logger.suggestion.SuggestionException;
+import org.springframework.boot.logging.logback.ExtendedWhitespaceThrowableProxyConverter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * JSON 格式日志编码器, 可替代使用 {@link JsonLayout} 的 {@link ch.qos.logback.core.encoder.LayoutWrappingEncoder}
+ * <br>
+ * 日志直接以 UTF-8 编码写入线程本地的字节缓冲区, 不生成中间字符串. 字符串在写入时一次完成 JSON 转义,
+ * 日志上下文中的关联数据沿上下文链直接读取, 不复制到新的 Map 中. 日志时间按秒缓存格式化结果.
+ * <br>
+ * 输出的字段与 {@link JsonLayout} 相同, 每条日志以 {@code \r\n} 结尾.
+ */
+public class JsonEncoder extends EncoderBase<ILoggingEvent> {
+
+    /**
+     * 缓冲区的初始大小
+     */
+    private static final int INITIAL_BUFFER_SIZE = 512;
+    /**
+     * 缓冲区超过该大小时, 输出日志后不再保留, 避免较大的异常堆栈长期占用内存
+     */
+    private static final int MAX_RETAINED_BUFFER_SIZE = 64 * 1024;
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private final Gson gson = new Gson();
+    private final ZoneId zoneId = ZonedDateTime.now().getZone();
+    private final ExtendedWhitespaceThrowableProxyConverter throwableProxyConverter = new ExtendedWhitespaceThrowableProxyConverter();
+    private final ThreadLocal<Buffer> buffers = ThreadLocal.withInitial(Buffer::new);
+
+    @Override
+    public void start() {
+        throwableProxyConverter.setOptionList(Collections.singletonList("10"));
+        throwableProxyConverter.start();
+        super.start();
+    }
+
+    @Override
+    public void stop() {
+        super.stop();
+        throwableProxyConverter.stop();
+    }
+
+    @Override
+    public byte[] headerBytes() {
+        return null;
+    }
+
+    @Override
+    public byte[] encode(ILoggingEvent event) {
+        Buffer buffer = this.buffers.get();
+        try {
+            this.write(event, buffer);
+            return buffer.toByteArray();
+        } finally {
+            this.release(buffer);
+        }
+    }
+
+    @Override
+    public byte[] footerBytes() {
+        return null;
+    }
+
+    /**
+     * 将日志编码为字符串, 用于 {@link JsonLayout} 等需要字符串的场景
+     */
+    String encodeToString(ILoggingEvent event) {
+        Buffer buffer = this.buffers.get();
+        try {
+            this.write(event, buffer);
+            return new String(buffer.bytes, 0, buffer.size, StandardCharsets.UTF_8);
+        } finally {
+            this.release(buffer);
+        }
+    }
+
+    private void release(Buffer buffer) {
+        if (buffer.bytes.length > MAX_RETAINED_BUFFER_SIZE) {
+            this.buffers.remove();
+        } else {
+            buffer.size = 0;
+        }
+    }
+
+    private void write(ILoggingEvent event, Buffer buf) {
+        if (!(event instanceof LoggingEventWithContext)) {
+            throw new IllegalArgumentException("the logging event '" + event.getClass().getName() + "' is not a instance of LoggingEventWithContext");
+        }
+
+        LoggerContext context = ((LoggingEventWithContext) event).getContext();
+
+        buf.size = 0;
+        buf.ascii("{\"logType\":\"__syslog__\",\"level\":\"").ascii(event.getLevel().levelStr);
+        buf.ascii("\",\"time\":\"");
+        this.writeTime(buf, event.getTimeStamp());
+        buf.ascii("\",\"projectId\":\"").string(context.getProjectId());
+        buf.ascii("\",\"service\":\"").string(context.getService());
+        buf.ascii("\",\"module\":\"").string(context.getModule());
+        buf.ascii("\",");
+
+        this.writeRefData(buf, context);
+
+        String traceId = context.getTraceId();
+        String spanId = context.getSpanId();
+        if (traceId != null && !traceId.isEmpty()) {
+            buf.ascii("\"traceId\":\"").string(traceId).ascii("\",");
+        }
+        if (spanId != null && !spanId.isEmpty()) {
+            buf.ascii("\"spanId\":\"").string(spanId).ascii("\",");
+        }
+
+        buf.ascii("\"data\":{\"__line__\":\"");
+        StackTraceElement[] callerData = event.getCallerData();
+        if (callerData != null && callerData.length > 1) {
+            buf.string(callerData[1].getClassName()).ascii(":").number(callerData[1].getLineNumber());
+        } else {
+            buf.ascii("null");
+        }
+        buf.ascii("\"");
+        if (context.getData() != null) {
+            buf.ascii(",\"raw\":").chars(buf.json(this.gson, context.getData()));
+        }
+        buf.ascii("},\"msg\":\"").string(event.getFormattedMessage()).ascii("\"");
+
+        this.writeDetailAndSuggestion(buf, event, context);
+
+        buf.ascii("}\r\n");
+
+        context.remove(LoggerContext.DETAIL_KEY);
+        context.remove(LoggerContext.FOCUS_KEY);
+        context.remove(LoggerContext.SUGGESTION_KEY);
+    }
+
+    /**
+     * 输出上下文链中的关联数据. 同名的关联数据以离当前上下文最近的为准
+     */
+    private void writeRefData(Buffer buf, LoggerContext context) {
+        LoggerContext current = context;
+        for (int depth = 0; current != null && depth <= LoggerContexts.MAX_LEVEL; depth++) {
+            for (Map.Entry<String, Object> entry : current.currentRefData().entrySet()) {
+                Object value = entry.getValue();
+                if (value == null || isShadowed(context, depth, entry.getKey())) {
+                    continue;
+                }
+
+                buf.ascii("\"").string(entry.getKey()).ascii("\":");
+                if (value instanceof Number) {
+                    buf.string(value.toString());
+                } else {
+                    buf.ascii("\"").string(String.valueOf(value)).ascii("\"");
+                }
+                buf.ascii(",");
+            }
+
+            if (current.getParent() == current) {
+                break;
+            }
+            current = current.getParent();
+        }
+    }
+
+    /**
+     * 判断上下文链中第 {@code depth} 层上下文的关联数据是否被更近的上下文中的同名数据覆盖
+     */
+    private static boolean isShadowed(LoggerContext context, int depth, String key) {
+        LoggerContext current = context;
+        for (int i = 0; i < depth; i++) {
+            if (current.currentRefData().containsKey(key)) {
+                return true;
+            }
+            current = current.getParent();
+        }
+        return false;
+    }
+
+    private void writeDetailAndSuggestion(Buffer buf, ILoggingEvent event, LoggerContext context) {
+        Optional<Object> detailValue = context.getRefData(LoggerContext.DETAIL_KEY);
+        String detail = detailValue.isPresent() ? String.valueOf(detailValue.get()) : "";
+        Optional<Object> suggestValue = context.getRefData(LoggerContext.SUGGESTION_KEY);
+        String suggest = suggestValue.isPresent() ? String.valueOf(suggestValue.get()) : "";
+
+        String exception = null;
+        String exceptionSuggest = null;
+        IThrowableProxy proxy = event.getThrowableProxy();
+        if (proxy != null) {
+            if (proxy instanceof ThrowableProxy) {
+                Throwable cause = ((ThrowableProxy) proxy).getThrowable();
+                if (cause instanceof SuggestionException) {
+                    exceptionSuggest = ((SuggestionException) cause).getSuggestion();
+                }
+            }
+            exception = throwableProxyConverter.convert(event);
+        }
+
+        // 去掉异常信息首尾的换行, 换行符与系统相关, 可能是 \n 或 \r\n
+        int start = 0;
+        int end = exception == null ? 0 : exception.length();
+        while (start < end && isLineBreak(exception.charAt(start))) {
+            start++;
+        }
+        while (end > start && isLineBreak(exception.charAt(end - 1))) {
+            end--;
+        }
+
+        if (!detail.isEmpty() || start < end) {
+            buf.ascii(",\"" + LoggerContext.DETAIL_KEY + "\":\"").string(detail);
+            if (start < end) {
+                // 将手动设置的 detail 和异常信息拼接到一起
+                if (!detail.isEmpty()) {
+                    buf.ascii("\\r\\n");
+                }
+                buf.stackTrace(exception, start, end);
+            }
+            buf.ascii("\"");
+        }
+
+        if (exceptionSuggest != null && !exceptionSuggest.isEmpty()) {
+            buf.ascii(",\"" + LoggerContext.SUGGESTION_KEY + "\":\"");
+            if (!suggest.isEmpty()) {
+                buf.string(suggest).ascii(",");
+            }
+            buf.string(exceptionSuggest).ascii("\"");
+        } else if (!suggest.isEmpty()) {
+            buf.ascii(",\"" + LoggerContext.SUGGESTION_KEY + "\":\"").string(suggest).ascii("\"");
+        }
+    }
+
+    private static boolean isLineBreak(char c) {
+        return c == '\r' || c == '\n';
+    }
+
+    /**
+     * 输出 {@code yyyy-MM-ddTHH:mm:ss.SSS000000} 格式的时间, 精确到秒的部分按线程缓存
+     */
+    private void writeTime(Buffer buf, long timestamp) {
+        long second = Math.floorDiv(timestamp, 1000L);
+        if (buf.cachedSecond != second || buf.cachedTime == null) {
+            LocalDateTime time = LocalDateTime.ofInstant(Instant.ofEpochSecond(second), this.zoneId);
+            byte[] bytes = new byte[19];
+            digits(bytes, 0, time.getYear(), 4);
+            bytes[4] = '-';
+            digits(bytes, 5, time.getMonthValue(), 2);
+            bytes[7] = '-';
+            digits(bytes, 8, time.getDayOfMonth(), 2);
+            bytes[10] = 'T';
+            digits(bytes, 11, time.getHour(), 2);
+            bytes[13] = ':';
+            digits(bytes, 14, time.getMinute(), 2);
+            bytes[16] = ':';
+            digits(bytes, 17, time.getSecond(), 2);
+            buf.cachedTime = bytes;
+            buf.cachedSecond = second;
+        }
+
+        buf.ensureCapacity(29);
+        System.arraycopy(buf.cachedTime, 0, buf.bytes, buf.size, 19);
+        buf.size += 19;
+        buf.bytes[buf.size++] = '.';
+        digits(buf.bytes, buf.size, (int) Math.floorMod(timestamp, 1000L), 3);
+        buf.size += 3;
+        buf.ascii("000000");
+    }
+
+    private static void digits(byte[] bytes, int offset, int value, int width) {
+        for (int i = offset + width - 1; i >= offset; i--) {
+            bytes[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+    /**
+     * 可复用的 UTF-8 字节缓冲区
+     */
+    private static final class Buffer {
+        private byte[] bytes = new byte[INITIAL_BUFFER_SIZE];
+        private int size;
+        /**
+         * 已格式化的时间 (精确到秒) 及其对应的秒数
+         */
+        private long cachedSecond;
+        private byte[] cachedTime;
+        /**
+         * 自定义数据序列化为 JSON 时使用
+         */
+        private final StringBuilder chars = new StringBuilder();
+
+        void ensureCapacity(int extra) {
+            if (size + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length << 1, size + extra));
+            }
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(bytes, size);
+        }
+
+        /**
+         * 写入 ASCII 字符串, 不做转义
+         */
+        Buffer ascii(String s) {
+            int length = s.length();
+            ensureCapacity(length);
+            for (int i = 0; i < length; i++) {
+                bytes[size++] = (byte) s.charAt(i);
+            }
+            return this;
+        }
+
+        Buffer number(int value) {
+            ensureCapacity(11);
+            if (value < 0) {
+                bytes[size++] = '-';
+                value = -value;
+            }
+            int length = 1;
+            for (int v = value; v >= 10; v /= 10) {
+                length++;
+            }
+            digits(bytes, size, value, length);
+            size += length;
+            return this;
+        }
+
+        /**
+         * 写入字符串内容并做 JSON 转义, 不包含首尾的引号
+         */
+        Buffer string(String s) {
+            if (s == null) {
+                return ascii("null");
+            }
+            int length = s.length();
+            for (int i = 0; i < length; i++) {
+                char c = s.charAt(i);
+                switch (c) {
+                    case '"':
+                        escape('"');
+                        break;
+                    case '\\':
+                        escape('\\');
+                        break;
+                    case '\n':
+                        escape('n');
+                        break;
+                    case '\r':
+                        escape('r');
+                        break;
+                    case '\t':
+                        escape('t');
+                        break;
+                    case '\b':
+                        escape('b');
+                        break;
+                    case '\f':
+                        escape('f');
+                        break;
+                    default:
+                        if (c < 0x20) {
+                            ensureCapacity(6);
+                            bytes[size++] = '\\';
+                            bytes[size++] = 'u';
+                            bytes[size++] = '0';
+                            bytes[size++] = '0';
+                            bytes[size++] = HEX[c >> 4];
+                            bytes[size++] = HEX[c & 0xF];
+                        } else {
+                            i = utf8(s, i, c);
+                        }
+                }
+            }
+            return this;
+        }
+
+        /**
+         * 写入异常堆栈, 换行统一输出为 {@code \r\n}, 并去掉缩进使用的制表符
+         */
+        Buffer stackTrace(String s, int start, int end) {
+            for (int i = start; i < end; i++) {
+                char c = s.charAt(i);
+                if (c == '\t') {
+                    continue;
+                }
+                if (c == '\n' || (c == '\r' && i + 1 < end && s.charAt(i + 1) == '\n')) {
+                    if (c == '\r') {
+                        i++;
+                    }
+                    ascii("\\r\\n");
+                    continue;
+                }
+                i = stackTraceChar(s, i);
+            }
+            return this;
+        }
+
+        /**
+         * 写入异常堆栈中的一个字符
+         *
+         * @return 最后一个被写入的字符的位置
+         */
+        private int stackTraceChar(String s, int index) {
+            char c = s.charAt(index);
+            if (c < 0x20 || c == '"' || c == '\\') {
+                string(String.valueOf(c));
+            } else {
+                index = utf8(s, index, c);
+            }
+            return index;
+        }
+
+        /**
+         * 写入 JSON 序列化结果中的字符, 不做转义
+         */
+        Buffer chars(CharSequence s) {
+            int length = s.length();
+            for (int i = 0; i < length; i++) {
+                i = utf8(s, i, s.charAt(i));
+            }
+            return this;
+        }
+
+        /**
+         * 将对象序列化为 JSON, 结果保存在复用的 {@link StringBuilder} 中
+         */
+        CharSequence json(Gson gson, Object value) {
+            chars.setLength(0);
+            gson.toJson(value, chars);
+            return chars;
+        }
+
+        private void escape(char c) {
+            ensureCapacity(2);
+            bytes[size++] = '\\';
+            bytes[size++] = (byte) c;
+        }
+
+        /**
+         * 以 UTF-8 编码写入一个字符, 如果是代理对则同时写入下一个字符
+         *
+         * @return 最后一个被写入的字符的位置
+         */
+        private int utf8(CharSequence s, int index, char c) {
+            ensureCapacity(4);
+            if (c < 0x80) {
+                bytes[size++] = (byte) c;
+            } else if (c < 0x800) {
+                bytes[size++] = (byte) (0xC0 | (c >> 6));
+                bytes[size++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && index + 1 < s.length() && Character.isLowSurrogate(s.charAt(index + 1))) {
+                int codePoint = Character.toCodePoint(c, s.charAt(index + 1));
+                bytes[size++] = (byte) (0xF0 | (codePoint >> 18));
+                bytes[size++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                bytes[size++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                bytes[size++] = (byte) (0x80 | (codePoint & 0x3F));
+                return index + 1;
+            } else if (Character.isSurrogate(c)) {
+                bytes[size++] = '?';
+            } else {
+                bytes[size++] = (byte) (0xE0 | (c >> 12));
+                bytes[size++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                bytes[size++] = (byte) (0x80 | (c & 0x3F));
+            }
+            return index;
+        }
+    }
+}
@@ -20,7 +20,6 @@ package io.github.airiot.sdk.logger;
 import ch.qos.logback.classic.Logger;
 import ch.qos.logback.classic.spi.ILoggingEvent;
 import ch.qos.logback.core.ConsoleAppender;
-import ch.qos.logback.core.encoder.LayoutWrappingEncoder;
 import org.slf4j.impl.StaticLoggerBinder;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.SpringApplicationRunListener;
@@ -34,13 +33,12 @@ public class JsonLoggerApplicationRunListener implements SpringApplicationRunLis
 
     @Override
     public void contextLoaded(ConfigurableApplicationContext context) {
-        JsonLayout layout = new JsonLayout();
-        layout.start();
-
-        LayoutWrappingEncoder<ILoggingEvent> encoder = new LayoutWrappingEncoder<>();
-        encoder.setLayout(layout);
-        
         ch.qos.logback.classic.LoggerContext lc = (ch.qos.logback.classic.LoggerContext) StaticLoggerBinder.getSingleton().getLoggerFactory();
+
+        JsonEncoder encoder = new JsonEncoder();
+        encoder.setContext(lc);
+        encoder.start();
+
         ConsoleAppender<ILoggingEvent> appender = new ConsoleAppender<>();
 
         appender.setEncoder(encoder);
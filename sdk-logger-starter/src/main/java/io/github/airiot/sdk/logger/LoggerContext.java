@@ -65,7 +65,7 @@ public class LoggerContext {
     /**
      * 日志模式
      */
-    private Mode mode = Mode.valueOf(System.getenv("LOGGING_MODE"), Mode.PRODUCT);
+    private Mode mode;
 
     private int level;
 
@@ -81,7 +81,7 @@ public class LoggerContext {
     /**
      * 项目ID
      */
-    private String projectId = System.getProperty("project", "");
+    private String projectId;
     /**
      * 服务名
      */
@@ -97,7 +97,7 @@ public class LoggerContext {
     /**
      * 自定义关联数据
      */
-    private final Map<String, Object> refData = new HashMap<>();
+    private final Map<String, Object> refData;
 
     public int getLevel() {
         return level;
@@ -281,6 +281,13 @@ public class LoggerContext {
         return Optional.ofNullable(value);
     }
 
+    /**
+     * 获取当前上下文中的自定义关联数据, 不包含父级上下文中的数据. 返回的是内部的 Map, 仅用于输出日志时只读遍历
+     */
+    Map<String, Object> currentRefData() {
+        return this.refData;
+    }
+
     /**
      * 获取所有自定义关联数据.
      *
@@ -444,5 +451,36 @@ public class LoggerContext {
         } else {
             this.level = parent.level + 1;
         }
+        this.mode = Mode.valueOf(System.getenv("LOGGING_MODE"), Mode.PRODUCT);
+        this.projectId = System.getProperty("project", "");
+        this.refData = new HashMap<>();
+    }
+
+    /**
+     * 创建 {@code source} 的副本, 并以 {@code parent} 作为父上下文. 副本与 {@code source} 共享关联数据
+     */
+    private LoggerContext(LoggerContext source, LoggerContext parent) {
+        this.parent = parent;
+        this.level = parent.level + 1;
+        this.mode = source.mode;
+        this.traceId = source.traceId;
+        this.spanId = source.spanId;
+        this.projectId = source.projectId;
+        this.service = source.service;
+        this.module = source.module;
+        this.data = source.data;
+        this.refData = source.refData;
+    }
+
+    /**
+     * 以指定的父上下文创建当前上下文的副本, 不修改当前上下文.
+     * <br>
+     * 用于输出日志时临时组装上下文链. 副本与当前上下文共享关联数据, 输出日志时移除的关联数据同样会从当前上下文中移除
+     *
+     * @param parent 副本的父上下文
+     * @return 当前上下文的副本
+     */
+    LoggerContext withParent(LoggerContext parent) {
+        return new LoggerContext(this, parent);
     }
 }
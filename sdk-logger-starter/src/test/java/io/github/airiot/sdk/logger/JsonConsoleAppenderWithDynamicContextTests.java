@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.airiot.sdk.logger;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.core.AppenderBase;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+
+public class JsonConsoleAppenderWithDynamicContextTests {
+
+    private static final Logger logger = new ch.qos.logback.classic.LoggerContext().getLogger(JsonConsoleAppenderWithDynamicContextTests.class);
+
+    static class CapturingAppender extends AppenderBase<ILoggingEvent> {
+
+        private final ConcurrentLinkedQueue<LoggerContext> contexts = new ConcurrentLinkedQueue<>();
+
+        @Override
+        protected void append(ILoggingEvent event) {
+            contexts.add(((LoggingEventWithContext) event).getContext());
+        }
+    }
+
+    private static LoggerContext module() {
+        LoggerContext context = LoggerContexts.createContext();
+        context.setModule("module1");
+        context.withTable("table1");
+        return context;
+    }
+
+    private static CapturingAppender start(JsonConsoleAppenderWithDynamicContext[] holder, LoggerContext module) {
+        CapturingAppender delegate = new CapturingAppender();
+        delegate.start();
+        holder[0] = new JsonConsoleAppenderWithDynamicContext(module, delegate);
+        holder[0].start();
+        return delegate;
+    }
+
+    private static void append(JsonConsoleAppenderWithDynamicContext appender, String message) {
+        appender.doAppend(new LoggingEvent(Logger.class.getName(), logger, Level.INFO, message, null, null));
+    }
+
+    @Test
+    void testContextChain() {
+        LoggerContext module = module();
+        LoggerContext moduleParent = module.getParent();
+        JsonConsoleAppenderWithDynamicContext[] appender = new JsonConsoleAppenderWithDynamicContext[1];
+        CapturingAppender delegate = start(appender, module);
+
+        LoggerContext current = LoggerContexts.push().withDevice("device1");
+        LoggerContext parent = current.getParent();
+        try {
+            append(appender[0], "message");
+        } finally {
+            LoggerContexts.pop();
+        }
+
+        LoggerContext context = delegate.contexts.poll();
+        Assertions.assertNotNull(context);
+        // 当前上下文 -> 模块上下文 -> 当前上下文的父上下文
+        Assertions.assertEquals("device1", context.getRefData(LoggerContext.DEVICE_KEY).orElse(null));
+        Assertions.assertEquals("table1", context.getRefData(LoggerContext.TABLE_KEY).orElse(null));
+        Assertions.assertEquals("module1", context.getModule());
+        Assertions.assertSame(parent, context.getParent().getParent());
+
+        // 不修改共享的上下文
+        Assertions.assertSame(moduleParent, module.getParent());
+        Assertions.assertSame(parent, current.getParent());
+    }
+
+    @Test
+    void testConcurrentAppend() throws Exception {
+        LoggerContext module = module();
+        LoggerContext moduleParent = module.getParent();
+        JsonConsoleAppenderWithDynamicContext[] appender = new JsonConsoleAppenderWithDynamicContext[1];
+        CapturingAppender delegate = start(appender, module);
+
+        int threads = 8;
+        int count = 1000;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            String deviceId = "device" + i;
+            Thread worker = new Thread(() -> {
+                LoggerContexts.push().withDevice(deviceId);
+                try {
+                    start.await();
+                    for (int j = 0; j < count; j++) {
+                        append(appender[0], "message");
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    LoggerContexts.pop();
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        Assertions.assertEquals(threads * count, delegate.contexts.size());
+        for (LoggerContext context : delegate.contexts) {
+            // 上下文链中不能出现环
+            int depth = 0;
+            for (LoggerContext c = context; c != null; c = c.getParent()) {
+                Assertions.assertTrue(++depth <= LoggerContexts.MAX_LEVEL + 2);
+            }
+            Assertions.assertEquals("module1", context.getModule());
+            Assertions.assertTrue(context.getRefData(LoggerContext.DEVICE_KEY).isPresent());
+        }
+        Assertions.assertSame(moduleParent, module.getParent());
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.github.airiot.sdk.logger;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+public class JsonEncoderTests {
+
+    private static final Logger logger = new ch.qos.logback.classic.LoggerContext().getLogger(JsonEncoderTests.class);
+    private static final JsonEncoder encoder = new JsonEncoder();
+
+    @BeforeAll
+    static void setup() {
+        encoder.start();
+    }
+
+    private static LoggerContext context() {
+        LoggerContext context = LoggerContexts.createContext();
+        context.setProjectId("project1");
+        context.setService("driver");
+        context.setModule("test");
+        return context;
+    }
+
+    private static JsonObject encode(LoggerContext context, String message, Throwable cause, Object... args) {
+        LoggingEvent event = new LoggingEvent(Logger.class.getName(), logger, Level.INFO, message, cause, args);
+        byte[] bytes = encoder.encode(new LoggingEventWithContext(context, event));
+        String text = new String(bytes, StandardCharsets.UTF_8);
+        Assertions.assertTrue(text.endsWith("}\r\n"));
+        return JsonParser.parseString(text).getAsJsonObject();
+    }
+
+    @Test
+    void testEscape() {
+        String message = "引号 \"quoted\", 反斜杠 \\, 换行\r\n, 制表\t, 控制字符 \u0001, emoji 😀";
+        JsonObject json = encode(context(), "{}", null, message);
+        Assertions.assertEquals(message, json.get("msg").getAsString());
+        Assertions.assertEquals("INFO", json.get("level").getAsString());
+        Assertions.assertEquals("project1", json.get("projectId").getAsString());
+        Assertions.assertTrue(json.get("time").getAsString().matches("\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}\\.\\d{3}000000"));
+        Assertions.assertTrue(json.getAsJsonObject("data").has("__line__"));
+    }
+
+    @Test
+    void testRefData() {
+        LoggerContext parent = context().withTable("table1").withDriverGroup("group1");
+        LoggerContext child = new LoggerContext(parent).withTable("table2");
+        child.setData("key", "value \"1\"");
+
+        JsonObject json = encode(child, "message", null);
+        Assertions.assertEquals("table2", json.get("table").getAsString());
+        Assertions.assertEquals("group1", json.get("group").getAsString());
+        Assertions.assertEquals("value \"1\"", json.getAsJsonObject("data").getAsJsonObject("raw").get("key").getAsString());
+    }
+
+    @Test
+    void testException() {
+        LoggerContext context = context().withDetail("详细信息").withSuggestion("建议");
+        JsonObject json = encode(context, "failed", new IllegalStateException("错误 \"message\""));
+        String detail = json.get(LoggerContext.DETAIL_KEY).getAsString();
+        Assertions.assertTrue(detail.startsWith("详细信息\r\njava.lang.IllegalStateException: 错误 \"message\"\r\n"));
+        Assertions.assertFalse(detail.contains("\t"));
+        Assertions.assertFalse(detail.endsWith("\r\n"));
+        Assertions.assertEquals("建议", json.get(LoggerContext.SUGGESTION_KEY).getAsString());
+
+        // 输出后清除 detail 和 suggest
+        Assertions.assertFalse(context.getRefData(LoggerContext.DETAIL_KEY).isPresent());
+        Assertions.assertFalse(encode(context, "message", null).has(LoggerContext.DETAIL_KEY));
+    }
+
+    @Test
+    void testLayout() {
+        JsonLayout layout = new JsonLayout();
+        layout.start();
+        LoggingEvent event = new LoggingEvent(Logger.class.getName(), logger, Level.WARN, "message {}", null, new Object[]{1});
+        LoggingEventWithContext eventWithContext = new LoggingEventWithContext(context(), event);
+        Assertions.assertEquals(new String(encoder.encode(eventWithContext), StandardCharsets.UTF_8), layout.doLayout(eventWithContext));
+    }
+}